@@ -12,6 +12,7 @@ import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxOutput;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
 import io.bitcoinsv.bitcoinjsv.bitcoin.bean.BitcoinObjectImpl;
 import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptCache;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -78,7 +79,7 @@ public class TxOutputBean extends BitcoinObjectImpl<TxOutput> implements TxOutpu
     @Override
     public Script getScriptPubKey() {
         if (scriptPubKey == null)
-            scriptPubKey = new Script(getScriptBytes());
+            scriptPubKey = ScriptCache.getDefault().parse(getScriptBytes());
         return scriptPubKey;
     }
 
@@ -31,6 +31,8 @@ import io.bitcoinsv.bitcoinjsv.core.listeners.ReorganizeListener;
 import io.bitcoinsv.bitcoinjsv.exception.BlockStoreException;
 import io.bitcoinsv.bitcoinjsv.exception.PrunedException;
 import io.bitcoinsv.bitcoinjsv.exception.VerificationException;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.FullBlock;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.ChainInfoReadOnly;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.LiteBlock;
@@ -95,6 +97,7 @@ import static com.google.common.base.Preconditions.*;
 public abstract class AbstractBlockChain {
     private static final Logger log = LoggerFactory.getLogger(AbstractBlockChain.class);
     protected final ReentrantLock lock = Threading.lock("blockchain");
+    private static final Counter BLOCKS_CONNECTED = Metrics.counter("chain.blocks.connected");
 
     /** Keeps a map of block hashes to StoredBlocks. */
     private final BlockStore<LiteBlock>  blockStore;
@@ -407,6 +410,7 @@ public abstract class AbstractBlockChain {
             LiteBlock newStoredBlock = addToBlockStore(storedPrev, block);
             versionTally.add(blockVersion);
             setChainHead(newStoredBlock);
+            BLOCKS_CONNECTED.increment();
             log.debug("Chain is now {} blocks high, running listeners", newStoredBlock.getChainInfo().getHeight());
             informListenersForNewBlock(NewBlockType.BEST_CHAIN, newStoredBlock);
         } else {
@@ -23,6 +23,8 @@ import io.bitcoinsv.bitcoinjsv.exception.BlockStoreException;
 import io.bitcoinsv.bitcoinjsv.bitcoin.Genesis;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.LiteBlock;
 import io.bitcoinsv.bitcoinjsv.bitcoin.bean.extended.LiteBlockBean;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
 import io.bitcoinsv.bitcoinjsv.utils.Threading;
 import org.slf4j.Logger;
@@ -63,6 +65,9 @@ public class SPVBlockStore implements BlockStore<LiteBlock>  {
 
     protected ReentrantLock lock = Threading.lock("SPVBlockStore");
 
+    private static final Counter CACHE_HITS = Metrics.counter("store.spv.cache.hit");
+    private static final Counter CACHE_MISSES = Metrics.counter("store.spv.cache.miss");
+
     // The entire ring-buffer is mmapped and accessing it should be as fast as accessing regular memory once it's
     // faulted in. Unfortunately, in theory practice and theory are the same. In practice they aren't.
     //
@@ -202,8 +207,11 @@ public class SPVBlockStore implements BlockStore<LiteBlock>  {
             if (hash.equals(Sha256Hash.ZERO_HASH))
                 return null;
             LiteBlock cacheHit = blockCache.get(hash);
-            if (cacheHit != null)
+            if (cacheHit != null) {
+                CACHE_HITS.increment();
                 return cacheHit;
+            }
+            CACHE_MISSES.increment();
             if (notFoundCache.get(hash) != null)
                 return null;
 
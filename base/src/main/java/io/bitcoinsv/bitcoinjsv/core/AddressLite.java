@@ -31,7 +31,10 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.security.DigestException;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -53,6 +56,11 @@ public class AddressLite extends VersionedChecksummedBytes implements Addressabl
      */
     public static final int LENGTH = 20;
 
+    /**
+     * The most characters the base58 form of an address can take, the version byte, hash and checksum being 25 bytes.
+     */
+    public static final int MAX_BASE58_LENGTH = 35;
+
     private transient NetworkParameters params;
 
     /**
@@ -103,6 +111,83 @@ public class AddressLite extends VersionedChecksummedBytes implements Addressabl
         return new AddressLite(params, base58);
     }
 
+    /**
+     * Writes the base58 form of many addresses into one buffer, one after the other without separators. The end of the
+     * text of the i-th address is stored in {@code ends[i]}; it starts where the previous one ended, or at the given
+     * offset for the first. A buffer of {@code addresses.size() * MAX_BASE58_LENGTH} characters is always big enough.
+     * The text is the same as {@link #toBase58()} gives for each address, but one digest and scratch buffer serve the
+     * whole batch.
+     *
+     * @return the index just after the last character written
+     * @throws IndexOutOfBoundsException if the buffer is too small
+     */
+    public static int toBase58(List<? extends Addressable> addresses, char[] out, int offset, int[] ends) {
+        checkArgument(ends.length >= addresses.size(), "Not enough room for the ends of all addresses");
+        MessageDigest digest = Sha256Hash.newDigest();
+        byte[] bytes = new byte[1 + LENGTH + 4];
+        byte[] hash = new byte[32];
+        for (int i = 0; i < addresses.size(); i++) {
+            Addressable address = addresses.get(i);
+            byte[] hash160 = address.getHash160();
+            checkArgument(hash160.length == LENGTH, "Addresses are 160-bit hashes, so you must provide 20 bytes");
+            bytes[0] = (byte) address.getVersion();
+            System.arraycopy(hash160, 0, bytes, 1, LENGTH);
+            hashTwice(digest, bytes, 1 + LENGTH, hash);
+            System.arraycopy(hash, 0, bytes, 1 + LENGTH, 4);
+            offset += Base58.encode(bytes, 0, bytes.length, out, offset);
+            ends[i] = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Parses many base58 addresses written one after the other, as by {@link #toBase58(List, char[], int, int[])}.
+     * The i-th address is the text up to {@code ends[i]}, starting where the previous one ended or at the given offset
+     * for the first. Its version is stored in {@code versions[i]} and its hash160 at {@code i * LENGTH} in
+     * {@code hash160s}, without creating an object per address.
+     *
+     * @param params the network all addresses must belong to, or null if you don't want validation
+     * @throws AddressFormatException if an address doesn't parse or its checksum is invalid
+     * @throws WrongNetworkException if an address is valid but for a different chain
+     */
+    public static void fromBase58(@Nullable NetworkParameters params, CharSequence text, int offset, int[] ends,
+                                  int count, int[] versions, byte[] hash160s) throws AddressFormatException {
+        checkArgument(ends.length >= count && versions.length >= count, "Arrays are shorter than count");
+        checkArgument(hash160s.length >= count * LENGTH, "Not enough room for all hashes");
+        MessageDigest digest = Sha256Hash.newDigest();
+        byte[] bytes = new byte[MAX_BASE58_LENGTH];
+        byte[] hash = new byte[32];
+        int start = offset;
+        for (int i = 0; i < count; i++) {
+            int end = ends[i];
+            if (end - start > MAX_BASE58_LENGTH)
+                throw new AddressFormatException("Address " + i + " is too long");
+            if (Base58.decode(text, start, end, bytes, 0) != 1 + LENGTH + 4)
+                throw new AddressFormatException("Address " + i + " has the wrong length");
+            hashTwice(digest, bytes, 1 + LENGTH, hash);
+            for (int j = 0; j < 4; j++)
+                if (bytes[1 + LENGTH + j] != hash[j])
+                    throw new AddressFormatException("Checksum of address " + i + " does not validate");
+            int version = bytes[0] & 0xFF;
+            if (params != null && !isAcceptableVersion(params, version))
+                throw new WrongNetworkException(version, params.getAcceptableAddressCodes());
+            versions[i] = version;
+            System.arraycopy(bytes, 1, hash160s, i * LENGTH, LENGTH);
+            start = end;
+        }
+    }
+
+    private static void hashTwice(MessageDigest digest, byte[] input, int length, byte[] hash) {
+        try {
+            digest.update(input, 0, length);
+            digest.digest(hash, 0, hash.length);
+            digest.update(hash, 0, hash.length);
+            digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);  // Cannot happen.
+        }
+    }
+
     /**
      * Construct an address from parameters and the hash160 form. Example:<p>
      *
@@ -21,6 +21,8 @@ import io.bitcoinsv.bitcoinjsv.exception.AddressFormatException;
 import java.math.BigInteger;
 import java.util.Arrays;
 
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
 /**
  * Base58 is a way to encode Bitcoin addresses (or arbitrary data) as alphanumeric strings.
  * <p>
@@ -38,12 +40,15 @@ import java.util.Arrays;
  * <li>Doubleclicking selects the whole number as one word if it's all alphanumeric.</li>
  * </ul>
  * <p>
- * However, note that the encoding/decoding runs in O(n&sup2;) time, so it is not useful for large data.
- * <p>
  * The basic idea of the encoding is to treat the data bytes as a large number represented using
  * base-256 digits, convert the number to be represented using base-58 digits, preserve the exact
  * number of leading zeros (which are otherwise lost during the mathematical operations on the
  * numbers), and finally represent the resulting base-58 digits as alphanumeric ASCII characters.
+ * <p>
+ * The conversion still runs in O(n&sup2;) time, so it is not useful for large data, but it works on several digits
+ * per step: the base-58 side is held in limbs of five digits (58<sup>5</sup> fits in an int) and the base-256 side in
+ * 32 bit words, with the arithmetic done in longs. The variants taking an offset and a buffer write into the caller's
+ * buffer instead of allocating the result, for converting many values such as the addresses of an index export.
  */
 public class Base58 {
     public static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
@@ -56,6 +61,19 @@ public class Base58 {
         }
     }
 
+    // Base-58 digits per limb, and the powers of 58 up to one limb.
+    private static final int LIMB_DIGITS = 5;
+    private static final long[] POWERS = {1, 58, 58 * 58, 58 * 58 * 58, 58 * 58 * 58 * 58, 58L * 58 * 58 * 58 * 58};
+    private static final long LIMB_BASE = POWERS[LIMB_DIGITS];
+
+    /**
+     * Returns the maximum number of characters needed to encode the given number of bytes.
+     */
+    public static int maxEncodedLength(int length) {
+        // log(256) / log(58) is just below 1.38.
+        return length * 138 / 100 + 1;
+    }
+
     /**
      * Encodes the given bytes as a base58 string (no checksum is appended).
      *
@@ -65,31 +83,81 @@ public class Base58 {
     public static String encode(byte[] input) {
         if (input.length == 0) {
             return "";
-        }       
+        }
+        char[] encoded = new char[maxEncodedLength(input.length)];
+        int length = encode(input, 0, input.length, encoded, 0);
+        return new String(encoded, 0, length);
+    }
+
+    /**
+     * Encodes a range of bytes as base58 characters into the given buffer (no checksum is appended).
+     *
+     * @param input the bytes to encode
+     * @param offset the index of the first byte to encode
+     * @param length the number of bytes to encode
+     * @param output the buffer to write to, which needs room for up to {@link #maxEncodedLength(int)} characters
+     * @param outputOffset the index in the buffer to write the first character to
+     * @return the number of characters written
+     * @throws IndexOutOfBoundsException if the input range is out of bounds or the output doesn't fit
+     */
+    public static int encode(byte[] input, int offset, int length, char[] output, int outputOffset) {
+        checkPositionIndexes(offset, offset + length, input.length);
+        int end = offset + length;
         // Count leading zeros.
         int zeros = 0;
-        while (zeros < input.length && input[zeros] == 0) {
+        while (offset + zeros < end && input[offset + zeros] == 0) {
             ++zeros;
         }
-        // Convert base-256 digits to base-58 digits (plus conversion to ASCII characters)
-        input = Arrays.copyOf(input, input.length); // since we modify it in-place
-        char[] encoded = new char[input.length * 2]; // upper bound
-        int outputStart = encoded.length;
-        for (int inputStart = zeros; inputStart < input.length; ) {
-            encoded[--outputStart] = ALPHABET[divmod(input, inputStart, 256, 58)];
-            if (input[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        // Convert the big endian base-256 digits, 32 bits at a time, into little endian limbs of base-58 digits.
+        int[] limbs = new int[(length - zeros) * 138 / (100 * LIMB_DIGITS) + 1];
+        int size = 0;
+        int pos = offset + zeros;
+        int chunk = (end - pos) % 4 == 0 ? 4 : (end - pos) % 4;
+        while (pos < end) {
+            long carry = 0;
+            for (int i = 0; i < chunk; i++) {
+                carry = carry << 8 | (input[pos++] & 0xFF);
+            }
+            int shift = chunk * 8;
+            for (int i = 0; i < size; i++) {
+                long temp = ((long) limbs[i] << shift) + carry;
+                limbs[i] = (int) (temp % LIMB_BASE);
+                carry = temp / LIMB_BASE;
+            }
+            while (carry != 0) {
+                limbs[size++] = (int) (carry % LIMB_BASE);
+                carry /= LIMB_BASE;
             }
+            chunk = 4;
         }
-        // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
-        while (outputStart < encoded.length && encoded[outputStart] == ENCODED_ZERO) {
-            ++outputStart;
+        // Every limb but the most significant one has all of its digits written, including zeros.
+        int digits = 0;
+        if (size > 0) {
+            digits = (size - 1) * LIMB_DIGITS;
+            for (int limb = limbs[size - 1]; limb != 0; limb /= 58) {
+                ++digits;
+            }
         }
-        while (--zeros >= 0) {
-            encoded[--outputStart] = ENCODED_ZERO;
+        int encodedLength = zeros + digits;
+        checkPositionIndexes(outputOffset, outputOffset + encodedLength, output.length);
+        int outputPos = outputOffset + encodedLength;
+        for (int i = 0; i < size - 1; i++) {
+            int limb = limbs[i];
+            for (int j = 0; j < LIMB_DIGITS; j++) {
+                output[--outputPos] = ALPHABET[limb % 58];
+                limb /= 58;
+            }
         }
-        // Return encoded string (including encoded leading zeros).
-        return new String(encoded, outputStart, encoded.length - outputStart);
+        if (size > 0) {
+            for (int limb = limbs[size - 1]; limb != 0; limb /= 58) {
+                output[--outputPos] = ALPHABET[limb % 58];
+            }
+        }
+        // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
+        while (outputPos > outputOffset) {
+            output[--outputPos] = ENCODED_ZERO;
+        }
+        return encodedLength;
     }
 
     /**
@@ -103,36 +171,35 @@ public class Base58 {
         if (input.length() == 0) {
             return new byte[0];
         }
-        // Convert the base58-encoded ASCII chars to a base58 byte sequence (base58 digits).
-        byte[] input58 = new byte[input.length()];
-        for (int i = 0; i < input.length(); ++i) {
-            char c = input.charAt(i);
-            int digit = c < 128 ? INDEXES[c] : -1;
-            if (digit < 0) {
-                throw new AddressFormatException("Illegal character " + c + " at position " + i);
-            }
-            input58[i] = (byte) digit;
-        }
-        // Count leading zeros.
-        int zeros = 0;
-        while (zeros < input58.length && input58[zeros] == 0) {
-            ++zeros;
-        }
-        // Convert base-58 digits to base-256 digits.
-        byte[] decoded = new byte[input.length()];
-        int outputStart = decoded.length;
-        for (int inputStart = zeros; inputStart < input58.length; ) {
-            decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
-            if (input58[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
-            }
-        }
-        // Ignore extra leading zeroes that were added during the calculation.
-        while (outputStart < decoded.length && decoded[outputStart] == 0) {
-            ++outputStart;
-        }
-        // Return decoded data (including original number of leading zeros).
-        return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+        int zeros = countEncodedZeros(input, 0, input.length());
+        int[] words = toWords(input, zeros, input.length());
+        byte[] decoded = new byte[zeros + significantBytes(words)];
+        writeWords(words, decoded, zeros, decoded.length - zeros);
+        return decoded;
+    }
+
+    /**
+     * Decodes a range of base58 characters into the given buffer.
+     *
+     * @param input the characters to decode
+     * @param start the index of the first character to decode
+     * @param end the index after the last character to decode
+     * @param output the buffer to write to, which needs room for at most one byte per character
+     * @param outputOffset the index in the buffer to write the first byte to
+     * @return the number of bytes written
+     * @throws AddressFormatException if the range is not a valid base58 string
+     * @throws IndexOutOfBoundsException if the input range is out of bounds or the output doesn't fit
+     */
+    public static int decode(CharSequence input, int start, int end, byte[] output, int outputOffset)
+            throws AddressFormatException {
+        checkPositionIndexes(start, end, input.length());
+        int zeros = countEncodedZeros(input, start, end);
+        int[] words = toWords(input, start + zeros, end);
+        int length = significantBytes(words);
+        checkPositionIndexes(outputOffset, outputOffset + zeros + length, output.length);
+        Arrays.fill(output, outputOffset, outputOffset + zeros, (byte) 0);
+        writeWords(words, output, outputOffset + zeros, length);
+        return zeros + length;
     }
     
     public static BigInteger decodeToBigInteger(String input) throws AddressFormatException {
@@ -151,36 +218,69 @@ public class Base58 {
         byte[] decoded  = decode(input);
         if (decoded.length < 4)
             throw new AddressFormatException("Input too short");
-        byte[] data = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
-        byte[] checksum = Arrays.copyOfRange(decoded, decoded.length - 4, decoded.length);
-        byte[] actualChecksum = Arrays.copyOfRange(Sha256Hash.hashTwice(data), 0, 4);
-        if (!Arrays.equals(checksum, actualChecksum))
-            throw new AddressFormatException("Checksum does not validate");
-        return data;
+        int length = decoded.length - 4;
+        byte[] actualChecksum = Sha256Hash.hashTwice(decoded, 0, length);
+        for (int i = 0; i < 4; i++)
+            if (decoded[length + i] != actualChecksum[i])
+                throw new AddressFormatException("Checksum does not validate");
+        return Arrays.copyOf(decoded, length);
+    }
+
+    private static int countEncodedZeros(CharSequence input, int start, int end) {
+        int zeros = 0;
+        while (start + zeros < end && input.charAt(start + zeros) == ENCODED_ZERO) {
+            ++zeros;
+        }
+        return zeros;
     }
 
     /**
-     * Divides a number, represented as an array of bytes each containing a single digit
-     * in the specified base, by the given divisor. The given number is modified in-place
-     * to contain the quotient, and the return value is the remainder.
-     *
-     * @param number the number to divide
-     * @param firstDigit the index within the array of the first non-zero digit
-     *        (this is used for optimization by skipping the leading zeros)
-     * @param base the base in which the number's digits are represented (up to 256)
-     * @param divisor the number to divide by (up to 256)
-     * @return the remainder of the division operation
+     * Converts base58 characters into a number held in little endian 32 bit words, working on the big endian digits
+     * one limb at a time. The array may have unused words at the end.
      */
-    private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
-        // this is just long division which accounts for the base of the input digits
-        int remainder = 0;
-        for (int i = firstDigit; i < number.length; i++) {
-            int digit = (int) number[i] & 0xFF;
-            int temp = remainder * base + digit;
-            number[i] = (byte) (temp / divisor);
-            remainder = temp % divisor;
+    private static int[] toWords(CharSequence input, int start, int end) throws AddressFormatException {
+        // log(58) / log(256) is just below 0.733.
+        int[] words = new int[(end - start) * 733 / 4000 + 1];
+        int size = 0;
+        int pos = start;
+        int chunk = (end - pos) % LIMB_DIGITS == 0 ? LIMB_DIGITS : (end - pos) % LIMB_DIGITS;
+        while (pos < end) {
+            long carry = 0;
+            for (int i = 0; i < chunk; i++, pos++) {
+                char c = input.charAt(pos);
+                int digit = c < 128 ? INDEXES[c] : -1;
+                if (digit < 0) {
+                    throw new AddressFormatException("Illegal character " + c + " at position " + pos);
+                }
+                carry = carry * 58 + digit;
+            }
+            long multiplier = POWERS[chunk];
+            for (int i = 0; i < size; i++) {
+                long temp = (words[i] & 0xFFFFFFFFL) * multiplier + carry;
+                words[i] = (int) temp;
+                carry = temp >>> 32;
+            }
+            while (carry != 0) {
+                words[size++] = (int) carry;
+                carry >>>= 32;
+            }
+            chunk = LIMB_DIGITS;
+        }
+        return words;
+    }
+
+    private static int significantBytes(int[] words) {
+        int size = words.length;
+        while (size > 0 && words[size - 1] == 0) {
+            --size;
         }
-        return (byte) remainder;
+        return size == 0 ? 0 : (size - 1) * 4 + (39 - Integer.numberOfLeadingZeros(words[size - 1])) / 8;
     }
 
+    /** Writes the lowest length bytes of the number in big endian order. */
+    private static void writeWords(int[] words, byte[] output, int outputOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + length - 1 - i] = (byte) (words[i >>> 2] >>> ((i & 3) * 8));
+        }
+    }
 }
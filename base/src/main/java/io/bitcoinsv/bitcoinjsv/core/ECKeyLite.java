@@ -43,7 +43,6 @@ import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.spongycastle.crypto.params.KeyParameter;
 import org.spongycastle.math.ec.ECAlgorithms;
 import org.spongycastle.math.ec.ECPoint;
-import org.spongycastle.math.ec.FixedPointCombMultiplier;
 import org.spongycastle.math.ec.custom.sec.SecP256K1Curve;
 import org.spongycastle.util.encoders.Base64;
 
@@ -420,14 +419,12 @@ public class ECKeyLite implements EncryptableItem, ECKeyBytes {
      * new BigInteger(1, bytes);</tt>
      */
     public static ECPoint publicPointFromPrivate(BigInteger privKey) {
-        /*
-         * TODO: FixedPointCombMultiplier currently doesn't support scalars longer than the group order,
-         * but that could change in future versions.
-         */
+        // FixedPointCombMultiplier doesn't support scalars longer than the group order, and it may be installed as the
+        // base point multiplier (see ECDSA#setBasePointMultiplier).
         if (privKey.bitLength() > ECDSA.CURVE.getN().bitLength()) {
             privKey = privKey.mod(ECDSA.CURVE.getN());
         }
-        return new FixedPointCombMultiplier().multiply(ECDSA.CURVE.getG(), privKey);
+        return ECDSA.getBasePointMultiplier().multiply(ECDSA.CURVE.getG(), privKey);
     }
 
     /** Gets the hash160 form of the public key (as seen in addresses). */
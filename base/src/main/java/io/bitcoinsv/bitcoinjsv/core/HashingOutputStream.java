@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.core;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * An output stream which feeds everything written to it into a SHA-256 digest instead of storing it. Serializing into
+ * one of these hashes a structure, such as a signature hash preimage, without first copying it into a buffer.
+ */
+public class HashingOutputStream extends OutputStream {
+    private final MessageDigest digest = Sha256Hash.newDigest();
+
+    @Override
+    public void write(int b) {
+        digest.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        digest.update(b, off, len);
+    }
+
+    /** Returns the SHA-256 hash of everything written since the last hash, and starts again. */
+    public byte[] hash() {
+        return digest.digest();
+    }
+
+    /** Returns the double SHA-256 hash of everything written since the last hash, and starts again. */
+    public byte[] hashTwice() {
+        digest.update(digest.digest());
+        return digest.digest();
+    }
+}
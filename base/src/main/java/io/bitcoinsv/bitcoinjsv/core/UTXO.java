@@ -18,6 +18,7 @@ package io.bitcoinsv.bitcoinjsv.core;
 
 import com.google.common.base.Objects;
 import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptCache;
 
 import java.io.*;
 import java.math.*;
@@ -98,7 +99,7 @@ public class UTXO {
         byte[] scriptBytes = new byte[scriptBytesLength];
         if (in.read(scriptBytes) != scriptBytesLength)
             throw new EOFException();
-        script = new Script(scriptBytes);
+        script = ScriptCache.getDefault().parse(scriptBytes);
 
         byte[] hashBytes = new byte[32];
         if (in.read(hashBytes) != 32)
@@ -16,7 +16,10 @@
 
 package io.bitcoinsv.bitcoinjsv.crypto;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.*;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import io.bitcoinsv.bitcoinjsv.ecc.ECDSA;
 import io.bitcoinsv.bitcoinjsv.exception.HDDerivationException;
 import io.bitcoinsv.bitcoinjsv.core.ECKeyLite;
@@ -27,6 +30,9 @@ import java.math.*;
 import java.nio.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import static com.google.common.base.Preconditions.*;
 
@@ -54,6 +60,9 @@ public final class HDKeyDerivation {
      */
     public static final int MAX_CHILD_DERIVATION_ATTEMPTS = 100;
 
+    /** Ranges of children smaller than this are derived on a single thread by {@link #deriveChildKeys}. */
+    public static final int MIN_KEYS_PER_TASK = 64;
+
     /**
      * Generates a new deterministic key from the given seed, which can be any arbitrary byte array. However resist
      * the temptation to use a string as the seed - any key derived from a password is likely to be weak and easily
@@ -126,6 +135,117 @@ public final class HDKeyDerivation {
 
     }
 
+    /**
+     * Derives <code>count</code> consecutive children of the given parent, starting at the "extended" child number
+     * <code>firstChild</code>. The result is the same as calling {@link #deriveThisOrNextChildKey(DeterministicKey, int)}
+     * repeatedly, each time with the number after the previous key: children which cannot be derived are skipped.
+     *
+     * <p>Each child still needs a multiplication of the generator, but the points are left in projective coordinates
+     * and converted to affine form together, sharing one field inversion across the whole batch. Ranges larger than
+     * {@link #MIN_KEYS_PER_TASK} are split into up to <code>parallelism</code> tasks which run on the given executor,
+     * with one of them on the calling thread.</p>
+     */
+    public static List<DeterministicKey> deriveChildKeys(DeterministicKey parent, int firstChild, int count,
+                                                         Executor executor, int parallelism) {
+        checkArgument(count >= 0, "count must not be negative");
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        ChildNumber first = new ChildNumber(firstChild);
+        checkArgument(first.num() + (long) count <= 1L << 31, "Child numbers out of range");
+        int taskCount = Math.max(1, Math.min(parallelism, count / MIN_KEYS_PER_TASK));
+        List<ListenableFutureTask<DeterministicKey[]>> tasks = new ArrayList<ListenableFutureTask<DeterministicKey[]>>(taskCount);
+        int start = first.num();
+        for (int t = 0; t < taskCount; t++) {
+            final int taskStart = start;
+            final int size = count / taskCount + (t < count % taskCount ? 1 : 0);
+            start += size;
+            tasks.add(ListenableFutureTask.create(new Callable<DeterministicKey[]>() {
+                @Override
+                public DeterministicKey[] call() {
+                    return deriveChildKeyRange(parent, taskStart, first.isHardened(), size);
+                }
+            }));
+        }
+        for (int t = 1; t < taskCount; t++)
+            executor.execute(tasks.get(t));
+        tasks.get(0).run();
+
+        List<DeterministicKey> keys = new ArrayList<DeterministicKey>(count);
+        try {
+            for (DeterministicKey[] range : Futures.allAsList(tasks).get())
+                for (DeterministicKey key : range)
+                    if (key != null)
+                        keys.add(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+        // Make up for any children which could not be derived.
+        int next = start;
+        while (keys.size() < count) {
+            DeterministicKey key = deriveThisOrNextChildKey(parent, new ChildNumber(next, first.isHardened()).i());
+            keys.add(key);
+            next = key.getChildNumber().num() + 1;
+        }
+        return keys;
+    }
+
+    // Derives the children numbered [first, first + count), leaving a null wherever derivation fails.
+    private static DeterministicKey[] deriveChildKeyRange(DeterministicKey parent, int first, boolean hardened, int count) {
+        final BigInteger N = ECDSA.CURVE.getN();
+        final BigInteger parentPriv = parent.hasPrivKey() ? parent.getPrivKey() : null;
+        checkArgument(parentPriv != null || !hardened, "Can't use private derivation with public keys only.");
+        final ECPoint parentPoint = parent.getPubKeyPoint();
+        final byte[] parentPublicKey = parentPoint.getEncoded(true);
+        checkState(parentPublicKey.length == 33, "Parent pubkey must be 33 bytes, but is " + parentPublicKey.length);
+        final byte[] parentData = hardened ? parent.getPrivKeyBytes33() : parentPublicKey;
+
+        ChildNumber[] childNumbers = new ChildNumber[count];
+        byte[][] chainCodes = new byte[count][];
+        BigInteger[] privs = new BigInteger[count];
+        ECPoint[] points = new ECPoint[count];
+        ByteBuffer data = ByteBuffer.allocate(37);
+        for (int n = 0; n < count; n++) {
+            ChildNumber childNumber = new ChildNumber(first + n, hardened);
+            data.clear();
+            data.put(parentData);
+            data.putInt(childNumber.i());
+            byte[] i = HDUtils.hmacSha512(parent.getChainCode(), data.array());
+            checkState(i.length == 64, i.length);
+            BigInteger ilInt = new BigInteger(1, Arrays.copyOfRange(i, 0, 32));
+            if (ilInt.compareTo(N) > 0)
+                continue;
+            ECPoint point;
+            if (parentPriv != null) {
+                BigInteger ki = parentPriv.add(ilInt).mod(N);
+                if (ki.signum() == 0)
+                    continue;
+                privs[n] = ki;
+                point = ECKeyLite.publicPointFromPrivate(ki);
+            } else {
+                point = ECKeyLite.publicPointFromPrivate(ilInt).add(parentPoint);
+                if (point.isInfinity())
+                    continue;
+            }
+            childNumbers[n] = childNumber;
+            chainCodes[n] = Arrays.copyOfRange(i, 32, 64);
+            points[n] = point;
+        }
+        // Montgomery's trick: one inversion for the whole range instead of one per key.
+        ECDSA.CURVE.getCurve().normalizeAll(points);
+
+        DeterministicKey[] keys = new DeterministicKey[count];
+        for (int n = 0; n < count; n++) {
+            if (points[n] == null)
+                continue;
+            keys[n] = new DeterministicKey(HDUtils.append(parent.getPath(), childNumbers[n]), chainCodes[n],
+                    points[n], privs[n], parent);
+        }
+        return keys;
+    }
+
     /**
      * @throws HDDerivationException if private derivation is attempted for a public-only parent key, or
      * if the resulting derived key is invalid (eg. private key == 0).
@@ -16,10 +16,15 @@
 
 package io.bitcoinsv.bitcoinjsv.crypto;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.bitcoinsv.bitcoinjsv.protos.Protos;
+import io.bitcoinsv.bitcoinjsv.utils.Threading;
 import org.spongycastle.crypto.params.KeyParameter;
 
 import java.io.Serializable;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
 
 /**
  * <p>A KeyCrypter can be used to encrypt and decrypt a message. The sequence of events to encrypt and then decrypt
@@ -50,6 +55,28 @@ public interface KeyCrypter extends Serializable {
      */
     KeyParameter deriveKey(CharSequence password) throws KeyCrypterException;
 
+    /**
+     * Create a KeyParameter like {@link #deriveKey(CharSequence)}, but on a background thread so that the caller isn't
+     * held up by a slow key derivation. The password is copied before this method returns.
+     *
+     * @return a future for the KeyParameter, which fails with a KeyCrypterException if no key could be derived
+     */
+    default ListenableFuture<KeyParameter> deriveKeyAsync(CharSequence password) {
+        final char[] chars = new char[password.length()];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = password.charAt(i);
+        return Threading.THREAD_POOL.submit(new Callable<KeyParameter>() {
+            @Override
+            public KeyParameter call() throws KeyCrypterException {
+                try {
+                    return deriveKey(CharBuffer.wrap(chars));
+                } finally {
+                    Arrays.fill(chars, (char) 0);
+                }
+            }
+        });
+    }
+
     /**
      * Decrypt the provided encrypted bytes, converting them into unencrypted bytes.
      *
@@ -14,6 +14,8 @@
 
 package io.bitcoinsv.bitcoinjsv.crypto;
 
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSA;
+import io.bitcoinsv.bitcoinjsv.ecc.PubKeyCache;
 import org.spongycastle.math.ec.ECCurve;
 import org.spongycastle.math.ec.ECFieldElement;
 import org.spongycastle.math.ec.ECPoint;
@@ -52,8 +54,11 @@ public class LazyECPoint {
     }
 
     public ECPoint get() {
-        if (point == null)
-            point = curve.decodePoint(bits);
+        if (point == null) {
+            // Reuse a point decoded for signature verification, but don't fill the cache with every wallet key.
+            ECPoint cached = curve == ECDSA.CURVE.getCurve() ? PubKeyCache.getDefault().getIfPresent(bits) : null;
+            point = cached != null ? cached : curve.decodePoint(bits);
+        }
         return point;
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.crypto;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.lambdaworks.crypto.PBKDF;
+import com.lambdaworks.crypto.SCrypt;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>scrypt with its p independent mixing blocks worked on in parallel. The output is identical to
+ * {@link SCrypt#scrypt(byte[], byte[], int, int, int, int)}, which runs the blocks one after the other: the password and
+ * salt are stretched into p blocks with PBKDF2, each block goes through the memory hard mix on its own, and the mixed
+ * blocks are compressed into the key with PBKDF2 again.</p>
+ *
+ * <p>The calling thread always takes part and at most one helper per extra processor is handed to the executor. A
+ * helper that only gets to run after all blocks have been claimed does nothing, so a busy or bounded executor slows the
+ * derivation down but can't deadlock it. Each thread that mixes needs 128 * r * N bytes of scratch memory, so running
+ * p blocks in parallel needs that much memory for every processor in use.</p>
+ */
+public final class ParallelSCrypt {
+    private ParallelSCrypt() {
+    }
+
+    /**
+     * Derives a key of the given length. With p of one, no executor or only one processor this is just
+     * {@link SCrypt#scrypt(byte[], byte[], int, int, int, int)}, which uses the native implementation when it's
+     * available.
+     *
+     * @throws IllegalArgumentException if N is not a power of two greater than one, or N, r and p are too large
+     */
+    public static byte[] scrypt(byte[] passwd, byte[] salt, final int N, final int r, final int p, int dkLen,
+                                @Nullable Executor executor) throws GeneralSecurityException {
+        return scrypt(passwd, salt, N, r, p, dkLen, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    static byte[] scrypt(byte[] passwd, byte[] salt, final int N, final int r, final int p, int dkLen,
+                         @Nullable Executor executor, int maxThreads) throws GeneralSecurityException {
+        int threads = Math.min(p, maxThreads);
+        if (executor == null || threads <= 1)
+            return SCrypt.scrypt(passwd, salt, N, r, p, dkLen);
+
+        if (N < 2 || (N & (N - 1)) != 0)
+            throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+        if (N > Integer.MAX_VALUE / 128 / r)
+            throw new IllegalArgumentException("Parameter N is too large");
+        if (r > Integer.MAX_VALUE / 128 / p)
+            throw new IllegalArgumentException("Parameter r is too large");
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(passwd, "HmacSHA256"));
+
+        final byte[] blocks = new byte[128 * r * p];
+        PBKDF.pbkdf2(mac, salt, 1, blocks, blocks.length);
+
+        final AtomicInteger nextBlock = new AtomicInteger();
+        final CountDownLatch mixed = new CountDownLatch(p);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable mixer = new Runnable() {
+            @Override
+            public void run() {
+                byte[] V = null;
+                byte[] XY = null;
+                int block;
+                while ((block = nextBlock.getAndIncrement()) < p) {
+                    try {
+                        if (V == null) {
+                            V = new byte[128 * r * N];
+                            XY = new byte[256 * r];
+                        }
+                        SCrypt.smix(blocks, block * 128 * r, r, N, V, XY);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        mixed.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < threads; i++)
+            executor.execute(mixer);
+        mixer.run();
+        Uninterruptibles.awaitUninterruptibly(mixed);
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+
+        byte[] derived = new byte[dkLen];
+        PBKDF.pbkdf2(mac, blocks, 1, derived, dkLen);
+        Arrays.fill(blocks, (byte) 0);
+        return derived;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.crypto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import org.spongycastle.crypto.params.KeyParameter;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A short lived cache of keys derived from passwords, used by {@link KeyCrypterScrypt} so that unlocking a wallet
+ * several times in a row, for example to sign a batch of sends, runs scrypt only once. Keys are dropped a fixed time
+ * after they were derived.</p>
+ *
+ * <p>Passwords are not kept. Entries are looked up by an HMAC of the password under a random secret of the cache, so
+ * the cache holds nothing a memory dump couldn't already get from the cached keys themselves. Callers get their own
+ * copy of a key and the cached copy is wiped once it's evicted. Hits and misses are reported as the
+ * {@code crypto.password.cache.hit} and {@code crypto.password.cache.miss} counters.</p>
+ */
+public final class PasswordKeyCache {
+    /** The number of passwords a cache remembers at most. */
+    public static final int MAX_SIZE = 16;
+
+    private static final Counter HITS = Metrics.counter("crypto.password.cache.hit");
+    private static final Counter MISSES = Metrics.counter("crypto.password.cache.miss");
+
+    private final SecretKeySpec secret;
+    private final Cache<HashCode, CachedKey> cache;
+
+    /** Creates a cache which forgets a key the given time after it was derived. */
+    public PasswordKeyCache(long ttl, TimeUnit unit) {
+        checkArgument(ttl > 0, "ttl must be positive");
+        byte[] secretBytes = new byte[32];
+        new SecureRandom().nextBytes(secretBytes);
+        secret = new SecretKeySpec(secretBytes, "HmacSHA256");
+        Arrays.fill(secretBytes, (byte) 0);
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfterWrite(ttl, unit)
+                .removalListener(new RemovalListener<HashCode, CachedKey>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<HashCode, CachedKey> notification) {
+                        CachedKey key = notification.getValue();
+                        if (key != null)
+                            key.wipe();
+                    }
+                })
+                .build();
+    }
+
+    /** Returns the key derived from the given password bytes if it's still cached, or null. */
+    @Nullable
+    public KeyParameter get(byte[] passwordBytes) {
+        CachedKey cached = cache.getIfPresent(hash(passwordBytes));
+        // The entry may be evicted and wiped by another thread between the lookup and the copy.
+        KeyParameter key = cached != null ? cached.copy() : null;
+        if (key == null) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        return key;
+    }
+
+    /** Remembers the key derived from the given password bytes. */
+    public void put(byte[] passwordBytes, KeyParameter key) {
+        cache.put(hash(passwordBytes), new CachedKey(key.getKey()));
+    }
+
+    /** Returns the number of keys currently cached, including any which have expired but not been cleaned up yet. */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Forgets and wipes all cached keys. */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private HashCode hash(byte[] passwordBytes) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secret);
+            return HashCode.fromBytes(mac.doFinal(passwordBytes));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);  // Cannot happen, HmacSHA256 is always available.
+        }
+    }
+
+    /** A cached key, copied out and wiped under its own lock so a caller never gets a partly wiped copy. */
+    private static final class CachedKey {
+        @Nullable
+        private byte[] key;
+
+        CachedKey(byte[] key) {
+            this.key = key.clone();
+        }
+
+        @Nullable
+        synchronized KeyParameter copy() {
+            return key != null ? new KeyParameter(key) : null;
+        }
+
+        synchronized void wipe() {
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+                key = null;
+            }
+        }
+    }
+}
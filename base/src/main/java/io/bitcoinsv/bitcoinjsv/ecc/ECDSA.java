@@ -8,6 +8,8 @@ package io.bitcoinsv.bitcoinjsv.ecc;
 import com.google.common.annotations.VisibleForTesting;
 import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
 import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import org.bitcoin.NativeSecp256k1;
 import org.bitcoin.NativeSecp256k1Util;
 import org.bitcoin.Secp256k1Context;
@@ -22,6 +24,8 @@ import org.spongycastle.crypto.params.ECPrivateKeyParameters;
 import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.spongycastle.crypto.signers.ECDSASigner;
 import org.spongycastle.crypto.signers.HMacDSAKCalculator;
+import org.spongycastle.math.ec.ECMultiplier;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
 import org.spongycastle.math.ec.FixedPointUtil;
 
 import java.math.BigInteger;
@@ -50,6 +54,10 @@ public class ECDSA {
     @VisibleForTesting
     public static boolean FAKE_SIGNATURES = false;
 
+    private static final Counter VERIFICATIONS = Metrics.counter("ecdsa.verify");
+
+    private static volatile ECMultiplier basePointMultiplier = new FixedPointCombMultiplier();
+
 
     static {
         // Init proper random number generator, as some old Android installations have bugs that make it unsecure.
@@ -66,6 +74,23 @@ public class ECDSA {
         secureRandom = new SecureRandom();
     }
 
+    /**
+     * Returns the multiplier used to compute multiples of the generator point, as in public key derivation and
+     * pure Java signing. Defaults to Bouncy Castle's {@link FixedPointCombMultiplier}.
+     */
+    public static ECMultiplier getBasePointMultiplier() {
+        return basePointMultiplier;
+    }
+
+    /**
+     * Replaces the multiplier used to compute multiples of the generator point, for example with a
+     * {@link GeneratorTableMultiplier} to keep the secret scalar out of the timing and memory access pattern of
+     * the multiplication.
+     */
+    public static void setBasePointMultiplier(ECMultiplier multiplier) {
+        basePointMultiplier = checkNotNull(multiplier);
+    }
+
     /**
      * <p>Verifies the given ECDSA signature against the message bytes using the public key bytes.</p>
      *
@@ -80,8 +105,11 @@ public class ECDSA {
         if (FAKE_SIGNATURES)
             return true;
 
+        VERIFICATIONS.increment();
         if (Secp256k1Context.isEnabled()) {
             try {
+                if (signature.hasCompactEncoding())
+                    return NativeSecp256k1.verifyCompact(data, signature.encodeToCompact(), pub);
                 return NativeSecp256k1.verify(data, signature.encodeToDER(), pub);
             } catch (NativeSecp256k1Util.AssertFailException e) {
                 log.error("Caught AssertFailException inside secp256k1", e);
@@ -90,7 +118,7 @@ public class ECDSA {
         }
 
         ECDSASigner signer = new ECDSASigner();
-        ECPublicKeyParameters params = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(pub), CURVE);
+        ECPublicKeyParameters params = new ECPublicKeyParameters(PubKeyCache.getDefault().decode(pub), CURVE);
         signer.init(false, params);
         try {
             return signer.verifySignature(data, signature.r, signature.s);
@@ -111,6 +139,7 @@ public class ECDSA {
      */
     public static boolean verify(byte[] data, byte[] signature, byte[] pub) {
         if (Secp256k1Context.isEnabled()) {
+            VERIFICATIONS.increment();
             try {
                 return NativeSecp256k1.verify(data, signature, pub);
             } catch (NativeSecp256k1Util.AssertFailException e) {
@@ -121,6 +150,30 @@ public class ECDSA {
         return verify(data, ECDSASignature.decodeFromDER(signature), pub);
     }
 
+    /**
+     * Verifies a compact signature, the 32 byte r followed by the 32 byte s, against a hash using the public key.
+     * With native verification enabled the signature goes straight to libsecp256k1 without being converted to DER
+     * on the way.
+     *
+     * @param data       Hash of the data to verify.
+     * @param compactSig 64 byte compact signature.
+     * @param pub        The public key bytes to use.
+     */
+    public static boolean verifyCompact(byte[] data, byte[] compactSig, byte[] pub) {
+        if (FAKE_SIGNATURES)
+            return true;
+        if (Secp256k1Context.isEnabled()) {
+            VERIFICATIONS.increment();
+            try {
+                return NativeSecp256k1.verifyCompact(data, compactSig, pub);
+            } catch (NativeSecp256k1Util.AssertFailException e) {
+                log.error("Caught AssertFailException inside secp256k1", e);
+                return false;
+            }
+        }
+        return verify(data, ECDSASignature.decodeFromCompact(compactSig), pub);
+    }
+
     public static ECDSASignature doSign(Sha256Hash input, BigInteger privateKeyForSigning) {
         if (Secp256k1Context.isEnabled()) {
             try {
@@ -137,7 +190,13 @@ public class ECDSA {
         if (FAKE_SIGNATURES)
             return TransactionSignature.dummy();
         checkNotNull(privateKeyForSigning);
-        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        final ECMultiplier multiplier = basePointMultiplier;
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest())) {
+            @Override
+            protected ECMultiplier createBasePointMultiplier() {
+                return multiplier;
+            }
+        };
         ECPrivateKeyParameters privKey = new ECPrivateKeyParameters(privateKeyForSigning, CURVE);
         signer.init(true, privKey);
         BigInteger[] components = signer.generateSignature(input.getBytes());
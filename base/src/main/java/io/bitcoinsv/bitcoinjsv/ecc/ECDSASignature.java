@@ -9,6 +9,9 @@ import org.spongycastle.asn1.DLSequence;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Groups the two components that make up a signature, and provides a way to encode to DER form, which is
@@ -68,6 +71,37 @@ public class ECDSASignature {
         }
     }
 
+    /**
+     * Returns the compact encoding of the signature: r then s, each as a 32 byte big endian number. Throws
+     * {@link IllegalArgumentException} if either component doesn't fit, which can't happen for a valid signature.
+     */
+    public byte[] encodeToCompact() {
+        byte[] compact = new byte[64];
+        putUnsigned32(r, compact, 0);
+        putUnsigned32(s, compact, 32);
+        return compact;
+    }
+
+    /** Returns true if both components are non-negative and fit in 32 bytes, see {@link #encodeToCompact()}. */
+    public boolean hasCompactEncoding() {
+        return r.signum() >= 0 && s.signum() >= 0 && r.bitLength() <= 256 && s.bitLength() <= 256;
+    }
+
+    /** Decodes a signature from the 64 byte form returned by {@link #encodeToCompact()}. */
+    public static ECDSASignature decodeFromCompact(byte[] bytes) {
+        checkArgument(bytes.length == 64, "Compact signatures are 64 bytes");
+        return new ECDSASignature(new BigInteger(1, Arrays.copyOfRange(bytes, 0, 32)),
+                new BigInteger(1, Arrays.copyOfRange(bytes, 32, 64)));
+    }
+
+    private static void putUnsigned32(BigInteger value, byte[] dest, int offset) {
+        checkArgument(value.signum() >= 0 && value.bitLength() <= 256, "Signature component out of range");
+        byte[] bytes = value.toByteArray();
+        // toByteArray() may add a leading sign byte, which is always zero here.
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, dest, offset + 32 - length, length);
+    }
+
     public static ECDSASignature decodeFromDER(byte[] bytes) {
         ASN1InputStream decoder = null;
         try {
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.ecc;
+
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECMultiplier;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
+import org.spongycastle.math.ec.custom.sec.SecP256K1Field;
+import org.spongycastle.math.raw.Nat256;
+
+import java.math.BigInteger;
+
+
+/**
+ * <p>Multiplies the secp256k1 generator by a scalar using precomputed tables. The scalar is recoded into 37 signed
+ * odd digits of 7 bits and the result is the sum of one table entry per digit, so a multiplication costs 36 mixed
+ * point additions and no doublings, with one field inversion at the end to return an affine (normalized) point. The
+ * inversion is an exponentiation by p - 2 along a fixed chain of 255 squarings and 15 multiplications. The tables
+ * hold 2368 affine points (148 KB) and are built on first use.</p>
+ *
+ * <p>Every digit is odd and so never selects the point at infinity. Even scalars are replaced by their negation,
+ * which is odd, and the result negated back. Each lookup reads all entries of its table and keeps the wanted one with
+ * a mask, and negations are applied with masks too, so the memory access pattern and the sequence of field operations
+ * do not depend on the value of the scalar. Not constant time are: the conversion of the scalar from a
+ * {@link BigInteger}, its reduction if it is not already below n, and the fallback for degenerate sums described
+ * below, which is only taken for a vanishingly small fraction of scalars.</p>
+ *
+ * <p>Compared to the {@link FixedPointCombMultiplier}, whose lookups index its table directly, this takes about as
+ * long per multiplication but creates around a tenth of the garbage, as all intermediate values live in a handful of
+ * reused limb arrays. Points other than the generator, and the vanishingly rare scalars for which an intermediate sum
+ * meets the next table entry, are handed to a {@link FixedPointCombMultiplier}. Instances are stateless and thread
+ * safe. Install one with {@link ECDSA#setBasePointMultiplier(ECMultiplier)}.</p>
+ */
+public class GeneratorTableMultiplier implements ECMultiplier {
+    private static final int WINDOW_BITS = 7;
+    private static final int WINDOWS = (256 + WINDOW_BITS - 1) / WINDOW_BITS;
+    // Entry m of window i is (2m + 1) * 2^(WINDOW_BITS * i) * G.
+    private static final int ENTRIES = 1 << (WINDOW_BITS - 1);
+    private static final int LIMBS = 8;
+    // Each entry is its x coordinate followed by its y coordinate, two 32 bit limbs to a long so that a lookup, which
+    // has to read the whole window, touches half as many array elements.
+    private static final int ENTRY_LONGS = LIMBS;
+
+    private final ECMultiplier fallback = new FixedPointCombMultiplier();
+
+    // Built on first use so that merely referencing the class costs nothing.
+    private static class Table {
+        static final int[] N = Nat256.fromBigInteger(ECDSA.CURVE.getN());
+        static final long[] ENTRY = new long[WINDOWS * ENTRIES * ENTRY_LONGS];
+
+        static {
+            ECCurve curve = ECDSA.CURVE.getCurve();
+            ECPoint[] points = new ECPoint[WINDOWS * ENTRIES];
+            ECPoint base = ECDSA.CURVE.getG();
+            for (int i = 0; i < WINDOWS; i++) {
+                ECPoint twice = base.twice();
+                ECPoint p = base;
+                for (int m = 0; m < ENTRIES; m++) {
+                    points[i * ENTRIES + m] = p;
+                    p = p.add(twice);
+                }
+                base = base.timesPow2(WINDOW_BITS);
+            }
+            curve.normalizeAll(points);
+            for (int i = 0; i < points.length; i++) {
+                int[] x = SecP256K1Field.fromBigInteger(points[i].getAffineXCoord().toBigInteger());
+                int[] y = SecP256K1Field.fromBigInteger(points[i].getAffineYCoord().toBigInteger());
+                for (int j = 0; j < LIMBS / 2; j++) {
+                    ENTRY[i * ENTRY_LONGS + j] = pack(x, j);
+                    ENTRY[i * ENTRY_LONGS + LIMBS / 2 + j] = pack(y, j);
+                }
+            }
+        }
+    }
+
+    @Override
+    public ECPoint multiply(ECPoint p, BigInteger k) {
+        if (!p.equals(ECDSA.CURVE.getG()))
+            return fallback.multiply(p, k);
+        BigInteger n = ECDSA.CURVE.getN();
+        if (k.signum() < 0 || k.compareTo(n) >= 0)
+            k = k.mod(n);
+        if (k.signum() == 0)
+            return p.getCurve().getInfinity();
+
+        // Work with an odd scalar: k if it is odd, otherwise n - k, negating the result at the end.
+        int[] scalar = Nat256.fromBigInteger(k);
+        int[] negated = Nat256.create();
+        Nat256.sub(Table.N, scalar, negated);
+        int even = (scalar[0] & 1) - 1;
+        for (int w = 0; w < LIMBS; w++)
+            scalar[w] = (scalar[w] & ~even) | (negated[w] & even);
+
+        int[] x1 = Nat256.create(), y1 = Nat256.create(), z1 = Nat256.create();
+        int[] x2 = Nat256.create(), y2 = Nat256.create();
+        int[] t1 = Nat256.create(), t2 = Nat256.create(), t3 = Nat256.create(), t4 = Nat256.create();
+        int[] wide = Nat256.createExt();
+
+        // Regular recoding into odd digits: d = (k mod 2^(w+1)) - 2^w, k = (k - d) / 2^w, the last digit taking
+        // whatever is left. The running k is always odd and only its lowest w + 1 bits plus a carry are needed.
+        int carry = 0;
+        int degenerate = 0;
+        for (int i = 0; i < WINDOWS; i++) {
+            int low = bits(scalar, i * WINDOW_BITS, WINDOW_BITS) + carry;
+            int digit;
+            if (i < WINDOWS - 1) {
+                int window = (low + (bits(scalar, (i + 1) * WINDOW_BITS, 1) << WINDOW_BITS))
+                        & ((2 << WINDOW_BITS) - 1);
+                digit = window - (1 << WINDOW_BITS);
+                carry = (low - digit) >> WINDOW_BITS;
+            } else {
+                digit = low;
+            }
+            if (i == 0) {
+                select(i, digit, x1, y1, t1);
+                z1[0] = 1;
+            } else {
+                select(i, digit, x2, y2, t1);
+                degenerate |= addMixed(x1, y1, z1, x2, y2, t1, t2, t3, t4, wide);
+            }
+        }
+        if (degenerate != 0)
+            return fallback.multiply(p, k);
+
+        // Back to affine coordinates: x = X / Z^2, y = Y / Z^3.
+        int[] zi = Nat256.create();
+        invert(z1, zi, t2, t3, t4, x2, y2, wide);
+        square(zi, t1, wide);
+        multiply(x1, t1, x1, wide);
+        multiply(t1, zi, t1, wide);
+        multiply(y1, t1, y1, wide);
+        negateIf(even, y1, t1);
+        return p.getCurve().createPoint(Nat256.toBigInteger(x1), Nat256.toBigInteger(y1));
+    }
+
+    /** Returns {@code count} bits of the scalar starting at bit {@code offset}, reading zeros past the top. */
+    private static int bits(int[] scalar, int offset, int count) {
+        int word = offset >>> 5, shift = offset & 31;
+        long value = (scalar[word] & 0xFFFFFFFFL) >>> shift;
+        if (word + 1 < LIMBS)
+            value |= (scalar[word + 1] & 0xFFFFFFFFL) << (32 - shift);
+        return (int) value & ((1 << count) - 1);
+    }
+
+    /**
+     * Copies the point for the odd {@code digit} of the given window into x and y, touching every entry of the
+     * window.
+     */
+    private static void select(int window, int digit, int[] x, int[] y, int[] scratch) {
+        int sign = digit >> 31;
+        int index = (((digit ^ sign) - sign) - 1) >>> 1;
+        long x0 = 0, x1 = 0, x2 = 0, x3 = 0, y0 = 0, y1 = 0, y2 = 0, y3 = 0;
+        long[] table = Table.ENTRY;
+        int offset = window * ENTRIES * ENTRY_LONGS;
+        for (int m = 0; m < ENTRIES; m++, offset += ENTRY_LONGS) {
+            long mask = ((m ^ index) - 1) >> 31;
+            x0 |= table[offset] & mask;
+            x1 |= table[offset + 1] & mask;
+            x2 |= table[offset + 2] & mask;
+            x3 |= table[offset + 3] & mask;
+            y0 |= table[offset + 4] & mask;
+            y1 |= table[offset + 5] & mask;
+            y2 |= table[offset + 6] & mask;
+            y3 |= table[offset + 7] & mask;
+        }
+        unpack(x0, x1, x2, x3, x);
+        unpack(y0, y1, y2, y3, y);
+        negateIf(sign, y, scratch);
+    }
+
+    private static long pack(int[] limbs, int pair) {
+        return (limbs[2 * pair] & 0xFFFFFFFFL) | ((long) limbs[2 * pair + 1] << 32);
+    }
+
+    private static void unpack(long l0, long l1, long l2, long l3, int[] limbs) {
+        limbs[0] = (int) l0;
+        limbs[1] = (int) (l0 >>> 32);
+        limbs[2] = (int) l1;
+        limbs[3] = (int) (l1 >>> 32);
+        limbs[4] = (int) l2;
+        limbs[5] = (int) (l2 >>> 32);
+        limbs[6] = (int) l3;
+        limbs[7] = (int) (l3 >>> 32);
+    }
+
+    /** Replaces y with -y if mask is all ones, leaves it alone if mask is zero. */
+    private static void negateIf(int mask, int[] y, int[] scratch) {
+        SecP256K1Field.negate(y, scratch);
+        for (int w = 0; w < LIMBS; w++)
+            y[w] = (y[w] & ~mask) | (scratch[w] & mask);
+    }
+
+    /**
+     * Adds the affine point (x2, y2) to the Jacobian point (x1, y1, z1) in place. Returns 1 if the two points had the
+     * same x coordinate, in which case the result is meaningless and the caller must start over, otherwise 0.
+     */
+    private static int addMixed(int[] x1, int[] y1, int[] z1, int[] x2, int[] y2,
+                                int[] h, int[] r, int[] t3, int[] t4, int[] wide) {
+        // madd-2007-bl from the Explicit-Formulas Database: 7 multiplications and 4 squarings.
+        square(z1, t3, wide);                 // Z1Z1 = Z1^2
+        multiply(x2, t3, h, wide);            // U2 = X2 * Z1Z1
+        multiply(z1, t3, t4, wide);
+        multiply(y2, t4, r, wide);            // S2 = Y2 * Z1 * Z1Z1
+        SecP256K1Field.subtract(h, x1, h);    // H = U2 - X1
+        SecP256K1Field.subtract(r, y1, r);
+        SecP256K1Field.twice(r, r);           // r = 2 * (S2 - Y1)
+
+        SecP256K1Field.add(z1, h, z1);
+        square(z1, z1, wide);
+        SecP256K1Field.subtract(z1, t3, z1);
+        square(h, t3, wide);                  // HH = H^2
+        SecP256K1Field.subtract(z1, t3, z1);  // Z3 = (Z1 + H)^2 - Z1Z1 - HH
+        SecP256K1Field.twice(t3, t3);
+        SecP256K1Field.twice(t3, t3);         // I = 4 * HH
+        multiply(h, t3, t4, wide);            // J = H * I
+        multiply(x1, t3, t3, wide);           // V = X1 * I
+
+        square(r, x1, wide);
+        SecP256K1Field.subtract(x1, t4, x1);
+        SecP256K1Field.subtract(x1, t3, x1);
+        SecP256K1Field.subtract(x1, t3, x1);  // X3 = r^2 - J - 2 * V
+
+        SecP256K1Field.subtract(t3, x1, t3);
+        multiply(r, t3, t3, wide);
+        multiply(y1, t4, y1, wide);
+        SecP256K1Field.twice(y1, y1);
+        SecP256K1Field.subtract(t3, y1, y1);  // Y3 = r * (V - X3) - 2 * Y1 * J
+
+        int bits = 0;
+        for (int w = 0; w < LIMBS; w++)
+            bits |= h[w];
+        return ((bits | -bits) >>> 31) ^ 1;
+    }
+
+    /**
+     * Sets z to 1 / a by computing a^(p - 2) with the addition chain used by libsecp256k1, so that the sequence of
+     * operations doesn't depend on a. The name of each temporary is the run of one bits in its exponent. z must not be
+     * a.
+     */
+    private static void invert(int[] a, int[] z, int[] x2, int[] x3, int[] x22, int[] x44, int[] t, int[] wide) {
+        square(a, x2, wide);
+        multiply(x2, a, x2, wide);
+        square(x2, x3, wide);
+        multiply(x3, a, x3, wide);
+        squareN(x3, 3, t, wide);
+        multiply(t, x3, t, wide);             // x6
+        squareN(t, 3, t, wide);
+        multiply(t, x3, t, wide);             // x9
+        squareN(t, 2, t, wide);
+        multiply(t, x2, t, wide);             // x11
+        squareN(t, 11, x22, wide);
+        multiply(x22, t, x22, wide);
+        squareN(x22, 22, x44, wide);
+        multiply(x44, x22, x44, wide);
+        squareN(x44, 44, t, wide);
+        multiply(t, x44, t, wide);            // x88
+        squareN(t, 88, z, wide);
+        multiply(z, t, z, wide);              // x176
+        squareN(z, 44, z, wide);
+        multiply(z, x44, z, wide);            // x220
+        squareN(z, 3, z, wide);
+        multiply(z, x3, z, wide);             // x223
+        squareN(z, 23, z, wide);
+        multiply(z, x22, z, wide);
+        squareN(z, 5, z, wide);
+        multiply(z, a, z, wide);
+        squareN(z, 3, z, wide);
+        multiply(z, x2, z, wide);
+        squareN(z, 2, z, wide);
+        multiply(z, a, z, wide);
+    }
+
+    private static void multiply(int[] x, int[] y, int[] z, int[] wide) {
+        Nat256.mul(x, y, wide);
+        SecP256K1Field.reduce(wide, z);
+    }
+
+    private static void square(int[] x, int[] z, int[] wide) {
+        Nat256.square(x, wide);
+        SecP256K1Field.reduce(wide, z);
+    }
+
+    private static void squareN(int[] x, int n, int[] z, int[] wide) {
+        square(x, z, wide);
+        for (int i = 1; i < n; i++)
+            square(z, z, wide);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.ecc;
+
+import io.bitcoinsv.bitcoinjsv.utils.ByteArrayCache;
+import org.spongycastle.math.ec.ECPoint;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A bounded, thread-safe cache of decoded secp256k1 public keys, keyed by their encoded bytes. Decoding a
+ * compressed key costs a modular square root, and the keys of busy wallets are decoded again for every input that
+ * spends from them. With the cache a key is decoded once and later verifications share the normalized point, along
+ * with the multiplication tables Bouncy Castle attaches to it the first time it is used to verify a signature.</p>
+ *
+ * <p>Pure Java verification in {@link ECDSA} goes through {@link #getDefault()}, which covers the signature checks of
+ * the script interpreter; native verification parses keys itself and doesn't use the cache. A
+ * {@link io.bitcoinsv.bitcoinjsv.crypto.LazyECPoint} looks its key up here but does not add it, so that loading a
+ * wallet full of keys doesn't push out the popular ones. Hits and misses are reported as the
+ * {@code ecdsa.pubkey.cache.hit} and {@code ecdsa.pubkey.cache.miss} counters.</p>
+ */
+public final class PubKeyCache {
+    /**
+     * The number of keys held by the default cache. A key that has been used for verification holds on to a few
+     * kilobytes of precomputed multiples.
+     */
+    public static final int DEFAULT_MAX_SIZE = 2000;
+
+    private static volatile PubKeyCache defaultCache = new PubKeyCache(DEFAULT_MAX_SIZE);
+
+    private final ByteArrayCache<ECPoint> cache;
+
+    /** Creates a cache which holds at most the given number of keys, evicting the least recently used. */
+    public PubKeyCache(int maxSize) {
+        cache = ByteArrayCache.withMaximumSize("ecdsa.pubkey.cache", maxSize);
+    }
+
+    /** Returns the cache used by signature verification. */
+    public static PubKeyCache getDefault() {
+        return defaultCache;
+    }
+
+    /** Replaces the cache used by signature verification. */
+    public static void setDefault(PubKeyCache cache) {
+        defaultCache = checkNotNull(cache);
+    }
+
+    /**
+     * Returns the normalized point for the given encoded public key, decoding it only if it isn't in the cache yet.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid encoding of a point on the curve
+     */
+    public ECPoint decode(byte[] encoded) {
+        ECPoint point = cache.get(encoded);
+        if (point == null) {
+            point = ECDSA.CURVE.getCurve().decodePoint(encoded).normalize();
+            cache.put(encoded, point);
+        }
+        return point;
+    }
+
+    /** Returns the point for the given encoded public key if it is in the cache, without decoding or adding it. */
+    @Nullable
+    public ECPoint getIfPresent(byte[] encoded) {
+        return cache.getIfPresent(encoded);
+    }
+
+    /** Returns the approximate number of keys in the cache. */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Removes all keys from the cache. */
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+/**
+ * A value which is sampled when the metrics are read rather than recorded when it changes, such as the number of
+ * connected peers or the size of a cache. Implementations are called from the reporting thread, so they must be
+ * thread safe and must not block.
+ */
+public interface Gauge {
+    /** Returns the current value. */
+    double value();
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>The process wide entry point for metrics. Everything is discarded until an application installs a registry with
+ * {@link #setRegistry(MetricsRegistry)}, for example a {@link MicrometerMetricsRegistry} wrapping its own meter
+ * registry.</p>
+ *
+ * <p>The meters returned by {@link #counter(String)}, {@link #timer(String)} and {@link #histogram(String)} always
+ * record into the currently installed registry, so they can be held in static fields and created before the registry is
+ * installed. Gauges registered here are moved over when the registry is replaced.</p>
+ *
+ * <p>The meters bitcoinj reports are:</p>
+ * <ul>
+ *     <li>{@code chain.blocks.connected}: counter of blocks connected to the tip of the best chain, giving blocks per
+ *     second.</li>
+ *     <li>{@code chain.download.blocks}, {@code chain.download.transactions}, {@code chain.download.bytes}: counters
+ *     fed by the chain download of a peer group.</li>
+ *     <li>{@code script.verify}: timer around verifying one input's scripts.</li>
+ *     <li>{@code script.cache.hit}, {@code script.cache.miss}: counters for the cache of parsed locking scripts.</li>
+ *     <li>{@code script.budget.exceeded}: counter of batches given up by a
+ *     {@link io.bitcoinsv.bitcoinjsv.script.ParallelScriptVerifier} because they ran out of their resource budget.</li>
+ *     <li>{@code ecdsa.verify}: counter of signature verifications, giving signatures per second.</li>
+ *     <li>{@code ecdsa.pubkey.cache.hit}, {@code ecdsa.pubkey.cache.miss}: counters for the cache of decoded public keys
+ *     used by pure Java verification.</li>
+ *     <li>{@code crypto.password.cache.hit}, {@code crypto.password.cache.miss}: counters for the keys a
+ *     {@link io.bitcoinsv.bitcoinjsv.crypto.KeyCrypterScrypt} keeps after deriving them from a password.</li>
+ *     <li>{@code net.bytes.received}, {@code net.bytes.sent}: counters of bytes moved over peer connections.</li>
+ *     <li>{@code net.peers.connected}: gauge of the connected peers of a running peer group.</li>
+ *     <li>{@code store.spv.cache.hit}, {@code store.spv.cache.miss}: counters for the SPV block store's header cache.</li>
+ *     <li>{@code store.leveldb.utxo.cache.hit}, {@code store.leveldb.utxo.cache.miss}: counters for the LevelDB full
+ *     pruned block store's UTXO cache, plus a {@code store.leveldb.}<i>method</i> timer per operation when the store is
+ *     created with instrumentation on.</li>
+ * </ul>
+ */
+public final class Metrics {
+    private static volatile MetricsRegistry registry = MetricsRegistry.NOOP;
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Installs the registry that all metrics are reported to from now on. Pass {@link MetricsRegistry#NOOP} to turn
+     * reporting off again.
+     */
+    public static synchronized void setRegistry(MetricsRegistry newRegistry) {
+        checkNotNull(newRegistry);
+        MetricsRegistry oldRegistry = registry;
+        registry = newRegistry;
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            oldRegistry.removeGauge(entry.getKey());
+            newRegistry.gauge(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Returns the registry that metrics are currently reported to. */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /** Returns true if a registry other than {@link MetricsRegistry#NOOP} is installed. */
+    public static boolean isEnabled() {
+        return registry != MetricsRegistry.NOOP;
+    }
+
+    /** Returns a counter which records into the named counter of the current registry. */
+    public static Counter counter(String name) {
+        return new GlobalCounter(name);
+    }
+
+    /** Returns a timer which records into the named timer of the current registry. */
+    public static Timer timer(String name) {
+        return new GlobalTimer(name);
+    }
+
+    /** Returns a histogram which records into the named histogram of the current registry. */
+    public static Histogram histogram(String name) {
+        return new GlobalHistogram(name);
+    }
+
+    /** Registers a gauge with the current registry, and with any registry installed later. */
+    public static synchronized void gauge(String name, Gauge gauge) {
+        gauges.put(checkNotNull(name), checkNotNull(gauge));
+        registry.gauge(name, gauge);
+    }
+
+    /**
+     * Removes the named gauge, but only if it is still the given one. This lets an object unregister the gauge it
+     * registered without removing one that a newer object has since registered under the same name.
+     */
+    public static synchronized void removeGauge(String name, Gauge gauge) {
+        if (gauges.remove(name, gauge))
+            registry.removeGauge(name);
+    }
+
+    // The meters handed out above look up their delegate again whenever the registry has been replaced. The pair is
+    // kept in one immutable object so that it can be swapped atomically without locking.
+    private static final class Binding<T> {
+        final MetricsRegistry registry;
+        final T meter;
+
+        Binding(MetricsRegistry registry, T meter) {
+            this.registry = registry;
+            this.meter = meter;
+        }
+    }
+
+    private static final class GlobalCounter implements Counter {
+        private final String name;
+        private volatile Binding<Counter> binding;
+
+        GlobalCounter(String name) {
+            this.name = checkNotNull(name);
+        }
+
+        private Counter meter() {
+            MetricsRegistry current = registry;
+            Binding<Counter> binding = this.binding;
+            if (binding == null || binding.registry != current)
+                this.binding = binding = new Binding<Counter>(current, current.counter(name));
+            return binding.meter;
+        }
+
+        @Override
+        public void increment() {
+            meter().increment();
+        }
+
+        @Override
+        public void increment(long amount) {
+            meter().increment(amount);
+        }
+    }
+
+    private static final class GlobalTimer implements Timer {
+        private final String name;
+        private volatile Binding<Timer> binding;
+
+        GlobalTimer(String name) {
+            this.name = checkNotNull(name);
+        }
+
+        @Override
+        public void record(long duration, TimeUnit unit) {
+            MetricsRegistry current = registry;
+            Binding<Timer> binding = this.binding;
+            if (binding == null || binding.registry != current)
+                this.binding = binding = new Binding<Timer>(current, current.timer(name));
+            binding.meter.record(duration, unit);
+        }
+    }
+
+    private static final class GlobalHistogram implements Histogram {
+        private final String name;
+        private volatile Binding<Histogram> binding;
+
+        GlobalHistogram(String name) {
+            this.name = checkNotNull(name);
+        }
+
+        @Override
+        public void record(long value) {
+            MetricsRegistry current = registry;
+            Binding<Histogram> binding = this.binding;
+            if (binding == null || binding.registry != current)
+                this.binding = binding = new Binding<Histogram>(current, current.histogram(name));
+            binding.meter.record(value);
+        }
+    }
+}
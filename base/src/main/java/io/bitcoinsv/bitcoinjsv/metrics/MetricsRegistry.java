@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+/**
+ * <p>The service provider interface which bitcoinj reports its metrics through. An implementation maps the named meters
+ * onto a monitoring system; {@link MicrometerMetricsRegistry} does this for Micrometer, {@link SimpleMetricsRegistry}
+ * keeps them in memory and {@link #NOOP} discards everything.</p>
+ *
+ * <p>Names are dot separated and lower case, for example {@code net.bytes.received}. Asking for the same name twice
+ * must return a meter which records into the same place. Implementations must be thread safe.</p>
+ *
+ * <p>Library code does not usually talk to a registry directly but gets its meters from {@link Metrics}, which
+ * forwards to whichever registry is currently installed.</p>
+ */
+public interface MetricsRegistry {
+    /** Returns the counter with the given name, creating it if necessary. */
+    Counter counter(String name);
+
+    /** Returns the timer with the given name, creating it if necessary. */
+    Timer timer(String name);
+
+    /** Returns the histogram with the given name, creating it if necessary. */
+    Histogram histogram(String name);
+
+    /** Registers a gauge under the given name, replacing any gauge previously registered under it. */
+    void gauge(String name, Gauge gauge);
+
+    /** Removes the gauge registered under the given name, if any. */
+    void removeGauge(String name);
+
+    /** A registry which discards everything. This is the default, so metrics cost almost nothing unless enabled. */
+    MetricsRegistry NOOP = new NoopMetricsRegistry();
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A {@link MetricsRegistry} which reports into a Micrometer {@link MeterRegistry}, and from there to whichever
+ * monitoring system that is configured for. Counters, timers and gauges map onto their Micrometer equivalents and
+ * histograms onto distribution summaries.</p>
+ *
+ * <p>Micrometer is an optional dependency of bitcoinj: applications using this class must put
+ * {@code io.micrometer:micrometer-core} on their class path themselves.</p>
+ */
+public class MicrometerMetricsRegistry implements MetricsRegistry {
+    private final MeterRegistry meterRegistry;
+    // Micrometer gauges cannot be replaced once registered, so each one reads through a holder which can be.
+    private final ConcurrentHashMap<String, GaugeHolder> gauges = new ConcurrentHashMap<String, GaugeHolder>();
+
+    private static class GaugeHolder {
+        final AtomicReference<Gauge> gauge = new AtomicReference<Gauge>();
+        io.micrometer.core.instrument.Gauge meter;
+    }
+
+    private static final ToDoubleFunction<GaugeHolder> READ_GAUGE = new ToDoubleFunction<GaugeHolder>() {
+        @Override
+        public double applyAsDouble(GaugeHolder holder) {
+            Gauge gauge = holder.gauge.get();
+            return gauge == null ? Double.NaN : gauge.value();
+        }
+    };
+
+    public MicrometerMetricsRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = checkNotNull(meterRegistry);
+    }
+
+    /** Returns the Micrometer registry this reports into. */
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    @Override
+    public Counter counter(String name) {
+        final io.micrometer.core.instrument.Counter counter = meterRegistry.counter(name);
+        return new Counter() {
+            @Override
+            public void increment() {
+                counter.increment();
+            }
+
+            @Override
+            public void increment(long amount) {
+                counter.increment(amount);
+            }
+        };
+    }
+
+    @Override
+    public Timer timer(String name) {
+        final io.micrometer.core.instrument.Timer timer = meterRegistry.timer(name);
+        return new Timer() {
+            @Override
+            public void record(long duration, TimeUnit unit) {
+                timer.record(duration, unit);
+            }
+        };
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        final DistributionSummary summary = meterRegistry.summary(name);
+        return new Histogram() {
+            @Override
+            public void record(long value) {
+                summary.record(value);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void gauge(String name, Gauge gauge) {
+        GaugeHolder holder = gauges.get(name);
+        if (holder == null) {
+            holder = new GaugeHolder();
+            holder.meter = io.micrometer.core.instrument.Gauge.builder(name, holder, READ_GAUGE)
+                    .strongReference(true)
+                    .register(meterRegistry);
+            gauges.put(name, holder);
+        }
+        holder.gauge.set(checkNotNull(gauge));
+    }
+
+    @Override
+    public synchronized void removeGauge(String name) {
+        GaugeHolder holder = gauges.remove(name);
+        if (holder != null)
+            meterRegistry.remove(holder.meter);
+    }
+
+    @Override
+    public String toString() {
+        return "MicrometerMetricsRegistry{" + meterRegistry + "}";
+    }
+}
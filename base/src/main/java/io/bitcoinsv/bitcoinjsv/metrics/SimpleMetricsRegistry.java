@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A {@link MetricsRegistry} which keeps its meters in memory and lets them be read back. It is useful for tests, for
+ * tools which print their own statistics and for applications without a monitoring system which just want to log a
+ * summary now and then: {@link #toString()} renders every meter, one per line.</p>
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentHashMap<String, SimpleCounter> counters = new ConcurrentHashMap<String, SimpleCounter>();
+    private final ConcurrentHashMap<String, SimpleTimer> timers = new ConcurrentHashMap<String, SimpleTimer>();
+    private final ConcurrentHashMap<String, SimpleHistogram> histograms = new ConcurrentHashMap<String, SimpleHistogram>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    /** A counter whose total can be read back. */
+    public static class SimpleCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment() {
+            count.increment();
+        }
+
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount();
+        }
+    }
+
+    /** A timer which tracks the number of operations and their total and maximum duration. */
+    public static class SimpleTimer implements Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        @Override
+        public void record(long duration, TimeUnit unit) {
+            long nanos = unit.toNanos(duration);
+            count.increment();
+            totalNanos.add(nanos);
+            updateMax(maxNanos, nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxTime(TimeUnit unit) {
+            return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /** Returns the mean duration in the given unit, or zero if nothing was recorded. */
+        public double getMeanTime(TimeUnit unit) {
+            long count = getCount();
+            return count == 0 ? 0 : (double) totalNanos.sum() / count / unit.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d total=%dms mean=%.3fms max=%.3fms", getCount(),
+                    getTotalTime(TimeUnit.MILLISECONDS), getMeanTime(TimeUnit.MILLISECONDS),
+                    maxNanos.get() / 1e6);
+        }
+    }
+
+    /** A histogram which tracks the number of observations and their total, minimum and maximum. */
+    public static class SimpleHistogram implements Histogram {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        @Override
+        public void record(long value) {
+            count.increment();
+            total.add(value);
+            updateMax(max, value);
+            long current;
+            while (value < (current = min.get()) && !min.compareAndSet(current, value)) ;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /** Returns the smallest value recorded, or zero if nothing was recorded. */
+        public long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        /** Returns the largest value recorded, or zero if nothing was recorded. */
+        public long getMax() {
+            return getCount() == 0 ? 0 : max.get();
+        }
+
+        /** Returns the mean of the values recorded, or zero if nothing was recorded. */
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getTotal() / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.2f min=%d max=%d", getCount(), getMean(), getMin(), getMax());
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    @Override
+    public SimpleCounter counter(String name) {
+        SimpleCounter counter = counters.get(name);
+        if (counter == null) {
+            SimpleCounter newCounter = new SimpleCounter();
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null)
+                counter = newCounter;
+        }
+        return counter;
+    }
+
+    @Override
+    public SimpleTimer timer(String name) {
+        SimpleTimer timer = timers.get(name);
+        if (timer == null) {
+            SimpleTimer newTimer = new SimpleTimer();
+            timer = timers.putIfAbsent(name, newTimer);
+            if (timer == null)
+                timer = newTimer;
+        }
+        return timer;
+    }
+
+    @Override
+    public SimpleHistogram histogram(String name) {
+        SimpleHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            SimpleHistogram newHistogram = new SimpleHistogram();
+            histogram = histograms.putIfAbsent(name, newHistogram);
+            if (histogram == null)
+                histogram = newHistogram;
+        }
+        return histogram;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /** Returns a sorted snapshot of the counters, keyed by name. */
+    public Map<String, SimpleCounter> getCounters() {
+        return new TreeMap<String, SimpleCounter>(counters);
+    }
+
+    /** Returns a sorted snapshot of the timers, keyed by name. */
+    public Map<String, SimpleTimer> getTimers() {
+        return new TreeMap<String, SimpleTimer>(timers);
+    }
+
+    /** Returns a sorted snapshot of the histograms, keyed by name. */
+    public Map<String, SimpleHistogram> getHistograms() {
+        return new TreeMap<String, SimpleHistogram>(histograms);
+    }
+
+    /** Returns the current value of the named gauge, or NaN if there is no such gauge. */
+    public double getGaugeValue(String name) {
+        Gauge gauge = gauges.get(name);
+        return gauge == null ? Double.NaN : gauge.value();
+    }
+
+    /** Returns a sorted snapshot of every meter rendered as a string, keyed by name. */
+    public Map<String, String> snapshot() {
+        TreeMap<String, String> snapshot = new TreeMap<String, String>();
+        for (Map.Entry<String, SimpleCounter> entry : counters.entrySet())
+            snapshot.put(entry.getKey(), entry.getValue().toString());
+        for (Map.Entry<String, SimpleTimer> entry : timers.entrySet())
+            snapshot.put(entry.getKey(), entry.getValue().toString());
+        for (Map.Entry<String, SimpleHistogram> entry : histograms.entrySet())
+            snapshot.put(entry.getKey(), entry.getValue().toString());
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet())
+            snapshot.put(entry.getKey(), "value=" + entry.getValue().value());
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : snapshot().entrySet())
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        return builder.toString();
+    }
+}
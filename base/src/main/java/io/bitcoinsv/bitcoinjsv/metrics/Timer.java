@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency and frequency of an operation. A typical use is:
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     ...
+ * } finally {
+ *     timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+ * }
+ * </pre>
+ */
+public interface Timer {
+    /** Records one completed operation which took the given non-negative time. */
+    void record(long duration, TimeUnit unit);
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.exception.VerificationException;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptBudget;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptBudgetExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Verifies the input scripts of a batch of transactions, such as a block, in parallel on an executor, within
+ * resource limits so that one expensive transaction cannot hold up the rest.</p>
+ *
+ * <ul>
+ *     <li>Each input's scripts run within a {@link ScriptBudget} of {@link #setScriptTimeout(long, TimeUnit)} and
+ *     {@link #setScriptStackMemory(long)}.</li>
+ *     <li>The whole batch must finish within {@link #setBatchTimeout(long, TimeUnit)}.</li>
+ *     <li>At most {@link #setBatchStackMemory(long)} divided by the per script stack memory inputs are verified at a
+ *     time, so that the batch's stacks stay within that total, and never more than the parallelism.</li>
+ * </ul>
+ *
+ * <p>The first input to fail stops the batch: scripts already running are cancelled at their next budget check and no
+ * more are started. A failure because of the limits rather than an invalid script is reported as a
+ * {@link ScriptBudgetExceededException}.</p>
+ */
+public class ParallelScriptVerifier {
+    private static final Logger log = LoggerFactory.getLogger(ParallelScriptVerifier.class);
+
+    private static final Counter BUDGET_EXCEEDED = Metrics.counter("script.budget.exceeded");
+
+    /** One input to verify: the arguments to {@link ScriptUtils#correctlySpends}. */
+    public static class Check {
+        final Script scriptSig;
+        final Tx tx;
+        final int inputIndex;
+        final Script scriptPubKey;
+        final Coin value;
+        final Set<ScriptVerifyFlag> verifyFlags;
+
+        public Check(Script scriptSig, Tx tx, int inputIndex, Script scriptPubKey, Coin value,
+                     Set<ScriptVerifyFlag> verifyFlags) {
+            this.scriptSig = checkNotNull(scriptSig);
+            this.tx = checkNotNull(tx);
+            this.inputIndex = inputIndex;
+            this.scriptPubKey = checkNotNull(scriptPubKey);
+            this.value = checkNotNull(value);
+            this.verifyFlags = checkNotNull(verifyFlags);
+        }
+
+        @Override
+        public String toString() {
+            return "input " + inputIndex + " of " + tx.getHash();
+        }
+    }
+
+    private final Executor executor;
+    private final int parallelism;
+    private volatile long scriptTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+    private volatile long batchTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+    private volatile long scriptStackMemory = 100 * 1000 * 1000;
+    private volatile long batchStackMemory = Long.MAX_VALUE;
+
+    /**
+     * Creates a verifier which runs at most the given number of inputs at a time on the given executor, which should
+     * have at least that many threads.
+     */
+    public ParallelScriptVerifier(Executor executor, int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.executor = checkNotNull(executor);
+        this.parallelism = parallelism;
+    }
+
+    /** Sets how long the scripts of a single input may run. Defaults to 10 seconds. */
+    public ParallelScriptVerifier setScriptTimeout(long timeout, TimeUnit unit) {
+        checkArgument(timeout > 0);
+        scriptTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /** Sets how long verifying a whole batch may take. Defaults to 10 minutes. */
+    public ParallelScriptVerifier setBatchTimeout(long timeout, TimeUnit unit) {
+        checkArgument(timeout > 0);
+        batchTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /** Sets the most stack memory the scripts of a single input may use. Defaults to the consensus limit. */
+    public ParallelScriptVerifier setScriptStackMemory(long bytes) {
+        checkArgument(bytes > 0);
+        scriptStackMemory = bytes;
+        return this;
+    }
+
+    /** Sets the most stack memory all inputs being verified at once may use between them. Unlimited by default. */
+    public ParallelScriptVerifier setBatchStackMemory(long bytes) {
+        checkArgument(bytes > 0);
+        batchStackMemory = bytes;
+        return this;
+    }
+
+    /**
+     * Verifies every check, blocking until all have passed or one has failed.
+     *
+     * @throws VerificationException from the first check to fail, a {@link ScriptBudgetExceededException} if that
+     * was because a limit was reached or the calling thread was interrupted.
+     */
+    public void verify(List<Check> checks) throws VerificationException {
+        if (checks.isEmpty())
+            return;
+        ScriptBudget batchBudget = ScriptBudget.of(batchTimeoutNanos, TimeUnit.NANOSECONDS, Long.MAX_VALUE);
+        Batch batch = new Batch(checks, batchBudget, scriptTimeoutNanos, scriptStackMemory);
+
+        long byMemory = Math.max(1, batchStackMemory / scriptStackMemory);
+        int workers = (int) Math.min(Math.min(parallelism, byMemory), checks.size());
+        CountDownLatch done = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(batch.newWorker(done));
+            } catch (RuntimeException e) {
+                // Stop the workers we did start.
+                batchBudget.cancel("executor rejected script verification");
+                throw e;
+            }
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            batchBudget.cancel("interrupted");
+            Thread.currentThread().interrupt();
+            throw new ScriptBudgetExceededException(null, "Script verification interrupted");
+        }
+
+        RuntimeException failure = batch.failure.get();
+        if (failure == null && batch.next.get() < checks.size())
+            // Nothing failed, so the workers stopped because the batch ran out of time.
+            failure = new ScriptBudgetExceededException(null, "Script verification of " + checks.size()
+                    + " inputs exceeded its time budget");
+        if (failure instanceof ScriptBudgetExceededException)
+            BUDGET_EXCEEDED.increment();
+        if (failure != null)
+            throw failure;
+    }
+
+    // The checks of one call to verify, which workers take in order until they run out or one fails.
+    private static class Batch {
+        final List<Check> checks;
+        final ScriptBudget budget;
+        final long scriptTimeoutNanos;
+        final long scriptStackMemory;
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Batch(List<Check> checks, ScriptBudget budget, long scriptTimeoutNanos, long scriptStackMemory) {
+            this.checks = checks;
+            this.budget = budget;
+            this.scriptTimeoutNanos = scriptTimeoutNanos;
+            this.scriptStackMemory = scriptStackMemory;
+        }
+
+        Runnable newWorker(final CountDownLatch done) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int index;
+                        while (!budget.isExhausted() && (index = next.getAndIncrement()) < checks.size()) {
+                            if (!verify(checks.get(index)))
+                                return;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+        }
+
+        // Returns false if the check failed, in which case the whole batch is cancelled.
+        private boolean verify(final Check check) {
+            try {
+                budget.child(scriptTimeoutNanos, TimeUnit.NANOSECONDS, scriptStackMemory).run(new Runnable() {
+                    @Override
+                    public void run() {
+                        ScriptUtils.correctlySpends(check.scriptSig, check.tx, check.inputIndex, check.scriptPubKey,
+                                check.value, check.verifyFlags);
+                    }
+                });
+                return true;
+            } catch (Throwable t) {
+                RuntimeException e = t instanceof RuntimeException ? (RuntimeException) t
+                        : new VerificationException("Script verification of " + check + " threw", t);
+                if (failure.compareAndSet(null, e)) {
+                    log.debug("Script verification of {} failed: {}", check, e.getMessage());
+                    budget.cancel("verification of " + check + " failed");
+                }
+                return false;
+            }
+        }
+    }
+}
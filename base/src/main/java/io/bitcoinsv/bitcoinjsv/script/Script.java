@@ -13,6 +13,7 @@
 package io.bitcoinsv.bitcoinjsv.script;
 
 import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.CompiledScript;
 
 import com.google.common.collect.Lists;
 
@@ -68,6 +69,9 @@ public class Script implements Serializable {
     // Creation time of the associated keys in seconds since the epoch.
     private long creationTimeSeconds;
 
+    // Pre-decoded form for the interpreter, built on first execution or shared through a ScriptCache.
+    transient volatile CompiledScript compiled;
+
     /**
      * Creates an empty script that serializes to nothing.
      */
@@ -93,6 +97,14 @@ public class Script implements Serializable {
         creationTimeSeconds = 0;
     }
 
+    // Used from ScriptCache, sharing the parsed form of an identical script.
+    Script(byte[] programBytes, List<ScriptChunk> chunks, CompiledScript compiled) {
+        program = programBytes;
+        this.chunks = chunks;
+        this.compiled = compiled;
+        creationTimeSeconds = 0;
+    }
+
     public Script(byte[] programBytes, long creationTimeSeconds) throws ScriptParseException {
         program = programBytes;
         parse(programBytes);
@@ -151,6 +163,19 @@ public class Script implements Serializable {
         return Collections.unmodifiableList(chunks);
     }
 
+    /**
+     * Returns the pre-decoded form of this script which the interpreter executes. It is built on first use and kept,
+     * so executing the same script object again, such as a locking script spent many times, skips the decoding.
+     */
+    public CompiledScript getCompiled() {
+        CompiledScript result = compiled;
+        if (result == null) {
+            result = CompiledScript.compile(this);
+            compiled = result;
+        }
+        return result;
+    }
+
     private static final ScriptChunk[] STANDARD_TRANSACTION_SCRIPT_CHUNKS = {
             new ScriptChunk(ScriptOpCodes.OP_DUP, null, 0),
             new ScriptChunk(ScriptOpCodes.OP_HASH160, null, 1),
@@ -463,7 +488,7 @@ public class Script implements Serializable {
     }
 
     // Utility that doesn't copy for internal use
-    private byte[] getQuickProgram() {
+    byte[] getQuickProgram() {
         if (program != null)
             return program;
         return getProgram();
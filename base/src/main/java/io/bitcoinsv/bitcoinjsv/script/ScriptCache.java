@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script;
+
+import com.google.common.cache.Weigher;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.CompiledScript;
+import io.bitcoinsv.bitcoinjsv.utils.ByteArrayCache;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A bounded, thread-safe cache of parsed and compiled locking scripts, keyed by the script bytes. The same few
+ * locking scripts (the P2PKH template for a busy address, a popular token contract) are parsed and compiled again for
+ * every output and every spend that carries them; with the cache that work is done once and later scripts with the same
+ * bytes share the immutable parsed chunks and {@link CompiledScript}. Scripts are only compiled when something asks
+ * for the compiled form, so outputs which are parsed but never verified don't pay for it.</p>
+ *
+ * <p>The cache is bounded by an estimate of the memory its entries hold rather than by their number, as a single large
+ * script can hold as much as thousands of P2PKH ones. Scripts longer than {@link #MAX_CACHED_PROGRAM_LENGTH} bypass
+ * the cache altogether.</p>
+ *
+ * <p>Only locking scripts should be put through the cache. Unlocking scripts are practically never repeated and would
+ * just push useful entries out. Script verification in {@link ScriptUtils} and the output scripts of
+ * transactions go through {@link #getDefault()}; hits and misses are reported as the {@code script.cache.hit} and
+ * {@code script.cache.miss} counters.</p>
+ */
+public final class ScriptCache {
+    /** The approximate number of bytes held by the default cache. */
+    public static final long DEFAULT_MAX_WEIGHT = 8 * 1024 * 1024;
+    /** Scripts longer than this are parsed and compiled without going through the cache. */
+    public static final int MAX_CACHED_PROGRAM_LENGTH = 10000;
+
+    // Rough per-entry cost of the key, the entry and the map node, on top of the script bytes themselves.
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private static volatile ScriptCache defaultCache = new ScriptCache(DEFAULT_MAX_WEIGHT);
+
+    private final ByteArrayCache<Entry> cache;
+
+    /**
+     * Creates a cache which holds scripts up to roughly the given number of bytes, evicting the least recently used.
+     * A weight of zero turns caching off.
+     */
+    public ScriptCache(long maxWeight) {
+        cache = ByteArrayCache.withMaximumWeight("script.cache", maxWeight, new Weigher<byte[], Entry>() {
+            @Override
+            public int weigh(byte[] program, Entry entry) {
+                // The key, the chunk data and the compiled form each hold about one copy of the script bytes.
+                return ENTRY_OVERHEAD + 3 * program.length;
+            }
+        });
+    }
+
+    /** Returns the cache used by script verification and transaction outputs. */
+    public static ScriptCache getDefault() {
+        return defaultCache;
+    }
+
+    /** Replaces the cache used by script verification and transaction outputs. */
+    public static void setDefault(ScriptCache cache) {
+        defaultCache = checkNotNull(cache);
+    }
+
+    /**
+     * Returns a script for the given program bytes, like {@link Script#Script(byte[])}, but without parsing them again
+     * if a script with the same bytes is in the cache. The returned script is a new object which wraps the given array
+     * and shares its parsed chunks, and its compiled form if there is one yet, with the cached entry.
+     */
+    public Script parse(byte[] program) throws ScriptParseException {
+        if (program.length > MAX_CACHED_PROGRAM_LENGTH)
+            return new Script(program);
+        Entry entry = cache.get(program);
+        if (entry != null)
+            return new Script(program, entry.chunks, entry.compiled);
+        Script script = new Script(program);
+        cache.put(program, new Entry(Collections.unmodifiableList(script.chunks)));
+        return script;
+    }
+
+    /**
+     * Returns the compiled form of the given script, reusing the one of a previously seen script with the same bytes.
+     * The script remembers the result, so compiling it again is free.
+     */
+    public CompiledScript compile(Script script) {
+        CompiledScript compiled = script.compiled;
+        if (compiled != null)
+            return compiled;
+        byte[] program = script.getQuickProgram();
+        if (program.length > MAX_CACHED_PROGRAM_LENGTH)
+            return script.getCompiled();
+        Entry entry = cache.get(program);
+        if (entry != null) {
+            compiled = entry.compiled;
+            if (compiled == null) {
+                // Parsed before but not compiled yet; two threads may race here, which only costs a wasted compile.
+                compiled = script.getCompiled();
+                entry.compiled = compiled;
+            } else {
+                script.compiled = compiled;
+            }
+            return compiled;
+        }
+        Entry created = new Entry(Collections.unmodifiableList(script.chunks));
+        created.compiled = script.getCompiled();
+        cache.put(program, created);
+        return created.compiled;
+    }
+
+    /** Returns the approximate number of scripts in the cache. */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Removes all scripts from the cache. */
+    public void clear() {
+        cache.clear();
+    }
+
+    private static class Entry {
+        final List<ScriptChunk> chunks;
+        volatile CompiledScript compiled;
+
+        Entry(List<ScriptChunk> chunks) {
+            this.chunks = chunks;
+        }
+    }
+}
@@ -11,6 +11,8 @@ import io.bitcoinsv.bitcoinjsv.ecc.ECKeyBytes;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
 import io.bitcoinsv.bitcoinjsv.core.*;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import io.bitcoinsv.bitcoinjsv.metrics.Timer;
 import io.bitcoinsv.bitcoinjsv.script.interpreter.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -30,6 +33,8 @@ public class ScriptUtils {
 
     static final Logger log = LoggerFactory.getLogger(ScriptUtils.class);
 
+    private static final Timer VERIFY_TIMER = Metrics.timer("script.verify");
+
 
     private static int getSigOpCount(List<ScriptChunk> chunks, boolean accurate) throws ScriptParseException {
         int sigOps = 0;
@@ -250,7 +255,16 @@ public class ScriptUtils {
      */
     public static void correctlySpends(Script script, Tx txContainingThis, long scriptSigIndex, Script scriptPubKey, Coin value,
                                        Set<ScriptVerifyFlag> verifyFlags) throws ScriptExecutionException {
+        long start = System.nanoTime();
+        try {
+            verifySpend(script, txContainingThis, scriptSigIndex, scriptPubKey, value, verifyFlags);
+        } finally {
+            VERIFY_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    private static void verifySpend(Script script, Tx txContainingThis, long scriptSigIndex, Script scriptPubKey, Coin value,
+                                    Set<ScriptVerifyFlag> verifyFlags) throws ScriptExecutionException {
         if (script.getProgram().length > 10000 || scriptPubKey.getProgram().length > 10000)
             throw new ScriptExecutionException("Script larger than 10,000 bytes");
 
@@ -263,7 +277,8 @@ public class ScriptUtils {
         if (verifyFlags.contains(ScriptVerifyFlag.P2SH))
             p2shStack = new ScriptStack(stack);
 
-        Interpreter.executeScript(txContainingThis, scriptSigIndex, scriptPubKey, stack, value, verifyFlags);
+        Interpreter.executeScript(txContainingThis, scriptSigIndex, ScriptCache.getDefault().compile(scriptPubKey), stack,
+                value, verifyFlags);
 
         if (stack.size() == 0)
             throw new ScriptExecutionException("Stack empty at end of script execution.");
@@ -290,7 +305,7 @@ public class ScriptUtils {
                     throw new ScriptExecutionException("Attempted to spend a P2SH scriptPubKey with a script that contained script ops");
 
             StackItem scriptPubKeyBytes = p2shStack.pollLast();
-            Script scriptPubKeyP2SH = new Script(scriptPubKeyBytes.bytes());
+            Script scriptPubKeyP2SH = ScriptCache.getDefault().parse(scriptPubKeyBytes.bytes());
 
             Interpreter.executeScript(txContainingThis, scriptSigIndex, scriptPubKeyP2SH, p2shStack, value, verifyFlags);
 
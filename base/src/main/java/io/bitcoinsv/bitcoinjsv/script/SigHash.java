@@ -14,15 +14,12 @@ import io.bitcoinsv.bitcoinjsv.bitcoin.api.BitcoinObject;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxInput;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxOutput;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
-import io.bitcoinsv.bitcoinjsv.bitcoin.bean.BitcoinObjectImpl;
-import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxOutputBean;
 import io.bitcoinsv.bitcoinjsv.core.*;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
 
 import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
 
@@ -74,7 +71,8 @@ public class SigHash {
                                                     Flags type,
                                                     boolean anyoneCanPay) {
         byte sigHashType = (byte) TransactionSignature.calcSigHashValue(type, anyoneCanPay, true);
-        ByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(transaction.getMessageSize() == BitcoinObjectImpl.UNKNOWN_MESSAGE_LENGTH ? 512 : transaction.getMessageSize() + 4);
+        // Everything is written straight into the digest, so neither the transaction nor the script is copied.
+        HashingOutputStream hos = new HashingOutputStream();
         try {
             byte[] hashPrevouts = new byte[32];
             byte[] hashSequence = new byte[32];
@@ -84,62 +82,46 @@ public class SigHash {
             TxInput indexedInput = transaction.getInputs().get(inputIndex);
 
             if (!anyoneCanPay) {
-                ByteArrayOutputStream bosHashPrevouts = new UnsafeByteArrayOutputStream(256);
                 for (int i = 0; i < transaction.getInputs().size(); ++i) {
                     TxInput input = transaction.getInputs().get(i);
-                    bosHashPrevouts.write(input.getOutpoint().getHash().getReversedBytes());
-                    Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), bosHashPrevouts);
+                    hos.write(input.getOutpoint().getHash().getReversedBytes());
+                    Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), hos);
                 }
-                hashPrevouts = Sha256Hash.hashTwice(bosHashPrevouts.toByteArray());
+                hashPrevouts = hos.hashTwice();
             }
 
             if (!anyoneCanPay && type != Flags.SINGLE && type != Flags.NONE) {
-                ByteArrayOutputStream bosSequence = new UnsafeByteArrayOutputStream(256);
                 for (int i = 0; i < transaction.getInputs().size(); ++i) {
-                    Utils.uint32ToByteStreamLE(transaction.getInputs().get(i).getSequenceNumber(), bosSequence);
+                    Utils.uint32ToByteStreamLE(transaction.getInputs().get(i).getSequenceNumber(), hos);
                 }
-                hashSequence = Sha256Hash.hashTwice(bosSequence.toByteArray());
+                hashSequence = hos.hashTwice();
             }
 
             if (type != Flags.SINGLE && type != Flags.NONE) {
-                ByteArrayOutputStream bosHashOutputs = new UnsafeByteArrayOutputStream(256);
                 for (int i = 0; i < transaction.getOutputs().size(); ++i) {
-                    TxOutput output = transaction.getOutputs().get(i);
-                    Utils.uint64ToByteStreamLE(
-                            BigInteger.valueOf(output.getValue().getValue()),
-                            bosHashOutputs
-                    );
-                    bosHashOutputs.write(new VarInt(output.getScriptBytes().length).encode());
-                    bosHashOutputs.write(output.getScriptBytes());
+                    writeOutput(transaction.getOutputs().get(i), hos);
                 }
-                hashOutputs = Sha256Hash.hashTwice(bosHashOutputs.toByteArray());
+                hashOutputs = hos.hashTwice();
             } else if (type == Flags.SINGLE && inputIndex < transaction.getOutputs().size()) {
-                TxOutput indexedOutput = transaction.getOutputs().get(inputIndex);
-                ByteArrayOutputStream bosHashOutputs = new UnsafeByteArrayOutputStream(256);
-                Utils.uint64ToByteStreamLE(
-                        BigInteger.valueOf(indexedOutput.getValue().getValue()),
-                        bosHashOutputs
-                );
-                bosHashOutputs.write(new VarInt(indexedOutput.getScriptBytes().length).encode());
-                bosHashOutputs.write(indexedOutput.getScriptBytes());
-                hashOutputs = Sha256Hash.hashTwice(bosHashOutputs.toByteArray());
+                writeOutput(transaction.getOutputs().get(inputIndex), hos);
+                hashOutputs = hos.hashTwice();
             }
-            Utils.uint32ToByteStreamLE(transaction.getVersion(), bos);
-            bos.write(hashPrevouts);
-            bos.write(hashSequence);
-            bos.write(indexedInput.getOutpoint().getHash().getReversedBytes());
-            Utils.uint32ToByteStreamLE(indexedInput.getOutpoint().getIndex(), bos);
-            bos.write(new VarInt(connectedScript.length).encode());
-            bos.write(connectedScript);
-            Utils.uint64ToByteStreamLE(BigInteger.valueOf(prevValue.getValue()), bos);
-            Utils.uint32ToByteStreamLE(indexedInput.getSequenceNumber(), bos);
-            bos.write(hashOutputs);
-            Utils.uint32ToByteStreamLE(transaction.getLockTime(), bos);
-            Utils.uint32ToByteStreamLE(0x000000ff & sigHashType, bos);
+            Utils.uint32ToByteStreamLE(transaction.getVersion(), hos);
+            hos.write(hashPrevouts);
+            hos.write(hashSequence);
+            hos.write(indexedInput.getOutpoint().getHash().getReversedBytes());
+            Utils.uint32ToByteStreamLE(indexedInput.getOutpoint().getIndex(), hos);
+            hos.write(new VarInt(connectedScript.length).encode());
+            hos.write(connectedScript);
+            Utils.int64ToByteStreamLE(prevValue.getValue(), hos);
+            Utils.uint32ToByteStreamLE(indexedInput.getSequenceNumber(), hos);
+            hos.write(hashOutputs);
+            Utils.uint32ToByteStreamLE(transaction.getLockTime(), hos);
+            Utils.uint32ToByteStreamLE(0x000000ff & sigHashType, hos);
         } catch (IOException e) {
             throw new RuntimeException(e);  // Cannot happen.
         }
-        return Sha256Hash.wrap(Sha256Hash.hashTwice(bos.toByteArray(), 0, bos.size()));
+        return Sha256Hash.wrap(hos.hashTwice());
 
     }
 
@@ -153,89 +135,103 @@ public class SigHash {
         //
         //   https://en.bitcoin.it/wiki/Contracts
 
-        try {
-            // Create a copy of this transaction to operate upon because we need make changes to the inputs and outputs.
-            // It would not be thread-safe to change the attributes of the transaction object itself.
-            Tx tx = transaction.mutableCopy();
+        // The signature covers a modified copy of the transaction. Rather than making that copy, we serialize the
+        // transaction as the copy would be serialized, straight into the digest.
+        List<TxInput> inputs = transaction.getInputs();
+        List<TxOutput> outputs = transaction.getOutputs();
 
-            // Clear input scripts in preparation for signing. If we're signing a fresh
-            // transaction that step isn't very helpful, but it doesn't add much cost relative to the actual
-            // EC math so we'll do it anyway.
-            for (int i = 0; i < tx.getInputs().size(); i++) {
-                tx.getInputs().get(i).setScriptBytes(null);
-            }
+        // This step has no purpose beyond being synchronized with Bitcoin Core's bugs. OP_CODESEPARATOR
+        // is a legacy holdover from a previous, broken design of executing scripts that shipped in Bitcoin 0.1.
+        // It was seriously flawed and would have let anyone take anyone elses money. Later versions switched to
+        // the design we use today where scripts are executed independently but share a stack. This left the
+        // OP_CODESEPARATOR instruction having no purpose as it was only meant to be used internally, not actually
+        // ever put into scripts. Deleting OP_CODESEPARATOR is a step that should never be required but if we don't
+        // do it, we could split off the main chain.
+        connectedScript = removeAllInstancesOfOp(connectedScript, ScriptOpCodes.OP_CODESEPARATOR);
 
-            // This step has no purpose beyond being synchronized with Bitcoin Core's bugs. OP_CODESEPARATOR
-            // is a legacy holdover from a previous, broken design of executing scripts that shipped in Bitcoin 0.1.
-            // It was seriously flawed and would have let anyone take anyone elses money. Later versions switched to
-            // the design we use today where scripts are executed independently but share a stack. This left the
-            // OP_CODESEPARATOR instruction having no purpose as it was only meant to be used internally, not actually
-            // ever put into scripts. Deleting OP_CODESEPARATOR is a step that should never be required but if we don't
-            // do it, we could split off the main chain.
-            connectedScript = removeAllInstancesOfOp(connectedScript, ScriptOpCodes.OP_CODESEPARATOR);
+        boolean signNone = (sigHashType & 0x1f) == Flags.NONE.value;
+        boolean signSingle = (sigHashType & 0x1f) == Flags.SINGLE.value;
+        boolean anyoneCanPay = (sigHashType & Flags.ANYONECANPAY.value) == Flags.ANYONECANPAY.value;
 
-            // Set the input to the script of its output. Bitcoin Core does this but the step has no obvious purpose as
-            // the signature covers the hash of the prevout transaction which obviously includes the output script
-            // already. Perhaps it felt safer to him in some way, or is another leftover from how the code was written.
-            TxInput input = tx.getInputs().get(inputIndex);
-            input.setScriptBytes(connectedScript);
+        if (signSingle && inputIndex >= outputs.size()) {
+            // SIGHASH_SINGLE means only sign the output at the same index as the input (ie, my output).
+            // The input index is beyond the number of outputs, it's a buggy signature made by a broken
+            // Bitcoin implementation. Bitcoin Core also contains a bug in handling this case:
+            // any transaction output that is signed in this case will result in both the signed output
+            // and any future outputs to this public key being steal-able by anyone who has
+            // the resulting signature and the public key (both of which are part of the signed tx input).
 
-            if ((sigHashType & 0x1f) == Flags.NONE.value) {
-                // SIGHASH_NONE means no outputs are signed at all - the signature is effectively for a "blank cheque".
-                tx.setOutputs(new ArrayList<TxOutput>(0));
-                // The signature isn't broken by new versions of the transaction issued by other parties.
-                for (int i = 0; i < tx.getInputs().size(); i++)
-                    if (i != inputIndex)
-                        tx.getInputs().get(i).setSequenceNumber(0);
-            } else if ((sigHashType & 0x1f) == Flags.SINGLE.value) {
-                // SIGHASH_SINGLE means only sign the output at the same index as the input (ie, my output).
-                if (inputIndex >= tx.getOutputs().size()) {
-                    // The input index is beyond the number of outputs, it's a buggy signature made by a broken
-                    // Bitcoin implementation. Bitcoin Core also contains a bug in handling this case:
-                    // any transaction output that is signed in this case will result in both the signed output
-                    // and any future outputs to this public key being steal-able by anyone who has
-                    // the resulting signature and the public key (both of which are part of the signed tx input).
+            // Bitcoin Core's bug is that SignatureHash was supposed to return a hash and on this codepath it
+            // actually returns the constant "1" to indicate an error, which is never checked for. Oops.
+            return Sha256Hash.wrap("0100000000000000000000000000000000000000000000000000000000000000");
+        }
+
+        HashingOutputStream hos = new HashingOutputStream();
+        try {
+            Utils.uint32ToByteStreamLE(transaction.getVersion(), hos);
 
-                    // Bitcoin Core's bug is that SignatureHash was supposed to return a hash and on this codepath it
-                    // actually returns the constant "1" to indicate an error, which is never checked for. Oops.
-                    return Sha256Hash.wrap("0100000000000000000000000000000000000000000000000000000000000000");
+            // SIGHASH_ANYONECANPAY means the signature in the input is not broken by changes/additions/removals
+            // of other inputs. For example, this is useful for building assurance contracts.
+            hos.write(new VarInt(anyoneCanPay ? 1 : inputs.size()).encode());
+            for (int i = 0; i < inputs.size(); i++) {
+                if (anyoneCanPay && i != inputIndex)
+                    continue;
+                TxInput input = inputs.get(i);
+                hos.write(input.getOutpoint().getHash().getReversedBytes());
+                Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), hos);
+                // Input scripts are cleared, except that the input being signed is set to the script of its output.
+                // Bitcoin Core does this but the step has no obvious purpose as the signature covers the hash of the
+                // prevout transaction which obviously includes the output script already. Perhaps it felt safer to him
+                // in some way, or is another leftover from how the code was written.
+                if (i == inputIndex) {
+                    hos.write(new VarInt(connectedScript.length).encode());
+                    hos.write(connectedScript);
+                } else {
+                    hos.write(0);
                 }
+                // With SIGHASH_NONE or SIGHASH_SINGLE the signature isn't broken by new versions of the transaction
+                // issued by other parties.
+                long sequenceNumber = i != inputIndex && (signNone || signSingle) ? 0 : input.getSequenceNumber();
+                Utils.uint32ToByteStreamLE(sequenceNumber, hos);
+            }
+
+            if (signNone) {
+                // SIGHASH_NONE means no outputs are signed at all - the signature is effectively for a "blank cheque".
+                hos.write(0);
+            } else if (signSingle) {
                 // In SIGHASH_SINGLE the outputs after the matching input index are deleted, and the outputs before
                 // that position are "nulled out". Unintuitively, the value in a "null" transaction is set to -1.
-                tx.setOutputs(new ArrayList<TxOutput>(tx.getOutputs().subList(0, inputIndex + 1)));
+                hos.write(new VarInt(inputIndex + 1).encode());
                 for (int i = 0; i < inputIndex; i++) {
-                    TxOutput output = new TxOutputBean(tx).makeMutable();
-                    output.setValue(Coin.NEGATIVE_SATOSHI);
-                    output.setScriptBytes(new byte[]{});
-                    tx.getOutputs().set(i, output);
+                    Utils.int64ToByteStreamLE(Coin.NEGATIVE_SATOSHI.getValue(), hos);
+                    hos.write(0);
                 }
-                // The signature isn't broken by new versions of the transaction issued by other parties.
-                for (int i = 0; i < tx.getInputs().size(); i++)
-                    if (i != inputIndex)
-                        tx.getInputs().get(i).setSequenceNumber(0);
+                writeOutput(outputs.get(inputIndex), hos);
+            } else {
+                hos.write(new VarInt(outputs.size()).encode());
+                for (TxOutput output : outputs)
+                    writeOutput(output, hos);
             }
+            Utils.uint32ToByteStreamLE(transaction.getLockTime(), hos);
 
-            if ((sigHashType & Flags.ANYONECANPAY.value) == Flags.ANYONECANPAY.value) {
-                // SIGHASH_ANYONECANPAY means the signature in the input is not broken by changes/additions/removals
-                // of other inputs. For example, this is useful for building assurance contracts.
-                tx.setInputs(new ArrayList<>());
-                tx.getInputs().add(input);
-            }
-
-            ByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(transaction.getMessageSize() + 64);
-            tx.serializeTo(bos);
             // We also have to write a hash type (sigHashType is actually an unsigned char)
-            Utils.uint32ToByteStreamLE(0x000000ff & sigHashType, bos);
+            Utils.uint32ToByteStreamLE(0x000000ff & sigHashType, hos);
             // Note that this is NOT reversed to ensure it will be signed correctly. If it were to be printed out
             // however then we would expect that it is IS reversed.
-            Sha256Hash hash = Sha256Hash.wrap(Sha256Hash.hashTwice(bos.toByteArray(), 0, bos.size()));
-
-            return hash;
+            return Sha256Hash.wrap(hos.hashTwice());
         } catch (IOException e) {
             throw new RuntimeException(e);  // Cannot happen.
         }
     }
 
+    // Writes an output as it is serialized, reading the script from the output's own bytes.
+    private static void writeOutput(TxOutput output, OutputStream stream) throws IOException {
+        byte[] scriptBytes = output.getScriptBytes();
+        Utils.int64ToByteStreamLE(output.getValue().getValue(), stream);
+        stream.write(new VarInt(scriptBytes.length).encode());
+        stream.write(scriptBytes);
+    }
+
     /**
      * Returns the script bytes of inputScript with all instances of the given op code removed
      */
@@ -247,48 +243,70 @@ public class SigHash {
      * Returns the script bytes of inputScript with all instances of the specified script object removed
      */
     public static byte[] removeAllInstancesOf(byte[] inputScript, byte[] chunkToRemove) {
-        // We usually don't end up removing anything
-        UnsafeByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(inputScript.length);
+        return removeAllInstancesOf(inputScript, Collections.singletonList(chunkToRemove));
+    }
 
+    /**
+     * Returns the script bytes of inputScript with all instances of any of the specified script objects removed. This
+     * is the same as removing each of them in turn, but takes a single pass over the script however many there are.
+     * Each object should be one serialized chunk, as written by {@link ScriptChunk#writeBytes}. If nothing is removed
+     * inputScript itself is returned.
+     */
+    public static byte[] removeAllInstancesOf(byte[] inputScript, Collection<byte[]> chunksToRemove) {
+        if (chunksToRemove.isEmpty())
+            return inputScript;
+        // Chunks are matched whole, so look each one up by its contents, but only if some object has its length.
+        Set<ByteBuffer> toRemove = new HashSet<>();
+        int minLength = Integer.MAX_VALUE, maxLength = 0;
+        for (byte[] chunk : chunksToRemove) {
+            toRemove.add(ByteBuffer.wrap(chunk));
+            minLength = Math.min(minLength, chunk.length);
+            maxLength = Math.max(maxLength, chunk.length);
+        }
+
+        // We usually don't end up removing anything, so only copy once we find something to remove.
+        UnsafeByteArrayOutputStream bos = null;
+        int keptFrom = 0;
         int cursor = 0;
         while (cursor < inputScript.length) {
-            boolean skip = equalsRange(inputScript, cursor, chunkToRemove);
-
-            int opcode = inputScript[cursor++] & 0xFF;
-            int additionalBytes = 0;
-            if (opcode >= 0 && opcode < OP_PUSHDATA1) {
-                additionalBytes = opcode;
-            } else if (opcode == OP_PUSHDATA1) {
-                additionalBytes = (0xFF & inputScript[cursor]) + 1;
-            } else if (opcode == OP_PUSHDATA2) {
-                additionalBytes = ((0xFF & inputScript[cursor]) |
-                        ((0xFF & inputScript[cursor + 1]) << 8)) + 2;
-            } else if (opcode == OP_PUSHDATA4) {
-                additionalBytes = ((0xFF & inputScript[cursor]) |
-                        ((0xFF & inputScript[cursor + 1]) << 8) |
-                        ((0xFF & inputScript[cursor + 1]) << 16) |
-                        ((0xFF & inputScript[cursor + 1]) << 24)) + 4;
+            int chunkEnd = chunkEnd(inputScript, cursor);
+            int chunkLength = chunkEnd - cursor;
+            if (chunkLength >= minLength && chunkLength <= maxLength
+                    && toRemove.contains(ByteBuffer.wrap(inputScript, cursor, chunkLength))) {
+                if (bos == null)
+                    bos = new UnsafeByteArrayOutputStream(inputScript.length);
+                bos.write(inputScript, keptFrom, cursor - keptFrom);
+                keptFrom = chunkEnd;
             }
-            if (!skip) {
-                try {
-                    bos.write(opcode);
-                    bos.write(Arrays.copyOfRange(inputScript, cursor, cursor + additionalBytes));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            cursor += additionalBytes;
+            cursor = chunkEnd;
         }
+        if (bos == null)
+            return inputScript;
+        bos.write(inputScript, keptFrom, inputScript.length - keptFrom);
         return bos.toByteArray();
     }
 
-    private static boolean equalsRange(byte[] a, int start, byte[] b) {
-        if (start + b.length > a.length)
-            return false;
-        for (int i = 0; i < b.length; i++)
-            if (a[i + start] != b[i])
-                return false;
-        return true;
+    // Returns the index just past the chunk starting at cursor, or the end of the script if the chunk is truncated.
+    private static int chunkEnd(byte[] script, int cursor) {
+        int opcode = script[cursor++] & 0xFF;
+        long additionalBytes = 0;
+        if (opcode < OP_PUSHDATA1) {
+            additionalBytes = opcode;
+        } else if (opcode == OP_PUSHDATA1) {
+            if (cursor + 1 > script.length)
+                return script.length;
+            additionalBytes = (0xFF & script[cursor]) + 1;
+        } else if (opcode == OP_PUSHDATA2) {
+            if (cursor + 2 > script.length)
+                return script.length;
+            additionalBytes = ((0xFF & script[cursor]) |
+                    ((0xFF & script[cursor + 1]) << 8)) + 2;
+        } else if (opcode == OP_PUSHDATA4) {
+            if (cursor + 4 > script.length)
+                return script.length;
+            additionalBytes = Utils.readUint32(script, cursor) + 4;
+        }
+        return (int) Math.min(cursor + additionalBytes, script.length);
     }
 
 }
@@ -0,0 +1,182 @@
+/*
+ * © 2020 Bitcoin Association
+ * Open BSV Licence, see the accompanying file LICENSE
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptChunk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.OP_0;
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.OP_CODESEPARATOR;
+
+/**
+ * <p>An immutable, pre-decoded form of a {@link Script} for the {@link Interpreter}. Compiling flattens the chunk list
+ * into arrays, builds the stack items for data pushes once and serializes the program once with the byte offset of
+ * every chunk, so that signature checks can cut the connected script out of it instead of re-serializing the
+ * remaining chunks every time.</p>
+ *
+ * <p>A compiled script holds no execution state and may be shared between threads, so the compiled form of a locking
+ * script can be kept and reused for every spend of it. {@link Script#getCompiled()} caches it on the script.
+ * Use {@link #stream()} to get a fresh {@link ScriptStream} for each execution.</p>
+ */
+public final class CompiledScript {
+    private final ScriptChunk[] chunks;
+    private final int[] opcodes;
+    // The stack item each data push puts on the stack, null for opcodes and OP_0.
+    private final StackItem[] pushes;
+    // Byte offset of each chunk in program, with the length of the program as the last element.
+    private final int[] offsets;
+    private final byte[] program;
+
+    private CompiledScript(List<ScriptChunk> chunkList) {
+        int size = chunkList.size();
+        chunks = chunkList.toArray(new ScriptChunk[size]);
+        opcodes = new int[size];
+        pushes = new StackItem[size];
+        offsets = new int[size + 1];
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            for (int i = 0; i < size; i++) {
+                ScriptChunk chunk = chunks[i];
+                opcodes[i] = chunk.opcode;
+                if (!chunk.isOpCode() && chunk.opcode != OP_0 && !chunk.isDirective)
+                    pushes[i] = StackItem.forBytes(chunk.data, chunk.type);
+                offsets[i] = bos.size();
+                chunk.write(bos);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);  // Cannot happen.
+        }
+        offsets[size] = bos.size();
+        program = bos.toByteArray();
+    }
+
+    /** Pre-decodes the given script. Prefer {@link Script#getCompiled()}, which only does this once per script. */
+    public static CompiledScript compile(Script script) {
+        return new CompiledScript(script.getChunks());
+    }
+
+    /** Returns the number of chunks in the script. */
+    public int size() {
+        return chunks.length;
+    }
+
+    /** Returns the opcode of the chunk at the given index. */
+    public int opcode(int index) {
+        return opcodes[index];
+    }
+
+    /** Returns the serialized program starting at the given chunk index. */
+    public byte[] programFrom(int chunkIndex) {
+        return Arrays.copyOfRange(program, offsets[chunkIndex], program.length);
+    }
+
+    /** Returns a new stream positioned at the start of the script. */
+    public ScriptStream stream() {
+        return new Stream(this);
+    }
+
+    /**
+     * A {@link ScriptStream} over a compiled script. Besides the chunks it hands the interpreter the prepared stack
+     * item of the current push, and it answers {@link #getProgramFrom(int)} without re-serializing.
+     */
+    static final class Stream implements ScriptStream {
+        private final CompiledScript compiled;
+        private int index = 0;
+        private int lastCodeSepIndex = 0;
+
+        private Stream(CompiledScript compiled) {
+            this.compiled = compiled;
+        }
+
+        /** Returns the prepared stack item for the chunk last returned by {@link #next()}, or null if it isn't a push. */
+        StackItem currentPush() {
+            return compiled.pushes[index - 1];
+        }
+
+        @Override
+        public ScriptStream clone() {
+            return new Stream(compiled);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < compiled.chunks.length;
+        }
+
+        @Override
+        public ScriptChunk next() {
+            if (compiled.opcodes[index] == OP_CODESEPARATOR)
+                lastCodeSepIndex = index;
+            return compiled.chunks[index++];
+        }
+
+        @Override
+        public int chunkIndex() {
+            return index;
+        }
+
+        @Override
+        public long byteIndex() {
+            return compiled.offsets[index];
+        }
+
+        @Override
+        public long getLastCodeSepBytePos() {
+            return compiled.offsets[lastCodeSepIndex];
+        }
+
+        @Override
+        public int getLastCodeSepIndex() {
+            return lastCodeSepIndex;
+        }
+
+        @Override
+        public void advanceTo(int chunkIndex) {
+            while (index < chunkIndex)
+                next();
+        }
+
+        /**
+         * The interpreter only reads the returned program to hash it, so when no code separator has been passed the
+         * whole program is returned as it is instead of copying it.
+         */
+        @Override
+        public byte[] getProgramFrom(int chunkIndex) {
+            if (compiled.offsets[chunkIndex] == 0)
+                return compiled.program;
+            return compiled.programFrom(chunkIndex);
+        }
+
+        @Override
+        public long sizeOfNext() {
+            return (long) compiled.offsets[index + 2] - compiled.offsets[index + 1];
+        }
+
+        @Override
+        public long count() {
+            return compiled.chunks.length;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return compiled.program.length;
+        }
+
+        @Override
+        public long posInBytes() {
+            return compiled.offsets[index];
+        }
+
+        @Override
+        public long posInElements() {
+            return index;
+        }
+    }
+}
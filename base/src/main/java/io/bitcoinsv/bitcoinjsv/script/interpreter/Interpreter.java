@@ -52,6 +52,22 @@ public class Interpreter {
     private static final int[] RSHIFT_MASKS = new int[]{0xFF, 0xFE, 0xFC, 0xF8, 0xF0, 0xE0, 0xC0, 0x80};
     private static final int[] LSHIFT_MASKS = new int[]{0xFF, 0x7F, 0x3F, 0x1F, 0x0F, 0x07, 0x03, 0x01};
 
+    // Disabled opcode lookup tables, indexed by whether the monolith (1) and magnetic (2) opcodes are enabled.
+    private static final boolean[][] DISABLED_OPCODES = new boolean[4][];
+
+    static {
+        for (int i = 0; i < DISABLED_OPCODES.length; i++) {
+            EnumSet<ScriptVerifyFlag> flags = EnumSet.noneOf(ScriptVerifyFlag.class);
+            if ((i & 1) != 0)
+                flags.add(ScriptVerifyFlag.MONOLITH_OPCODES);
+            if ((i & 2) != 0)
+                flags.add(ScriptVerifyFlag.MAGNETIC_OPCODES);
+            DISABLED_OPCODES[i] = new boolean[256];
+            for (int opcode = 0; opcode < 256; opcode++)
+                DISABLED_OPCODES[i][opcode] = isOpcodeDisabled(opcode, flags);
+        }
+    }
+
 
     /**
      * Interpreter state
@@ -65,6 +81,8 @@ public class Interpreter {
     ScriptStack stack;
     Coin value;
     Set<ScriptVerifyFlag> verifyFlags;
+    //verifyFlags as a bitmask of flag ordinals, see hasFlag
+    final int flags;
     ScriptStateListener scriptStateListener;
     ScriptExecutionState state;
     boolean allowFakeChecksig;
@@ -83,6 +101,8 @@ public class Interpreter {
 
     ScriptStack altstack;
     LinkedList<Boolean> ifStack;
+    //number of false entries in ifStack, the current branch executes when this is zero
+    int ifFalseCount = 0;
 
     boolean opReturnCalled = false;
 
@@ -93,6 +113,10 @@ public class Interpreter {
     final int maxNumElementSize;
     final int maxMultisigKeys;
     final int maxOpCount;
+    final boolean[] disabledOpcodes;
+    //resource limits beyond consensus set by the caller, see ScriptBudget
+    @Nullable
+    final ScriptBudget budget;
 
     public Interpreter(@Nullable Tx txContainingThis, long index,
                        ScriptStream script, ScriptStack stack, Coin value,
@@ -107,18 +131,37 @@ public class Interpreter {
         this.verifyFlags = verifyFlags;
         this.scriptStateListener = scriptStateListener;
         this.state = state;
+        this.budget = ScriptBudget.current();
         this.allowFakeChecksig = allowFakeChecksig;
         this.fakeChecksigDelay = fakeChecksigDelay;
 
         //init flag based limits
-        enforceMinimal = verifyFlags.contains(ScriptVerifyFlag.MINIMALDATA);
-        genesisActive = verifyFlags.contains(ScriptVerifyFlag.GENESIS_OPCODES);
+        flags = flagBits(verifyFlags);
+        enforceMinimal = hasFlag(flags, ScriptVerifyFlag.MINIMALDATA);
+        genesisActive = hasFlag(flags, ScriptVerifyFlag.GENESIS_OPCODES);
         maxScriptElementSize = genesisActive ? Long.MAX_VALUE : MAX_SCRIPT_ELEMENT_SIZE;
         maxNumElementSize = genesisActive ? MAX_NUM_ELEMENT_SIZE_POST_GENESIS : MAX_NUM_ELEMENT_SIZE_PRE_GENESIS;
         maxMultisigKeys = genesisActive ? MAX_MULTISIG_PUBKEYS_POST_GENESIS : MAX_MULTISIG_PUBKEYS_PRE_GENESIS;
         maxOpCount = genesisActive ? Integer.MAX_VALUE :
-                verifyFlags.contains(ScriptVerifyFlag.MAGNETIC_OPCODES) ? MAX_OPCOUNT_PRE_GENESIS :
+                hasFlag(flags, ScriptVerifyFlag.MAGNETIC_OPCODES) ? MAX_OPCOUNT_PRE_GENESIS :
                         MAX_OPCOUNT_PRE_MAGNETIC;
+        disabledOpcodes = DISABLED_OPCODES[(hasFlag(flags, ScriptVerifyFlag.MONOLITH_OPCODES) ? 1 : 0)
+                | (hasFlag(flags, ScriptVerifyFlag.MAGNETIC_OPCODES) ? 2 : 0)];
+    }
+
+    /**
+     * Returns the given flags as a bitmask with bit {@code flag.ordinal()} set for each flag, so the interpreter can
+     * test them without a set lookup per opcode.
+     */
+    static int flagBits(Set<ScriptVerifyFlag> verifyFlags) {
+        int bits = 0;
+        for (ScriptVerifyFlag flag : verifyFlags)
+            bits |= 1 << flag.ordinal();
+        return bits;
+    }
+
+    static boolean hasFlag(int flags, ScriptVerifyFlag flag) {
+        return (flags & (1 << flag.ordinal())) != 0;
     }
 
     ////////////////////// Script verification and helpers ////////////////////////////////
@@ -176,6 +219,106 @@ public class Interpreter {
         return Utils.decodeMPI(Utils.reverseBytes(stackItem.bytes()), false);
     }
 
+    /**
+     * Cast a script chunk of at most {@link ScriptNum#MAX_LONG_SIZE} bytes to a long, applying the same checks as
+     * {@link #castToBigInteger(ScriptExecutionState, StackItem, int, boolean)}.
+     */
+    private static long castToLong(ScriptExecutionState state, final StackItem stackItem, final int maxLength, boolean enforceMinimal) throws ScriptExecutionException {
+        if (stackItem.length() > maxLength)
+            throw new ScriptExecutionException(state, "Script attempted to use an integer larger than "
+                    + maxLength + " bytes: " + stackItem.length());
+        if (enforceMinimal && !Utils.checkMinimallyEncodedLE(stackItem.bytes(), maxLength))
+            throw new ScriptExecutionException(state, "Number is not minimally encoded: " + stackItem + " - [" + stackItem.toString(true, Type.BYTES) + "]");
+        return ScriptNum.decode(stackItem.bytes());
+    }
+
+    /**
+     * Returns the result of a unary numeric opcode.
+     *
+     * @throws ArithmeticException if the result doesn't fit in a long.
+     */
+    private static long numericUnaryOp(int opcode, long num) {
+        switch (opcode) {
+            case OP_1ADD:
+                return Math.incrementExact(num);
+            case OP_1SUB:
+                return Math.decrementExact(num);
+            case OP_NEGATE:
+                return Math.negateExact(num);
+            case OP_ABS:
+                return num < 0 ? Math.negateExact(num) : num;
+            case OP_NOT:
+                return num == 0 ? 1 : 0;
+            case OP_0NOTEQUAL:
+                return num == 0 ? 0 : 1;
+            default:
+                throw new AssertionError("Unreachable");
+        }
+    }
+
+    /**
+     * Returns the result of a binary numeric opcode, with the same semantics as the BigInteger implementation.
+     *
+     * @throws ArithmeticException if the result doesn't fit in a long.
+     */
+    private static long numericBinaryOp(ScriptExecutionState state, int opcode, long num1, long num2) throws ScriptExecutionException {
+        switch (opcode) {
+            case OP_ADD:
+                return Math.addExact(num1, num2);
+            case OP_SUB:
+                return Math.subtractExact(num1, num2);
+            case OP_MUL:
+                return Math.multiplyExact(num1, num2);
+            case OP_DIV:
+                if ((int) num2 == 0)
+                    throw new ScriptExecutionException(state, "Division by zero error");
+                if (num1 == Long.MIN_VALUE && num2 == -1)
+                    throw new ArithmeticException("long overflow");
+                return num1 / num2;
+            case OP_MOD:
+                if ((int) num2 == 0)
+                    throw new ScriptExecutionException(state, "Modulo by zero error");
+                return num1 % num2;
+            case OP_BOOLAND:
+                return num1 != 0 && num2 != 0 ? 1 : 0;
+            case OP_BOOLOR:
+                return num1 != 0 || num2 != 0 ? 1 : 0;
+            case OP_NUMEQUAL:
+                return num1 == num2 ? 1 : 0;
+            case OP_NUMNOTEQUAL:
+                return num1 != num2 ? 1 : 0;
+            case OP_LESSTHAN:
+                return num1 < num2 ? 1 : 0;
+            case OP_GREATERTHAN:
+                return num1 > num2 ? 1 : 0;
+            case OP_LESSTHANOREQUAL:
+                return num1 <= num2 ? 1 : 0;
+            case OP_GREATERTHANOREQUAL:
+                return num1 >= num2 ? 1 : 0;
+            case OP_MIN:
+                return Math.min(num1, num2);
+            case OP_MAX:
+                return Math.max(num1, num2);
+            default:
+                throw new RuntimeException("Opcode switched at runtime?");
+        }
+    }
+
+    private static Type numericBinaryOpType(int opcode) {
+        switch (opcode) {
+            case OP_ADD:
+            case OP_SUB:
+            case OP_MUL:
+            case OP_DIV:
+            case OP_MOD:
+            case OP_MIN:
+            case OP_MAX:
+                return Type.INT;
+            default:
+                return Type.BOOL;
+        }
+    }
+
     /**
      * shift x right by n bits, implements OP_RSHIFT
      * see: https://github.com/bitcoin-sv/bitcoin-sv/commit/27d24de643dbd3cc852e1de7c90e752e19abb9d8
@@ -323,7 +466,16 @@ public class Interpreter {
      */
     public static ScriptExecutionState executeScript(@Nullable Tx txContainingThis, long index,
                                      Script script, ScriptStack stack, Coin value, Set<ScriptVerifyFlag> verifyFlags) throws ScriptExecutionException {
-        return executeScript(txContainingThis, index, new SimpleScriptStream(script), stack, value, verifyFlags, null);
+        return executeScript(txContainingThis, index, script.getCompiled(), stack, value, verifyFlags);
+    }
+
+    /**
+     * Executes a script which has already been compiled, for callers which keep the compiled form of a script around
+     * themselves. See {@link #executeScript(Tx, long, Script, ScriptStack, Coin, Set)}.
+     */
+    public static ScriptExecutionState executeScript(@Nullable Tx txContainingThis, long index,
+                                     CompiledScript script, ScriptStack stack, Coin value, Set<ScriptVerifyFlag> verifyFlags) throws ScriptExecutionException {
+        return executeScript(txContainingThis, index, script.stream(), stack, value, verifyFlags, null);
     }
 
     /**
@@ -383,6 +535,9 @@ public class Interpreter {
             altstack = state.altStack;
             ifStack = state.ifStack;
             allowUnclosedIf = true;
+            for (Boolean branch : ifStack)
+                if (!branch)
+                    ifFalseCount++;
         } else {
             //this is a normal invocation where the entire script is executed in one call.
             altstack = new ScriptStack();
@@ -428,12 +583,23 @@ public class Interpreter {
         return stack.get(stack.size() + index);
     }
 
+    // Checks the budget before work on an operand large enough to take a while to copy or hash.
+    private void checkTimeBefore(int operandLength) {
+        if (budget != null && operandLength >= ScriptBudget.LARGE_OPERAND_SIZE)
+            budget.checkTime(state);
+    }
+
     /**
      * Execute the opcode in the given script chunk
      * @param chunk
+     * @param push the stack item for a data push if already prepared, otherwise null
      * @return true if the op code was executed
      */
-    private boolean execOpcode(ScriptChunk chunk) {
+    private boolean execOpcode(ScriptChunk chunk, @Nullable StackItem push) {
+        if (budget != null && (state.currentOpCodeIndex % ScriptBudget.CHECK_INTERVAL == 0
+                || (chunk.opcode >= OP_CHECKSIG && chunk.opcode <= OP_CHECKMULTISIGVERIFY)))
+            budget.checkTime(state);
+
         state.lastOpCode = state.currentOpCode;
         state.currentOpCode = chunk;
         state.currentOpCodeIndex++;
@@ -442,7 +608,7 @@ public class Interpreter {
         stack.clearPoppedItems();
         altstack.clearPoppedItems();
 
-        boolean shouldExecute = !ifStack.contains(false);
+        boolean shouldExecute = ifFalseCount == 0;
 
         if (shouldExecute) {
             state.executedOpCodes.add(chunk);
@@ -470,7 +636,7 @@ public class Interpreter {
             if (!shouldExecute)
                 return false;
 
-            stack.add(StackItem.forBytes(chunk.data, chunk.type));
+            stack.add(push != null ? push : StackItem.forBytes(chunk.data, chunk.type));
         } else {
             int opcode = chunk.opcode;
             if (opcode > OP_16) {
@@ -484,38 +650,38 @@ public class Interpreter {
                 throw new ScriptExecutionException(state, "Script included OP_VERIF or OP_VERNOTIF");
 
             // Some opcodes are disabled.
-            if (isOpcodeDisabled(opcode, verifyFlags)) {
+            if (disabledOpcodes[opcode]) {
                 throw new ScriptExecutionException(state, "Script included a disabled Script Op.");
             }
 
             switch (opcode) {
                 case OP_IF:
                     if (!shouldExecute) {
-                        ifStack.add(false);
+                        pushIf(false);
                         return false;
                     }
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_IF on an empty stack");
-                    ifStack.add(castToBool(stack.pollLast().bytes()));
+                    pushIf(castToBool(stack.pollLast().bytes()));
                     return true;
                 case OP_NOTIF:
                     if (!shouldExecute) {
-                        ifStack.add(false);
+                        pushIf(false);
                         return false;
                     }
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_NOTIF on an empty stack");
-                    ifStack.add(!castToBool(stack.pollLast().bytes()));
+                    pushIf(!castToBool(stack.pollLast().bytes()));
                     return true;
                 case OP_ELSE:
                     if (ifStack.isEmpty())
                         throw new ScriptExecutionException(state, "Attempted OP_ELSE without OP_IF/NOTIF");
-                    ifStack.add(!ifStack.pollLast());
+                    pushIf(!popIf());
                     return true;
                 case OP_ENDIF:
                     if (ifStack.isEmpty())
                         throw new ScriptExecutionException(state, "Attempted OP_ENDIF without OP_IF/NOTIF");
-                    ifStack.pollLast();
+                    popIf();
                     return true;
             }
 
@@ -525,7 +691,7 @@ public class Interpreter {
             switch (opcode) {
                 // OP_0 is no opcode
                 case OP_1NEGATE:
-                    stack.add(Type.INT, Utils.reverseBytes(Utils.encodeMPI(BigInteger.ONE.negate(), false)));
+                    stack.add(StackItem.forNumber(-1, Type.INT));
                     break;
                 case OP_1:
                 case OP_2:
@@ -543,7 +709,7 @@ public class Interpreter {
                 case OP_14:
                 case OP_15:
                 case OP_16:
-                    stack.add(StackItem.forSmallNum(decodeFromOpN(opcode)));
+                    stack.add(StackItem.forNumber(decodeFromOpN(opcode), Type.INT));
                     break;
                 case OP_NOP:
                     break;
@@ -642,7 +808,7 @@ public class Interpreter {
                     break;
                 case OP_DEPTH:
                     //depth can't be known at runtime unless you already know the size of the initial stack.
-                    stack.add(StackItem.wrapDerived(Utils.reverseBytes(Utils.encodeMPI(BigInteger.valueOf(stack.size()), false)), Type.INT, true));
+                    stack.add(StackItem.wrapDerived(ScriptNum.encode(stack.size()), Type.INT, true));
                     break;
                 case OP_DROP:
                     if (stack.size() < 1)
@@ -675,7 +841,9 @@ public class Interpreter {
 
                     StackItem rollVal = stack.pollLast();
 
-                    long val = castToBigInteger(state, rollVal, maxNumElementSize, enforceMinimal).longValue();
+                    long val = rollVal.length() <= ScriptNum.MAX_LONG_SIZE
+                            ? castToLong(state, rollVal, maxNumElementSize, enforceMinimal)
+                            : castToBigInteger(state, rollVal, maxNumElementSize, enforceMinimal).longValue();
                     if (val < 0 || val >= stack.size())
                         throw new ScriptExecutionException(state, "OP_PICK/OP_ROLL attempted to get data deeper than stack size");
                     Iterator<StackItem> itPICK = stack.descendingIterator();
@@ -721,6 +889,7 @@ public class Interpreter {
                     int len = catBytes1.length() + catBytes2.length();
                     if (len > maxScriptElementSize)
                         throw new ScriptExecutionException(state, "Push value size limit exceeded.");
+                    checkTimeBefore(len);
 
                     byte[] catOut = new byte[len];
                     System.arraycopy(catBytes1.bytes(), 0, catOut, 0, catBytes1.length());
@@ -769,6 +938,7 @@ public class Interpreter {
 
                     if (numSize > maxScriptElementSize)
                         throw new ScriptExecutionException(state, "Push value size limit exceeded.");
+                    checkTimeBefore(numSize);
 
                     StackItem rawNumItem = stack.pollLast();
 
@@ -787,13 +957,14 @@ public class Interpreter {
                         stack.add(Type.BYTES, Utils.EMPTY_BYTE_ARRAY, numSizeItem, rawNumItem);
                     } else {
                         int signBit = 0x00;
-                        if (minimalNumBytes.length > 0) {
-                            signBit = minimalNumBytes[minimalNumBytes.length - 1] & 0x80;
-                            minimalNumBytes[minimalNumBytes.length - 1] &= 0x7f;
-                        }
                         int minimalBytesToCopy = minimalNumBytes.length > numSize ? numSize : minimalNumBytes.length;
                         byte[] expandedNumBytes = new byte[numSize]; //initialized to all zeroes
                         System.arraycopy(minimalNumBytes, 0, expandedNumBytes, 0, minimalBytesToCopy);
+                        //clear the sign bit in the copy, minimalNumBytes may be the input item's own bytes
+                        if (minimalNumBytes.length > 0) {
+                            signBit = minimalNumBytes[minimalNumBytes.length - 1] & 0x80;
+                            expandedNumBytes[minimalNumBytes.length - 1] &= 0x7f;
+                        }
                         expandedNumBytes[expandedNumBytes.length - 1] = (byte) signBit;
                         stack.add(Type.BYTES, expandedNumBytes, rawNumItem, numSizeItem);
                     }
@@ -815,7 +986,7 @@ public class Interpreter {
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_SIZE on an empty stack");
                     StackItem sizeItem = stack.getLast();
-                    stack.add(Type.INT, Utils.reverseBytes(Utils.encodeMPI(BigInteger.valueOf(sizeItem.length()), false)), sizeItem);
+                    stack.add(StackItem.forNumber(sizeItem.length(), Type.INT, sizeItem));
                     break;
                 case OP_INVERT:
                     // (x -- out)
@@ -925,6 +1096,15 @@ public class Interpreter {
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted a numeric op on an empty stack");
                     StackItem numericOpItem = stack.pollLast();
+                    if (numericOpItem.length() <= ScriptNum.MAX_LONG_SIZE) {
+                        long numericOPlong = castToLong(state, numericOpItem, maxNumElementSize, enforceMinimal);
+                        try {
+                            stack.add(StackItem.forNumber(numericUnaryOp(opcode, numericOPlong), Type.INT, numericOpItem));
+                            break;
+                        } catch (ArithmeticException e) {
+                            //overflowed a long, redo it with BigInteger
+                        }
+                    }
                     BigInteger numericOPnum = castToBigInteger(state, numericOpItem, maxNumElementSize, enforceMinimal);
 
                     switch (opcode) {
@@ -981,6 +1161,17 @@ public class Interpreter {
                         throw new ScriptExecutionException(state, "Attempted a numeric op on a stack with size < 2");
                     StackItem numericOpItem2 = stack.pollLast();
                     StackItem numericOpItem1 = stack.pollLast();
+                    if (numericOpItem2.length() <= ScriptNum.MAX_LONG_SIZE && numericOpItem1.length() <= ScriptNum.MAX_LONG_SIZE) {
+                        long numericOPlong2 = castToLong(state, numericOpItem2, maxNumElementSize, enforceMinimal);
+                        long numericOPlong1 = castToLong(state, numericOpItem1, maxNumElementSize, enforceMinimal);
+                        try {
+                            long numericOPlongResult = numericBinaryOp(state, opcode, numericOPlong1, numericOPlong2);
+                            stack.add(StackItem.forNumber(numericOPlongResult, numericBinaryOpType(opcode), numericOpItem1, numericOpItem2));
+                            break;
+                        } catch (ArithmeticException e) {
+                            //overflowed a long, redo it with BigInteger
+                        }
+                    }
                     BigInteger numericOPnum2 = castToBigInteger(state, numericOpItem2, maxNumElementSize, enforceMinimal);
                     BigInteger numericOPnum1 = castToBigInteger(state, numericOpItem1, maxNumElementSize, enforceMinimal);
 
@@ -1095,10 +1286,20 @@ public class Interpreter {
                 case OP_NUMEQUALVERIFY:
                     if (stack.size() < 2)
                         throw new ScriptExecutionException(state, "Attempted OP_NUMEQUALVERIFY on a stack with size < 2");
-                    BigInteger OPNUMEQUALVERIFYnum2 = castToBigInteger(state, stack.pollLast(), maxNumElementSize, enforceMinimal);
-                    BigInteger OPNUMEQUALVERIFYnum1 = castToBigInteger(state, stack.pollLast(), maxNumElementSize, enforceMinimal);
+                    StackItem OPNUMEQUALVERIFYitem2 = stack.pollLast();
+                    StackItem OPNUMEQUALVERIFYitem1 = stack.pollLast();
+                    boolean OPNUMEQUALVERIFYequal;
+                    if (OPNUMEQUALVERIFYitem2.length() <= ScriptNum.MAX_LONG_SIZE && OPNUMEQUALVERIFYitem1.length() <= ScriptNum.MAX_LONG_SIZE) {
+                        long OPNUMEQUALVERIFYnum2 = castToLong(state, OPNUMEQUALVERIFYitem2, maxNumElementSize, enforceMinimal);
+                        long OPNUMEQUALVERIFYnum1 = castToLong(state, OPNUMEQUALVERIFYitem1, maxNumElementSize, enforceMinimal);
+                        OPNUMEQUALVERIFYequal = OPNUMEQUALVERIFYnum1 == OPNUMEQUALVERIFYnum2;
+                    } else {
+                        BigInteger OPNUMEQUALVERIFYnum2 = castToBigInteger(state, OPNUMEQUALVERIFYitem2, maxNumElementSize, enforceMinimal);
+                        BigInteger OPNUMEQUALVERIFYnum1 = castToBigInteger(state, OPNUMEQUALVERIFYitem1, maxNumElementSize, enforceMinimal);
+                        OPNUMEQUALVERIFYequal = OPNUMEQUALVERIFYnum1.equals(OPNUMEQUALVERIFYnum2);
+                    }
 
-                    if (!OPNUMEQUALVERIFYnum1.equals(OPNUMEQUALVERIFYnum2))
+                    if (!OPNUMEQUALVERIFYequal)
                         throw new ScriptExecutionException(state, "OP_NUMEQUALVERIFY failed");
                     break;
                 case OP_WITHIN:
@@ -1107,22 +1308,27 @@ public class Interpreter {
                     StackItem OPWITHINitem3 = stack.pollLast();
                     StackItem OPWITHINitem2 = stack.pollLast();
                     StackItem OPWITHINitem1 = stack.pollLast();
-                    BigInteger OPWITHINnum3 = castToBigInteger(state, OPWITHINitem3, maxNumElementSize, enforceMinimal);
-                    BigInteger OPWITHINnum2 = castToBigInteger(state, OPWITHINitem2, maxNumElementSize, enforceMinimal);
-                    BigInteger OPWITHINnum1 = castToBigInteger(state, OPWITHINitem1, maxNumElementSize, enforceMinimal);
-                    byte[] OPWITHINresult;
-                    if (OPWITHINnum2.compareTo(OPWITHINnum1) <= 0 && OPWITHINnum1.compareTo(OPWITHINnum3) < 0)
-                        //normally we'd reverse bytes on output of encodeMPI but we are skipping because it's just one byte
-                        OPWITHINresult = Utils.encodeMPI(BigInteger.ONE, false);
-                    else
-                        OPWITHINresult = Utils.encodeMPI(BigInteger.ZERO, false);
-                    stack.add(Type.BOOL, Utils.reverseBytes(OPWITHINresult), OPWITHINitem1, OPWITHINitem2, OPWITHINitem3);
+                    boolean OPWITHINresult;
+                    if (OPWITHINitem3.length() <= ScriptNum.MAX_LONG_SIZE && OPWITHINitem2.length() <= ScriptNum.MAX_LONG_SIZE
+                            && OPWITHINitem1.length() <= ScriptNum.MAX_LONG_SIZE) {
+                        long OPWITHINnum3 = castToLong(state, OPWITHINitem3, maxNumElementSize, enforceMinimal);
+                        long OPWITHINnum2 = castToLong(state, OPWITHINitem2, maxNumElementSize, enforceMinimal);
+                        long OPWITHINnum1 = castToLong(state, OPWITHINitem1, maxNumElementSize, enforceMinimal);
+                        OPWITHINresult = OPWITHINnum2 <= OPWITHINnum1 && OPWITHINnum1 < OPWITHINnum3;
+                    } else {
+                        BigInteger OPWITHINnum3 = castToBigInteger(state, OPWITHINitem3, maxNumElementSize, enforceMinimal);
+                        BigInteger OPWITHINnum2 = castToBigInteger(state, OPWITHINitem2, maxNumElementSize, enforceMinimal);
+                        BigInteger OPWITHINnum1 = castToBigInteger(state, OPWITHINitem1, maxNumElementSize, enforceMinimal);
+                        OPWITHINresult = OPWITHINnum2.compareTo(OPWITHINnum1) <= 0 && OPWITHINnum1.compareTo(OPWITHINnum3) < 0;
+                    }
+                    stack.add(StackItem.forNumber(OPWITHINresult ? 1 : 0, Type.BOOL, OPWITHINitem1, OPWITHINitem2, OPWITHINitem3));
                     break;
                 case OP_RIPEMD160:
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_RIPEMD160 on an empty stack");
                     RIPEMD160Digest digest = new RIPEMD160Digest();
                     StackItem r160data = stack.pollLast();
+                    checkTimeBefore(r160data.length());
                     digest.update(r160data.bytes(), 0, r160data.length());
                     byte[] ripmemdHash = new byte[20];
                     digest.doFinal(ripmemdHash, 0);
@@ -1133,6 +1339,7 @@ public class Interpreter {
                         throw new ScriptExecutionException(state, "Attempted OP_SHA1 on an empty stack");
                     try {
                         StackItem sha1Data = stack.pollLast();
+                        checkTimeBefore(sha1Data.length());
                         stack.add(Type.BOOL, MessageDigest.getInstance("SHA-1").digest(sha1Data.bytes()), sha1Data);
                     } catch (NoSuchAlgorithmException e) {
                         throw new RuntimeException(e);  // Cannot happen.
@@ -1142,18 +1349,21 @@ public class Interpreter {
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_SHA256 on an empty stack");
                     StackItem sha256Data = stack.pollLast();
+                    checkTimeBefore(sha256Data.length());
                     stack.add(Type.BYTES, Sha256Hash.hash(sha256Data.bytes()), sha256Data);
                     break;
                 case OP_HASH160:
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_HASH160 on an empty stack");
                     StackItem hash160Data = stack.pollLast();
+                    checkTimeBefore(hash160Data.length());
                     stack.add(Type.BYTES, Utils.sha256hash160(hash160Data.bytes()), hash160Data);
                     break;
                 case OP_HASH256:
                     if (stack.size() < 1)
                         throw new ScriptExecutionException(state, "Attempted OP_SHA256 on an empty stack");
                     StackItem hash256Data = stack.pollLast();
+                    checkTimeBefore(hash256Data.length());
                     stack.add(Type.BYTES, Sha256Hash.hashTwice(hash256Data.bytes()), hash256Data);
                     break;
                 case OP_CODESEPARATOR:
@@ -1166,25 +1376,25 @@ public class Interpreter {
                     if (allowFakeChecksig) {
 
                     } else {
-                        executeCheckSig(state, txContainingThis, (int) index, script, stack, lastCodeSepLocation, opcode, value, verifyFlags, allowFakeChecksig);
+                        executeCheckSig(state, txContainingThis, (int) index, script, stack, lastCodeSepLocation, opcode, value, flags, allowFakeChecksig);
                     }
                     break;
                 case OP_CHECKMULTISIG:
                 case OP_CHECKMULTISIGVERIFY:
                     if (txContainingThis == null)
                         throw new IllegalStateException("Script attempted signature check but no tx was provided");
-                    opCount = executeMultiSig(state, txContainingThis, (int) index, script, stack, opCount, maxOpCount, maxMultisigKeys, lastCodeSepLocation, opcode, value, verifyFlags, allowFakeChecksig);
+                    opCount = executeMultiSig(state, budget, txContainingThis, (int) index, script, stack, opCount, maxOpCount, maxMultisigKeys, lastCodeSepLocation, opcode, value, flags, allowFakeChecksig);
                     state.opCount = opCount;
                     break;
                 case OP_CHECKLOCKTIMEVERIFY:
-                    if (genesisActive || !verifyFlags.contains(ScriptVerifyFlag.CHECKLOCKTIMEVERIFY)) {
+                    if (genesisActive || !hasFlag(flags, ScriptVerifyFlag.CHECKLOCKTIMEVERIFY)) {
                         // not enabled; treat as a NOP2
-                        if (verifyFlags.contains(ScriptVerifyFlag.DISCOURAGE_UPGRADABLE_NOPS)) {
+                        if (hasFlag(flags, ScriptVerifyFlag.DISCOURAGE_UPGRADABLE_NOPS)) {
                             throw new ScriptExecutionException(state, "Script used a reserved opcode " + opcode);
                         }
                         break;
                     }
-                    executeCheckLockTimeVerify(state, txContainingThis, (int) index, stack, lastCodeSepLocation, opcode, verifyFlags);
+                    executeCheckLockTimeVerify(state, txContainingThis, (int) index, stack, lastCodeSepLocation, opcode, flags);
                     break;
                 case OP_NOP1:
                 case OP_NOP3:
@@ -1195,7 +1405,7 @@ public class Interpreter {
                 case OP_NOP8:
                 case OP_NOP9:
                 case OP_NOP10:
-                    if (verifyFlags.contains(ScriptVerifyFlag.DISCOURAGE_UPGRADABLE_NOPS)) {
+                    if (hasFlag(flags, ScriptVerifyFlag.DISCOURAGE_UPGRADABLE_NOPS)) {
                         throw new ScriptExecutionException(state, "Script used a reserved opcode " + opcode);
                     }
                     break;
@@ -1209,9 +1419,13 @@ public class Interpreter {
             long stackBytes = stack.getStackMemoryUsage() + altstack.getStackMemoryUsage();
             if (stackBytes > MAX_STACK_MEMORY_USAGE_CONSENSUS)
                 throw new ScriptExecutionException(state, "Stack memory usage consensus exceeded");
+            if (budget != null)
+                budget.checkStackMemory(state, stackBytes);
         } else {
             if (stack.size() + altstack.size() > 1000 || stack.size() + altstack.size() < 0)
                 throw new ScriptExecutionException(state, "Stack size exceeded range");
+            if (budget != null)
+                budget.checkStackMemory(state, stack.getStackMemoryUsage() + altstack.getStackMemoryUsage());
         }
 
 
@@ -1222,6 +1436,19 @@ public class Interpreter {
         return true;
     }
 
+    private void pushIf(boolean branch) {
+        ifStack.add(branch);
+        if (!branch)
+            ifFalseCount++;
+    }
+
+    private boolean popIf() {
+        boolean branch = ifStack.pollLast();
+        if (!branch)
+            ifFalseCount--;
+        return branch;
+    }
+
     /**
      * Exposes the script interpreter. Normally you should not use this directly, instead use
      * { Script#correctlySpends(Tx, long, Script)}. This method
@@ -1235,10 +1462,22 @@ public class Interpreter {
                                               boolean allowFakeChecksig, long fakeChecksigDelay*/) throws ScriptExecutionException {
         initScript();
 
-        for (ScriptChunk chunk : script) {
-            execOpcode(chunk);
-            if (opReturnCalled) {
-                break;
+        if (script instanceof CompiledScript.Stream) {
+            //pre-decoded script, pushes come with their stack items already built
+            CompiledScript.Stream compiled = (CompiledScript.Stream) script;
+            while (compiled.hasNext()) {
+                ScriptChunk chunk = compiled.next();
+                execOpcode(chunk, compiled.currentPush());
+                if (opReturnCalled) {
+                    break;
+                }
+            }
+        } else {
+            for (ScriptChunk chunk : script) {
+                execOpcode(chunk, null);
+                if (opReturnCalled) {
+                    break;
+                }
             }
         }
 
@@ -1263,7 +1502,7 @@ public class Interpreter {
     // This is more or less a direct translation of the code in Bitcoin Core
     private static void executeCheckLockTimeVerify(ScriptExecutionState state, Tx txContainingThis, int index, ScriptStack stack,
                                                    int lastCodeSepLocation, int opcode,
-                                                   Set<ScriptVerifyFlag> verifyFlags) throws ScriptExecutionException {
+                                                   int flags) throws ScriptExecutionException {
         if (stack.size() < 1)
             throw new ScriptExecutionException(state, "Attempted OP_CHECKLOCKTIMEVERIFY on a stack with size < 1");
 
@@ -1271,7 +1510,7 @@ public class Interpreter {
         // to 5-byte bignums to avoid year 2038 issue.
         StackItem nLockTimeItem = stack.getLast();
         //we don't modify the stack so no need to worry about passing on derivation status of stack items.
-        final BigInteger nLockTime = castToBigInteger(state, nLockTimeItem, 5, verifyFlags.contains(ScriptVerifyFlag.MINIMALDATA));
+        final BigInteger nLockTime = castToBigInteger(state, nLockTimeItem, 5, hasFlag(flags, ScriptVerifyFlag.MINIMALDATA));
 
         if (nLockTime.compareTo(BigInteger.ZERO) < 0)
             throw new ScriptExecutionException(state, "Negative locktime");
@@ -1302,14 +1541,32 @@ public class Interpreter {
             throw new ScriptExecutionException(state, "Transaction contains a final transaction input for a CHECKLOCKTIMEVERIFY script.");
     }
 
+    /**
+     * FORKID signatures hash the script code as it is, so like Bitcoin SV's CleanupScriptCode we only remove
+     * signatures without it from the script code.
+     */
+    private static boolean hasForkId(StackItem sig) {
+        return sig.length() > 0 && TransactionSignature.hasForkId(sig.bytes());
+    }
+
+    private static byte[] pushOf(StackItem sig) {
+        UnsafeByteArrayOutputStream outStream = new UnsafeByteArrayOutputStream(sig.length() + 5);
+        try {
+            ScriptChunk.writeBytes(outStream, sig.bytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e); // Cannot happen
+        }
+        return outStream.toByteArray();
+    }
+
     private static void executeCheckSig(ScriptExecutionState state, Tx txContainingThis, int index, ScriptStream script, ScriptStack stack,
                                         int lastCodeSepLocation, int opcode, Coin value,
-                                        Set<ScriptVerifyFlag> verifyFlags, boolean allowFakeChecksig) throws ScriptExecutionException {
+                                        int flags, boolean allowFakeChecksig) throws ScriptExecutionException {
 
         final boolean requireCanonical = !allowFakeChecksig &&
-                (verifyFlags.contains(ScriptVerifyFlag.STRICTENC)
-                        || verifyFlags.contains(ScriptVerifyFlag.DERSIG)
-                        || verifyFlags.contains(ScriptVerifyFlag.LOW_S));
+                (hasFlag(flags, ScriptVerifyFlag.STRICTENC)
+                        || hasFlag(flags, ScriptVerifyFlag.DERSIG)
+                        || hasFlag(flags, ScriptVerifyFlag.LOW_S));
 
         if (stack.size() < 2)
             throw new ScriptExecutionException(state, "Attempted OP_CHECKSIG(VERIFY) on a stack with size < 2");
@@ -1322,18 +1579,13 @@ public class Interpreter {
         //playing to a builder as we go and retrieve from that.
         byte[] connectedScript = script.getProgramFrom(script.getLastCodeSepIndex());
 
-        UnsafeByteArrayOutputStream outStream = new UnsafeByteArrayOutputStream(sigBytes.length() + 1);
-        try {
-            ScriptChunk.writeBytes(outStream, sigBytes.bytes());
-        } catch (IOException e) {
-            throw new RuntimeException(e); // Cannot happen
-        }
-        connectedScript = SigHash.removeAllInstancesOf(connectedScript, outStream.toByteArray());
+        if (!hasForkId(sigBytes))
+            connectedScript = SigHash.removeAllInstancesOf(connectedScript, pushOf(sigBytes));
 
         // TODO: Use int for indexes everywhere, we can't have that many inputs/outputs
         try {
             TransactionSignature sig = TransactionSignature.decodeFromBitcoin(sigBytes.bytes(), requireCanonical,
-                    verifyFlags.contains(ScriptVerifyFlag.LOW_S));
+                    hasFlag(flags, ScriptVerifyFlag.LOW_S));
 
             // TODO: Should check hash type is known
             Sha256Hash hash = sig.useForkId() ?
@@ -1358,15 +1610,15 @@ public class Interpreter {
                 throw new ScriptExecutionException(state, "Script failed OP_CHECKSIGVERIFY");
     }
 
-    private static int executeMultiSig(ScriptExecutionState state, Tx txContainingThis, int index, ScriptStream script, ScriptStack stack,
-                                       int opCount, int maxOpCount, int maxKeys, int lastCodeSepLocation, int opcode, Coin value,
-                                       Set<ScriptVerifyFlag> verifyFlags, boolean allowFakeChecksig) throws ScriptExecutionException {
+    private static int executeMultiSig(ScriptExecutionState state, @Nullable ScriptBudget budget, Tx txContainingThis, int index,
+                                       ScriptStream script, ScriptStack stack, int opCount, int maxOpCount, int maxKeys, int lastCodeSepLocation, int opcode, Coin value,
+                                       int flags, boolean allowFakeChecksig) throws ScriptExecutionException {
         final boolean requireCanonical = !allowFakeChecksig &&
-                (verifyFlags.contains(ScriptVerifyFlag.STRICTENC)
-                        || verifyFlags.contains(ScriptVerifyFlag.DERSIG)
-                        || verifyFlags.contains(ScriptVerifyFlag.LOW_S));
+                (hasFlag(flags, ScriptVerifyFlag.STRICTENC)
+                        || hasFlag(flags, ScriptVerifyFlag.DERSIG)
+                        || hasFlag(flags, ScriptVerifyFlag.LOW_S));
 
-        final boolean enforceMinimal = !allowFakeChecksig && verifyFlags.contains(ScriptVerifyFlag.MINIMALDATA);
+        final boolean enforceMinimal = !allowFakeChecksig && hasFlag(flags, ScriptVerifyFlag.MINIMALDATA);
         if (stack.size() < 2)
             throw new ScriptExecutionException(state, "Attempted OP_CHECKMULTISIG(VERIFY) on a stack with size < 2");
 
@@ -1411,24 +1663,24 @@ public class Interpreter {
 
         byte[] connectedScript = script.getProgramFrom(script.getLastCodeSepIndex());
 
+        List<byte[]> sigPushes = new ArrayList<>(sigs.size());
         for (StackItem sig : sigs) {
-            UnsafeByteArrayOutputStream outStream = new UnsafeByteArrayOutputStream(sig.length() + 1);
-            try {
-                ScriptChunk.writeBytes(outStream, sig.bytes());
-            } catch (IOException e) {
-                throw new RuntimeException(e); // Cannot happen
-            }
-            connectedScript = SigHash.removeAllInstancesOf(connectedScript, outStream.toByteArray());
+            if (!hasForkId(sig))
+                sigPushes.add(pushOf(sig));
         }
+        connectedScript = SigHash.removeAllInstancesOf(connectedScript, sigPushes);
 
         boolean valid = true;
         while (sigs.size() > 0) {
+            // Post-genesis there is no limit on the number of keys, so one opcode can run a great many verifications.
+            if (budget != null)
+                budget.checkTime(state);
             StackItem pubKey = pubkeys.pollFirst();
             // We could reasonably move this out of the loop, but because signature verification is significantly
             // more expensive than hashing, its not a big deal.
             try {
                 TransactionSignature sig = TransactionSignature.decodeFromBitcoin(sigs.getFirst().bytes(), requireCanonical,
-                        verifyFlags.contains(ScriptVerifyFlag.LOW_S));
+                        hasFlag(flags, ScriptVerifyFlag.LOW_S));
                 Sha256Hash hash = sig.useForkId() ?
                         SigHash.hashForForkIdSignature(txContainingThis, index, connectedScript, value, sig.sigHashMode(), sig.anyoneCanPay()) :
                         SigHash.hashForLegacySignature(txContainingThis, index, connectedScript, (byte) sig.sighashFlags);
@@ -1449,7 +1701,7 @@ public class Interpreter {
         StackItem nullDummy = stack.pollLast();
         //this could have been provided in scriptSig so still has an impact on whether the result is derived
         polledStackItems.add(nullDummy);
-        if (verifyFlags.contains(ScriptVerifyFlag.NULLDUMMY) && nullDummy.length() > 0)
+        if (hasFlag(flags, ScriptVerifyFlag.NULLDUMMY) && nullDummy.length() > 0)
             throw new ScriptExecutionException(state, "OP_CHECKMULTISIG(VERIFY) with non-null nulldummy: " + Arrays.toString(nullDummy.bytes()));
 
         if (opcode == OP_CHECKMULTISIG) {
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>Limits on the time and stack memory script execution may use, on top of the consensus limits. Code running within
+ * a budget, see {@link #run(Runnable)}, has every script the {@link Interpreter} executes on that thread check it as
+ * it goes: a script which passes the deadline, grows its stacks beyond the memory limit, or whose budget is cancelled,
+ * is stopped with a {@link ScriptBudgetExceededException}.</p>
+ *
+ * <p>Budgets nest. A budget for a batch of scripts hands out a {@link #child} budget for each script, and cancelling the
+ * batch or reaching its deadline stops every script in it. Budgets are thread safe.</p>
+ */
+public final class ScriptBudget {
+    /**
+     * The deadline and cancellation are checked once per this many opcodes, before every signature verification, and
+     * before hashing or building an operand of at least {@link #LARGE_OPERAND_SIZE} bytes.
+     */
+    static final int CHECK_INTERVAL = 64;
+    static final int LARGE_OPERAND_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ScriptBudget> CURRENT = new ThreadLocal<>();
+
+    @Nullable
+    private final ScriptBudget parent;
+    // System.nanoTime() based, only meaningful if hasDeadline
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private final long maxStackMemory;
+    @Nullable
+    private volatile String cancelReason;
+
+    private ScriptBudget(@Nullable ScriptBudget parent, boolean hasDeadline, long deadlineNanos, long maxStackMemory) {
+        this.parent = parent;
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.maxStackMemory = maxStackMemory;
+    }
+
+    /** Returns a budget without limits, which only stops scripts once cancelled. */
+    public static ScriptBudget unlimited() {
+        return new ScriptBudget(null, false, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a budget which stops scripts after the given time from now, or once their stacks use more than the given
+     * number of bytes, as counted for {@link Interpreter#MAX_STACK_MEMORY_USAGE_CONSENSUS}.
+     */
+    public static ScriptBudget of(long timeout, TimeUnit unit, long maxStackMemory) {
+        return unlimited().child(timeout, unit, maxStackMemory);
+    }
+
+    /**
+     * Returns a budget limited by both this one and the given limits, which is exhausted when this one is.
+     */
+    public ScriptBudget child(long timeout, TimeUnit unit, long maxStackMemory) {
+        checkArgument(timeout >= 0 && maxStackMemory >= 0);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (hasDeadline && deadline - deadlineNanos > 0)
+            deadline = deadlineNanos;
+        return new ScriptBudget(this, true, deadline, Math.min(maxStackMemory, this.maxStackMemory));
+    }
+
+    /** Stops every script running within this budget, or any budget derived from it, at its next check. */
+    public void cancel(String reason) {
+        if (cancelReason == null)
+            cancelReason = reason;
+    }
+
+    /** Returns why this budget or one it was derived from was cancelled, or null if it wasn't. */
+    @Nullable
+    public String getCancelReason() {
+        String reason = cancelReason;
+        if (reason == null && parent != null)
+            return parent.getCancelReason();
+        return reason;
+    }
+
+    /** Returns true if scripts can no longer run within this budget, because it was cancelled or is past its deadline. */
+    public boolean isExhausted() {
+        return getCancelReason() != null || (hasDeadline && System.nanoTime() - deadlineNanos > 0);
+    }
+
+    public long getMaxStackMemory() {
+        return maxStackMemory;
+    }
+
+    /** Runs the given code with this as the budget for the scripts it executes on the current thread. */
+    public void run(Runnable runnable) {
+        ScriptBudget previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            runnable.run();
+        } finally {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        }
+    }
+
+    /** Returns the budget scripts on the current thread run within, or null if there is none. */
+    @Nullable
+    public static ScriptBudget current() {
+        return CURRENT.get();
+    }
+
+    void checkStackMemory(ScriptExecutionState state, long stackMemory) throws ScriptBudgetExceededException {
+        if (stackMemory > maxStackMemory)
+            throw new ScriptBudgetExceededException(state, "Script exceeded its stack memory budget of " + maxStackMemory + " bytes");
+    }
+
+    void checkTime(ScriptExecutionState state) throws ScriptBudgetExceededException {
+        String reason = getCancelReason();
+        if (reason != null)
+            throw new ScriptBudgetExceededException(state, "Script execution cancelled: " + reason);
+        if (hasDeadline && System.nanoTime() - deadlineNanos > 0)
+            throw new ScriptBudgetExceededException(state, "Script exceeded its time budget");
+    }
+}
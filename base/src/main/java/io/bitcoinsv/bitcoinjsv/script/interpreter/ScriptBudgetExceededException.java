@@ -0,0 +1,27 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import javax.annotation.Nullable;
+
+/**
+ * Thrown when a script is stopped because it ran out of its {@link ScriptBudget}, or the budget was cancelled. This
+ * says nothing about whether the script is valid, only that we gave up checking it.
+ */
+@SuppressWarnings("serial")
+public class ScriptBudgetExceededException extends ScriptExecutionException {
+    public ScriptBudgetExceededException(@Nullable ScriptExecutionState state, String msg) {
+        super(state, msg);
+    }
+}
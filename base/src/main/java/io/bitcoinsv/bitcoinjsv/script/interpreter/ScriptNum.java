@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+
+import java.math.BigInteger;
+
+/**
+ * Encoding and decoding of script numbers held in a {@code long}. Script numbers are little endian sign-magnitude
+ * integers of any length. Up to {@link #MAX_LONG_SIZE} bytes the magnitude fits in 63 bits, so the interpreter can do
+ * its arithmetic on longs and only needs {@link BigInteger} for longer numbers or results that overflow.
+ */
+final class ScriptNum {
+    /** The longest encoded number that always fits in a long. */
+    static final int MAX_LONG_SIZE = 8;
+
+    private ScriptNum() {
+    }
+
+    /**
+     * Decodes a script number of at most {@link #MAX_LONG_SIZE} bytes. Like {@link Utils#decodeMPI(byte[], boolean)}
+     * this accepts non-minimal encodings, including negative zero.
+     */
+    static long decode(byte[] bytesLE) {
+        int length = bytesLE.length;
+        if (length == 0)
+            return 0;
+        long result = 0;
+        for (int i = 0; i < length - 1; i++)
+            result |= (bytesLE[i] & 0xFFL) << (8 * i);
+        int last = bytesLE[length - 1] & 0xFF;
+        result |= ((long) (last & 0x7F)) << (8 * (length - 1));
+        return (last & 0x80) != 0 ? -result : result;
+    }
+
+    /** Returns the minimal encoding of the given number, the same bytes the BigInteger based encoding produces. */
+    static byte[] encode(long value) {
+        if (value == 0)
+            return Utils.EMPTY_BYTE_ARRAY;
+        if (value == Long.MIN_VALUE)
+            // The magnitude doesn't fit in a long.
+            return Utils.reverseBytes(Utils.encodeMPI(BigInteger.valueOf(value), false));
+        boolean negative = value < 0;
+        long magnitude = negative ? -value : value;
+        int length = (64 - Long.numberOfLeadingZeros(magnitude) + 7) / 8;
+        // If the top bit of the magnitude is set we need an extra byte for the sign.
+        if (((magnitude >>> (8 * length - 1)) & 1) != 0)
+            length++;
+        byte[] result = new byte[length];
+        for (int i = 0; i < length && magnitude != 0; i++) {
+            result[i] = (byte) magnitude;
+            magnitude >>>= 8;
+        }
+        if (negative)
+            result[length - 1] |= 0x80;
+        return result;
+    }
+}
@@ -42,6 +42,43 @@ public class StackItem<C> {
         }
     }
 
+    /** Range of numbers {@link #forNumber(long, Type, StackItem...)} shares items for. */
+    static final int NUM_CACHE_MIN = -16;
+    static final int NUM_CACHE_MAX = 1024;
+
+    // Shared number items indexed by [type (INT, BOOL) * 2 + derived][value - NUM_CACHE_MIN]. The backing bytes are
+    // shared too so the interpreter must never modify an item's bytes in place.
+    private static final StackItem[][] NUM_CACHE = new StackItem[4][NUM_CACHE_MAX - NUM_CACHE_MIN + 1];
+
+    static {
+        for (int value = NUM_CACHE_MIN; value <= NUM_CACHE_MAX; value++) {
+            ScriptData bytes = ScriptData.of(ScriptNum.encode(value));
+            NUM_CACHE[0][value - NUM_CACHE_MIN] = new StackItem(bytes, Type.INT, false);
+            NUM_CACHE[1][value - NUM_CACHE_MIN] = new StackItem(bytes, Type.INT, true);
+            NUM_CACHE[2][value - NUM_CACHE_MIN] = new StackItem(bytes, Type.BOOL, false);
+            NUM_CACHE[3][value - NUM_CACHE_MIN] = new StackItem(bytes, Type.BOOL, true);
+        }
+    }
+
+    /**
+     * Creates a stack item holding the minimal encoding of a script number, derived if any of the given items is.
+     * INT and BOOL items for common small values are shared rather than allocated, unlike {@link #forSmallNum(int)}
+     * which hands out a private copy.
+     */
+    static StackItem forNumber(long value, Type type, StackItem ... derivedFrom) {
+        if (value >= NUM_CACHE_MIN && value <= NUM_CACHE_MAX && (type == Type.INT || type == Type.BOOL)) {
+            boolean derived = false;
+            for (StackItem item : derivedFrom) {
+                if (item.derived) {
+                    derived = true;
+                    break;
+                }
+            }
+            return NUM_CACHE[(type == Type.BOOL ? 2 : 0) + (derived ? 1 : 0)][(int) value - NUM_CACHE_MIN];
+        }
+        return new StackItem(ScriptData.of(ScriptNum.encode(value)), type, false, derivedFrom);
+    }
+
     /**
      * Creates a stack item for number <= 16
      * @param num
@@ -7,6 +7,7 @@ package io.bitcoinsv.bitcoinjsv.tools;
 import io.bitcoinsv.bitcoinjsv.core.Utils;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.FullBlock;
 import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.FullBlockBean;
+import io.bitcoinsv.bitcoinjsv.metrics.SimpleMetricsRegistry;
 import io.bitcoinsv.bitcoinjsv.params.Net;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
 
@@ -14,6 +15,7 @@ import java.io.*;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A very quick and dirty block.dat parser.
@@ -46,7 +48,12 @@ public class BlkDatParser {
     private int len;
     private byte[] bytes = new byte[4096];
 
-    private long timeReading, timeParsing, startTime;
+    private long startTime;
+    // Time spent reading block bytes from disk and parsing them, kept in nanoseconds because most blocks take well
+    // under a millisecond each.
+    private final SimpleMetricsRegistry stats = new SimpleMetricsRegistry();
+    private final SimpleMetricsRegistry.SimpleTimer readTimer = stats.timer("blkdat.read");
+    private final SimpleMetricsRegistry.SimpleTimer parseTimer = stats.timer("blkdat.parse");
 
     int height = 0;
     private int stopHeight = -1;
@@ -122,6 +129,13 @@ public class BlkDatParser {
         return blkNum;
     }
 
+    /**
+     * @return timers for reading ({@code blkdat.read}) and parsing ({@code blkdat.parse}) each block so far
+     */
+    public SimpleMetricsRegistry getStats() {
+        return stats;
+    }
+
     private void newFile(int blkNum) throws IOException {
         if (fileBlocks > 0) {
             int size = (int) (file.length() / fileBlocks);
@@ -232,7 +246,7 @@ public class BlkDatParser {
      */
     public FullBlock nextBlock() throws IOException {
 
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         if (!seekPastMagicBytes()) {
             //EOF, move to the next file.
             blkNum++;
@@ -249,8 +263,8 @@ public class BlkDatParser {
         len = (int) Utils.readUint32(lenBytes, 0);
         bytes = new byte[len];
         pos.read(bytes, 0, len);
-        long end = System.currentTimeMillis();
-        timeReading += end - start;
+        long end = System.nanoTime();
+        readTimer.record(end - start, TimeUnit.NANOSECONDS);
         // can't be certain the reported length is accurate.
         //Block block = new Block(params, bytes, false, false, len);
         //Block block = Serializer.get(net, true, false, false).makeBlock(bytes);
@@ -258,7 +272,7 @@ public class BlkDatParser {
         lastBlock = block;
         blocksParsed++;
 
-        timeParsing += System.currentTimeMillis() - end;
+        parseTimer.record(System.nanoTime() - end, TimeUnit.NANOSECONDS);
         fileBlocks++;
         return block;
 
@@ -431,7 +445,8 @@ public class BlkDatParser {
                 long interval = System.currentTimeMillis() - startTime;
                 rate = mb / (interval / 1000f);
                 rate = ((long) (rate * 100)) / 100f;
-                float rp = timeReading / (float) timeParsing;
+                float rp = readTimer.getTotalTime(TimeUnit.NANOSECONDS)
+                        / (float) parseTimer.getTotalTime(TimeUnit.NANOSECONDS);
                 rp = ((long) (rp * 100)) / 100f;
                 System.out.format(
                         "Read block %s start: %s end: %s - length: %s bytes - total %smb - rate %smb/sec -- File: %s "
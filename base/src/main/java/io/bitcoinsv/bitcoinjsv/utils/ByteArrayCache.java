@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+
+import javax.annotation.Nullable;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded, thread-safe cache keyed by the contents of byte arrays, evicting the least recently used entries. Lookups
+ * through {@link #get(byte[])} are counted as the {@code <name>.hit} and {@code <name>.miss} counters. Keys are copied
+ * when added, so callers may reuse or change their arrays afterwards.
+ *
+ * <p>Keys often come from the network, so they are hashed with SipHash under a key chosen at random for each process.
+ * A peer can't then pick keys that all land in the same bucket.</p>
+ */
+public final class ByteArrayCache<V> {
+    private static final HashFunction KEY_HASH;
+
+    static {
+        SecureRandom random = new SecureRandom();
+        KEY_HASH = Hashing.sipHash24(random.nextLong(), random.nextLong());
+    }
+
+    private final Cache<Key, V> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    private ByteArrayCache(Cache<Key, V> cache, String name) {
+        this.cache = cache;
+        this.hits = Metrics.counter(name + ".hit");
+        this.misses = Metrics.counter(name + ".miss");
+    }
+
+    /** Creates a cache which holds at most the given number of entries. */
+    public static <V> ByteArrayCache<V> withMaximumSize(String name, long maxSize) {
+        checkArgument(maxSize >= 0, "maxSize must not be negative");
+        return new ByteArrayCache<V>(CacheBuilder.newBuilder().maximumSize(maxSize).<Key, V>build(), name);
+    }
+
+    /** Creates a cache whose entries, as weighed by the given weigher, add up to at most the given weight. */
+    public static <V> ByteArrayCache<V> withMaximumWeight(String name, long maxWeight,
+                                                          final Weigher<byte[], ? super V> weigher) {
+        checkArgument(maxWeight >= 0, "maxWeight must not be negative");
+        Cache<Key, V> cache = CacheBuilder.newBuilder().maximumWeight(maxWeight).weigher(new Weigher<Key, V>() {
+            @Override
+            public int weigh(Key key, V value) {
+                return weigher.weigh(key.bytes, value);
+            }
+        }).build();
+        return new ByteArrayCache<V>(cache, name);
+    }
+
+    /** Returns the value for the given key, or null if there is none, counting a hit or a miss. */
+    @Nullable
+    public V get(byte[] key) {
+        V value = cache.getIfPresent(new Key(key));
+        if (value != null)
+            hits.increment();
+        else
+            misses.increment();
+        return value;
+    }
+
+    /** Returns the value for the given key, or null if there is none, without counting the lookup. */
+    @Nullable
+    public V getIfPresent(byte[] key) {
+        return cache.getIfPresent(new Key(key));
+    }
+
+    /** Adds the value under a copy of the given key. */
+    public void put(byte[] key, V value) {
+        cache.put(new Key(key.clone()), value);
+    }
+
+    /** Returns the approximate number of entries. */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static final class Key {
+        final byte[] bytes;
+        private final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = KEY_HASH.hashBytes(bytes).asInt();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(bytes, ((Key) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
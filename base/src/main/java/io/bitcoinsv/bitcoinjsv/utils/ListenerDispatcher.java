@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Decides which executor runs the event listeners registered with {@link Threading#USER_THREAD}. By default all
+ * such listeners share the single user thread, so one slow listener delays every event. Installing a dispatcher with
+ * {@link Threading#setListenerDispatcher(ListenerDispatcher)} spreads listeners over several executors instead. Every
+ * dispatcher runs the events for one listener object in the order they were fired, but events for different
+ * listeners may run concurrently, so listeners must not rely on each other's side effects having happened.</p>
+ *
+ * <p>Because listener registrations from the block chain, peer group, wallet and transaction confidence objects all
+ * resolve their executor through here, the same listener object sees the events of all of them in order.</p>
+ */
+public abstract class ListenerDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+    /** Returns the executor which should run events for the given listener. Always the same for the same listener. */
+    public abstract Executor executorFor(Object listener);
+
+    /** Blocks until every event dispatched before this call has been run. Used by {@link Threading#waitForUserCode()}. */
+    public abstract void awaitIdle();
+
+    /**
+     * Returns a dispatcher which hashes listeners onto the given number of dedicated threads. A slow listener only
+     * delays the listeners which happen to share its thread.
+     */
+    public static ListenerDispatcher striped(int threads) {
+        return new Striped(threads);
+    }
+
+    /**
+     * Returns a dispatcher which gives every listener its own ordered executor, run on virtual threads when the
+     * runtime supports them (Java 21 and later) and on {@link Threading#THREAD_POOL} otherwise. A slow listener only
+     * delays its own events.
+     */
+    public static ListenerDispatcher perListener() {
+        Executor virtualThreads = newVirtualThreadExecutor();
+        return new PerListener(virtualThreads != null ? virtualThreads : Threading.THREAD_POOL);
+    }
+
+    /** Returns a dispatcher which gives every listener its own ordered executor on top of the given executor. */
+    public static ListenerDispatcher perListener(Executor backing) {
+        return new PerListener(backing);
+    }
+
+    private static Executor newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            log.warn("Could not create a virtual thread executor, falling back to the thread pool", e);
+            return null;
+        }
+    }
+
+    private static void awaitAll(List<? extends Executor> executors) {
+        final CountDownLatch latch = new CountDownLatch(executors.size());
+        for (Executor executor : executors) {
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    latch.countDown();
+                }
+            });
+        }
+        Uninterruptibles.awaitUninterruptibly(latch);
+    }
+
+    private static class Striped extends ListenerDispatcher {
+        private final List<Threading.UserThread> stripes;
+
+        Striped(int threads) {
+            checkArgument(threads > 0, "threads must be positive");
+            stripes = new ArrayList<Threading.UserThread>(threads);
+            for (int i = 0; i < threads; i++)
+                stripes.add(new Threading.UserThread("bitcoinj user thread " + i));
+        }
+
+        @Override
+        public Executor executorFor(Object listener) {
+            return stripes.get(Math.floorMod(System.identityHashCode(checkNotNull(listener)), stripes.size()));
+        }
+
+        @Override
+        public void awaitIdle() {
+            awaitAll(stripes);
+        }
+    }
+
+    private static class PerListener extends ListenerDispatcher {
+        private final Executor backing;
+        // Weak, identity keyed: a listener which is no longer referenced anywhere else loses its executor.
+        private final ConcurrentMap<Object, SerialExecutor> executors = new MapMaker().weakKeys().makeMap();
+
+        PerListener(Executor backing) {
+            this.backing = checkNotNull(backing);
+        }
+
+        @Override
+        public Executor executorFor(Object listener) {
+            SerialExecutor executor = executors.get(checkNotNull(listener));
+            if (executor == null) {
+                SerialExecutor newExecutor = new SerialExecutor(backing);
+                executor = executors.putIfAbsent(listener, newExecutor);
+                if (executor == null)
+                    executor = newExecutor;
+            }
+            return executor;
+        }
+
+        @Override
+        public void awaitIdle() {
+            awaitAll(new ArrayList<SerialExecutor>(executors.values()));
+        }
+    }
+}
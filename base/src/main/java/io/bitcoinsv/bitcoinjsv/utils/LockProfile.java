@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Contention statistics for every lock created under one name by {@link Threading#lock(String)} while lock
+ * profiling is on. All the "wallet" locks of every wallet share one profile, for example.</p>
+ *
+ * <p>An acquisition is contended if the lock could not be taken immediately. Wait time is the time spent blocked in
+ * {@code lock()} and is zero for uncontended acquisitions. Hold time is measured from the outermost acquisition by a
+ * thread to its matching release, so re-entrant acquisitions don't count twice.</p>
+ */
+public class LockProfile {
+    /** The number of buckets in {@link #getWaitHistogram()}. */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    private final String name;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder holds = new LongAdder();
+    private final LongAdder totalHoldNanos = new LongAdder();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    LockProfile(String name) {
+        this.name = name;
+    }
+
+    void recordAcquisition(long waitNanos, boolean contended) {
+        acquisitions.increment();
+        if (!contended)
+            return;
+        contendedAcquisitions.increment();
+        totalWaitNanos.add(waitNanos);
+        updateMax(maxWaitNanos, waitNanos);
+        waitHistogram.incrementAndGet(bucketFor(waitNanos));
+    }
+
+    void recordHold(long holdNanos) {
+        holds.increment();
+        totalHoldNanos.add(holdNanos);
+        updateMax(maxHoldNanos, holdNanos);
+    }
+
+    void reset() {
+        acquisitions.reset();
+        contendedAcquisitions.reset();
+        totalWaitNanos.reset();
+        maxWaitNanos.set(0);
+        holds.reset();
+        totalHoldNanos.reset();
+        maxHoldNanos.set(0);
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+            waitHistogram.set(i, 0);
+    }
+
+    // Bucket 0 is for waits under a microsecond, bucket i for waits of at least 2^(i-1) and under 2^i microseconds.
+    static int bucketFor(long waitNanos) {
+        long micros = waitNanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    /** Returns the name the locks were created under. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the number of times the locks were acquired, including re-entrant acquisitions. */
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /** Returns the number of acquisitions which had to wait for another thread to release the lock. */
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    /** Returns the total time threads spent waiting to acquire the locks. */
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns the longest time a thread spent waiting to acquire one of the locks. */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns the total time the locks were held, counting each outermost acquisition once. */
+    public long getTotalHoldTime(TimeUnit unit) {
+        return unit.convert(totalHoldNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns the longest time one of the locks was held continuously by one thread. */
+    public long getMaxHoldTime(TimeUnit unit) {
+        return unit.convert(maxHoldNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the distribution of wait times of contended acquisitions. Element 0 counts waits under a microsecond and
+     * element i waits of at least 2<sup>i-1</sup> but under 2<sup>i</sup> microseconds. The last element also counts
+     * everything longer.
+     */
+    public long[] getWaitHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+            histogram[i] = waitHistogram.get(i);
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        long holdCount = holds.sum();
+        return String.format("%s: %d acquisitions, %d contended, wait total/max %.3f/%.3f ms, " +
+                        "hold mean/max %.3f/%.3f ms", name, getAcquisitions(), getContendedAcquisitions(),
+                totalWaitNanos.sum() / 1e6, maxWaitNanos.get() / 1e6,
+                holdCount == 0 ? 0 : totalHoldNanos.sum() / 1e6 / holdCount, maxHoldNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import io.bitcoinsv.bitcoinjsv.metrics.Timer;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A lock handed out by {@link Threading#lock(String)} while lock profiling is on. It records acquisitions, wait and
+ * hold times into the {@link LockProfile} for its name and into the {@code lock.wait.}<i>name</i> and
+ * {@code lock.hold.}<i>name</i> timers of the installed metrics registry. Awaiting a {@link Condition} releases the
+ * lock, so it ends the current hold and a new one starts once the await returns.
+ */
+final class ProfilingReentrantLock extends ReentrantLock {
+    private final LockProfile profile;
+    private final Timer waitTimer;
+    private final Timer holdTimer;
+    // Only touched by the thread holding the lock.
+    private long acquiredAt;
+
+    ProfilingReentrantLock(boolean fair, LockProfile profile) {
+        super(fair);
+        this.profile = profile;
+        this.waitTimer = Metrics.timer("lock.wait." + profile.getName());
+        this.holdTimer = Metrics.timer("lock.hold." + profile.getName());
+    }
+
+    private void acquired(long waitNanos, boolean contended) {
+        profile.recordAcquisition(waitNanos, contended);
+        if (contended)
+            waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        if (getHoldCount() == 1)
+            acquiredAt = System.nanoTime();
+    }
+
+    @Override
+    public void lock() {
+        if (super.tryLock()) {
+            acquired(0, false);
+            return;
+        }
+        long start = System.nanoTime();
+        super.lock();
+        acquired(System.nanoTime() - start, true);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (super.tryLock()) {
+            acquired(0, false);
+            return;
+        }
+        long start = System.nanoTime();
+        super.lockInterruptibly();
+        acquired(System.nanoTime() - start, true);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!super.tryLock())
+            return false;
+        acquired(0, false);
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (super.tryLock()) {
+            acquired(0, false);
+            return true;
+        }
+        long start = System.nanoTime();
+        if (!super.tryLock(timeout, unit))
+            return false;
+        acquired(System.nanoTime() - start, true);
+        return true;
+    }
+
+    private void released() {
+        long held = System.nanoTime() - acquiredAt;
+        profile.recordHold(held);
+        holdTimer.record(held, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void unlock() {
+        if (getHoldCount() == 1)
+            released();
+        super.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new ProfilingCondition(super.newCondition());
+    }
+
+    /**
+     * Ends the hold when an await releases the lock and starts a new one when it gets it back, which doesn't go
+     * through {@link #lock()} and {@link #unlock()}.
+     */
+    private class ProfilingCondition implements Condition {
+        private final Condition condition;
+
+        ProfilingCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        private boolean beforeAwait() {
+            if (!isHeldByCurrentThread())
+                return false;  // The condition throws.
+            released();
+            return true;
+        }
+
+        private void afterAwait(boolean held) {
+            if (held)
+                acquiredAt = System.nanoTime();
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            boolean held = beforeAwait();
+            try {
+                condition.await();
+            } finally {
+                afterAwait(held);
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            boolean held = beforeAwait();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                afterAwait(held);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            boolean held = beforeAwait();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                afterAwait(held);
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            boolean held = beforeAwait();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                afterAwait(held);
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            boolean held = beforeAwait();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                afterAwait(held);
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+}
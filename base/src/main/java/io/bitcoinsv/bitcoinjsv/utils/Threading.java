@@ -26,13 +26,17 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Various threading related utilities. Provides a wrapper around explicit lock creation that lets you control whether
  * bitcoinj performs cycle detection or not. Cycle detection is useful to detect bugs but comes with a small cost.
- * Also provides a worker thread that is designed for event listeners to be dispatched on.
+ * Lock creation can also profile contention, see {@link #setLockProfiling(boolean)}.
+ * Also provides a worker thread that is designed for event listeners to be dispatched on, and a way to spread those
+ * listeners over several threads, see {@link #setListenerDispatcher(ListenerDispatcher)}.
  */
 public class Threading {
 
@@ -72,6 +76,39 @@ public class Threading {
             }
         });
         Uninterruptibles.awaitUninterruptibly(latch);
+        ListenerDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher != null)
+            dispatcher.awaitIdle();
+    }
+
+    @Nullable
+    private static volatile ListenerDispatcher listenerDispatcher;
+
+    /**
+     * Sets how listeners registered with {@link #USER_THREAD} are run. With a null dispatcher, the default, they all
+     * run on the single user thread, one after another. With a dispatcher, see
+     * {@link ListenerDispatcher#perListener()} and {@link ListenerDispatcher#striped(int)}, each listener keeps the
+     * order of its own events but different listeners run concurrently. The dispatcher is consulted when a listener is
+     * registered, so set it before registering any listeners.
+     */
+    public static void setListenerDispatcher(@Nullable ListenerDispatcher dispatcher) {
+        listenerDispatcher = dispatcher;
+    }
+
+    @Nullable
+    public static ListenerDispatcher getListenerDispatcher() {
+        return listenerDispatcher;
+    }
+
+    /**
+     * Returns the executor a listener registered with the given executor should actually run on: the dispatcher's
+     * choice for listeners registered with {@link #USER_THREAD}, otherwise the given executor unchanged.
+     */
+    public static Executor listenerExecutor(Object listener, Executor executor) {
+        ListenerDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher == null || executor != USER_THREAD)
+            return executor;
+        return dispatcher.executorFor(listener);
     }
 
     /**
@@ -93,7 +130,11 @@ public class Threading {
         private LinkedBlockingQueue<Runnable> tasks;
 
         public UserThread() {
-            super("bitcoinj user thread");
+            this("bitcoinj user thread");
+        }
+
+        public UserThread(String name) {
+            super(name);
             setDaemon(true);
             tasks = new LinkedBlockingQueue<Runnable>();
             start();
@@ -152,13 +193,55 @@ public class Threading {
     private static CycleDetectingLockFactory.Policy policy;
     public static CycleDetectingLockFactory factory;
 
+    private static volatile boolean lockProfiling = false;
+    private static final ConcurrentHashMap<String, LockProfile> lockProfiles = new ConcurrentHashMap<String, LockProfile>();
+
     public static ReentrantLock lock(String name) {
+        if (lockProfiling)
+            return new ProfilingReentrantLock(Utils.isAndroidRuntime(), lockProfile(name));
         if (Utils.isAndroidRuntime())
             return new ReentrantLock(true);
         else
             return factory.newReentrantLock(name);
     }
 
+    private static LockProfile lockProfile(String name) {
+        LockProfile profile = lockProfiles.get(name);
+        if (profile == null) {
+            LockProfile newProfile = new LockProfile(name);
+            profile = lockProfiles.putIfAbsent(name, newProfile);
+            if (profile == null)
+                profile = newProfile;
+        }
+        return profile;
+    }
+
+    /**
+     * Turns lock contention profiling on or off. While it is on, {@link #lock(String)} returns locks which record how
+     * often they are acquired and how long threads wait for and hold them, available from {@link #getLockProfiles()}.
+     * Profiled locks do not detect cycles whatever the policy, so profiling measures the locks without that overhead.
+     * Profiling costs a little on every acquisition, so it is off by default. Like the cycle detection policy this only
+     * affects locks created afterwards, so set it before instantiating any bitcoinj objects.
+     */
+    public static void setLockProfiling(boolean enabled) {
+        lockProfiling = enabled;
+    }
+
+    public static boolean isLockProfiling() {
+        return lockProfiling;
+    }
+
+    /** Returns the profiles of all locks created while profiling was on, keyed and sorted by lock name. */
+    public static NavigableMap<String, LockProfile> getLockProfiles() {
+        return new TreeMap<String, LockProfile>(lockProfiles);
+    }
+
+    /** Zeroes the statistics collected so far, for example at the end of a warm up period. */
+    public static void resetLockProfiles() {
+        for (LockProfile profile : lockProfiles.values())
+            profile.reset();
+    }
+
     public static void warnOnLockCycles() {
         setPolicy(CycleDetectingLockFactory.Policies.WARN);
     }
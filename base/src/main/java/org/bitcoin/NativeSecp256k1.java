@@ -36,6 +36,9 @@ import static org.bitcoin.NativeSecp256k1Util.*;
  * and `make` then copy `.libs/libsecp256k1.so` to your system library path
  * or point the JVM to the folder containing it with -Djava.library.path
  * </p>
+ *
+ * <p>Signing runs on contexts borrowed from a pool of clones of the shared context rather than under the lock that
+ * guards it, and {@link #signBatch(byte[][], byte[][])} borrows one for all its items.</p>
  */
 public class NativeSecp256k1 {
 
@@ -43,6 +46,10 @@ public class NativeSecp256k1 {
     private static final Lock r = rwl.readLock();
     private static final Lock w = rwl.writeLock();
     private static ThreadLocal<ByteBuffer> nativeECDSABuffer = new ThreadLocal<ByteBuffer>();
+    // Big enough for the message, a DER signature and an uncompressed public key, so that it is rarely reallocated.
+    private static final int NATIVE_BUFFER_SIZE = 520;
+    private static final Secp256k1ContextPool contextPool =
+            new Secp256k1ContextPool(Runtime.getRuntime().availableProcessors() * 2);
 
     /**
      * Verifies the given secp256k1 signature in native code. Calling when enabled == false is undefined (probably
@@ -55,23 +62,54 @@ public class NativeSecp256k1 {
     public static boolean verify(byte[] data, byte[] signature, byte[] pub) throws AssertFailException {
         Preconditions.checkArgument(data.length == 32 && signature.length <= 520 && pub.length <= 520);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < 520) {
-            byteBuff = ByteBuffer.allocateDirect(520);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(32 + signature.length + pub.length);
         byteBuff.put(data);
         byteBuff.put(signature);
         byteBuff.put(pub);
 
-        //r.lock();
-        try {
-            return secp256k1_ecdsa_verify(byteBuff, Secp256k1Context.getContext(), signature.length, pub.length) == 1;
-        } finally {
-            //r.unlock();
+        // Verification only reads the context's multiplication tables, which randomize() leaves alone, so it can use
+        // the shared context without locking.
+        return secp256k1_ecdsa_verify(byteBuff, Secp256k1Context.getContext(), signature.length, pub.length) == 1;
+    }
+
+    /**
+     * Verifies a compact signature, the 32 byte big endian r followed by the 32 byte big endian s, in native code.
+     * The signature is written into the native buffer in DER form directly, without creating any intermediate
+     * objects.
+     *
+     * @param data The data which was signed, must be exactly 32 bytes
+     * @param compactSig The signature, must be exactly 64 bytes
+     * @param pub The public key which did the signing
+     */
+    public static boolean verifyCompact(byte[] data, byte[] compactSig, byte[] pub) throws AssertFailException {
+        Preconditions.checkArgument(data.length == 32 && compactSig.length == 64 && pub.length <= 520);
+
+        ByteBuffer byteBuff = nativeBuffer(32 + MAX_COMPACT_DER_LENGTH + pub.length);
+        byteBuff.put(data);
+        int sigLen = putCompactAsDER(byteBuff, compactSig, 0);
+        byteBuff.put(pub);
+
+        return secp256k1_ecdsa_verify(byteBuff, Secp256k1Context.getContext(), sigLen, pub.length) == 1;
+    }
+
+    /**
+     * Verifies many DER signatures in native code, reusing one buffer for the whole batch. Element i of the result is
+     * what {@link #verify(byte[], byte[], byte[])} would return for element i of each array.
+     */
+    public static boolean[] verifyBatch(byte[][] data, byte[][] signatures, byte[][] pubs) throws AssertFailException {
+        Preconditions.checkArgument(data.length == signatures.length && data.length == pubs.length);
+        boolean[] results = new boolean[data.length];
+        long context = Secp256k1Context.getContext();
+        for (int i = 0; i < data.length; i++) {
+            byte[] signature = signatures[i], pub = pubs[i];
+            Preconditions.checkArgument(data[i].length == 32 && signature.length <= 520 && pub.length <= 520);
+            ByteBuffer byteBuff = nativeBuffer(32 + signature.length + pub.length);
+            byteBuff.put(data[i]);
+            byteBuff.put(signature);
+            byteBuff.put(pub);
+            results[i] = secp256k1_ecdsa_verify(byteBuff, context, signature.length, pub.length) == 1;
         }
+        return results;
     }
 
     /**
@@ -84,24 +122,39 @@ public class NativeSecp256k1 {
     public static byte[] sign(byte[] data, byte[] sec) throws AssertFailException {
         Preconditions.checkArgument(data.length == 32 && sec.length <= 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < 32 + 32) {
-            byteBuff = ByteBuffer.allocateDirect(32 + 32);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
+        Secp256k1ContextPool.Entry ctx = contextPool.acquire();
+        try {
+            return sign(data, sec, ctx.context);
+        } finally {
+            contextPool.release(ctx);
         }
-        byteBuff.rewind();
-        byteBuff.put(data);
-        byteBuff.put(sec);
-
-        byte[][] retByteArray;
+    }
 
-        r.lock();
+    /**
+     * Signs many message hashes in native code, borrowing one context and one buffer for the whole batch. Element i
+     * of the result is what {@link #sign(byte[], byte[])} would return for data[i] and secs[i].
+     */
+    public static byte[][] signBatch(byte[][] data, byte[][] secs) throws AssertFailException {
+        Preconditions.checkArgument(data.length == secs.length);
+        byte[][] signatures = new byte[data.length][];
+        Secp256k1ContextPool.Entry ctx = contextPool.acquire();
         try {
-            retByteArray = secp256k1_ecdsa_sign(byteBuff, Secp256k1Context.getContext());
+            for (int i = 0; i < data.length; i++) {
+                Preconditions.checkArgument(data[i].length == 32 && secs[i].length <= 32);
+                signatures[i] = sign(data[i], secs[i], ctx.context);
+            }
         } finally {
-            r.unlock();
+            contextPool.release(ctx);
         }
+        return signatures;
+    }
+
+    private static byte[] sign(byte[] data, byte[] sec, long context) throws AssertFailException {
+        ByteBuffer byteBuff = nativeBuffer(32 + 32);
+        byteBuff.put(data);
+        byteBuff.put(sec);
+
+        byte[][] retByteArray = secp256k1_ecdsa_sign(byteBuff, context);
 
         byte[] sigArr = retByteArray[0];
         int sigLen = new BigInteger(new byte[] { retByteArray[1][0] }).intValue();
@@ -112,6 +165,54 @@ public class NativeSecp256k1 {
         return retVal == 0 ? new byte[0] : sigArr;
     }
 
+    /** Returns this thread's buffer for passing arguments to native code, rewound and at least the given size. */
+    private static ByteBuffer nativeBuffer(int minCapacity) {
+        ByteBuffer byteBuff = nativeECDSABuffer.get();
+        if (byteBuff == null || byteBuff.capacity() < minCapacity) {
+            byteBuff = ByteBuffer.allocateDirect(Math.max(minCapacity, NATIVE_BUFFER_SIZE));
+            byteBuff.order(ByteOrder.nativeOrder());
+            nativeECDSABuffer.set(byteBuff);
+        }
+        byteBuff.rewind();
+        return byteBuff;
+    }
+
+    // SEQUENCE header plus two INTEGERs of up to 33 bytes each, their own headers included.
+    static final int MAX_COMPACT_DER_LENGTH = 2 + 2 * (2 + 33);
+
+    /**
+     * Writes the 64 byte compact signature at the given offset as a DER SEQUENCE of two INTEGERs and returns the
+     * number of bytes written.
+     */
+    static int putCompactAsDER(ByteBuffer buffer, byte[] compactSig, int offset) {
+        int rLength = derIntegerLength(compactSig, offset);
+        int sLength = derIntegerLength(compactSig, offset + 32);
+        buffer.put((byte) 0x30);
+        buffer.put((byte) (2 + rLength + 2 + sLength));
+        putDERInteger(buffer, compactSig, offset, rLength);
+        putDERInteger(buffer, compactSig, offset + 32, sLength);
+        return 2 + 2 + rLength + 2 + sLength;
+    }
+
+    // Minimal encoding of an unsigned 32 byte integer: leading zeros dropped, a zero prepended if the top bit is set.
+    private static int derIntegerLength(byte[] bytes, int offset) {
+        int start = offset;
+        while (start < offset + 31 && bytes[start] == 0)
+            start++;
+        int length = offset + 32 - start;
+        return (bytes[start] & 0x80) != 0 ? length + 1 : length;
+    }
+
+    private static void putDERInteger(ByteBuffer buffer, byte[] bytes, int offset, int length) {
+        buffer.put((byte) 0x02);
+        buffer.put((byte) length);
+        if (length > 32) {
+            buffer.put((byte) 0);
+            length = 32;
+        }
+        buffer.put(bytes, offset + 32 - length, length);
+    }
+
     /**
      * libsecp256k1 Seckey Verify - returns 1 if valid, 0 if invalid
      *
@@ -120,13 +221,7 @@ public class NativeSecp256k1 {
     public static boolean secKeyVerify(byte[] seckey) {
         Preconditions.checkArgument(seckey.length == 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < seckey.length) {
-            byteBuff = ByteBuffer.allocateDirect(seckey.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(seckey.length);
         byteBuff.put(seckey);
 
         r.lock();
@@ -147,13 +242,7 @@ public class NativeSecp256k1 {
     public static byte[] computePubkey(byte[] seckey) throws AssertFailException {
         Preconditions.checkArgument(seckey.length == 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < seckey.length) {
-            byteBuff = ByteBuffer.allocateDirect(seckey.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(seckey.length);
         byteBuff.put(seckey);
 
         byte[][] retByteArray;
@@ -181,12 +270,17 @@ public class NativeSecp256k1 {
     public static synchronized void cleanup() {
         w.lock();
         try {
+            contextPool.clear();
             secp256k1_destroy_context(Secp256k1Context.getContext());
         } finally {
             w.unlock();
         }
     }
 
+    static void destroyContext(long context) {
+        secp256k1_destroy_context(context);
+    }
+
     public static long cloneContext() {
         r.lock();
         try {
@@ -205,13 +299,7 @@ public class NativeSecp256k1 {
     public static byte[] privKeyTweakMul(byte[] privkey, byte[] tweak) throws AssertFailException {
         Preconditions.checkArgument(privkey.length == 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < privkey.length + tweak.length) {
-            byteBuff = ByteBuffer.allocateDirect(privkey.length + tweak.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(privkey.length + tweak.length);
         byteBuff.put(privkey);
         byteBuff.put(tweak);
 
@@ -244,13 +332,7 @@ public class NativeSecp256k1 {
     public static byte[] privKeyTweakAdd(byte[] privkey, byte[] tweak) throws AssertFailException {
         Preconditions.checkArgument(privkey.length == 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < privkey.length + tweak.length) {
-            byteBuff = ByteBuffer.allocateDirect(privkey.length + tweak.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(privkey.length + tweak.length);
         byteBuff.put(privkey);
         byteBuff.put(tweak);
 
@@ -283,13 +365,7 @@ public class NativeSecp256k1 {
     public static byte[] pubKeyTweakAdd(byte[] pubkey, byte[] tweak) throws AssertFailException {
         Preconditions.checkArgument(pubkey.length == 33 || pubkey.length == 65);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < pubkey.length + tweak.length) {
-            byteBuff = ByteBuffer.allocateDirect(pubkey.length + tweak.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(pubkey.length + tweak.length);
         byteBuff.put(pubkey);
         byteBuff.put(tweak);
 
@@ -322,13 +398,7 @@ public class NativeSecp256k1 {
     public static byte[] pubKeyTweakMul(byte[] pubkey, byte[] tweak) throws AssertFailException {
         Preconditions.checkArgument(pubkey.length == 33 || pubkey.length == 65);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < pubkey.length + tweak.length) {
-            byteBuff = ByteBuffer.allocateDirect(pubkey.length + tweak.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(pubkey.length + tweak.length);
         byteBuff.put(pubkey);
         byteBuff.put(tweak);
 
@@ -361,13 +431,7 @@ public class NativeSecp256k1 {
     public static byte[] createECDHSecret(byte[] seckey, byte[] pubkey) throws AssertFailException {
         Preconditions.checkArgument(seckey.length <= 32 && pubkey.length <= 65);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < 32 + pubkey.length) {
-            byteBuff = ByteBuffer.allocateDirect(32 + pubkey.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(32 + pubkey.length);
         byteBuff.put(seckey);
         byteBuff.put(pubkey);
 
@@ -396,17 +460,13 @@ public class NativeSecp256k1 {
     public static synchronized boolean randomize(byte[] seed) throws AssertFailException {
         Preconditions.checkArgument(seed.length == 32 || seed == null);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null || byteBuff.capacity() < seed.length) {
-            byteBuff = ByteBuffer.allocateDirect(seed.length);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(seed.length);
         byteBuff.put(seed);
 
         w.lock();
         try {
+            // Pooled clones carry the old randomization, so throw them away.
+            contextPool.clear();
             return secp256k1_context_randomize(byteBuff, Secp256k1Context.getContext()) == 1;
         } finally {
             w.unlock();
@@ -416,13 +476,7 @@ public class NativeSecp256k1 {
     public static byte[] schnorrSign(byte[] data, byte[] sec) throws AssertFailException {
         Preconditions.checkArgument(data.length == 32 && sec.length <= 32);
 
-        ByteBuffer byteBuff = nativeECDSABuffer.get();
-        if (byteBuff == null) {
-            byteBuff = ByteBuffer.allocateDirect(32 + 32);
-            byteBuff.order(ByteOrder.nativeOrder());
-            nativeECDSABuffer.set(byteBuff);
-        }
-        byteBuff.rewind();
+        ByteBuffer byteBuff = nativeBuffer(32 + 32);
         byteBuff.put(data);
         byteBuff.put(sec);
 
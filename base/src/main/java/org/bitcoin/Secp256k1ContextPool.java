@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A bounded pool of clones of the shared secp256k1 context. Signing borrows a context from here for the
+ * duration of a call, or of a whole batch, instead of taking the global lock that guards the shared context against
+ * {@link NativeSecp256k1#randomize(byte[])} and {@link NativeSecp256k1#cleanup()}. Verification and the other
+ * operations still use the shared context.</p>
+ *
+ * <p>Clones are made lazily, so the pool only grows to the number of threads that actually sign at the same
+ * time. Contexts handed back when the pool is already full are destroyed. Randomizing the shared context bumps
+ * the pool's generation and empties it, so that contexts carrying the old blinding are destroyed when they come back
+ * rather than reused.</p>
+ */
+class Secp256k1ContextPool {
+    /** A borrowed context, to be handed back with {@link #release(Entry)}. */
+    static final class Entry {
+        final long context;
+        final int generation;
+
+        Entry(long context, int generation) {
+            this.context = context;
+            this.generation = generation;
+        }
+    }
+
+    private final int maxIdle;
+    private final Queue<Entry> idle = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    Secp256k1ContextPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /** Returns an idle context, cloning the shared context if there is none. */
+    Entry acquire() {
+        Entry entry = idle.poll();
+        if (entry != null) {
+            idleCount.decrementAndGet();
+            return entry;
+        }
+        int currentGeneration = generation.get();
+        return new Entry(NativeSecp256k1.cloneContext(), currentGeneration);
+    }
+
+    /** Hands a context back, destroying it if it is stale or the pool is full. */
+    void release(Entry entry) {
+        if (entry.generation == generation.get()) {
+            if (idleCount.incrementAndGet() <= maxIdle) {
+                idle.offer(entry);
+                // If the pool was cleared meanwhile, either clear() took the entry or it is ours to destroy.
+                if (entry.generation == generation.get() || !idle.remove(entry))
+                    return;
+            }
+            idleCount.decrementAndGet();
+        }
+        NativeSecp256k1.destroyContext(entry.context);
+    }
+
+    /**
+     * Destroys all idle contexts and makes contexts which are currently borrowed stale. Called with the shared
+     * context's write lock held.
+     */
+    void clear() {
+        generation.incrementAndGet();
+        Entry entry;
+        while ((entry = idle.poll()) != null) {
+            idleCount.decrementAndGet();
+            NativeSecp256k1.destroyContext(entry.context);
+        }
+    }
+}
@@ -28,8 +28,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -250,4 +252,39 @@ public class AddressTest {
         assertTrue(resultBytes < 0);
         assertTrue(resultsString < 0);
     }
+
+    @Test
+    public void batchBase58() throws Exception {
+        List<AddressLite> addresses = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            byte[] hash160 = new byte[20];
+            random.nextBytes(hash160);
+            if (i % 10 == 0)
+                Arrays.fill(hash160, 0, i % 7, (byte) 0);
+            addresses.add(i % 2 == 0 ? new AddressLite(mainParams, hash160) : AddressLite.fromP2SHHash(mainParams, hash160));
+        }
+        char[] text = new char[addresses.size() * AddressLite.MAX_BASE58_LENGTH];
+        int[] ends = new int[addresses.size()];
+        int end = AddressLite.toBase58(addresses, text, 0, ends);
+        StringBuilder expected = new StringBuilder();
+        for (AddressLite address : addresses)
+            expected.append(address.toBase58());
+        assertEquals(expected.toString(), new String(text, 0, end));
+
+        int[] versions = new int[addresses.size()];
+        byte[] hash160s = new byte[addresses.size() * AddressLite.LENGTH];
+        AddressLite.fromBase58(mainParams, new String(text, 0, end), 0, ends, addresses.size(), versions, hash160s);
+        for (int i = 0; i < addresses.size(); i++) {
+            assertEquals(addresses.get(i).getVersion(), versions[i]);
+            assertArrayEquals(addresses.get(i).getHash160(),
+                    Arrays.copyOfRange(hash160s, i * AddressLite.LENGTH, (i + 1) * AddressLite.LENGTH));
+        }
+
+        assertThrows(WrongNetworkException.class, () -> AddressLite.fromBase58(testParams, new String(text, 0, end), 0,
+                ends, addresses.size(), versions, hash160s));
+        text[1] = text[1] == 'a' ? 'b' : 'a';
+        assertThrows(AddressFormatException.class, () -> AddressLite.fromBase58(null, new String(text, 0, end), 0,
+                ends, 1, versions, hash160s));
+    }
 }
@@ -21,8 +21,11 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -93,4 +96,56 @@ public class Base58Test {
         byte[] input = Base58.decode("129");
         assertEquals(new BigInteger(1, input), Base58.decodeToBigInteger("129"));
     }
+
+    @Test
+    public void matchesBigIntegerConversion() {
+        Random random = new Random(58);
+        for (int length = 0; length <= 100; length++) {
+            for (int zeros = 0; zeros <= Math.min(length, 3); zeros++) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                Arrays.fill(bytes, 0, zeros, (byte) 0);
+                if (zeros < length && bytes[zeros] == 0)
+                    bytes[zeros] = 1;
+                String expected = referenceEncode(bytes, zeros);
+                assertEquals(expected, Base58.encode(bytes));
+                assertArrayEquals(bytes, Base58.decode(expected));
+            }
+        }
+    }
+
+    @Test
+    public void encodeAndDecodeIntoBuffers() {
+        byte[] input = Utils.HEX.decode("ff00000102030405060708090a0b0c0d0e0f101112131415ff");
+        char[] chars = new char[40];
+        Arrays.fill(chars, '!');
+        int length = Base58.encode(input, 1, input.length - 2, chars, 3);
+        String encoded = Base58.encode(Arrays.copyOfRange(input, 1, input.length - 1));
+        assertEquals(encoded.length(), length);
+        assertEquals(encoded, new String(chars, 3, length));
+        assertEquals('!', chars[2]);
+        assertEquals('!', chars[3 + length]);
+
+        byte[] bytes = new byte[30];
+        int decoded = Base58.decode(new String(chars), 3, 3 + length, bytes, 2);
+        assertEquals(input.length - 2, decoded);
+        assertArrayEquals(Arrays.copyOfRange(input, 1, input.length - 1), Arrays.copyOfRange(bytes, 2, 2 + decoded));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> Base58.encode(input, 0, input.length, new char[10], 0));
+        assertThrows(AddressFormatException.class, () -> Base58.decode("11O1", 0, 4, new byte[4], 0));
+    }
+
+    private static String referenceEncode(byte[] bytes, int zeros) {
+        StringBuilder sb = new StringBuilder();
+        BigInteger value = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] qr = value.divideAndRemainder(base);
+            sb.append(Base58.ALPHABET[qr[1].intValue()]);
+            value = qr[0];
+        }
+        for (int i = 0; i < zeros; i++)
+            sb.append('1');
+        return sb.reverse().toString();
+    }
 }
@@ -117,6 +117,22 @@ public class ECKeyTest {
         assertTrue(key.verify(Sha256Hash.ZERO_HASH.getBytes(), sig));
     }
 
+    @Test
+    public void compactSignatures() throws Exception {
+        ECKeyLite key = new ECKeyLite();
+        ECDSASignature signature = key.sign(Sha256Hash.ZERO_HASH);
+        byte[] compact = signature.encodeToCompact();
+        assertEquals(64, compact.length);
+        assertEquals(signature, ECDSASignature.decodeFromCompact(compact));
+        assertTrue(ECDSA.verifyCompact(Sha256Hash.ZERO_HASH.getBytes(), compact, key.getPubKey()));
+        compact[63] ^= 1;
+        assertFalse(ECDSA.verifyCompact(Sha256Hash.ZERO_HASH.getBytes(), compact, key.getPubKey()));
+
+        ECDSASignature small = new ECDSASignature(BigInteger.ONE, BigInteger.valueOf(255));
+        assertEquals(small, ECDSASignature.decodeFromCompact(small.encodeToCompact()));
+        assertFalse(new ECDSASignature(BigInteger.ONE.shiftLeft(256), BigInteger.ONE).hasCompactEncoding());
+    }
+
     @Test
     public void testASN1Roundtrip() throws Exception {
         byte[] privkeyASN1 = Utils.HEX.decode(
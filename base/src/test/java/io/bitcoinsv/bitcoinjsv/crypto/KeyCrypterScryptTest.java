@@ -18,18 +18,25 @@
 package io.bitcoinsv.bitcoinjsv.crypto;
 
 import io.bitcoinsv.bitcoinjsv.core.Utils;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.ByteString;
 
 
 import io.bitcoinsv.bitcoinjsv.protos.Protos.ScryptParameters;
 import io.bitcoinsv.bitcoinjsv.utils.BriefLogFormatter;
+import io.bitcoinsv.bitcoinjsv.utils.Threading;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.spongycastle.crypto.params.KeyParameter;
 
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -156,4 +163,55 @@ public class KeyCrypterScryptTest {
             assertEquals(Utils.HEX.encode(plainBytes), Utils.HEX.encode(rebornPlainBytes));
         }
     }
+
+    @Test
+    public void parallelScryptMatchesTestVector() throws Exception {
+        // RFC 7914, section 12.
+        byte[] password = "password".getBytes(StandardCharsets.US_ASCII);
+        byte[] salt = "NaCl".getBytes(StandardCharsets.US_ASCII);
+        String expected = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+                + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+        for (int threads : new int[] {1, 3, 4, 16}) {
+            byte[] key = ParallelSCrypt.scrypt(password, salt, 1024, 8, 16, 64, Threading.THREAD_POOL, threads);
+            assertEquals(expected, Utils.HEX.encode(key), "threads: " + threads);
+        }
+    }
+
+    @Test
+    public void deriveKeyAsync() throws Exception {
+        KeyCrypterScrypt keyCrypter = new KeyCrypterScrypt(ScryptParameters.newBuilder(scryptParameters).setP(4).build());
+        char[] password = PASSWORD1.toString().toCharArray();
+        ListenableFuture<KeyParameter> future = keyCrypter.deriveKeyAsync(CharBuffer.wrap(password));
+        // The password has been copied, so wiping it straight away is fine.
+        Arrays.fill(password, ' ');
+        KeyParameter key = future.get();
+        assertArrayEquals(keyCrypter.deriveKey(PASSWORD1).getKey(), key.getKey());
+    }
+
+    @Test
+    public void keyCache() throws Exception {
+        KeyCrypterScrypt keyCrypter = new KeyCrypterScrypt(scryptParameters);
+        KeyParameter uncached = keyCrypter.deriveKey(PASSWORD1);
+
+        keyCrypter.setKeyCacheTtl(1, TimeUnit.MINUTES);
+        KeyParameter key = keyCrypter.deriveKey(PASSWORD1);
+        assertArrayEquals(uncached.getKey(), key.getKey());
+        ListenableFuture<KeyParameter> cached = keyCrypter.deriveKeyAsync(PASSWORD1);
+        assertTrue(cached.isDone());
+        assertArrayEquals(uncached.getKey(), cached.get().getKey());
+        assertNotSame(key.getKey(), cached.get().getKey());
+        assertFalse(Arrays.equals(uncached.getKey(), keyCrypter.deriveKey(PASSWORD2).getKey()));
+
+        keyCrypter.clearKeyCache();
+        assertFalse(keyCrypter.deriveKeyAsync(WRONG_PASSWORD).isDone());
+    }
+
+    @Test
+    public void keyCacheExpires() throws Exception {
+        KeyCrypterScrypt keyCrypter = new KeyCrypterScrypt(scryptParameters);
+        keyCrypter.setKeyCacheTtl(1, TimeUnit.MILLISECONDS);
+        keyCrypter.deriveKey(PASSWORD1);
+        Thread.sleep(10);
+        assertFalse(keyCrypter.deriveKeyAsync(PASSWORD1).isDone());
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.ecc;
+
+import io.bitcoinsv.bitcoinjsv.core.ECKeyLite;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import org.junit.jupiter.api.Test;
+import org.spongycastle.math.ec.ECMultiplier;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratorTableMultiplierTest {
+    private static final BigInteger N = ECDSA.CURVE.getN();
+    private static final ECPoint G = ECDSA.CURVE.getG();
+
+    private final ECMultiplier table = new GeneratorTableMultiplier();
+    private final ECMultiplier comb = new FixedPointCombMultiplier();
+
+    private void assertSameProduct(BigInteger k) {
+        ECPoint expected = comb.multiply(G, k.mod(N));
+        ECPoint actual = table.multiply(G, k);
+        assertEquals(expected, actual, k.toString(16));
+        if (!actual.isInfinity())
+            assertTrue(actual.isNormalized());
+    }
+
+    @Test
+    public void matchesCombForRandomScalars() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++)
+            assertSameProduct(new BigInteger(256, random));
+    }
+
+    @Test
+    public void edgeCases() {
+        assertSameProduct(BigInteger.ONE);
+        assertSameProduct(BigInteger.valueOf(2));
+        assertSameProduct(BigInteger.valueOf(15));
+        assertSameProduct(BigInteger.valueOf(16));
+        assertSameProduct(N.subtract(BigInteger.ONE));
+        assertSameProduct(N.shiftRight(1));
+        assertSameProduct(BigInteger.ONE.shiftLeft(252).subtract(BigInteger.ONE));
+        assertSameProduct(N.add(BigInteger.ONE));
+        assertSameProduct(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE));
+        assertSameProduct(BigInteger.valueOf(-5));
+        assertTrue(table.multiply(G, BigInteger.ZERO).isInfinity());
+        assertTrue(table.multiply(G, N).isInfinity());
+    }
+
+    @Test
+    public void otherPointsFallBack() {
+        ECPoint p = comb.multiply(G, BigInteger.valueOf(12345)).normalize();
+        BigInteger k = new BigInteger(1, Sha256Hash.hash(new byte[] { 1 }));
+        assertEquals(p.multiply(k), table.multiply(p, k));
+    }
+
+    @Test
+    public void selectableAtRuntime() {
+        ECMultiplier original = ECDSA.getBasePointMultiplier();
+        BigInteger k = new BigInteger(1, Sha256Hash.hash(new byte[] { 2 }));
+        try {
+            ECDSA.setBasePointMultiplier(comb);
+            byte[] viaComb = ECKeyLite.publicKeyFromPrivate(k, true);
+            ECDSASignature sigViaComb = ECDSA.doSign(Sha256Hash.of(new byte[] { 3 }), k);
+            ECDSA.setBasePointMultiplier(table);
+            assertArrayEquals(viaComb, ECKeyLite.publicKeyFromPrivate(k, true));
+            assertEquals(sigViaComb, ECDSA.doSign(Sha256Hash.of(new byte[] { 3 }), k));
+        } finally {
+            ECDSA.setBasePointMultiplier(original);
+        }
+    }
+}
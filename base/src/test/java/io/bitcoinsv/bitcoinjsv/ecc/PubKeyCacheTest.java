@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.ecc;
+
+import io.bitcoinsv.bitcoinjsv.core.ECKeyLite;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.crypto.LazyECPoint;
+import org.junit.jupiter.api.Test;
+import org.spongycastle.math.ec.ECPoint;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PubKeyCacheTest {
+    @Test
+    public void decodesOnce() {
+        PubKeyCache cache = new PubKeyCache(10);
+        ECKeyLite key = new ECKeyLite();
+        byte[] encoded = key.getPubKey();
+        ECPoint point = cache.decode(encoded);
+        assertTrue(point.isNormalized());
+        assertEquals(key.getPubKeyPoint(), point);
+        // The cache keeps its own copy of the key bytes.
+        encoded[1] = (byte) (encoded[1] ^ 1);
+        assertSame(point, cache.decode(key.getPubKey()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        PubKeyCache cache = new PubKeyCache(4);
+        for (int i = 0; i < 20; i++)
+            cache.decode(new ECKeyLite().getPubKey());
+        assertTrue(cache.size() <= 4);
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void rejectsInvalidKeys() {
+        byte[] invalid = new ECKeyLite().getPubKey();
+        invalid[0] = 5;
+        assertThrows(IllegalArgumentException.class, () -> new PubKeyCache(10).decode(invalid));
+    }
+
+    @Test
+    public void sharedWithVerificationAndLazyPoints() {
+        PubKeyCache original = PubKeyCache.getDefault();
+        try {
+            PubKeyCache cache = new PubKeyCache(10);
+            PubKeyCache.setDefault(cache);
+            ECKeyLite key = new ECKeyLite();
+            ECDSASignature signature = key.sign(Sha256Hash.ZERO_HASH);
+            assertTrue(ECDSA.verify(Sha256Hash.ZERO_HASH.getBytes(), signature, key.getPubKey()));
+            assertTrue(ECDSA.verify(Sha256Hash.ZERO_HASH.getBytes(), signature, key.getPubKey()));
+            assertEquals(1, cache.size());
+
+            ECPoint cached = cache.getIfPresent(key.getPubKey());
+            assertSame(cached, new LazyECPoint(ECDSA.CURVE.getCurve(), key.getPubKey()).get());
+            assertNull(cache.getIfPresent(new ECKeyLite().getPubKey()));
+        } finally {
+            PubKeyCache.setDefault(original);
+        }
+    }
+}
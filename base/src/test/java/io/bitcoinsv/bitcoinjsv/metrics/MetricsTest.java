@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+    private static final Gauge FORTY_TWO = () -> 42;
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.setRegistry(MetricsRegistry.NOOP);
+        Metrics.removeGauge("test.gauge", FORTY_TWO);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertFalse(Metrics.isEnabled());
+        // Recording with nothing installed must be harmless.
+        Metrics.counter("test.counter").increment();
+        Metrics.timer("test.timer").record(1, TimeUnit.MILLISECONDS);
+        Metrics.histogram("test.histogram").record(1);
+    }
+
+    @Test
+    public void globalMetersFollowTheInstalledRegistry() {
+        Counter counter = Metrics.counter("test.counter");
+        counter.increment();
+
+        SimpleMetricsRegistry first = new SimpleMetricsRegistry();
+        Metrics.setRegistry(first);
+        assertTrue(Metrics.isEnabled());
+        counter.increment(2);
+        assertEquals(2, first.counter("test.counter").getCount());
+
+        SimpleMetricsRegistry second = new SimpleMetricsRegistry();
+        Metrics.setRegistry(second);
+        counter.increment();
+        assertEquals(2, first.counter("test.counter").getCount());
+        assertEquals(1, second.counter("test.counter").getCount());
+    }
+
+    @Test
+    public void gaugesMoveToNewRegistry() {
+        SimpleMetricsRegistry first = new SimpleMetricsRegistry();
+        Metrics.setRegistry(first);
+        Metrics.gauge("test.gauge", FORTY_TWO);
+        assertEquals(42, first.getGaugeValue("test.gauge"), 0);
+
+        SimpleMetricsRegistry second = new SimpleMetricsRegistry();
+        Metrics.setRegistry(second);
+        assertTrue(Double.isNaN(first.getGaugeValue("test.gauge")));
+        assertEquals(42, second.getGaugeValue("test.gauge"), 0);
+
+        // Only the gauge that was registered can remove itself.
+        Metrics.removeGauge("test.gauge", new Gauge() {
+            @Override
+            public double value() {
+                return 0;
+            }
+        });
+        assertEquals(42, second.getGaugeValue("test.gauge"), 0);
+        Metrics.removeGauge("test.gauge", FORTY_TWO);
+        assertTrue(Double.isNaN(second.getGaugeValue("test.gauge")));
+    }
+
+    @Test
+    public void simpleRegistry() {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        assertSame(registry.counter("c"), registry.counter("c"));
+
+        SimpleMetricsRegistry.SimpleTimer timer = registry.timer("t");
+        timer.record(2, TimeUnit.MILLISECONDS);
+        timer.record(4, TimeUnit.MILLISECONDS);
+        assertEquals(2, timer.getCount());
+        assertEquals(6, timer.getTotalTime(TimeUnit.MILLISECONDS));
+        assertEquals(4, timer.getMaxTime(TimeUnit.MILLISECONDS));
+        assertEquals(3, timer.getMeanTime(TimeUnit.MILLISECONDS), 0.0001);
+
+        SimpleMetricsRegistry.SimpleHistogram histogram = registry.histogram("h");
+        assertEquals(0, histogram.getMin());
+        histogram.record(10);
+        histogram.record(-5);
+        histogram.record(7);
+        assertEquals(3, histogram.getCount());
+        assertEquals(-5, histogram.getMin());
+        assertEquals(10, histogram.getMax());
+        assertEquals(4, histogram.getMean(), 0.0001);
+
+        assertEquals(3, registry.snapshot().size());
+        assertTrue(registry.toString().contains("t: count=2"));
+    }
+
+    @Test
+    public void micrometerAdapter() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMetricsRegistry registry = new MicrometerMetricsRegistry(meterRegistry);
+
+        registry.counter("test.counter").increment(3);
+        registry.timer("test.timer").record(5, TimeUnit.MILLISECONDS);
+        registry.histogram("test.histogram").record(100);
+        assertEquals(3, meterRegistry.get("test.counter").counter().count(), 0);
+        assertEquals(5, meterRegistry.get("test.timer").timer().totalTime(TimeUnit.MILLISECONDS), 0);
+        assertEquals(100, meterRegistry.get("test.histogram").summary().totalAmount(), 0);
+
+        registry.gauge("test.gauge", FORTY_TWO);
+        assertEquals(42, meterRegistry.get("test.gauge").gauge().value(), 0);
+        registry.removeGauge("test.gauge");
+        assertNull(meterRegistry.find("test.gauge").gauge());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxBean;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.Interpreter;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptBudget;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptBudgetExceededException;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptExecutionException;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelScriptVerifierTest {
+    // One input and one output, both with an OP_1 script.
+    private static final Tx TX = new TxBean(Hex.decode("01000000"
+            + "01" + "032e38e9c0a84c6046d687d10556dcacc41d275ec55fc00779ac88fdf357a187" + "00000000" + "0151" + "ffffffff"
+            + "01" + "00e3232100000000" + "0151"
+            + "00000000"));
+    private static final Script TRUE = new ScriptBuilder().smallNum(1).build();
+    private static final Script FALSE = new ScriptBuilder().smallNum(0).build();
+    // Doubles a 520 byte item eight times, ending with a stack of 128KB.
+    private static final Script GREEDY = greedy();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private static Script greedy() {
+        ScriptBuilder builder = new ScriptBuilder().data(new byte[520]);
+        for (int i = 0; i < 8; i++)
+            builder.op(OP_DUP).op(OP_CAT);
+        return builder.op(OP_DROP).smallNum(1).build();
+    }
+
+    private static ParallelScriptVerifier.Check check(Script scriptPubKey) {
+        return new ParallelScriptVerifier.Check(TRUE, TX, 0, scriptPubKey, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void verifiesAllInputs() {
+        List<ParallelScriptVerifier.Check> checks = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            checks.add(check(i % 10 == 0 ? GREEDY : TRUE));
+        new ParallelScriptVerifier(executor, 4).verify(checks);
+    }
+
+    @Test
+    public void reportsFirstFailure() {
+        List<ParallelScriptVerifier.Check> checks = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            checks.add(check(i == 50 ? FALSE : TRUE));
+        ScriptExecutionException e = assertThrows(ScriptExecutionException.class,
+                () -> new ParallelScriptVerifier(executor, 4).verify(checks));
+        assertFalse(e instanceof ScriptBudgetExceededException);
+    }
+
+    @Test
+    public void enforcesScriptStackMemory() {
+        List<ParallelScriptVerifier.Check> checks = new ArrayList<>();
+        checks.add(check(TRUE));
+        checks.add(check(GREEDY));
+        ParallelScriptVerifier verifier = new ParallelScriptVerifier(executor, 4).setScriptStackMemory(64 * 1024);
+        assertThrows(ScriptBudgetExceededException.class, () -> verifier.verify(checks));
+    }
+
+    @Test
+    public void enforcesBatchTimeout() {
+        List<ParallelScriptVerifier.Check> checks = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            checks.add(check(TRUE));
+        ParallelScriptVerifier verifier = new ParallelScriptVerifier(executor, 4).setBatchTimeout(1, TimeUnit.NANOSECONDS);
+        assertThrows(ScriptBudgetExceededException.class, () -> verifier.verify(checks));
+    }
+
+    @Test
+    public void cancelledBudgetStopsInterpreter() {
+        ScriptBudget batch = ScriptBudget.unlimited();
+        ScriptBudget script = batch.child(1, TimeUnit.MINUTES, Long.MAX_VALUE);
+        Interpreter.executeScript(null, 0, TRUE, new ScriptStack(), ScriptVerifyFlag.GENESIS_SET);
+        batch.cancel("test");
+        assertTrue(script.isExhausted());
+        assertEquals("test", script.getCancelReason());
+        assertThrows(ScriptBudgetExceededException.class, () -> script.run(
+                () -> Interpreter.executeScript(null, 0, TRUE, new ScriptStack(), ScriptVerifyFlag.GENESIS_SET)));
+        assertNull(ScriptBudget.current());
+    }
+
+    @Test
+    public void childBudgetKeepsTighterLimits() {
+        ScriptBudget parent = ScriptBudget.of(1, TimeUnit.NANOSECONDS, 1000);
+        ScriptBudget child = parent.child(1, TimeUnit.HOURS, 2000);
+        assertEquals(1000, child.getMaxStackMemory());
+        assertTrue(child.isExhausted());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script;
+
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.CompiledScript;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScriptCacheTest {
+    private static final byte[] P2PKH = Utils.HEX.decode("76a91462e907b15cbf27d5425399ebf6f0fb50ebb88f1888ac");
+
+    @Test
+    public void sharesParsedForm() {
+        ScriptCache cache = new ScriptCache(100000);
+        Script first = cache.parse(P2PKH.clone());
+        CompiledScript compiled = cache.compile(first);
+        Script second = cache.parse(P2PKH.clone());
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(new Script(P2PKH), second);
+        assertSame(compiled, second.getCompiled());
+        assertTrue(second.isSentToAddress());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void compileReusesCachedForm() {
+        ScriptCache cache = new ScriptCache(100000);
+        CompiledScript compiled = cache.compile(cache.parse(P2PKH));
+        Script other = new Script(P2PKH);
+        assertSame(compiled, cache.compile(other));
+        assertSame(compiled, other.getCompiled());
+    }
+
+    @Test
+    public void keyIsCopied() {
+        ScriptCache cache = new ScriptCache(100000);
+        byte[] program = P2PKH.clone();
+        cache.parse(program);
+        program[0] = 0;
+        Script script = cache.parse(P2PKH);
+        assertTrue(script.isSentToAddress());
+    }
+
+    @Test
+    public void compilesLazily() {
+        ScriptCache cache = new ScriptCache(100000);
+        cache.parse(P2PKH);
+        Script second = cache.parse(P2PKH);
+        assertNull(second.compiled);
+        CompiledScript compiled = cache.compile(second);
+        assertSame(compiled, cache.compile(cache.parse(P2PKH)));
+    }
+
+    @Test
+    public void longScriptsBypassCache() {
+        ScriptCache cache = new ScriptCache(Long.MAX_VALUE);
+        byte[] program = new byte[ScriptCache.MAX_CACHED_PROGRAM_LENGTH + 1];
+        Arrays.fill(program, (byte) ScriptOpCodes.OP_NOP);
+        cache.parse(program);
+        cache.compile(new Script(program));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void boundedByWeight() {
+        ScriptCache cache = new ScriptCache(4 * 1024);
+        for (int i = 0; i < 100; i++) {
+            byte[] program = P2PKH.clone();
+            program[3] = (byte) i;
+            cache.parse(program);
+        }
+        assertTrue(cache.size() < 100);
+    }
+
+    @Test
+    public void zeroSizeDisablesCaching() {
+        ScriptCache cache = new ScriptCache(0);
+        Script first = cache.parse(P2PKH);
+        Script second = cache.parse(P2PKH);
+        assertNotSame(first.getCompiled(), second.getCompiled());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidScriptsAreNotCached() {
+        ScriptCache cache = new ScriptCache(100000);
+        assertThrows(ScriptParseException.class, () -> cache.parse(new byte[]{0x4c}));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxInput;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxOutput;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxOutputBean;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.core.VarInt;
+import io.bitcoinsv.bitcoinjsv.ecc.TransactionSignature;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SigHashTest {
+    private static byte[] push(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ScriptChunk.writeBytes(bos, data);
+        return bos.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (byte[] part : parts)
+            bos.write(part, 0, part.length);
+        return bos.toByteArray();
+    }
+
+    @Test
+    public void removesEveryChunkInOnePass() throws IOException {
+        byte[] sig1 = push(new byte[]{1, 2, 3});
+        byte[] sig2 = push(new byte[300]);
+        byte[] other = push(new byte[]{1, 2});
+        byte[] op = {(byte) OP_CHECKMULTISIG};
+        byte[] script = concat(sig1, other, sig2, sig1, op, sig2);
+        byte[] expected = concat(other, op);
+        assertArrayEquals(expected, SigHash.removeAllInstancesOf(script, Arrays.asList(sig1, sig2)));
+        assertArrayEquals(expected, SigHash.removeAllInstancesOf(SigHash.removeAllInstancesOf(script, sig1), sig2));
+    }
+
+    @Test
+    public void matchesWholeChunksOnly() throws IOException {
+        byte[] data = {(byte) OP_CODESEPARATOR, 1};
+        byte[] script = concat(push(data), new byte[]{(byte) OP_CODESEPARATOR}, push(new byte[]{(byte) OP_CODESEPARATOR}));
+        byte[] expected = concat(push(data), push(new byte[]{(byte) OP_CODESEPARATOR}));
+        assertArrayEquals(expected, SigHash.removeAllInstancesOfOp(script, OP_CODESEPARATOR));
+    }
+
+    @Test
+    public void returnsInputWhenNothingMatches() throws IOException {
+        byte[] script = concat(push(new byte[]{1, 2, 3}), new byte[]{(byte) OP_DROP});
+        assertSame(script, SigHash.removeAllInstancesOf(script, push(new byte[]{1, 2})));
+        assertSame(script, SigHash.removeAllInstancesOf(script, Collections.<byte[]>emptyList()));
+    }
+
+    @Test
+    public void sameAsRemovingInTurn() throws IOException {
+        Random random = new Random(3);
+        List<byte[]> pushes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            byte[] data = new byte[random.nextInt(3) == 0 ? 80 : 1 + random.nextInt(3)];
+            random.nextBytes(data);
+            pushes.add(push(data));
+        }
+        for (int i = 0; i < 100; i++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (int j = 0; j < 30; j++) {
+                byte[] chunk = random.nextBoolean() ? pushes.get(random.nextInt(pushes.size())) : new byte[]{(byte) OP_DUP};
+                bos.write(chunk, 0, chunk.length);
+            }
+            byte[] script = bos.toByteArray();
+            List<byte[]> toRemove = pushes.subList(0, 4);
+            byte[] inTurn = script;
+            for (byte[] chunk : toRemove)
+                inTurn = SigHash.removeAllInstancesOf(inTurn, chunk);
+            assertArrayEquals(inTurn, SigHash.removeAllInstancesOf(script, toRemove));
+        }
+    }
+
+    @Test
+    public void toleratesTruncatedScript() throws IOException {
+        byte[] sig = push(new byte[]{1});
+        byte[] script = concat(sig, new byte[]{(byte) OP_PUSHDATA2, 5});
+        assertArrayEquals(new byte[]{(byte) OP_PUSHDATA2, 5}, SigHash.removeAllInstancesOf(script, sig));
+    }
+
+    private static Tx randomTx(Random random, int inputCount, int outputCount) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Utils.uint32ToByteStreamLE(1 + random.nextInt(2), bos);
+        bos.write(new VarInt(inputCount).encode());
+        for (int i = 0; i < inputCount; i++) {
+            byte[] outpoint = new byte[36];
+            random.nextBytes(outpoint);
+            bos.write(outpoint);
+            byte[] script = new byte[random.nextInt(120)];
+            random.nextBytes(script);
+            bos.write(new VarInt(script.length).encode());
+            bos.write(script);
+            Utils.uint32ToByteStreamLE(random.nextInt() & 0xFFFFFFFFL, bos);
+        }
+        bos.write(new VarInt(outputCount).encode());
+        for (int i = 0; i < outputCount; i++) {
+            Utils.int64ToByteStreamLE(random.nextInt(Integer.MAX_VALUE), bos);
+            byte[] script = new byte[random.nextInt(60)];
+            random.nextBytes(script);
+            bos.write(new VarInt(script.length).encode());
+            bos.write(script);
+        }
+        Utils.uint32ToByteStreamLE(random.nextInt() & 0xFFFFFFFFL, bos);
+        return new TxBean(bos.toByteArray());
+    }
+
+    // The preimage as it used to be built, by serializing a modified copy of the transaction.
+    private static Sha256Hash bufferedLegacyHash(Tx transaction, int inputIndex, byte[] connectedScript, byte sigHashType) throws IOException {
+        Tx tx = transaction.mutableCopy();
+        for (int i = 0; i < tx.getInputs().size(); i++)
+            tx.getInputs().get(i).setScriptBytes(null);
+        TxInput input = tx.getInputs().get(inputIndex);
+        input.setScriptBytes(SigHash.removeAllInstancesOfOp(connectedScript, OP_CODESEPARATOR));
+        if ((sigHashType & 0x1f) == SigHash.Flags.NONE.value) {
+            tx.setOutputs(new ArrayList<TxOutput>(0));
+            for (int i = 0; i < tx.getInputs().size(); i++)
+                if (i != inputIndex)
+                    tx.getInputs().get(i).setSequenceNumber(0);
+        } else if ((sigHashType & 0x1f) == SigHash.Flags.SINGLE.value) {
+            if (inputIndex >= tx.getOutputs().size())
+                return Sha256Hash.wrap("0100000000000000000000000000000000000000000000000000000000000000");
+            tx.setOutputs(new ArrayList<TxOutput>(tx.getOutputs().subList(0, inputIndex + 1)));
+            for (int i = 0; i < inputIndex; i++) {
+                TxOutput output = new TxOutputBean(tx).makeMutable();
+                output.setValue(Coin.NEGATIVE_SATOSHI);
+                output.setScriptBytes(new byte[]{});
+                tx.getOutputs().set(i, output);
+            }
+            for (int i = 0; i < tx.getInputs().size(); i++)
+                if (i != inputIndex)
+                    tx.getInputs().get(i).setSequenceNumber(0);
+        }
+        if ((sigHashType & SigHash.Flags.ANYONECANPAY.value) == SigHash.Flags.ANYONECANPAY.value) {
+            tx.setInputs(new ArrayList<>());
+            tx.getInputs().add(input);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        tx.serializeTo(bos);
+        Utils.uint32ToByteStreamLE(0x000000ff & sigHashType, bos);
+        return Sha256Hash.wrap(Sha256Hash.hashTwice(bos.toByteArray()));
+    }
+
+    private static byte[] bufferedOutputsHash(List<TxOutput> outputs) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (TxOutput output : outputs) {
+            Utils.uint64ToByteStreamLE(BigInteger.valueOf(output.getValue().getValue()), bos);
+            bos.write(new VarInt(output.getScriptBytes().length).encode());
+            bos.write(output.getScriptBytes());
+        }
+        return Sha256Hash.hashTwice(bos.toByteArray());
+    }
+
+    // The BIP143 style preimage built in a buffer.
+    private static Sha256Hash bufferedForkIdHash(Tx tx, int inputIndex, byte[] connectedScript, Coin prevValue,
+                                                 SigHash.Flags type, boolean anyoneCanPay) throws IOException {
+        byte[] hashPrevouts = new byte[32];
+        byte[] hashSequence = new byte[32];
+        byte[] hashOutputs = new byte[32];
+        if (!anyoneCanPay) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (TxInput input : tx.getInputs()) {
+                bos.write(input.getOutpoint().getHash().getReversedBytes());
+                Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), bos);
+            }
+            hashPrevouts = Sha256Hash.hashTwice(bos.toByteArray());
+        }
+        if (!anyoneCanPay && type != SigHash.Flags.SINGLE && type != SigHash.Flags.NONE) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (TxInput input : tx.getInputs())
+                Utils.uint32ToByteStreamLE(input.getSequenceNumber(), bos);
+            hashSequence = Sha256Hash.hashTwice(bos.toByteArray());
+        }
+        if (type != SigHash.Flags.SINGLE && type != SigHash.Flags.NONE)
+            hashOutputs = bufferedOutputsHash(tx.getOutputs());
+        else if (type == SigHash.Flags.SINGLE && inputIndex < tx.getOutputs().size())
+            hashOutputs = bufferedOutputsHash(tx.getOutputs().subList(inputIndex, inputIndex + 1));
+        TxInput input = tx.getInputs().get(inputIndex);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Utils.uint32ToByteStreamLE(tx.getVersion(), bos);
+        bos.write(hashPrevouts);
+        bos.write(hashSequence);
+        bos.write(input.getOutpoint().getHash().getReversedBytes());
+        Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), bos);
+        bos.write(new VarInt(connectedScript.length).encode());
+        bos.write(connectedScript);
+        Utils.uint64ToByteStreamLE(BigInteger.valueOf(prevValue.getValue()), bos);
+        Utils.uint32ToByteStreamLE(input.getSequenceNumber(), bos);
+        bos.write(hashOutputs);
+        Utils.uint32ToByteStreamLE(tx.getLockTime(), bos);
+        Utils.uint32ToByteStreamLE(TransactionSignature.calcSigHashValue(type, anyoneCanPay, true), bos);
+        return Sha256Hash.wrap(Sha256Hash.hashTwice(bos.toByteArray()));
+    }
+
+    @Test
+    public void streamedLegacyHashMatchesSerializedCopy() throws IOException {
+        Random random = new Random(4);
+        byte[] script = concat(push(new byte[]{1, 2, 3}), new byte[]{(byte) OP_CODESEPARATOR, (byte) OP_CHECKSIG});
+        for (int i = 0; i < 20; i++) {
+            Tx tx = randomTx(random, 1 + random.nextInt(4), random.nextInt(4));
+            for (int sigHashType : new int[]{0, 1, 2, 3, 0x81, 0x82, 0x83, 0x41, 0x1f}) {
+                for (int inputIndex = 0; inputIndex < tx.getInputs().size(); inputIndex++) {
+                    assertEquals(bufferedLegacyHash(tx, inputIndex, script, (byte) sigHashType),
+                            SigHash.hashForLegacySignature(tx, inputIndex, script, (byte) sigHashType));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamedForkIdHashMatchesBufferedPreimage() throws IOException {
+        Random random = new Random(5);
+        byte[] script = concat(push(new byte[100]), new byte[]{(byte) OP_CHECKSIG});
+        for (int i = 0; i < 20; i++) {
+            Tx tx = randomTx(random, 1 + random.nextInt(4), random.nextInt(4));
+            Coin value = Coin.valueOf(random.nextInt(Integer.MAX_VALUE));
+            for (SigHash.Flags type : new SigHash.Flags[]{SigHash.Flags.ALL, SigHash.Flags.NONE, SigHash.Flags.SINGLE}) {
+                for (boolean anyoneCanPay : new boolean[]{false, true}) {
+                    for (int inputIndex = 0; inputIndex < tx.getInputs().size(); inputIndex++) {
+                        assertEquals(bufferedForkIdHash(tx, inputIndex, script, value, type, anyoneCanPay),
+                                SigHash.hashForForkIdSignature(tx, inputIndex, script, value, type, anyoneCanPay));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * © 2020 Bitcoin Association
+ * Open BSV Licence, see the accompanying file LICENSE
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
+import io.bitcoinsv.bitcoinjsv.script.ScriptVerifyFlag;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledScriptTest {
+    private static Script script() {
+        return new ScriptBuilder()
+                .data(new byte[]{1, 2, 3})
+                .op(OP_CODESEPARATOR)
+                .data(new byte[100])
+                .op(OP_DROP)
+                .smallNum(5)
+                .op(OP_ADD)
+                .build();
+    }
+
+    @Test
+    public void compiledOnceAndReused() {
+        Script script = script();
+        assertSame(script.getCompiled(), script.getCompiled());
+        assertEquals(script.getChunks().size(), script.getCompiled().size());
+        assertEquals(OP_CODESEPARATOR, script.getCompiled().opcode(1));
+    }
+
+    @Test
+    public void programMatchesSimpleStream() {
+        Script script = script();
+        CompiledScript compiled = script.getCompiled();
+        ScriptStream simple = new SimpleScriptStream(script);
+        for (int i = 0; i <= compiled.size(); i++)
+            assertArrayEquals(simple.getProgramFrom(i), compiled.programFrom(i));
+        assertArrayEquals(script.getProgram(), compiled.programFrom(0));
+    }
+
+    @Test
+    public void streamTracksCodeSeparator() {
+        ScriptStream stream = script().getCompiled().stream();
+        ScriptStream simple = new SimpleScriptStream(script());
+        while (stream.hasNext()) {
+            assertEquals(simple.next(), stream.next());
+            assertEquals(simple.getLastCodeSepIndex(), stream.getLastCodeSepIndex());
+            assertEquals(simple.byteIndex(), stream.byteIndex());
+        }
+        assertFalse(simple.hasNext());
+    }
+
+    @Test
+    public void executesLikeSimpleStream() {
+        Script script = new Script(script().getCompiled().programFrom(2));
+        ScriptStack compiledStack = new ScriptStack();
+        compiledStack.add(StackItem.wrap(new byte[]{2}));
+        ScriptStack simpleStack = new ScriptStack(compiledStack);
+        Interpreter.executeScript(null, 0, script.getCompiled(), compiledStack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        Interpreter.executeScript(null, 0, new SimpleScriptStream(script), simpleStack, Coin.ZERO,
+                ScriptVerifyFlag.GENESIS_SET, null);
+        assertEquals(simpleStack, compiledStack);
+        assertEquals(1, compiledStack.size());
+        assertEquals(7, Utils.decodeMPI(Utils.reverseBytes(compiledStack.getLast().bytes()), false).intValue());
+    }
+
+    @Test
+    public void disabledOpcodesFollowFlags() {
+        Script script = new ScriptBuilder().data(new byte[]{1}).data(new byte[]{2}).op(OP_CAT).build();
+        assertThrows(ScriptExecutionException.class, () -> Interpreter.executeScript(null, 0, script,
+                new ScriptStack(), Coin.ZERO, EnumSet.noneOf(ScriptVerifyFlag.class)));
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, script, stack, Coin.ZERO, ScriptVerifyFlag.MONOLITH_SET);
+        assertArrayEquals(new byte[]{1, 2}, stack.getLast().bytes());
+    }
+
+    @Test
+    public void skipsBranchNotTaken() {
+        Script script = new ScriptBuilder()
+                .smallNum(0).op(OP_IF).smallNum(0).op(OP_IF).smallNum(1).op(OP_ELSE).smallNum(2).op(OP_ENDIF)
+                .op(OP_ELSE).smallNum(3).op(OP_ENDIF)
+                .build();
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, script, stack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        assertEquals(1, stack.size());
+        assertArrayEquals(new byte[]{3}, stack.getLast().bytes());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.script.interpreter;
+
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
+import io.bitcoinsv.bitcoinjsv.script.ScriptVerifyFlag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScriptNumTest {
+    private static byte[] encodeBig(BigInteger value) {
+        return Utils.reverseBytes(Utils.encodeMPI(value, false));
+    }
+
+    private static BigInteger decodeBig(byte[] bytesLE) {
+        return Utils.decodeMPI(Utils.reverseBytes(bytesLE), false);
+    }
+
+    @Test
+    public void encodesLikeBigInteger() {
+        long[] values = {0, 1, -1, 127, 128, -128, 255, 256, 32767, 32768, -32768, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, 1L << 55, (1L << 56) - 1, Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MIN_VALUE};
+        for (long value : values) {
+            assertArrayEquals(encodeBig(BigInteger.valueOf(value)), ScriptNum.encode(value), "value " + value);
+            assertArrayEquals(encodeBig(BigInteger.valueOf(-value)), ScriptNum.encode(-value), "value " + -value);
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertArrayEquals(encodeBig(BigInteger.valueOf(value)), ScriptNum.encode(value), "value " + value);
+        }
+    }
+
+    @Test
+    public void decodesLikeBigInteger() {
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+            byte[] bytes = new byte[random.nextInt(ScriptNum.MAX_LONG_SIZE + 1)];
+            random.nextBytes(bytes);
+            assertEquals(decodeBig(bytes).longValueExact(), ScriptNum.decode(bytes), Utils.HEX.encode(bytes));
+        }
+        // Negative zero and non-minimal encodings.
+        assertEquals(0, ScriptNum.decode(new byte[]{(byte) 0x80}));
+        assertEquals(1, ScriptNum.decode(new byte[]{1, 0, 0}));
+        assertEquals(-1, ScriptNum.decode(new byte[]{1, 0, (byte) 0x80}));
+    }
+
+    @Test
+    public void sharesSmallNumbers() {
+        StackItem derived = StackItem.wrapDerived(new byte[]{1}, StackItem.Type.INT, true);
+        assertSame(StackItem.forNumber(5, StackItem.Type.INT), StackItem.forNumber(5, StackItem.Type.INT));
+        assertTrue(StackItem.forNumber(5, StackItem.Type.INT, derived).isDerived());
+        assertFalse(StackItem.forNumber(5, StackItem.Type.INT).isDerived());
+        assertEquals(StackItem.Type.BOOL, StackItem.forNumber(1, StackItem.Type.BOOL).getType());
+        assertNotSame(StackItem.forNumber(1 << 20, StackItem.Type.INT), StackItem.forNumber(1 << 20, StackItem.Type.INT));
+        assertTrue(StackItem.forNumber(1 << 20, StackItem.Type.INT, derived).isDerived());
+    }
+
+    private static byte[] execute(Script script) {
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, script, stack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        return stack.getLast().bytes();
+    }
+
+    @Test
+    public void promotesOnOverflow() {
+        byte[] max = ScriptNum.encode(Long.MAX_VALUE);
+        byte[] sum = execute(new ScriptBuilder().data(max).data(max).op(OP_ADD).build());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1), decodeBig(sum));
+        byte[] product = execute(new ScriptBuilder().data(max).data(max).op(OP_MUL).build());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2), decodeBig(product));
+        byte[] incremented = execute(new ScriptBuilder().data(max).op(OP_1ADD).build());
+        assertEquals(BigInteger.ONE.shiftLeft(63), decodeBig(incremented));
+        // Operands longer than a long take the BigInteger path.
+        byte[] wide = encodeBig(BigInteger.ONE.shiftLeft(70));
+        byte[] difference = execute(new ScriptBuilder().data(wide).data(max).op(OP_SUB).build());
+        assertEquals(BigInteger.ONE.shiftLeft(70).subtract(BigInteger.valueOf(Long.MAX_VALUE)), decodeBig(difference));
+    }
+
+    @Test
+    public void divisionAndModuloTruncateTowardsZero() {
+        assertArrayEquals(ScriptNum.encode(-2), execute(new ScriptBuilder().number(-7).smallNum(3).op(OP_DIV).build()));
+        assertArrayEquals(ScriptNum.encode(-1), execute(new ScriptBuilder().number(-7).smallNum(3).op(OP_MOD).build()));
+        assertArrayEquals(ScriptNum.encode(1), execute(new ScriptBuilder().smallNum(7).number(-3).op(OP_MOD).build()));
+        assertThrows(ScriptExecutionException.class,
+                () -> execute(new ScriptBuilder().smallNum(7).smallNum(0).op(OP_DIV).build()));
+    }
+
+    @Test
+    public void num2binLeavesSharedBytesIntact() {
+        byte[] negative = ScriptNum.encode(-5);
+        Script script = new ScriptBuilder().data(negative).op(OP_DUP).smallNum(4).op(OP_NUM2BIN).build();
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, script, stack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        assertArrayEquals(new byte[]{5, 0, 0, (byte) 0x80}, stack.pollLast().bytes());
+        assertArrayEquals(negative, stack.pollLast().bytes());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ListenerDispatcherTest {
+    @AfterEach
+    public void tearDown() {
+        Threading.setListenerDispatcher(null);
+    }
+
+    @Test
+    public void userThreadByDefault() {
+        ListenerRegistration<Object> registration = new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD);
+        assertSame(Threading.USER_THREAD, registration.executor);
+    }
+
+    @Test
+    public void onlyReplacesUserThread() {
+        Threading.setListenerDispatcher(ListenerDispatcher.perListener());
+        ListenerRegistration<Object> registration = new ListenerRegistration<Object>(new Object(), Threading.SAME_THREAD);
+        assertSame(Threading.SAME_THREAD, registration.executor);
+    }
+
+    @Test
+    public void sameExecutorForSameListener() {
+        Threading.setListenerDispatcher(ListenerDispatcher.perListener());
+        Object listener = new Object();
+        Executor first = new ListenerRegistration<Object>(listener, Threading.USER_THREAD).executor;
+        Executor second = new ListenerRegistration<Object>(listener, Threading.USER_THREAD).executor;
+        assertSame(first, second);
+        assertNotSame(Threading.USER_THREAD, first);
+        assertNotSame(first, new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD).executor);
+    }
+
+    @Test
+    public void keepsOrderPerListener() {
+        Threading.setListenerDispatcher(ListenerDispatcher.perListener());
+        Executor executor = new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD).executor;
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            expected.add(n);
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    seen.add(n);
+                }
+            });
+        }
+        Threading.waitForUserCode();
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    public void slowListenerDoesNotBlockOthers() throws Exception {
+        Threading.setListenerDispatcher(ListenerDispatcher.perListener());
+        Executor slow = new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD).executor;
+        Executor fast = new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD).executor;
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        slow.execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        fast.execute(new Runnable() {
+            @Override public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        Threading.waitForUserCode();
+    }
+
+    @Test
+    public void stripedKeepsOrder() {
+        Threading.setListenerDispatcher(ListenerDispatcher.striped(4));
+        Executor executor = new ListenerRegistration<Object>(new Object(), Threading.USER_THREAD).executor;
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    seen.add(n);
+                }
+            });
+        }
+        Threading.waitForUserCode();
+        assertEquals(100, seen.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, (int) seen.get(i));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.utils;
+
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import io.bitcoinsv.bitcoinjsv.metrics.MetricsRegistry;
+import io.bitcoinsv.bitcoinjsv.metrics.SimpleMetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockProfilingTest {
+    @BeforeEach
+    public void setUp() {
+        Threading.setLockProfiling(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Threading.setLockProfiling(false);
+        Metrics.setRegistry(MetricsRegistry.NOOP);
+    }
+
+    @Test
+    public void offByDefault() {
+        Threading.setLockProfiling(false);
+        ReentrantLock lock = Threading.lock("test-unprofiled");
+        lock.lock();
+        try {
+            assertTrue(lock.isHeldByCurrentThread());
+        } finally {
+            lock.unlock();
+        }
+        assertFalse(Threading.getLockProfiles().containsKey("test-unprofiled"));
+    }
+
+    @Test
+    public void countsReentrantAcquisitionsButOneHold() {
+        ReentrantLock lock = Threading.lock("test-reentrant");
+        lock.lock();
+        try {
+            lock.lock();
+            try {
+                assertTrue(lock.isHeldByCurrentThread());
+                assertEquals(2, lock.getHoldCount());
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+        assertFalse(lock.isLocked());
+
+        LockProfile profile = Threading.getLockProfiles().get("test-reentrant");
+        assertEquals(2, profile.getAcquisitions());
+        assertEquals(0, profile.getContendedAcquisitions());
+        assertEquals(0, profile.getTotalWaitTime(TimeUnit.NANOSECONDS));
+
+        Threading.resetLockProfiles();
+        assertEquals(0, profile.getAcquisitions());
+    }
+
+    @Test
+    public void recordsContention() throws Exception {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        Metrics.setRegistry(registry);
+        final ReentrantLock lock = Threading.lock("test-contended");
+        final CountDownLatch waiting = new CountDownLatch(1);
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                waiting.countDown();
+                lock.lock();
+                try {
+                    assertTrue(lock.isHeldByCurrentThread());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        lock.lock();
+        try {
+            other.start();
+            waiting.await();
+            while (!lock.hasQueuedThread(other))
+                Thread.sleep(1);
+            Thread.sleep(20);
+        } finally {
+            lock.unlock();
+        }
+        other.join();
+
+        LockProfile profile = Threading.getLockProfiles().get("test-contended");
+        assertEquals(2, profile.getAcquisitions());
+        assertEquals(1, profile.getContendedAcquisitions());
+        assertTrue(profile.getMaxWaitTime(TimeUnit.MILLISECONDS) >= 20);
+        assertTrue(profile.getMaxHoldTime(TimeUnit.MILLISECONDS) >= 20);
+        long total = 0;
+        for (long count : profile.getWaitHistogram())
+            total += count;
+        assertEquals(1, total);
+        assertEquals(1, registry.timer("lock.wait.test-contended").getCount());
+        assertEquals(2, registry.timer("lock.hold.test-contended").getCount());
+    }
+
+    @Test
+    public void awaitEndsTheHold() throws Exception {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        Metrics.setRegistry(registry);
+        ReentrantLock lock = Threading.lock("test-condition");
+        Condition condition = lock.newCondition();
+        int awaits = 0;
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(50);
+            while (remaining > 0) {
+                remaining = condition.awaitNanos(remaining);
+                awaits++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // The time spent waiting on the condition isn't part of any hold.
+        LockProfile profile = Threading.getLockProfiles().get("test-condition");
+        assertTrue(profile.getMaxHoldTime(TimeUnit.MILLISECONDS) < 50);
+        assertEquals(awaits + 1, registry.timer("lock.hold.test-condition").getCount());
+    }
+
+    @Test
+    public void histogramBuckets() {
+        assertEquals(0, LockProfile.bucketFor(999));
+        assertEquals(1, LockProfile.bucketFor(1000));
+        assertEquals(2, LockProfile.bucketFor(2000));
+        assertEquals(2, LockProfile.bucketFor(3999));
+        assertEquals(LockProfile.HISTOGRAM_BUCKETS - 1, LockProfile.bucketFor(Long.MAX_VALUE));
+    }
+}
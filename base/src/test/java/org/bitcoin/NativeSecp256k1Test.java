@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoin;
+
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSASignature;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeSecp256k1Test {
+    private static void assertSameDER(ECDSASignature signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(NativeSecp256k1.MAX_COMPACT_DER_LENGTH + 1);
+        buffer.put((byte) 0x55);
+        int length = NativeSecp256k1.putCompactAsDER(buffer, signature.encodeToCompact(), 0);
+        assertEquals(1 + length, buffer.position());
+        assertArrayEquals(signature.encodeToDER(), Arrays.copyOfRange(buffer.array(), 1, 1 + length));
+    }
+
+    @Test
+    public void compactToDER() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++)
+            assertSameDER(new ECDSASignature(new BigInteger(256 - random.nextInt(24), random),
+                    new BigInteger(256 - random.nextInt(24), random)));
+        assertSameDER(new ECDSASignature(BigInteger.ONE, BigInteger.valueOf(0x80)));
+        assertSameDER(new ECDSASignature(BigInteger.ONE.shiftLeft(255), BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE)));
+        assertSameDER(new ECDSASignature(BigInteger.ZERO, BigInteger.ONE.shiftLeft(247)));
+    }
+}
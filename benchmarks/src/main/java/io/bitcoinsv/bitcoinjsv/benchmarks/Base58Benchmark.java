@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.core.Base58;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.exception.AddressFormatException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base58 encoding and decoding of an address sized payload (25 bytes) and an extended key sized payload (82 bytes),
+ * both including a valid checksum.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base58Benchmark {
+    @Param({"25", "82"})
+    public int length;
+
+    private byte[] bytes;
+    private String encoded;
+    private char[] chars;
+    private byte[] decoded;
+
+    @Setup
+    public void setUp() {
+        Random random = Fixtures.random();
+        bytes = Fixtures.randomBytes(random, length);
+        // Leading zeros take a separate path through the codec, as in a real address.
+        bytes[0] = 0;
+        byte[] checksum = Sha256Hash.hashTwice(bytes, 0, length - 4);
+        System.arraycopy(checksum, 0, bytes, length - 4, 4);
+        encoded = Base58.encode(bytes);
+        chars = new char[Base58.maxEncodedLength(length)];
+        decoded = new byte[encoded.length()];
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base58.encode(bytes);
+    }
+
+    @Benchmark
+    public char[] encodeIntoBuffer() {
+        Base58.encode(bytes, 0, bytes.length, chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    public byte[] decode() throws AddressFormatException {
+        return Base58.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] decodeIntoBuffer() throws AddressFormatException {
+        Base58.decode(encoded, 0, encoded.length(), decoded, 0);
+        return decoded;
+    }
+
+    @Benchmark
+    public byte[] decodeChecked() throws AddressFormatException {
+        return Base58.decodeChecked(encoded);
+    }
+}
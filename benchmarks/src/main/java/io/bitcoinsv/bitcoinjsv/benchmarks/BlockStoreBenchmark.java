@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.LiteBlock;
+import io.bitcoinsv.bitcoinjsv.blockstore.FullHeadersBlockStore;
+import io.bitcoinsv.bitcoinjsv.blockstore.SPVBlockStore;
+import io.bitcoinsv.bitcoinjsv.exception.BlockStoreException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header lookups and inserts against the SPV ring buffer store and the full headers store, each opened in a fresh
+ * temporary directory and pre-filled with a chain of headers.
+ *
+ * <p>With {@code chainLength} larger than the SPV store's in-memory cache, {@link #spvGet()} also measures the scan of
+ * the memory mapped ring for headers that have been evicted. {@link #spvPut()} cycles through the chain, which the ring
+ * buffer accepts as it never rejects duplicates. The full headers store ignores headers it already holds, so
+ * {@link #fullHeadersPutChain} writes the whole chain into an empty store created for each invocation.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockStoreBenchmark {
+    @Param({"1000", "4000"})
+    public int chainLength;
+
+    private List<LiteBlock> chain;
+    private File dir;
+    private SPVBlockStore spvStore;
+    private FullHeadersBlockStore fullHeadersStore;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, BlockStoreException {
+        chain = Fixtures.headerChain(Fixtures.random(), chainLength);
+        dir = Files.createTempDirectory("blockstore-benchmark").toFile();
+        spvStore = new SPVBlockStore(Fixtures.NET.params(), new File(dir, "spv"));
+        fullHeadersStore = new FullHeadersBlockStore(Fixtures.NET, new File(dir, "headers"), true);
+        for (LiteBlock block : chain) {
+            spvStore.put(block);
+            fullHeadersStore.put(block);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws BlockStoreException {
+        spvStore.close();
+        fullHeadersStore.close();
+        deleteRecursively(dir);
+    }
+
+    private LiteBlock nextBlock() {
+        LiteBlock block = chain.get(next);
+        next = (next + 1) % chain.size();
+        return block;
+    }
+
+    @Benchmark
+    public LiteBlock spvGet() throws BlockStoreException {
+        return spvStore.get(nextBlock().getHash());
+    }
+
+    @Benchmark
+    public Boolean spvPut() throws BlockStoreException {
+        return spvStore.put(nextBlock());
+    }
+
+    @Benchmark
+    public LiteBlock fullHeadersGet() throws BlockStoreException {
+        return fullHeadersStore.get(nextBlock().getHash());
+    }
+
+    @Benchmark
+    public void fullHeadersPutChain(EmptyStore empty) throws BlockStoreException {
+        for (LiteBlock block : chain)
+            empty.store.put(block);
+    }
+
+    /** An empty full headers store, recreated for every invocation. */
+    @State(Scope.Thread)
+    public static class EmptyStore {
+        private File dir;
+        private FullHeadersBlockStore store;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException, BlockStoreException {
+            dir = Files.createTempDirectory("blockstore-benchmark").toFile();
+            store = new FullHeadersBlockStore(Fixtures.NET, new File(dir, "headers"), true);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws BlockStoreException {
+            store.close();
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null)
+            for (File child : children)
+                deleteRecursively(child);
+        file.delete();
+    }
+}
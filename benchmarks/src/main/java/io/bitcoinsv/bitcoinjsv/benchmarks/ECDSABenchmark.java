@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.core.ECKeyLite;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSA;
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSASignature;
+import io.bitcoinsv.bitcoinjsv.ecc.PubKeyCache;
+import org.openjdk.jmh.annotations.*;
+import org.spongycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * secp256k1 signing, verification, public key decoding and public key derivation with the pure Java implementation.
+ * Verification repeats the same key, so it decodes it through the {@link PubKeyCache} only once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ECDSABenchmark {
+    private BigInteger privKey;
+    private byte[] pubKey;
+    private Sha256Hash hash;
+    private ECDSASignature signature;
+
+    @Setup
+    public void setUp() {
+        ECKeyLite key = Fixtures.key(Fixtures.random());
+        privKey = key.getPrivKey();
+        pubKey = key.getPubKey();
+        hash = Sha256Hash.of(Fixtures.randomBytes(Fixtures.random(), 64));
+        signature = ECDSA.doSign(hash, privKey);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return ECDSA.verify(hash.getBytes(), signature, pubKey);
+    }
+
+    @Benchmark
+    public ECDSASignature sign() {
+        return ECDSA.doSign(hash, privKey);
+    }
+
+    @Benchmark
+    public ECPoint decodePubKey() {
+        return ECDSA.CURVE.getCurve().decodePoint(pubKey);
+    }
+
+    @Benchmark
+    public ECPoint decodePubKeyCached() {
+        return PubKeyCache.getDefault().decode(pubKey);
+    }
+
+    @Benchmark
+    public byte[] publicKeyFromPrivate() {
+        return ECKeyLite.publicKeyFromPrivate(privKey, true);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.Genesis;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.BitcoinObject;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.FullBlock;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxInput;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxOutPoint;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.TxOutput;
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.LiteBlock;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.FullBlockBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.HeaderBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxInputBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxOutPointBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxOutputBean;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.extended.LiteBlockBean;
+import io.bitcoinsv.bitcoinjsv.blockchain.ChainUtils;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.core.ECKeyLite;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSA;
+import io.bitcoinsv.bitcoinjsv.ecc.TransactionSignature;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
+import io.bitcoinsv.bitcoinjsv.script.SigHash;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the synthetic data the benchmarks run against. Everything is derived from a seeded {@link Random} so that
+ * every run, on every machine, measures exactly the same inputs.
+ */
+final class Fixtures {
+    static final Net NET = Net.UNITTEST;
+    static final long SEED = 0x5eed;
+
+    private Fixtures() {
+    }
+
+    static Random random() {
+        return new Random(SEED);
+    }
+
+    static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    static ECKeyLite key(Random random) {
+        BigInteger privKey = new BigInteger(256, random).mod(ECDSA.CURVE.getN().subtract(BigInteger.ONE))
+                .add(BigInteger.ONE);
+        return ECKeyLite.fromPrivate(privKey);
+    }
+
+    /** Returns a pay to pubkey hash output script for the given key. */
+    static Script p2pkh(ECKeyLite key) {
+        return ScriptBuilder.createOutputScript(key.toAddress(NET.params()));
+    }
+
+    /**
+     * Returns an unsigned transaction with the given number of inputs and pay to pubkey hash outputs. Each input has a
+     * scriptSig of the size of a real pay to pubkey hash spend so that the serialized size is realistic.
+     */
+    static Tx transaction(Random random, int inputCount, int outputCount) {
+        Tx tx = new TxBean((BitcoinObject) null);
+        List<TxInput> inputs = new ArrayList<TxInput>(inputCount);
+        for (int i = 0; i < inputCount; i++) {
+            TxInput input = new TxInputBean(tx);
+            TxOutPoint outPoint = new TxOutPointBean(input);
+            outPoint.setHash(Sha256Hash.wrap(randomBytes(random, 32)));
+            outPoint.setIndex(random.nextInt(4));
+            input.setOutpoint(outPoint);
+            input.setScriptBytes(randomBytes(random, 107));
+            input.setSequenceNumber(0xffffffffL);
+            input.setValue(Coin.valueOf(100000 + random.nextInt(100000)));
+            inputs.add(input);
+        }
+        List<TxOutput> outputs = new ArrayList<TxOutput>(outputCount);
+        for (int i = 0; i < outputCount; i++) {
+            TxOutput output = new TxOutputBean(tx);
+            output.setValue(Coin.valueOf(10000 + random.nextInt(10000)));
+            output.setScriptBytes(p2pkhBytes(random));
+            outputs.add(output);
+        }
+        tx.setInputs(inputs);
+        tx.setOutputs(outputs);
+        return tx;
+    }
+
+    private static byte[] p2pkhBytes(Random random) {
+        byte[] script = new byte[25];
+        script[0] = 0x76;           // OP_DUP
+        script[1] = (byte) 0xa9;    // OP_HASH160
+        script[2] = 20;
+        System.arraycopy(randomBytes(random, 20), 0, script, 3, 20);
+        script[23] = (byte) 0x88;   // OP_EQUALVERIFY
+        script[24] = (byte) 0xac;   // OP_CHECKSIG
+        return script;
+    }
+
+    /** A transaction whose first input correctly spends a pay to pubkey hash output, signed with SIGHASH_FORKID. */
+    static class SignedSpend {
+        final Tx tx;
+        final Script scriptPubKey;
+        final Coin value;
+
+        SignedSpend(Tx tx, Script scriptPubKey, Coin value) {
+            this.tx = tx;
+            this.scriptPubKey = scriptPubKey;
+            this.value = value;
+        }
+
+        Script scriptSig() {
+            return new Script(tx.getInputs().get(0).getScriptBytes());
+        }
+    }
+
+    static SignedSpend signedSpend(Random random, int inputCount, int outputCount) {
+        ECKeyLite key = key(random);
+        Script scriptPubKey = p2pkh(key);
+        Tx tx = transaction(random, inputCount, outputCount);
+        TxInput input = tx.getInputs().get(0);
+        Coin value = input.getValue();
+        Sha256Hash sigHash = SigHash.hashForForkIdSignature(tx, 0, scriptPubKey.getProgram(), value,
+                SigHash.Flags.ALL, false);
+        TransactionSignature signature = new TransactionSignature(key.sign(sigHash), SigHash.Flags.ALL, false, true);
+        input.setScriptBytes(ScriptBuilder.createInputScript(signature, key).getProgram());
+        return new SignedSpend(tx, scriptPubKey, value);
+    }
+
+    /** Returns a mutable block with a merkle root matching the given number of generated transactions. */
+    static FullBlock block(Random random, int txCount) {
+        FullBlock block = new FullBlockBean();
+        List<Tx> transactions = new ArrayList<Tx>(txCount);
+        for (int i = 0; i < txCount; i++)
+            transactions.add(transaction(random, 1 + random.nextInt(3), 2));
+        block.setTransactions(transactions);
+        block.setVersion(4);
+        block.setPrevBlockHash(Sha256Hash.wrap(randomBytes(random, 32)));
+        block.setMerkleRoot(block.calculateMerkleRoot());
+        block.setTime(1600000000L);
+        block.setDifficultyTarget(Utils.encodeCompactBits(NET.params().getMaxTarget()));
+        block.setNonce(random.nextInt() & 0xffffffffL);
+        return block;
+    }
+
+    /**
+     * Returns a chain of headers of the given length on top of the genesis block, including the genesis block itself.
+     * The headers are not solved, which the block stores do not check.
+     */
+    static List<LiteBlock> headerChain(Random random, int length) {
+        List<LiteBlock> chain = new ArrayList<LiteBlock>(length);
+        LiteBlock prev = Genesis.getHeaderFor(NET);
+        chain.add(prev);
+        for (int i = 1; i < length; i++) {
+            LiteBlock next = new LiteBlockBean();
+            next.setHeader(new HeaderBean(next));
+            next.setVersion(prev.getVersion());
+            next.setPrevBlockHash(prev.getHash());
+            next.setMerkleRoot(Sha256Hash.wrap(randomBytes(random, 32)));
+            next.setTime(prev.getTime() + 600);
+            next.setDifficultyTarget(prev.getDifficultyTarget());
+            next.setNonce(random.nextInt() & 0xffffffffL);
+            next.setHash(next.calculateHash());
+            prev = ChainUtils.buildNextInChain(prev, next);
+            chain.add(prev);
+        }
+        return chain;
+    }
+}
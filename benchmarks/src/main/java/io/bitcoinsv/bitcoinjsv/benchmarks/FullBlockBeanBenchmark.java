@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.FullBlock;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.FullBlockBean;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serialization of whole blocks. {@link #serialize()} runs against a mutable block so that every
+ * transaction is really re-serialized.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FullBlockBeanBenchmark {
+    @Param({"100", "1000"})
+    public int txCount;
+
+    private FullBlock block;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        block = Fixtures.block(Fixtures.random(), txCount);
+        serialized = block.serialize();
+    }
+
+    @Benchmark
+    public FullBlock parse() {
+        return new FullBlockBean(serialized);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return block.serialize();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSA;
+import io.bitcoinsv.bitcoinjsv.ecc.ECDSASignature;
+import io.bitcoinsv.bitcoinjsv.ecc.GeneratorTableMultiplier;
+import org.openjdk.jmh.annotations.*;
+import org.spongycastle.math.ec.ECMultiplier;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multiples of the secp256k1 generator with Bouncy Castle's comb multiplier versus the precomputed window table, on
+ * their own and inside pure Java signing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorMultiplierBenchmark {
+    @Param({"comb", "table"})
+    private String multiplier;
+
+    private ECMultiplier previous;
+    private BigInteger privKey;
+    private Sha256Hash hash;
+
+    @Setup
+    public void setUp() {
+        previous = ECDSA.getBasePointMultiplier();
+        ECDSA.setBasePointMultiplier("comb".equals(multiplier)
+                ? new FixedPointCombMultiplier() : new GeneratorTableMultiplier());
+        privKey = new BigInteger(1, Fixtures.randomBytes(Fixtures.random(), 32)).mod(ECDSA.CURVE.getN());
+        hash = Sha256Hash.of(Fixtures.randomBytes(Fixtures.random(), 64));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ECDSA.setBasePointMultiplier(previous);
+    }
+
+    @Benchmark
+    public ECPoint multiplyGenerator() {
+        return ECDSA.getBasePointMultiplier().multiply(ECDSA.CURVE.getG(), privKey).normalize();
+    }
+
+    @Benchmark
+    public ECDSASignature sign() {
+        return ECDSA.doSign(hash, privKey);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.crypto.ChildNumber;
+import io.bitcoinsv.bitcoinjsv.crypto.DeterministicKey;
+import io.bitcoinsv.bitcoinjsv.crypto.HDKeyDerivation;
+import io.bitcoinsv.bitcoinjsv.utils.Threading;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BIP 32 derivation: master key creation, a single child step from a private and from a public-only parent, and
+ * a lookahead-sized range of public children derived one at a time versus as a batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HDKeyDerivationBenchmark {
+    private static final ChildNumber NORMAL = new ChildNumber(7, false);
+    private static final ChildNumber HARDENED = new ChildNumber(7, true);
+    private static final int LOOKAHEAD = 1000;
+
+    private byte[] seed;
+    private DeterministicKey master;
+    private DeterministicKey watchingMaster;
+
+    @Setup
+    public void setUp() {
+        seed = Fixtures.randomBytes(Fixtures.random(), 32);
+        master = HDKeyDerivation.createMasterPrivateKey(seed);
+        watchingMaster = HDKeyDerivation.createMasterPubKeyFromBytes(master.getPubKey(), master.getChainCode());
+    }
+
+    @Benchmark
+    public DeterministicKey masterFromSeed() {
+        return HDKeyDerivation.createMasterPrivateKey(seed);
+    }
+
+    @Benchmark
+    public DeterministicKey privateChild() {
+        return HDKeyDerivation.deriveChildKey(master, NORMAL);
+    }
+
+    @Benchmark
+    public DeterministicKey hardenedChild() {
+        return HDKeyDerivation.deriveChildKey(master, HARDENED);
+    }
+
+    @Benchmark
+    public DeterministicKey publicChild() {
+        return HDKeyDerivation.deriveChildKey(watchingMaster, NORMAL);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<DeterministicKey> lookaheadOneByOne() {
+        List<DeterministicKey> keys = new ArrayList<DeterministicKey>(LOOKAHEAD);
+        for (int i = 0; i < LOOKAHEAD; i++)
+            keys.add(HDKeyDerivation.deriveThisOrNextChildKey(watchingMaster, i));
+        return keys;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<DeterministicKey> lookaheadBatch() {
+        return HDKeyDerivation.deriveChildKeys(watchingMaster, 0, LOOKAHEAD, Threading.SAME_THREAD, 1);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<DeterministicKey> lookaheadParallelBatch() {
+        return HDKeyDerivation.deriveChildKeys(watchingMaster, 0, LOOKAHEAD, Threading.THREAD_POOL,
+                Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
+import io.bitcoinsv.bitcoinjsv.script.ScriptUtils;
+import io.bitcoinsv.bitcoinjsv.script.ScriptVerifyFlag;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.Interpreter;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptExecutionException;
+import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+
+/**
+ * Script execution: a standard pay to pubkey hash spend, dominated by signature verification, and two large post
+ * Genesis scripts which stress the interpreter loop itself. {@code arithmetic} runs a long sequence of cheap numeric
+ * opcodes; {@code concat} repeatedly doubles a stack item before hashing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    private static final Set<ScriptVerifyFlag> STANDARD_FLAGS = EnumSet.of(ScriptVerifyFlag.P2SH,
+            ScriptVerifyFlag.STRICTENC, ScriptVerifyFlag.DERSIG, ScriptVerifyFlag.LOW_S,
+            ScriptVerifyFlag.ENABLESIGHASHFORKID, ScriptVerifyFlag.MONOLITH_OPCODES,
+            ScriptVerifyFlag.MAGNETIC_OPCODES, ScriptVerifyFlag.GENESIS_OPCODES);
+
+    /** The number of {@code OP_1 OP_ADD} pairs in the arithmetic script. */
+    @Param({"1000", "10000"})
+    public int arithmeticOps;
+
+    /** The number of {@code OP_DUP OP_CAT} pairs in the concat script, each doubling the 520 byte initial item. */
+    @Param({"8"})
+    public int concatDoublings;
+
+    private Tx tx;
+    private Script scriptSig;
+    private Script scriptPubKey;
+    private Coin value;
+    private Script arithmetic;
+    private Script concat;
+
+    @Setup
+    public void setUp() {
+        Fixtures.SignedSpend spend = Fixtures.signedSpend(Fixtures.random(), 1, 2);
+        tx = spend.tx;
+        scriptSig = spend.scriptSig();
+        scriptPubKey = spend.scriptPubKey;
+        value = spend.value;
+
+        ScriptBuilder builder = new ScriptBuilder().smallNum(0);
+        for (int i = 0; i < arithmeticOps; i++)
+            builder.smallNum(1).op(OP_ADD);
+        arithmetic = builder.build();
+
+        builder = new ScriptBuilder().data(Fixtures.randomBytes(Fixtures.random(), 520));
+        for (int i = 0; i < concatDoublings; i++)
+            builder.op(OP_DUP).op(OP_CAT);
+        concat = builder.op(OP_SHA256).build();
+    }
+
+    @Benchmark
+    public void p2pkh() throws ScriptExecutionException {
+        ScriptUtils.correctlySpends(scriptSig, tx, 0, scriptPubKey, value, STANDARD_FLAGS);
+    }
+
+    @Benchmark
+    public ScriptStack arithmetic() throws ScriptExecutionException {
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, arithmetic, stack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        return stack;
+    }
+
+    @Benchmark
+    public ScriptStack concat() throws ScriptExecutionException {
+        ScriptStack stack = new ScriptStack();
+        Interpreter.executeScript(null, 0, concat, stack, Coin.ZERO, ScriptVerifyFlag.GENESIS_SET);
+        return stack;
+    }
+}
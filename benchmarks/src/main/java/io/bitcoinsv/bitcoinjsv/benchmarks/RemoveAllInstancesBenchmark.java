@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
+import io.bitcoinsv.bitcoinjsv.script.ScriptChunk;
+import io.bitcoinsv.bitcoinjsv.script.SigHash;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.bitcoinsv.bitcoinjsv.script.ScriptOpCodes.*;
+
+/**
+ * Removing signatures from the script code before hashing them for OP_CHECKMULTISIG, in the worst case of a large
+ * script made of nothing but signature sized pushes, half of which are the signatures being removed.
+ * {@link #singlePass} removes all of them at once as the interpreter does; {@link #inTurn} removes them one at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoveAllInstancesBenchmark {
+    /** The number of signatures being checked. */
+    @Param({"20", "200"})
+    public int sigs;
+
+    /** The number of 72 byte pushes in the script code. */
+    @Param({"1000", "10000"})
+    public int pushes;
+
+    private byte[] scriptCode;
+    private List<byte[]> sigPushes;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = Fixtures.random();
+        List<byte[]> sigData = new ArrayList<>(sigs);
+        sigPushes = new ArrayList<>(sigs);
+        for (int i = 0; i < sigs; i++) {
+            byte[] sig = Fixtures.randomBytes(random, 72);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ScriptChunk.writeBytes(bos, sig);
+            sigData.add(sig);
+            sigPushes.add(bos.toByteArray());
+        }
+        ScriptBuilder builder = new ScriptBuilder();
+        for (int i = 0; i < pushes; i++)
+            builder.data(i % 2 == 0 ? Fixtures.randomBytes(random, 72) : sigData.get(random.nextInt(sigs)));
+        scriptCode = builder.op(OP_CHECKMULTISIG).build().getProgram();
+    }
+
+    @Benchmark
+    public byte[] singlePass() {
+        return SigHash.removeAllInstancesOf(scriptCode, sigPushes);
+    }
+
+    @Benchmark
+    public byte[] inTurn() {
+        byte[] script = scriptCode;
+        for (byte[] sigPush : sigPushes)
+            script = SigHash.removeAllInstancesOf(script, sigPush);
+        return script;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single and double SHA-256 over inputs ranging from a hash to a megabyte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Sha256HashBenchmark {
+    @Param({"32", "80", "1024", "1048576"})
+    public int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        data = Fixtures.randomBytes(Fixtures.random(), size);
+    }
+
+    @Benchmark
+    public byte[] hash() {
+        return Sha256Hash.hash(data);
+    }
+
+    @Benchmark
+    public byte[] hashTwice() {
+        return Sha256Hash.hashTwice(data);
+    }
+}
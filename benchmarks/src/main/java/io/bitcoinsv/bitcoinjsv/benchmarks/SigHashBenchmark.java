@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.core.Coin;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.script.SigHash;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature hash computation for transactions with a growing number of inputs. {@link #forkIdAllInputs} hashes every
+ * input of the transaction, which is the work needed to verify it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigHashBenchmark {
+    @Param({"1", "10", "100"})
+    public int inputs;
+
+    private Tx tx;
+    private byte[] scriptCode;
+    private Coin value;
+
+    @Setup
+    public void setUp() {
+        Fixtures.SignedSpend spend = Fixtures.signedSpend(Fixtures.random(), inputs, 2);
+        tx = spend.tx;
+        scriptCode = spend.scriptPubKey.getProgram();
+        value = spend.value;
+    }
+
+    @Benchmark
+    public Sha256Hash forkId() {
+        return SigHash.hashForForkIdSignature(tx, 0, scriptCode, value, SigHash.Flags.ALL, false);
+    }
+
+    @Benchmark
+    public Sha256Hash legacy() {
+        return SigHash.hashForLegacySignature(tx, 0, scriptCode, (byte) SigHash.Flags.ALL.value);
+    }
+
+    @Benchmark
+    public void forkIdAllInputs(Blackhole blackhole) {
+        for (int i = 0; i < inputs; i++)
+            blackhole.consume(SigHash.hashForForkIdSignature(tx, i, scriptCode, value, SigHash.Flags.ALL, false));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.benchmarks;
+
+import io.bitcoinsv.bitcoinjsv.bitcoin.api.base.Tx;
+import io.bitcoinsv.bitcoinjsv.bitcoin.bean.base.TxBean;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serialization of transactions of increasing size. {@link #serialize()} runs against a mutable transaction
+ * so that the bytes are really rebuilt rather than returned from the cached payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TxBeanBenchmark {
+    @Param({"1", "10", "100"})
+    public int inputs;
+
+    private Tx tx;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        tx = Fixtures.transaction(Fixtures.random(), inputs, 2);
+        serialized = tx.serialize();
+    }
+
+    @Benchmark
+    public Tx parse() {
+        return new TxBean(serialized);
+    }
+
+    @Benchmark
+    public Sha256Hash parseAndHash() {
+        return new TxBean(serialized).getHash();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return tx.serialize();
+    }
+}
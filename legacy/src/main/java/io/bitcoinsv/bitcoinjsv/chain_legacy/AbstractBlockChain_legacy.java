@@ -29,6 +29,8 @@ import io.bitcoinsv.bitcoinjsv.core.listeners.ReorganizeListener;
 import io.bitcoinsv.bitcoinjsv.exception.BlockStoreException;
 import io.bitcoinsv.bitcoinjsv.exception.PrunedException;
 import io.bitcoinsv.bitcoinjsv.exception.VerificationException;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import io.bitcoinsv.bitcoinjsv.msg.Serializer;
 import io.bitcoinsv.bitcoinjsv.bitcoin.api.extended.ChainInfoReadOnly;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.Block;
@@ -101,6 +103,7 @@ import static com.google.common.base.Preconditions.*;
 public abstract class AbstractBlockChain_legacy {
     private static final Logger log = LoggerFactory.getLogger(AbstractBlockChain_legacy.class);
     protected final ReentrantLock lock = Threading.lock("blockchain");
+    private static final Counter BLOCKS_CONNECTED = Metrics.counter("chain.blocks.connected");
 
     /** Keeps a map of block hashes to StoredBlocks. */
     private final BlockStore_legacy blockStore;
@@ -564,6 +567,7 @@ public abstract class AbstractBlockChain_legacy {
                     block.getParsedTransactions() == null ? block : block.cloneAsHeader(), txOutChanges);
             versionTally.add(block.getVersion());
             setChainHead(newStoredBlock);
+            BLOCKS_CONNECTED.increment();
             log.debug("Chain is now {} blocks high, running listeners", newStoredBlock.getHeight());
             informListenersForNewBlock(block, AbstractBlockChain.NewBlockType.BEST_CHAIN, filteredTxHashList, filteredTxn, newStoredBlock);
         } else {
@@ -26,6 +26,7 @@ import io.bitcoinsv.bitcoinjsv.msg.protocol.TransactionInput;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.TransactionOutput;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
 import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptCache;
 import io.bitcoinsv.bitcoinjsv.script.ScriptUtils;
 import io.bitcoinsv.bitcoinjsv.script.ScriptUtils_legacy;
 import io.bitcoinsv.bitcoinjsv.script.ScriptVerifyFlag;
@@ -160,7 +161,7 @@ public class FullPrunedBlockChain_legacy extends AbstractBlockChain_legacy {
      */
     private Script getScript(byte[] scriptBytes) {
         try {
-            return new Script(scriptBytes);
+            return ScriptCache.getDefault().parse(scriptBytes);
         } catch (Exception e) {
             return new Script(new byte[0]);
         }
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.core;
+
+import io.bitcoinsv.bitcoinjsv.msg.p2p.CompactBlockMessage;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
+
+/**
+ * Supplies the transactions a {@link Peer} tries to rebuild {@link CompactBlockMessage}s from before it downloads
+ * whatever is still missing. A node would return its memory pool; a wallet could return the unconfirmed transactions
+ * it has seen relayed.
+ */
+public interface CompactBlockTxSource {
+    /**
+     * Returns the candidate transactions. The result is iterated once per compact block, on the network thread, so it
+     * should be cheap to produce and must be safe to iterate while the source is being updated.
+     */
+    Iterable<Transaction> getTransactions();
+}
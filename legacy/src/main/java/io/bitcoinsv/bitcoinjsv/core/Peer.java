@@ -39,6 +39,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import io.bitcoinsv.bitcoinjsv.core.listeners.*;
 import io.bitcoinsv.bitcoinjsv.msg.Genesis_legacy;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.SerializedMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.*;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.*;
 import io.bitcoinsv.bitcoinjsv.net.AbstractTimeoutHandler;
@@ -49,13 +50,16 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
+import java.nio.channels.NotYetConnectedException;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -149,6 +153,18 @@ public class Peer extends PeerSocketHandler {
     private final HashSet<TransactionConfidence> pendingTxDownloads = new HashSet<TransactionConfidence>();
     // The lowest version number we're willing to accept. Lower than this will result in an immediate disconnect.
     private volatile int vMinProtocolVersion;
+    // Where to look for the transactions of compact blocks. New blocks are only requested as compact blocks if set.
+    @Nullable private volatile CompactBlockTxSource vCompactBlockTxSource;
+    // Set once we have sent sendcmpct, which may happen at the end of the handshake or when a source is set later.
+    private final AtomicBoolean sentSendCompact = new AtomicBoolean();
+    // Compact blocks which are waiting for the transactions we requested with getblocktxn, oldest first. Bounded so
+    // that a peer which never answers cannot make us hold on to an unlimited number of them. Blocks which are pushed
+    // out, or whose transactions don't arrive in time, are downloaded in full instead.
+    private static final int MAX_PENDING_COMPACT_BLOCKS = 16;
+    private static final long BLOCK_TXN_TIMEOUT_MILLIS = 20 * 1000;
+    private static final Timer blockTxnTimer = new Timer("Peer getblocktxn timeouts", true);
+    @GuardedBy("lock") private final Map<Sha256Hash, PartiallyDownloadedBlock> pendingCompactBlocks =
+            new LinkedHashMap<Sha256Hash, PartiallyDownloadedBlock>();
     // When an API user explicitly requests a block or transaction from a peer, the InventoryItem is put here
     // whilst waiting for the response. Is not used for downloads Peer generates itself.
     private static class GetDataRequest {
@@ -507,6 +523,13 @@ public class Peer extends PeerSocketHandler {
             processInv((InventoryMessage) m);
         } else if (m instanceof Block) {
             processBlock((Block) m);
+        } else if (m instanceof CompactBlockMessage) {
+            processCompactBlock((CompactBlockMessage) m);
+        } else if (m instanceof BlockTxnMessage) {
+            processBlockTxn((BlockTxnMessage) m);
+        } else if (m instanceof SendCompactMessage || m instanceof GetBlockTxnMessage) {
+            // We never relay blocks, so there is nothing to do when a peer offers to receive compact blocks.
+            log.debug("{}: Ignoring {}", this, m);
         } else if (m instanceof FilteredBlock) {
             startFilteredBlock((FilteredBlock) m);
         } else if (m instanceof Transaction) {
@@ -628,7 +651,16 @@ public class Peer extends PeerSocketHandler {
             log.warn("Connected to a peer speaking protocol version {} but need {}, closing",
                     vPeerVersionMessage.clientVersion, version);
             close();
+            return;
         }
+        maybeSendCompact();
+    }
+
+    // Tells the peer we understand compact blocks, once. We don't want them pushed unannounced, as we only request
+    // them while downloading the chain.
+    private void maybeSendCompact() {
+        if (vCompactBlockTxSource != null && isCompactBlocksSupported() && sentSendCompact.compareAndSet(false, true))
+            sendMessage(new SendCompactMessage(params.getNet(), false, SendCompactMessage.VERSION));
     }
 
     protected void startFilteredBlock(FilteredBlock m) {
@@ -1054,6 +1086,116 @@ public class Peer extends PeerSocketHandler {
         }
     }
 
+    protected void processCompactBlock(CompactBlockMessage m) {
+        final Sha256Hash hash = m.getBlockHash();
+        if (log.isDebugEnabled())
+            log.debug("{}: Received compact block {}", getAddress(), hash);
+        CompactBlockTxSource source = vCompactBlockTxSource;
+        final PartiallyDownloadedBlock partialBlock;
+        try {
+            partialBlock = new PartiallyDownloadedBlock(m,
+                    source != null ? source.getTransactions() : Collections.<Transaction>emptyList());
+        } catch (ProtocolException e) {
+            log.info("{}: Cannot reconstruct compact block {}, downloading it in full: {}", getAddress(), hash,
+                    e.getMessage());
+            requestFullBlock(hash);
+            return;
+        }
+        if (partialBlock.isComplete()) {
+            completeCompactBlock(partialBlock);
+            return;
+        }
+        int[] missing = partialBlock.getMissingIndexes();
+        if (log.isDebugEnabled())
+            log.debug("{}: Requesting {} of {} transactions of compact block {}", getAddress(), missing.length,
+                    m.getTransactionCount(), hash);
+        Sha256Hash evicted = null;
+        lock.lock();
+        try {
+            pendingCompactBlocks.put(hash, partialBlock);
+            if (pendingCompactBlocks.size() > MAX_PENDING_COMPACT_BLOCKS) {
+                Iterator<Sha256Hash> it = pendingCompactBlocks.keySet().iterator();
+                evicted = it.next();
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (evicted != null) {
+            log.info("{}: Too many compact blocks waiting for transactions, downloading {} in full", getAddress(),
+                    evicted);
+            requestFullBlock(evicted);
+        }
+        sendMessage(new GetBlockTxnMessage(params.getNet(), hash, missing));
+        blockTxnTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                blockTxnTimedOut(hash, partialBlock);
+            }
+        }, BLOCK_TXN_TIMEOUT_MILLIS);
+    }
+
+    private void blockTxnTimedOut(Sha256Hash hash, PartiallyDownloadedBlock partialBlock) {
+        boolean pending;
+        lock.lock();
+        try {
+            // A block which was answered, evicted or requested again since is no longer ours to time out.
+            pending = pendingCompactBlocks.remove(hash, partialBlock);
+        } finally {
+            lock.unlock();
+        }
+        if (!pending)
+            return;
+        log.info("{}: No blocktxn for compact block {}, downloading it in full", getAddress(), hash);
+        try {
+            requestFullBlock(hash);
+        } catch (NotYetConnectedException e) {
+            log.debug("{}: Disconnected before the full block could be requested", getAddress());
+        }
+    }
+
+    protected void processBlockTxn(BlockTxnMessage m) {
+        final Sha256Hash hash = m.getBlockHash();
+        PartiallyDownloadedBlock partialBlock;
+        lock.lock();
+        try {
+            partialBlock = pendingCompactBlocks.remove(hash);
+        } finally {
+            lock.unlock();
+        }
+        if (partialBlock == null) {
+            log.debug("{}: Received blocktxn for a block we are not reconstructing: {}", getAddress(), hash);
+            return;
+        }
+        try {
+            partialBlock.fillMissing(m.getTransactions());
+        } catch (ProtocolException e) {
+            log.info("{}: Bad blocktxn for compact block {}, downloading it in full: {}", getAddress(), hash,
+                    e.getMessage());
+            requestFullBlock(hash);
+            return;
+        }
+        completeCompactBlock(partialBlock);
+    }
+
+    private void completeCompactBlock(PartiallyDownloadedBlock partialBlock) {
+        Block block = partialBlock.build();
+        if (block == null) {
+            // A short ID matched a transaction of ours which is not the one in the block.
+            log.info("{}: Compact block {} does not match its merkle root, downloading it in full", getAddress(),
+                    partialBlock.getBlockHash());
+            requestFullBlock(partialBlock.getBlockHash());
+            return;
+        }
+        processBlock(block);
+    }
+
+    private void requestFullBlock(Sha256Hash hash) {
+        GetDataMessage getdata = new GetDataMessage(params.getNet());
+        getdata.addBlock(hash);
+        sendMessage(getdata);
+    }
+
     // TODO: Fix this duplication.
     protected void endFilteredBlock(FilteredBlock m) {
         if (log.isDebugEnabled())
@@ -1287,6 +1429,8 @@ public class Peer extends PeerSocketHandler {
                             if (vPeerVersionMessage.isBloomFilteringSupported() && useFilteredBlocks) {
                                 getdata.addFilteredBlock(item.hash);
                                 pingAfterGetData = true;
+                            } else if (vCompactBlockTxSource != null && isCompactBlocksSupported()) {
+                                getdata.addItem(new InventoryItem(InventoryItem.Type.CompactBlock, item.hash));
                             } else {
                                 getdata.addItem(item);
                             }
@@ -1664,6 +1808,27 @@ public class Peer extends PeerSocketHandler {
         return vPeerVersionMessage.clientVersion >= NotFoundMessage.MIN_PROTOCOL_VERSION;
     }
 
+    /** Returns true if the remote peer speaks a protocol version which can send compact blocks. */
+    public boolean isCompactBlocksSupported() {
+        VersionMessage ver = vPeerVersionMessage;
+        return ver != null && ver.clientVersion >= CompactBlockMessage.MIN_PROTOCOL_VERSION;
+    }
+
+    /**
+     * <p>Sets where to look for the transactions of new blocks, typically a memory pool. Once set, blocks are
+     * requested from peers which support it as compact blocks (BIP 152): a header plus a short ID per transaction.
+     * Only the transactions which cannot be found in the given source are then downloaded, so a block whose
+     * transactions were already relayed to us costs a small fraction of its full size.</p>
+     *
+     * <p>If the version handshake has already completed the peer is told straight away that we understand compact
+     * blocks. Pass null, the default, to always download full blocks.</p>
+     */
+    public void setCompactBlockTxSource(@Nullable CompactBlockTxSource source) {
+        this.vCompactBlockTxSource = source;
+        if (versionHandshakeFuture.isDone() && !versionHandshakeFuture.isCancelled())
+            maybeSendCompact();
+    }
+
     /**
      * Returns true if this peer will try and download things it is sent in "inv" messages. Normally you only need
      * one peer to be downloading data. Defaults to true.
@@ -1760,6 +1925,23 @@ public class Peer extends PeerSocketHandler {
         maybeRestartChainDownload();
     }
 
+    /**
+     * Like {@link #setBloomFilter(BloomFilter, boolean)}, but sends frames which the {@link PeerGroup} serialized once
+     * for all of its peers. The mempool is only queried if a frame is given for it.
+     */
+    void setBloomFilter(BloomFilter filter, SerializedMessage filterFrame, @Nullable SerializedMessage memPoolFrame) {
+        checkArgument(filterFrame.getMessage() == filter, "Frame does not hold the filter");
+        final VersionMessage ver = vPeerVersionMessage;
+        if (ver == null || !ver.isBloomFilteringSupported())
+            return;
+        vBloomFilter = filter;
+        log.debug("{}: Sending Bloom filter{}", this, memPoolFrame != null ? " and querying mempool" : "");
+        sendMessage(filterFrame);
+        if (memPoolFrame != null)
+            sendMessage(memPoolFrame);
+        maybeRestartChainDownload();
+    }
+
     private void maybeRestartChainDownload() {
         lock.lock();
         try {
@@ -26,6 +26,9 @@ import com.google.common.util.concurrent.*;
 import io.bitcoinsv.bitcoinjsv.chain_legacy.AbstractBlockChain_legacy;
 import io.bitcoinsv.bitcoinjsv.exception.PeerDiscoveryException;
 import io.bitcoinsv.bitcoinjsv.exception.VerificationException;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Gauge;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.Block;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.TransactionOutput;
@@ -42,6 +45,7 @@ import io.bitcoinsv.bitcoinjsv.temp.listener.WalletCoinsReceivedEventListener;
 import io.bitcoinsv.bitcoinjsv.core.listeners.*;
 import io.bitcoinsv.bitcoinjsv.msg.Genesis_legacy;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.SerializedMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.*;
 import io.bitcoinsv.bitcoinjsv.net.ClientConnectionManager;
 import io.bitcoinsv.bitcoinjsv.net.FilterMerger;
@@ -128,6 +132,13 @@ public class PeerGroup implements TransactionBroadcaster {
 
     // Currently active peers. This is an ordered list rather than a set to make unit tests predictable.
     private final CopyOnWriteArrayList<Peer> peers;
+    private static final String CONNECTED_PEERS_GAUGE = "net.peers.connected";
+    private final Gauge connectedPeersGauge = new Gauge() {
+        @Override
+        public double value() {
+            return peers.size();
+        }
+    };
     // Currently connecting peers.
     private final CopyOnWriteArrayList<Peer> pendingPeers;
     private final ClientConnectionManager channels;
@@ -167,6 +178,7 @@ public class PeerGroup implements TransactionBroadcaster {
     @GuardedBy("lock") private int maxConnections;
     // Minimum protocol version we will allow ourselves to connect to: require Bloom filtering.
     private volatile int vMinRequiredProtocolVersion;
+    @Nullable private volatile CompactBlockTxSource vCompactBlockTxSource;
 
     /** How many milliseconds to wait after receiving a pong before sending another ping. */
     public static final long DEFAULT_PING_INTERVAL_MSEC = 2000;
@@ -1076,6 +1088,7 @@ public class PeerGroup implements TransactionBroadcaster {
         checkState(!vUsedUp, "Cannot start a peer group twice");
         vRunning = true;
         vUsedUp = true;
+        Metrics.gauge(CONNECTED_PEERS_GAUGE, connectedPeersGauge);
         executorStartupLatch.countDown();
         // We do blocking waits during startup, so run on the executor thread.
         return executor.submit(new Runnable() {
@@ -1108,6 +1121,7 @@ public class PeerGroup implements TransactionBroadcaster {
     public ListenableFuture stopAsync() {
         checkState(vRunning);
         vRunning = false;
+        Metrics.removeGauge(CONNECTED_PEERS_GAUGE, connectedPeersGauge);
         ListenableFuture future = executor.submit(new Runnable() {
             @Override
             public void run() {
@@ -1310,11 +1324,24 @@ public class PeerGroup implements TransactionBroadcaster {
                         throw new UnsupportedOperationException();
                 }
                 if (send) {
+                    // Only query the mempool if this recalculation request is not in order to lower the observed FP
+                    // rate. There's no point querying the mempool when doing this because the FP rate can only go
+                    // down, and we will have seen all the relevant txns before: it's pointless to ask for them again.
+                    boolean queryMemPool = mode != FilterRecalculateMode.FORCE_SEND_FOR_REFRESH;
+                    // Serialize the filter once and share the frame between all peers.
+                    SerializedMessage filterFrame = null;
+                    SerializedMessage memPoolFrame = null;
                     for (Peer peer : peers /* COW */) {
-                        // Only query the mempool if this recalculation request is not in order to lower the observed FP
-                        // rate. There's no point querying the mempool when doing this because the FP rate can only go
-                        // down, and we will have seen all the relevant txns before: it's pointless to ask for them again.
-                        peer.setBloomFilter(result.filter, mode != FilterRecalculateMode.FORCE_SEND_FOR_REFRESH);
+                        try {
+                            if (filterFrame == null) {
+                                filterFrame = peer.serializeMessage(result.filter);
+                                if (queryMemPool)
+                                    memPoolFrame = peer.serializeMessage(new MemoryPoolMessage());
+                            }
+                            peer.setBloomFilter(result.filter, filterFrame, memPoolFrame);
+                        } catch (IOException e) {
+                            log.error("Caught exception serializing Bloom filter for {}", peer, e);
+                        }
                     }
                     // Reset the false positive estimate so that we don't send a flood of filter updates
                     // if the estimate temporarily overshoots our threshold.
@@ -1337,6 +1364,28 @@ public class PeerGroup implements TransactionBroadcaster {
         return future;
     }
     
+    /**
+     * Announces the given transactions to every connected peer with an inv message. The message is serialized once and
+     * the same frame is shared by all peers. Returns the number of peers it was sent to.
+     */
+    public int announceTransactions(Transaction... transactions) {
+        checkArgument(transactions.length > 0, "No transactions to announce");
+        InventoryMessage inv = InventoryMessage.with(transactions);
+        SerializedMessage frame = null;
+        int sent = 0;
+        for (Peer peer : peers /* COW */) {
+            try {
+                if (frame == null)
+                    frame = peer.serializeMessage(inv);
+                peer.sendMessage(frame);
+                sent++;
+            } catch (Exception e) {
+                log.error("Caught exception announcing transactions to {}", peer, e);
+            }
+        }
+        return sent;
+    }
+
     /**
      * <p>Sets the false positive rate of bloom filters given to peers. The default is {@link #DEFAULT_BLOOM_FILTER_FP_RATE}.</p>
      *
@@ -1419,6 +1468,7 @@ public class PeerGroup implements TransactionBroadcaster {
         peer.addConnectedEventListener(Threading.SAME_THREAD, startupListener);
         peer.addDisconnectedEventListener(Threading.SAME_THREAD, startupListener);
         peer.setMinProtocolVersion(vMinRequiredProtocolVersion);
+        peer.setCompactBlockTxSource(vCompactBlockTxSource);
         pendingPeers.add(peer);
 
         try {
@@ -1789,6 +1839,10 @@ public class PeerGroup implements TransactionBroadcaster {
         }
     }
 
+    private static final Counter DOWNLOADED_BLOCKS = Metrics.counter("chain.download.blocks");
+    private static final Counter DOWNLOADED_TXNS = Metrics.counter("chain.download.transactions");
+    private static final Counter DOWNLOADED_BYTES = Metrics.counter("chain.download.bytes");
+
     private class ChainDownloadSpeedCalculator implements BlocksDownloadedEventListener, Runnable {
         private int blocksInLastSecond, txnsInLastSecond, origTxnsInLastSecond;
         private long bytesInLastSecond;
@@ -1808,6 +1862,7 @@ public class PeerGroup implements TransactionBroadcaster {
 
         @Override
         public synchronized void onBlocksDownloaded(Peer peer, Block block, @Nullable FilteredBlock filteredBlock, int blocksLeft) {
+            long bytesBefore = bytesInLastSecond;
             blocksInLastSecond++;
             bytesInLastSecond += Block.HEADER_SIZE;
             List<Transaction> blockTransactions = block.getTransactions();
@@ -1815,6 +1870,9 @@ public class PeerGroup implements TransactionBroadcaster {
             int txCount = (blockTransactions != null ? countAndMeasureSize(blockTransactions) : 0) +
                           (filteredBlock != null ? countAndMeasureSize(filteredBlock.getAssociatedTransactions().values()) : 0);
             txnsInLastSecond = txnsInLastSecond + txCount;
+            DOWNLOADED_BLOCKS.increment();
+            DOWNLOADED_TXNS.increment(txCount);
+            DOWNLOADED_BYTES.increment(bytesInLastSecond - bytesBefore);
             if (filteredBlock != null)
                 origTxnsInLastSecond += filteredBlock.getTransactionCount();
         }
@@ -2183,6 +2241,14 @@ public class PeerGroup implements TransactionBroadcaster {
         return vMinRequiredProtocolVersion;
     }
 
+    /**
+     * Sets where peers look for the transactions of blocks they download as compact blocks, see
+     * {@link Peer#setCompactBlockTxSource(CompactBlockTxSource)}. This applies to peers connected from now on.
+     */
+    public void setCompactBlockTxSource(@Nullable CompactBlockTxSource source) {
+        this.vCompactBlockTxSource = source;
+    }
+
     /**
      * Returns our peers most commonly reported chain height. If multiple heights are tied, the highest is returned.
      * If no peers are connected, returns zero.
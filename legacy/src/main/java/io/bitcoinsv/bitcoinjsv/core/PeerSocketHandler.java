@@ -26,13 +26,13 @@ import com.google.common.annotations.VisibleForTesting;
 import io.bitcoinsv.bitcoinjsv.msg.BitcoinSerializer;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
 import io.bitcoinsv.bitcoinjsv.msg.MessageSerializer;
+import io.bitcoinsv.bitcoinjsv.msg.SerializedMessage;
 import io.bitcoinsv.bitcoinjsv.msg.Serializer;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.*;
 import io.bitcoinsv.bitcoinjsv.net.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
@@ -40,6 +40,7 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.NotYetConnectedException;
+import java.security.MessageDigest;
 import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.*;
@@ -64,6 +65,9 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
     // messages which are larger than the read buffer, we have to keep a temporary buffer with its bytes.
     private byte[] largeReadBuffer;
     private int largeReadBufferPos;
+    // Hashes the largeReadBuffer as it fills, so the checksum is ready as soon as the last byte of the message arrives
+    // and the payload does not need to be read a second time.
+    private MessageDigest largeReadDigest;
     private BitcoinSerializer.BitcoinPacketHeader header;
 
     private Lock lock = Threading.lock("PeerSocketHandler");
@@ -86,6 +90,46 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
      * TODO: Maybe use something other than the unchecked NotYetConnectedException here
      */
     public void sendMessage(Message message) throws NotYetConnectedException {
+        logOutboundMessage(message);
+        checkConnected();
+        // Hand the serialization buffer straight to the write target rather than copying it out with toByteArray()
+        UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+        try {
+            serializer.serialize(message, out);
+            writeTarget.writeBytes(ByteBuffer.wrap(out.getBackingArray(), 0, out.size()));
+        } catch (IOException e) {
+            exceptionCaught(e);
+        } catch (CancelledKeyException e) {
+            exceptionCaught(e);
+        }
+    }
+
+    /**
+     * Sends a message which has already been serialized, typically one that is being sent to many peers. The frame's
+     * bytes are shared with every other peer it is sent to rather than copied. The frame must have been serialized for
+     * the same network as this peer. Throws NotYetConnectedException if we are not yet connected to the remote peer.
+     */
+    public void sendMessage(SerializedMessage message) throws NotYetConnectedException {
+        logOutboundMessage(message.getMessage());
+        checkConnected();
+        try {
+            writeTarget.writeBytes(message.newBuffer());
+        } catch (IOException e) {
+            exceptionCaught(e);
+        } catch (CancelledKeyException e) {
+            exceptionCaught(e);
+        }
+    }
+
+    /**
+     * Serializes the given message for this peer's network, so that it can be sent to many peers with
+     * {@link #sendMessage(SerializedMessage)}.
+     */
+    public SerializedMessage serializeMessage(Message message) throws IOException {
+        return serializer.serializeFrame(message);
+    }
+
+    private void logOutboundMessage(Message message) {
         if (message instanceof Ping || message instanceof Pong) {
             //ignore
         } else {
@@ -95,10 +139,10 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
             ) {
                 log.info("{}: Sending message: {}", this, message.getClass().getSimpleName());
             }
-            if (message instanceof GetAddrMessage) {
-                int i = 0;
-            }
         }
+    }
+
+    private void checkConnected() throws NotYetConnectedException {
         lock.lock();
         try {
             if (writeTarget == null)
@@ -106,16 +150,6 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
         } finally {
             lock.unlock();
         }
-        // TODO: Some round-tripping could be avoided here
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            serializer.serialize(message, out);
-            writeTarget.writeBytes(out.toByteArray());
-        } catch (IOException e) {
-            exceptionCaught(e);
-        } catch (CancelledKeyException e) {
-            exceptionCaught(e);
-        }
     }
 
     /**
@@ -160,12 +194,16 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
                     // Read new bytes into the largeReadBuffer
                     int bytesToGet = Math.min(buff.remaining(), largeReadBuffer.length - largeReadBufferPos);
                     buff.get(largeReadBuffer, largeReadBufferPos, bytesToGet);
+                    largeReadDigest.update(largeReadBuffer, largeReadBufferPos, bytesToGet);
                     largeReadBufferPos += bytesToGet;
                     // Check the largeReadBuffer's status
                     if (largeReadBufferPos == largeReadBuffer.length) {
-                        // ...processing a message if one is available
-                        processMessage(serializer.deserializePayload(header, ByteBuffer.wrap(largeReadBuffer)));
+                        // ...processing a message if one is available. The message takes ownership of the buffer.
+                        byte[] hash = largeReadDigest.digest(largeReadDigest.digest());
+                        byte[] payload = largeReadBuffer;
                         largeReadBuffer = null;
+                        largeReadDigest = null;
+                        processMessage(serializer.deserializePayload(header, payload, hash));
                         header = null;
                         firstMessage = false;
                     } else // ...or just returning if we don't have enough bytes yet
@@ -189,6 +227,8 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
                             largeReadBuffer = new byte[header.size];
                             largeReadBufferPos = buff.remaining();
                             buff.get(largeReadBuffer, 0, largeReadBufferPos);
+                            largeReadDigest = Sha256Hash.newDigest();
+                            largeReadDigest.update(largeReadBuffer, 0, largeReadBufferPos);
                         } catch (BufferUnderflowException e1) {
                             // If we went through a whole buffer's worth of bytes without getting a header, give up
                             // In cases where the buff is just really small, we could create a second largeReadBuffer
@@ -20,6 +20,7 @@ import com.google.common.annotations.*;
 import com.google.common.base.*;
 import com.google.common.util.concurrent.*;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.SerializedMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.RejectMessage;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.TxHelper;
@@ -151,9 +152,13 @@ public class TransactionBroadcast {
             peers = peers.subList(0, numToBroadcastTo);
             log.info("broadcastTransaction: We have {} peers, adding {} to the memory pool", numConnected, tx.getHashAsString());
             log.info("Sending to {} peers, will wait for {}, sending to: {}", numToBroadcastTo, numWaitingFor, Joiner.on(",").join(peers));
+            // Serialize the tx once and share the resulting frame between all the peers we send it to.
+            SerializedMessage frame = null;
             for (Peer peer : peers) {
                 try {
-                    peer.sendMessage(tx);
+                    if (frame == null)
+                        frame = peer.serializeMessage(tx);
+                    peer.sendMessage(frame);
                     // We don't record the peer as having seen the tx in the memory pool because we want to track only
                     // how many peers announced to us.
                 } catch (Exception e) {
@@ -19,12 +19,15 @@ package io.bitcoinsv.bitcoinjsv.crypto;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.protobuf.ByteString;
-import com.lambdaworks.crypto.SCrypt;
 import io.bitcoinsv.bitcoinjsv.core.Utils;
 import io.bitcoinsv.bitcoinjsv.protos.Protos;
 import io.bitcoinsv.bitcoinjsv.protos.Protos.ScryptParameters;
 import io.bitcoinsv.bitcoinjsv.protos.Protos.Wallet.EncryptionType;
+import io.bitcoinsv.bitcoinjsv.utils.Threading;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.crypto.BufferedBlockCipher;
@@ -36,6 +39,9 @@ import org.spongycastle.crypto.params.ParametersWithIV;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -52,6 +58,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
  *
  * <p>2) Using the AES Key generated above, you then can encrypt and decrypt any bytes using
  * the AES symmetric cipher. Eight bytes of salt is used to prevent dictionary attacks.</p>
+ *
+ * <p>Deriving a key is deliberately slow. {@link #deriveKeyAsync(CharSequence)} does it on a background thread, scrypt
+ * parameters with p greater than one are mixed on several threads at once, and {@link #setKeyCacheTtl(long, TimeUnit)}
+ * keeps derived keys around for a while so that the same password isn't stretched again.</p>
  */
 @SuppressWarnings("ProtoFieldNullComparison")       // todo: if we're going to keep this, then fix: https://errorprone.info/bugpattern/ProtoFieldNullComparison
 public class KeyCrypterScrypt implements KeyCrypter {
@@ -94,6 +104,9 @@ public class KeyCrypterScrypt implements KeyCrypter {
     // Scrypt parameters.
     private final ScryptParameters scryptParameters;
 
+    private transient volatile Executor executor;
+    private transient volatile PasswordKeyCache keyCache;
+
     /**
      * Encryption/Decryption using default parameters and a random salt.
      */
@@ -147,6 +160,55 @@ public class KeyCrypterScrypt implements KeyCrypter {
         byte[] passwordBytes = null;
         try {
             passwordBytes = convertToByteArray(password);
+            PasswordKeyCache cache = keyCache;
+            KeyParameter cached = cache != null ? cache.get(passwordBytes) : null;
+            return cached != null ? cached : deriveAndCache(passwordBytes);
+        } finally {
+            // Zero the password bytes.
+            if (passwordBytes != null) {
+                java.util.Arrays.fill(passwordBytes, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Generate the AES key on the executor set with {@link #setExecutor(Executor)} rather than the calling thread. The
+     * password is copied before this method returns, so the caller may wipe it straight away. If the key is cached the
+     * returned future is already done.
+     *
+     * @param password    The password to use in key generation
+     * @return            A future for the KeyParameter, which fails with a KeyCrypterException if no key could be derived
+     */
+    @Override
+    public ListenableFuture<KeyParameter> deriveKeyAsync(CharSequence password) {
+        final byte[] passwordBytes = convertToByteArray(password);
+        PasswordKeyCache cache = keyCache;
+        KeyParameter cached = cache != null ? cache.get(passwordBytes) : null;
+        if (cached != null) {
+            Arrays.fill(passwordBytes, (byte) 0);
+            return Futures.immediateFuture(cached);
+        }
+        ListenableFutureTask<KeyParameter> task = ListenableFutureTask.create(new Callable<KeyParameter>() {
+            @Override
+            public KeyParameter call() throws KeyCrypterException {
+                try {
+                    return deriveAndCache(passwordBytes);
+                } finally {
+                    Arrays.fill(passwordBytes, (byte) 0);
+                }
+            }
+        });
+        try {
+            getExecutor().execute(task);
+        } catch (RuntimeException e) {
+            Arrays.fill(passwordBytes, (byte) 0);
+            throw e;
+        }
+        return task;
+    }
+
+    private KeyParameter deriveAndCache(byte[] passwordBytes) throws KeyCrypterException {
+        try {
             byte[] salt = new byte[0];
             if ( scryptParameters.getSalt() != null) {
                 salt = scryptParameters.getSalt().toByteArray();
@@ -157,20 +219,51 @@ public class KeyCrypterScrypt implements KeyCrypter {
             }
 
             final Stopwatch watch = Stopwatch.createStarted();
-            byte[] keyBytes = SCrypt.scrypt(passwordBytes, salt, (int) scryptParameters.getN(), scryptParameters.getR(), scryptParameters.getP(), KEY_LENGTH);
+            byte[] keyBytes = ParallelSCrypt.scrypt(passwordBytes, salt, (int) scryptParameters.getN(),
+                    scryptParameters.getR(), scryptParameters.getP(), KEY_LENGTH, getExecutor());
             watch.stop();
             log.info("Deriving key took {} for {} scrypt iterations.", watch, scryptParameters.getN());
-            return new KeyParameter(keyBytes);
+            KeyParameter key = new KeyParameter(keyBytes);
+            PasswordKeyCache cache = keyCache;
+            if (cache != null)
+                cache.put(passwordBytes, key);
+            return key;
         } catch (Exception e) {
             throw new KeyCrypterException("Could not generate key from password and salt.", e);
-        } finally {
-            // Zero the password bytes.
-            if (passwordBytes != null) {
-                java.util.Arrays.fill(passwordBytes, (byte) 0);
-            }
         }
     }
 
+    /**
+     * Sets the executor which {@link #deriveKeyAsync(CharSequence)} runs on and which helps mixing scrypt blocks in
+     * parallel when p is greater than one. Defaults to {@link Threading#THREAD_POOL}.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = checkNotNull(executor);
+    }
+
+    private Executor getExecutor() {
+        Executor executor = this.executor;
+        return executor != null ? executor : Threading.THREAD_POOL;
+    }
+
+    /**
+     * Keeps each derived key for the given time, so that deriving a key from the same password again within that time
+     * returns at once. This is off by default; a time of zero turns it off again and wipes the cached keys.
+     */
+    public void setKeyCacheTtl(long ttl, TimeUnit unit) {
+        PasswordKeyCache previous = keyCache;
+        keyCache = ttl > 0 ? new PasswordKeyCache(ttl, unit) : null;
+        if (previous != null)
+            previous.clear();
+    }
+
+    /** Forgets and wipes any keys kept because of {@link #setKeyCacheTtl(long, TimeUnit)}. */
+    public void clearKeyCache() {
+        PasswordKeyCache cache = keyCache;
+        if (cache != null)
+            cache.clear();
+    }
+
     /**
      * Password based encryption using AES - CBC 256 bits.
      */
@@ -81,6 +81,10 @@ public class BitcoinSerializer extends MessageSerializer {
         names.put(RejectMessage.class, "reject");
         names.put(GetUTXOsMessage.class, "getutxos");
         names.put(UTXOsMessage.class, "utxos");
+        names.put(SendCompactMessage.class, "sendcmpct");
+        names.put(CompactBlockMessage.class, "cmpctblock");
+        names.put(GetBlockTxnMessage.class, "getblocktxn");
+        names.put(BlockTxnMessage.class, "blocktxn");
     }
 
     /**
@@ -199,12 +203,26 @@ public class BitcoinSerializer extends MessageSerializer {
      */
     @Override
     public Message deserializePayload(BitcoinPacketHeader header, ByteBuffer in) throws ProtocolException, BufferUnderflowException {
-        byte[] payloadBytes = new byte[header.size];
-        in.get(payloadBytes, 0, header.size);
+        byte[] payloadBytes;
+        if (in.hasArray() && in.arrayOffset() == 0 && in.position() == 0 && in.array().length == header.size) {
+            // The buffer wraps exactly this payload, so the message can own its array without a copy.
+            payloadBytes = in.array();
+            in.position(header.size);
+        } else {
+            payloadBytes = new byte[header.size];
+            in.get(payloadBytes, 0, header.size);
+        }
+        return deserializePayload(header, payloadBytes, Sha256Hash.hashTwice(payloadBytes));
+    }
 
+    /**
+     * Deserialize a payload which has already been read into an array of exactly the header's size, and whose double
+     * SHA-256 hash has already been computed, typically incrementally while it was being received. The payload is
+     * neither copied nor hashed again.
+     */
+    @Override
+    public Message deserializePayload(BitcoinPacketHeader header, byte[] payloadBytes, byte[] hash) throws ProtocolException {
         // Verify the checksum.
-        byte[] hash;
-        hash = Sha256Hash.hashTwice(payloadBytes);
         if (header.checksum[0] != hash[0] || header.checksum[1] != hash[1] ||
                 header.checksum[2] != hash[2] || header.checksum[3] != hash[3]) {
             throw new ProtocolException("Checksum failed to verify, actual " +
@@ -273,6 +291,14 @@ public class BitcoinSerializer extends MessageSerializer {
             return new FeeFilterMessage(net);
         } else if (command.equals("getaddr")) {
             return new GetAddrMessage(net);
+        } else if (command.equals("sendcmpct")) {
+            return new SendCompactMessage(net, payloadBytes);
+        } else if (command.equals("cmpctblock")) {
+            return new CompactBlockMessage(net, payloadBytes);
+        } else if (command.equals("getblocktxn")) {
+            return new GetBlockTxnMessage(net, payloadBytes);
+        } else if (command.equals("blocktxn")) {
+            return new BlockTxnMessage(net, payloadBytes);
         } else{
             log.warn("No support for deserializing message with name {}", command);
             return new UnknownMessage(net, command, payloadBytes, length);
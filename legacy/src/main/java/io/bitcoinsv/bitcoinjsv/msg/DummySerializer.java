@@ -53,6 +53,11 @@ class DummySerializer extends MessageSerializer {
         throw new UnsupportedOperationException(DEFAULT_EXCEPTION_MESSAGE);
     }
 
+    @Override
+    public Message deserializePayload(BitcoinSerializer.BitcoinPacketHeader header, byte[] payloadBytes, byte[] hash) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(DEFAULT_EXCEPTION_MESSAGE);
+    }
+
     @Override
     public boolean isParseLazyMode() {
         return false;
@@ -18,6 +18,7 @@
 package io.bitcoinsv.bitcoinjsv.msg;
 
 import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.UnsafeByteArrayOutputStream;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.AddressMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.FilteredBlock;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.InventoryMessage;
@@ -52,6 +53,19 @@ public abstract class MessageSerializer {
      */
     public abstract Message deserializePayload(BitcoinSerializer.BitcoinPacketHeader header, ByteBuffer in) throws ProtocolException, BufferUnderflowException, UnsupportedOperationException;
 
+    /**
+     * Deserialize a payload which has already been read into an array of exactly the header's size, and whose double
+     * SHA-256 hash has already been computed, typically incrementally while it was being received. Unlike
+     * {@link #deserializePayload(BitcoinSerializer.BitcoinPacketHeader, ByteBuffer)} the payload is neither copied nor
+     * hashed again. The array is owned by the returned message afterwards and must not be modified.
+     *
+     * <p>This implementation falls back to the {@link ByteBuffer} variant, which copies and checksums the payload again.
+     * Serializers should override it to make use of the precomputed hash.</p>
+     */
+    public Message deserializePayload(BitcoinSerializer.BitcoinPacketHeader header, byte[] payloadBytes, byte[] hash) throws ProtocolException, UnsupportedOperationException {
+        return deserializePayload(header, ByteBuffer.wrap(payloadBytes));
+    }
+
     /**
      * Whether the serializeMode will produce lazy parse mode Messages
      */
@@ -176,5 +190,18 @@ public abstract class MessageSerializer {
      * it does not support serializing the given message.
      */
     public abstract void serialize(Message message, OutputStream out) throws IOException, UnsupportedOperationException;
+
+    /**
+     * Serializes the message, header and checksum included, into an immutable {@link SerializedMessage} which can then
+     * be sent to any number of peers without being serialized again.
+     *
+     * @throws UnsupportedOperationException if this serializeMode/deserializer
+     * does not support serializing the given message.
+     */
+    public SerializedMessage serializeFrame(Message message) throws IOException, UnsupportedOperationException {
+        UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+        serialize(message, out);
+        return new SerializedMessage(message, out.getBackingArray(), out.size());
+    }
     
 }
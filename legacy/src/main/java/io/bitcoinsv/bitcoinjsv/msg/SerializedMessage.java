@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>An immutable, fully serialized network message: the header (magic, command, length and checksum) followed by the
+ * payload, exactly as it goes onto the wire. Create one with {@link MessageSerializer#serializeFrame(Message)}.</p>
+ *
+ * <p>Sending the same message to many peers through
+ * {@link io.bitcoinsv.bitcoinjsv.core.PeerSocketHandler#sendMessage(SerializedMessage)} serializes and checksums it
+ * once. Every peer's write queue shares the same backing bytes through its own read-only view.</p>
+ */
+public final class SerializedMessage {
+    private final Message message;
+    private final byte[] frame;
+    private final int length;
+
+    SerializedMessage(Message message, byte[] frame, int length) {
+        this.message = checkNotNull(message);
+        this.frame = checkNotNull(frame);
+        this.length = length;
+    }
+
+    /** Returns the message this frame was serialized from. */
+    public Message getMessage() {
+        return message;
+    }
+
+    /** Returns the size of the frame in bytes, including the header. */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns a new read-only buffer over the frame, positioned at its start. Each call returns an independent buffer so
+     * that several connections can write the same frame concurrently.
+     */
+    public ByteBuffer newBuffer() {
+        return ByteBuffer.wrap(frame, 0, length).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return "SerializedMessage{" + message.getClass().getSimpleName() + ", " + length + " bytes}";
+    }
+}
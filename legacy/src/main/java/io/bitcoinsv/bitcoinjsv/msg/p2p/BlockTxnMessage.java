@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.VarInt;
+import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>The "blocktxn" message carries the transactions requested with a {@link GetBlockTxnMessage}, in the order they
+ * were requested. See <a href="https://github.com/bitcoin/bips/blob/master/bip-0152.mediawiki">BIP 152</a>.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads.</p>
+ */
+public class BlockTxnMessage extends Message {
+    private Sha256Hash blockHash;
+    private List<Transaction> transactions;
+
+    public BlockTxnMessage(Net net, byte[] payloadBytes) throws ProtocolException {
+        super(net, payloadBytes, 0);
+    }
+
+    public BlockTxnMessage(Net net, Sha256Hash blockHash, List<Transaction> transactions) {
+        super(net);
+        this.blockHash = blockHash;
+        this.transactions = new ArrayList<Transaction>(transactions);
+    }
+
+    @Override
+    protected void bitcoinSerializeToStream(OutputStream stream) throws IOException {
+        stream.write(blockHash.getReversedBytes());
+        stream.write(new VarInt(transactions.size()).encode());
+        for (Transaction tx : transactions)
+            tx.bitcoinSerialize(stream);
+    }
+
+    @Override
+    protected void parse() throws ProtocolException {
+        blockHash = readHash();
+        long count = readVarInt();
+        if (count < 0 || count > payload.length - cursor)
+            throw new ProtocolException("blocktxn transaction count out of range: " + count);
+        transactions = new ArrayList<Transaction>((int) count);
+        for (int i = 0; i < count; i++) {
+            Transaction tx = new Transaction(net, payload, cursor, null, serializeMode, UNKNOWN_LENGTH);
+            transactions.add(tx);
+            cursor += tx.getMessageSize();
+        }
+        setLength(cursor - offset);
+    }
+
+    @Override
+    protected void parseLite() {
+    }
+
+    /** Returns the hash of the block the transactions belong to. */
+    public Sha256Hash getBlockHash() {
+        return blockHash;
+    }
+
+    /** Returns the transactions, in the order they were requested. */
+    public List<Transaction> getTransactions() {
+        return Collections.unmodifiableList(transactions);
+    }
+
+    @Override
+    public String toString() {
+        return "blocktxn: " + blockHash + " (" + transactions.size() + " transactions)";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BlockTxnMessage other = (BlockTxnMessage) o;
+        return blockHash.equals(other.blockHash) && transactions.equals(other.transactions);
+    }
+
+    @Override
+    public int hashCode() {
+        return blockHash.hashCode() ^ transactions.hashCode();
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.UnsafeByteArrayOutputStream;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.core.VarInt;
+import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Block;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A "cmpctblock" message announces a block as its header plus a 6 byte short ID for every transaction, on the
+ * assumption that the receiver already has most of the transactions in its memory pool. Transactions the sender
+ * expects the receiver not to have, at least the coinbase, are sent in full as prefilled transactions. The receiver
+ * rebuilds the block with a {@link PartiallyDownloadedBlock} and fetches anything it could not match with a
+ * {@link GetBlockTxnMessage}.</p>
+ *
+ * <p>Short IDs are SipHash-2-4 of the transaction ID, keyed from the SHA-256 of the block header and a nonce chosen by
+ * the sender, so a short ID collision cannot be planned in advance. See
+ * <a href="https://github.com/bitcoin/bips/blob/master/bip-0152.mediawiki">BIP 152</a>.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads.</p>
+ */
+public class CompactBlockMessage extends Message {
+    /** The lowest protocol version which understands compact blocks. */
+    public static final int MIN_PROTOCOL_VERSION = 70014;
+    /** The number of bytes in a short transaction ID. */
+    public static final int SHORT_ID_LENGTH = 6;
+    private static final long SHORT_ID_MASK = 0xffffffffffffL;
+
+    /** A transaction sent in full inside a compact block, together with its position in the block. */
+    public static class PrefilledTransaction {
+        private final int index;
+        private final Transaction tx;
+
+        public PrefilledTransaction(int index, Transaction tx) {
+            checkArgument(index >= 0);
+            this.index = index;
+            this.tx = tx;
+        }
+
+        /** Returns the position of the transaction within the block. */
+        public int getIndex() {
+            return index;
+        }
+
+        public Transaction getTransaction() {
+            return tx;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PrefilledTransaction other = (PrefilledTransaction) o;
+            return index == other.index && tx.equals(other.tx);
+        }
+
+        @Override
+        public int hashCode() {
+            return index ^ tx.hashCode();
+        }
+    }
+
+    private Block header;
+    private long nonce;
+    private long[] shortIds;
+    private List<PrefilledTransaction> prefilledTransactions;
+
+    // Keyed hash function for short IDs, derived from the header and nonce on first use.
+    private HashFunction shortIdFunction;
+
+    public CompactBlockMessage(Net net, byte[] payloadBytes) throws ProtocolException {
+        super(net, payloadBytes, 0);
+    }
+
+    /**
+     * Creates a compact block for the given full block, sending the coinbase in full and every other transaction as a
+     * short ID.
+     */
+    public CompactBlockMessage(Net net, Block block, long nonce) {
+        super(net);
+        List<Transaction> transactions = block.getTransactions();
+        checkArgument(transactions != null && !transactions.isEmpty(), "Block has no transactions");
+        this.header = block.cloneAsHeader();
+        this.nonce = nonce;
+        this.prefilledTransactions = Collections.singletonList(new PrefilledTransaction(0, transactions.get(0)));
+        this.shortIds = new long[transactions.size() - 1];
+        for (int i = 1; i < transactions.size(); i++)
+            shortIds[i - 1] = getShortId(transactions.get(i).getHash());
+    }
+
+    @Override
+    protected void bitcoinSerializeToStream(OutputStream stream) throws IOException {
+        header.writeHeader(stream);
+        Utils.int64ToByteStreamLE(nonce, stream);
+        stream.write(new VarInt(shortIds.length).encode());
+        for (long shortId : shortIds) {
+            for (int i = 0; i < SHORT_ID_LENGTH; i++)
+                stream.write((int) (shortId >>> (8 * i)));
+        }
+        stream.write(new VarInt(prefilledTransactions.size()).encode());
+        int last = -1;
+        for (PrefilledTransaction prefilled : prefilledTransactions) {
+            stream.write(new VarInt(prefilled.index - last - 1).encode());
+            prefilled.tx.bitcoinSerialize(stream);
+            last = prefilled.index;
+        }
+    }
+
+    @Override
+    protected void parse() throws ProtocolException {
+        // The header is followed by the nonce rather than a transaction count, so give Block its own copy to parse.
+        byte[] headerBytes = Arrays.copyOf(readBytes(Block.HEADER_SIZE), Block.HEADER_SIZE + 1);
+        header = new Block(net, headerBytes, 0, null, headerBytes.length);
+        nonce = readInt64();
+
+        long shortIdCount = readVarInt();
+        if (shortIdCount < 0 || shortIdCount > (payload.length - cursor) / SHORT_ID_LENGTH)
+            throw new ProtocolException("cmpctblock short ID count out of range: " + shortIdCount);
+        shortIds = new long[(int) shortIdCount];
+        for (int i = 0; i < shortIds.length; i++) {
+            long shortId = 0;
+            for (int b = 0; b < SHORT_ID_LENGTH; b++)
+                shortId |= (payload[cursor + b] & 0xffL) << (8 * b);
+            shortIds[i] = shortId;
+            cursor += SHORT_ID_LENGTH;
+        }
+
+        long prefilledCount = readVarInt();
+        if (prefilledCount < 0 || prefilledCount > payload.length - cursor)
+            throw new ProtocolException("cmpctblock prefilled transaction count out of range: " + prefilledCount);
+        long transactionCount = shortIdCount + prefilledCount;
+        prefilledTransactions = new ArrayList<PrefilledTransaction>((int) prefilledCount);
+        long last = -1;
+        for (int i = 0; i < prefilledCount; i++) {
+            long diff = readVarInt();
+            // Check the diff against the room left before adding it, so that a huge diff cannot overflow the index.
+            if (diff < 0 || diff >= transactionCount - last - 1)
+                throw new ProtocolException("cmpctblock prefilled transaction index out of range");
+            long index = last + diff + 1;
+            Transaction tx = new Transaction(net, payload, cursor, null, serializeMode, UNKNOWN_LENGTH);
+            cursor += tx.getMessageSize();
+            prefilledTransactions.add(new PrefilledTransaction((int) index, tx));
+            last = index;
+        }
+        setLength(cursor - offset);
+    }
+
+    @Override
+    protected void parseLite() {
+    }
+
+    /**
+     * Returns the 6 byte short ID of the given transaction ID, keyed for this block, in the low bits of a long.
+     */
+    public long getShortId(Sha256Hash txId) {
+        if (shortIdFunction == null) {
+            UnsafeByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(Block.HEADER_SIZE + 8);
+            try {
+                header.writeHeader(bos);
+                Utils.int64ToByteStreamLE(nonce, bos);
+            } catch (IOException e) {
+                throw new RuntimeException(e);  // Cannot happen.
+            }
+            byte[] key = Sha256Hash.hash(bos.getBackingArray(), 0, bos.size());
+            shortIdFunction = Hashing.sipHash24(Utils.readInt64(key, 0), Utils.readInt64(key, 8));
+        }
+        return shortIdFunction.hashBytes(txId.getReversedBytes()).asLong() & SHORT_ID_MASK;
+    }
+
+    /** Returns the block header, without transactions. */
+    public Block getHeader() {
+        return header;
+    }
+
+    /** Returns the hash of the announced block. */
+    public Sha256Hash getBlockHash() {
+        return header.getHash();
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    /** Returns the short IDs of the transactions not sent in full, in block order. */
+    public long[] getShortIds() {
+        return Arrays.copyOf(shortIds, shortIds.length);
+    }
+
+    /** Returns the transactions sent in full, ordered by their position in the block. */
+    public List<PrefilledTransaction> getPrefilledTransactions() {
+        return Collections.unmodifiableList(prefilledTransactions);
+    }
+
+    /** Returns the total number of transactions in the block. */
+    public int getTransactionCount() {
+        return shortIds.length + prefilledTransactions.size();
+    }
+
+    @Override
+    public String toString() {
+        return "cmpctblock: " + header.getHash() + " (" + shortIds.length + " short IDs, " +
+                prefilledTransactions.size() + " prefilled)";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactBlockMessage other = (CompactBlockMessage) o;
+        return nonce == other.nonce && header.getHash().equals(other.header.getHash())
+                && Arrays.equals(shortIds, other.shortIds)
+                && prefilledTransactions.equals(other.prefilledTransactions);
+    }
+
+    @Override
+    public int hashCode() {
+        return header.getHash().hashCode() ^ (int) nonce ^ Arrays.hashCode(shortIds);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.VarInt;
+import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>The "getblocktxn" message asks a peer for the transactions of a block which we could not find locally while
+ * reconstructing it from a {@link CompactBlockMessage}. The peer answers with a {@link BlockTxnMessage}. Indexes are
+ * positions within the block and are sent differentially encoded, as defined by
+ * <a href="https://github.com/bitcoin/bips/blob/master/bip-0152.mediawiki">BIP 152</a>.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads.</p>
+ */
+public class GetBlockTxnMessage extends Message {
+    private Sha256Hash blockHash;
+    private int[] indexes;
+
+    public GetBlockTxnMessage(Net net, byte[] payloadBytes) throws ProtocolException {
+        super(net, payloadBytes, 0);
+    }
+
+    /**
+     * Creates a request for the transactions at the given positions of a block. The indexes must be strictly increasing.
+     */
+    public GetBlockTxnMessage(Net net, Sha256Hash blockHash, int[] indexes) {
+        super(net);
+        for (int i = 1; i < indexes.length; i++)
+            checkArgument(indexes[i] > indexes[i - 1], "Indexes must be strictly increasing");
+        this.blockHash = blockHash;
+        this.indexes = Arrays.copyOf(indexes, indexes.length);
+    }
+
+    @Override
+    protected void bitcoinSerializeToStream(OutputStream stream) throws IOException {
+        stream.write(blockHash.getReversedBytes());
+        stream.write(new VarInt(indexes.length).encode());
+        int last = -1;
+        for (int index : indexes) {
+            stream.write(new VarInt(index - last - 1).encode());
+            last = index;
+        }
+    }
+
+    @Override
+    protected void parse() throws ProtocolException {
+        blockHash = readHash();
+        long count = readVarInt();
+        // Every index takes at least one byte, which bounds the allocation below.
+        if (count < 0 || count > payload.length - cursor)
+            throw new ProtocolException("getblocktxn index count out of range: " + count);
+        indexes = new int[(int) count];
+        long last = -1;
+        for (int i = 0; i < indexes.length; i++) {
+            long diff = readVarInt();
+            long index = last + diff + 1;
+            if (diff < 0 || index > Integer.MAX_VALUE)
+                throw new ProtocolException("getblocktxn index out of range");
+            indexes[i] = (int) index;
+            last = index;
+        }
+        setLength(cursor - offset);
+    }
+
+    @Override
+    protected void parseLite() {
+    }
+
+    /** Returns the hash of the block the transactions are requested from. */
+    public Sha256Hash getBlockHash() {
+        return blockHash;
+    }
+
+    /** Returns the positions within the block of the requested transactions, in increasing order. */
+    public int[] getIndexes() {
+        return Arrays.copyOf(indexes, indexes.length);
+    }
+
+    @Override
+    public String toString() {
+        return "getblocktxn: " + blockHash + " (" + indexes.length + " transactions)";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GetBlockTxnMessage other = (GetBlockTxnMessage) o;
+        return blockHash.equals(other.blockHash) && Arrays.equals(indexes, other.indexes);
+    }
+
+    @Override
+    public int hashCode() {
+        return blockHash.hashCode() ^ Arrays.hashCode(indexes);
+    }
+}
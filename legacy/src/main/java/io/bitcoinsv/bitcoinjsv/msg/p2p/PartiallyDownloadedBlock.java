@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Block;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Rebuilds a block announced with a {@link CompactBlockMessage}. Prefilled transactions are placed directly and the
+ * remaining slots are matched by short ID against a pool of candidate transactions, typically the memory pool. Any
+ * slots which are still empty afterwards can be requested with {@link #getMissingIndexes()} and filled in from the
+ * {@link BlockTxnMessage} which answers that request.</p>
+ *
+ * <p>If two candidates map to the same slot the slot is left empty and requested explicitly, so a short ID collision
+ * never silently picks the wrong transaction. Because an unlucky collision with a transaction we never saw cannot be
+ * detected that way, {@link #build()} checks the merkle root of the result; callers should fall back to downloading
+ * the full block if it returns null.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads.</p>
+ */
+public class PartiallyDownloadedBlock {
+    private final CompactBlockMessage compactBlock;
+    private final Transaction[] transactions;
+    private final Map<Long, Integer> slotsByShortId;
+    private int missing;
+
+    /**
+     * Places the prefilled transactions and matches the rest against the given candidates.
+     *
+     * @throws ProtocolException if the compact block is malformed, or if two of its short IDs are equal, in which case
+     * it cannot be reconstructed and the full block must be requested.
+     */
+    public PartiallyDownloadedBlock(CompactBlockMessage compactBlock, Iterable<Transaction> candidates)
+            throws ProtocolException {
+        this.compactBlock = compactBlock;
+        int transactionCount = compactBlock.getTransactionCount();
+        transactions = new Transaction[transactionCount];
+        for (CompactBlockMessage.PrefilledTransaction prefilled : compactBlock.getPrefilledTransactions()) {
+            int index = prefilled.getIndex();
+            if (index >= transactionCount || transactions[index] != null)
+                throw new ProtocolException("Invalid prefilled transaction index " + index);
+            transactions[index] = prefilled.getTransaction();
+        }
+
+        // The short IDs fill the slots not taken by prefilled transactions, in order.
+        long[] shortIds = compactBlock.getShortIds();
+        slotsByShortId = new HashMap<Long, Integer>(shortIds.length * 2);
+        int next = 0;
+        for (int i = 0; i < transactionCount; i++) {
+            if (transactions[i] != null)
+                continue;
+            if (slotsByShortId.put(shortIds[next++], i) != null)
+                throw new ProtocolException("Duplicate short ID in compact block " + compactBlock.getBlockHash());
+        }
+
+        BitSet collisions = new BitSet(transactionCount);
+        for (Transaction tx : candidates) {
+            Sha256Hash txId = tx.getHash();
+            Integer slot = slotsByShortId.get(compactBlock.getShortId(txId));
+            if (slot == null || collisions.get(slot))
+                continue;
+            Transaction existing = transactions[slot];
+            if (existing == null) {
+                transactions[slot] = tx;
+            } else if (!existing.getHash().equals(txId)) {
+                transactions[slot] = null;
+                collisions.set(slot);
+            }
+        }
+
+        for (Transaction tx : transactions) {
+            if (tx == null)
+                missing++;
+        }
+    }
+
+    /** Returns the compact block this block is being rebuilt from. */
+    public CompactBlockMessage getCompactBlock() {
+        return compactBlock;
+    }
+
+    /** Returns the hash of the block being rebuilt. */
+    public Sha256Hash getBlockHash() {
+        return compactBlock.getBlockHash();
+    }
+
+    /** Returns true if every transaction of the block is known. */
+    public boolean isComplete() {
+        return missing == 0;
+    }
+
+    /** Returns the positions of the transactions which still have to be fetched, in increasing order. */
+    public int[] getMissingIndexes() {
+        int[] indexes = new int[missing];
+        int n = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            if (transactions[i] == null)
+                indexes[n++] = i;
+        }
+        return indexes;
+    }
+
+    /**
+     * Fills the missing slots with the given transactions, which must be exactly those requested by
+     * {@link #getMissingIndexes()} and in the same order.
+     *
+     * @throws ProtocolException if the number of transactions does not match.
+     */
+    public void fillMissing(List<Transaction> missingTransactions) throws ProtocolException {
+        if (missingTransactions.size() != missing)
+            throw new ProtocolException("Expected " + missing + " transactions for block " + getBlockHash() +
+                    " but got " + missingTransactions.size());
+        int n = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            if (transactions[i] == null)
+                transactions[i] = missingTransactions.get(n++);
+        }
+        missing = 0;
+    }
+
+    /**
+     * Returns the reconstructed block, or null if its transactions do not hash to the merkle root in the header. That
+     * only happens after a short ID collision with a transaction we did not know about, in which case the full block
+     * has to be downloaded instead.
+     */
+    @Nullable
+    public Block build() {
+        if (!isComplete())
+            throw new IllegalStateException("Block " + getBlockHash() + " is missing " + missing + " transactions");
+        Block header = compactBlock.getHeader();
+        Block block = new Block(header.getNet(), header.getVersion(), header.getPrevBlockHash(), null,
+                header.getTime(), header.getDifficultyTarget(), header.getNonce(), Arrays.asList(transactions));
+        if (!block.getMerkleRoot().equals(header.getMerkleRoot()))
+            return null;
+        return block;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>The "sendcmpct" message tells the remote peer that we understand compact blocks ({@link CompactBlockMessage}) of
+ * the given version. If announce is set the peer may push new blocks to us as compact blocks straight away instead of
+ * announcing them with an inv or headers message first. Defined in
+ * <a href="https://github.com/bitcoin/bips/blob/master/bip-0152.mediawiki">BIP 152</a>.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads.</p>
+ */
+public class SendCompactMessage extends Message {
+    /** The only compact block version supported, which computes short IDs from transaction IDs. */
+    public static final long VERSION = 1;
+
+    private boolean announce;
+    private long version;
+
+    public SendCompactMessage(Net net, byte[] payloadBytes) throws ProtocolException {
+        super(net, payloadBytes, 0);
+    }
+
+    public SendCompactMessage(Net net, boolean announce, long version) {
+        super(net);
+        this.announce = announce;
+        this.version = version;
+    }
+
+    @Override
+    protected void bitcoinSerializeToStream(OutputStream stream) throws IOException {
+        stream.write(announce ? 1 : 0);
+        Utils.int64ToByteStreamLE(version, stream);
+    }
+
+    @Override
+    protected void parse() throws ProtocolException {
+        announce = readBytes(1)[0] != 0;
+        version = readInt64();
+        setLength(cursor - offset);
+    }
+
+    @Override
+    protected void parseLite() {
+    }
+
+    /** Returns true if the sender wants new blocks pushed to it as compact blocks without an announcement first. */
+    public boolean isAnnounce() {
+        return announce;
+    }
+
+    /** Returns the compact block version the sender understands. */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "sendcmpct: announce=" + announce + ", version=" + version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SendCompactMessage other = (SendCompactMessage) o;
+        return announce == other.announce && version == other.version;
+    }
+
+    @Override
+    public int hashCode() {
+        return (announce ? 1 : 0) ^ (int) version ^ (int) (version >>> 32);
+    }
+}
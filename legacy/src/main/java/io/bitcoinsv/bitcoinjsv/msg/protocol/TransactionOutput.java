@@ -22,6 +22,7 @@ import io.bitcoinsv.bitcoinjsv.msg.ChildMessage;
 import io.bitcoinsv.bitcoinjsv.params.SerializeMode;
 import io.bitcoinsv.bitcoinjsv.params.Net;
 import io.bitcoinsv.bitcoinjsv.script.Script;
+import io.bitcoinsv.bitcoinjsv.script.ScriptCache;
 import io.bitcoinsv.bitcoinjsv.script.ScriptBuilder;
 import io.bitcoinsv.bitcoinjsv.script.ScriptUtils;
 import io.bitcoinsv.bitcoinjsv.script.interpreter.ScriptExecutionException;
@@ -120,7 +121,7 @@ public class TransactionOutput extends ChildMessage {
     public Script getScriptPubKey() throws ScriptExecutionException {
         if (scriptPubKey == null) {
             maybeParse();
-            scriptPubKey = new Script(scriptBytes);
+            scriptPubKey = ScriptCache.getDefault().parse(scriptBytes);
         }
         return scriptPubKey;
     }
@@ -19,6 +19,8 @@ package io.bitcoinsv.bitcoinjsv.net;
 import com.google.common.util.concurrent.*;
 import io.bitcoinsv.bitcoinjsv.core.Context;
 import io.bitcoinsv.bitcoinjsv.core.Peer;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import org.slf4j.*;
 
 import javax.annotation.*;
@@ -43,6 +45,9 @@ public class BlockingClient implements MessageWriteTarget {
     private static final int BUFFER_SIZE_LOWER_BOUND = 4096;
     private static final int BUFFER_SIZE_UPPER_BOUND = 65536;
 
+    private static final Counter BYTES_SENT = Metrics.counter("net.bytes.sent");
+    private static final Counter BYTES_RECEIVED = Metrics.counter("net.bytes.received");
+
     private Socket socket;
     private volatile boolean vCloseRequested = false;
     private SettableFuture<SocketAddress> connectFuture;
@@ -115,6 +120,7 @@ public class BlockingClient implements MessageWriteTarget {
             int read = stream.read(readBuff, 0, Math.max(1, Math.min(dbuf.remaining(), stream.available())));
             if (read == -1)
                 return;
+            BYTES_RECEIVED.increment(read);
             dbuf.put(readBuff, 0, read);
             // "flip" the buffer - setting the limit to the current position and setting position to 0
             dbuf.flip();
@@ -149,6 +155,7 @@ public class BlockingClient implements MessageWriteTarget {
             OutputStream stream = socket.getOutputStream();
             stream.write(message);
             stream.flush();
+            BYTES_SENT.increment(message.length);
         } catch (IOException e) {
             log.error("Error writing message to connection, closing connection", e);
             closeConnection();
@@ -16,6 +16,8 @@
 
 package io.bitcoinsv.bitcoinjsv.net;
 
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
 import io.bitcoinsv.bitcoinjsv.utils.Threading;
 import com.google.common.base.Throwables;
@@ -28,9 +30,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -53,17 +54,27 @@ public class ConnectionHandler implements MessageWriteTarget {
 
     private static final long OUTBOUND_BUFFER_BYTE_COUNT = Message.MAX_SIZE + 24L; // 24 byte message header
 
+    // Upper bound on the number of queued buffers handed to a single gathering write. Kept well below the usual
+    // IOV_MAX of 1024 so the JDK does not have to split the call.
+    private static final int MAX_GATHERED_BUFFERS = 64;
+
+    private static final Counter BYTES_SENT = Metrics.counter("net.bytes.sent");
+    private static final Counter BYTES_RECEIVED = Metrics.counter("net.bytes.received");
+
     // We lock when touching local flags and when writing data, but NEVER when calling any methods which leave this
     // class into non-Java classes.
     private final ReentrantLock lock = Threading.lock("nioConnectionHandler");
-    @GuardedBy("lock") private final ByteBuffer readBuff;
+    // Taken from DirectBufferPool.SHARED and handed back once the connection is closed. Only touched by the thread
+    // running the selector, which is also the only thread that releases it.
+    private ByteBuffer readBuff;
     @GuardedBy("lock") private final SocketChannel channel;
     @GuardedBy("lock") private final SelectionKey key;
     @GuardedBy("lock") StreamConnection connection;
     @GuardedBy("lock") private boolean closeCalled = false;
 
     @GuardedBy("lock") private long bytesToWriteRemaining = 0;
-    @GuardedBy("lock") private final LinkedList<ByteBuffer> bytesToWrite = new LinkedList<ByteBuffer>();
+    @GuardedBy("lock") private final ArrayDeque<ByteBuffer> bytesToWrite = new ArrayDeque<ByteBuffer>();
+    @GuardedBy("lock") private final ByteBuffer[] gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
 
     private Set<ConnectionHandler> connectedHandlers;
 
@@ -81,7 +92,7 @@ public class ConnectionHandler implements MessageWriteTarget {
             return;
         }
         this.connection = connection;
-        readBuff = ByteBuffer.allocateDirect(Math.min(Math.max(connection.getMaxMessageSize(), BUFFER_SIZE_LOWER_BOUND), BUFFER_SIZE_UPPER_BOUND));
+        readBuff = DirectBufferPool.SHARED.acquire(Math.min(Math.max(connection.getMaxMessageSize(), BUFFER_SIZE_LOWER_BOUND), BUFFER_SIZE_UPPER_BOUND));
         connection.setWriteTarget(this); // May callback into us (eg closeConnection() now)
         connectedHandlers = null;
     }
@@ -114,14 +125,29 @@ public class ConnectionHandler implements MessageWriteTarget {
     private void tryWriteBytes() throws IOException {
         lock.lock();
         try {
-            // Iterate through the outbound ByteBuff queue, pushing as much as possible into the OS' network buffer.
-            Iterator<ByteBuffer> bytesIterator = bytesToWrite.iterator();
-            while (bytesIterator.hasNext()) {
-                ByteBuffer buff = bytesIterator.next();
-                bytesToWriteRemaining -= channel.write(buff);
-                if (!buff.hasRemaining())
-                    bytesIterator.remove();
-                else {
+            // Push as much of the outbound ByteBuff queue as possible into the OS' network buffer, handing up to
+            // MAX_GATHERED_BUFFERS queued messages to the kernel in each (gathering) write call.
+            while (!bytesToWrite.isEmpty()) {
+                int gathered = 0;
+                for (ByteBuffer buff : bytesToWrite) {
+                    gatheredBuffers[gathered++] = buff;
+                    if (gathered == gatheredBuffers.length)
+                        break;
+                }
+                try {
+                    long written = channel.write(gatheredBuffers, 0, gathered);
+                    bytesToWriteRemaining -= written;
+                    BYTES_SENT.increment(written);
+                } finally {
+                    Arrays.fill(gatheredBuffers, 0, gathered, null);
+                }
+                int completed = 0;
+                while (!bytesToWrite.isEmpty() && !bytesToWrite.peek().hasRemaining()) {
+                    bytesToWrite.poll();
+                    completed++;
+                }
+                if (completed < gathered) {
+                    // The OS buffer is full, wait until we are told we can write again
                     setWriteOps();
                     break;
                 }
@@ -137,6 +163,15 @@ public class ConnectionHandler implements MessageWriteTarget {
 
     @Override
     public void writeBytes(byte[] message) throws IOException {
+        writeBytes(ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Queues the remaining bytes of the given buffer for writing without copying them. The caller must not modify the
+     * buffer or its backing array afterwards.
+     */
+    @Override
+    public void writeBytes(ByteBuffer message) throws IOException {
         boolean andUnlock = true;
         lock.lock();
         try {
@@ -145,12 +180,13 @@ public class ConnectionHandler implements MessageWriteTarget {
             // append to it when we want to send a message. We then let tryWriteBytes() either send the message or
             // register our SelectionKey to wakeup when we have free outbound buffer space available.
 
-            if (bytesToWriteRemaining + message.length > OUTBOUND_BUFFER_BYTE_COUNT)
+            int length = message.remaining();
+            if (bytesToWriteRemaining + length > OUTBOUND_BUFFER_BYTE_COUNT)
                 throw new IOException("Outbound buffer overflowed");
-            // Just dump the message onto the write buffer and call tryWriteBytes
-            // TODO: Kill the needless message duplication when the write completes right away
-            bytesToWrite.offer(ByteBuffer.wrap(Arrays.copyOf(message, message.length)));
-            bytesToWriteRemaining += message.length;
+            // Just dump the message onto the write buffer and call tryWriteBytes. Ownership of the bytes passes to us
+            // (see MessageWriteTarget#writeBytes), so there is no need to copy them.
+            bytesToWrite.offer(message);
+            bytesToWriteRemaining += length;
             setWriteOps();
         } catch (IOException e) {
             lock.unlock();
@@ -197,6 +233,16 @@ public class ConnectionHandler implements MessageWriteTarget {
         }
     }
 
+    // Closes the connection and hands the read buffer back to the pool. Must only be called from the thread running the
+    // selector, as that is the only thread which reads into readBuff.
+    private void closeFromSelector() {
+        closeConnection();
+        if (readBuff != null) {
+            DirectBufferPool.SHARED.release(readBuff);
+            readBuff = null;
+        }
+    }
+
     // Handle a SelectionKey which was selected
     // Runs unlocked as the caller is single-threaded (or if not, should enforce that handleKey is only called
     // atomically for a given ConnectionHandler)
@@ -206,19 +252,20 @@ public class ConnectionHandler implements MessageWriteTarget {
             if (handler == null)
                 return;
             if (!key.isValid()) {
-                handler.closeConnection(); // Key has been cancelled, make sure the socket gets closed
+                handler.closeFromSelector(); // Key has been cancelled, make sure the socket gets closed
                 return;
             }
-            if (key.isReadable()) {
+            if (key.isReadable() && handler.readBuff != null) {
                 // Do a socket read and invoke the connection's receiveBytes message
                 int read = handler.channel.read(handler.readBuff);
                 if (read == 0)
                     return; // Was probably waiting on a write
                 else if (read == -1) { // Socket was closed
                     key.cancel();
-                    handler.closeConnection();
+                    handler.closeFromSelector();
                     return;
                 }
+                BYTES_RECEIVED.increment(read);
                 // "flip" the buffer - setting the limit to the current position and setting position to 0
                 handler.readBuff.flip();
                 // Use connection.receiveBytes's return value as a check that it stopped reading at the right location
@@ -236,7 +283,7 @@ public class ConnectionHandler implements MessageWriteTarget {
             Throwable t = Throwables.getRootCause(e);
             //log.warn("Error handling SelectionKey: {} {}", t.getClass().getName(), t.getMessage() != null ? t.getMessage() : "", e);
             log.warn("Error handling SelectionKey: {} {}", t.getClass().getName(), t.getMessage() != null ? t.getMessage() : "");
-            handler.closeConnection();
+            handler.closeFromSelector();
         }
     }
 }
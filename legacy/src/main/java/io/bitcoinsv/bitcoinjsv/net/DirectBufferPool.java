@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A thread-safe pool of direct {@link ByteBuffer}s, grouped by capacity. Allocating direct buffers is expensive and
+ * they are only reclaimed lazily by the garbage collector, so connections take their read buffers from here and hand
+ * them back when they close rather than allocating a fresh one each.</p>
+ *
+ * <p>Returning a buffer is optional: a buffer which is never released is simply garbage collected. A buffer must not be
+ * touched again by its previous owner once released.</p>
+ */
+public class DirectBufferPool {
+    /** The pool shared by all {@link ConnectionHandler}s. */
+    public static final DirectBufferPool SHARED = new DirectBufferPool(256);
+
+    private static class Bucket {
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private final int maxPooledPerCapacity;
+    private final ConcurrentHashMap<Integer, Bucket> buckets = new ConcurrentHashMap<Integer, Bucket>();
+
+    /**
+     * Creates a pool which retains at most the given number of idle buffers for each distinct capacity.
+     */
+    public DirectBufferPool(int maxPooledPerCapacity) {
+        checkArgument(maxPooledPerCapacity >= 0);
+        this.maxPooledPerCapacity = maxPooledPerCapacity;
+    }
+
+    /**
+     * Returns a cleared direct buffer of exactly the given capacity, reusing a pooled one if available.
+     */
+    public ByteBuffer acquire(int capacity) {
+        Bucket bucket = buckets.get(capacity);
+        if (bucket != null) {
+            ByteBuffer buffer = bucket.buffers.poll();
+            if (buffer != null) {
+                bucket.size.decrementAndGet();
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Hands a buffer obtained from {@link #acquire(int)} back to the pool. If the pool already holds enough idle
+     * buffers of this capacity it is dropped instead.
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect())
+            return;
+        Bucket bucket = buckets.get(buffer.capacity());
+        if (bucket == null) {
+            Bucket newBucket = new Bucket();
+            bucket = buckets.putIfAbsent(buffer.capacity(), newBucket);
+            if (bucket == null)
+                bucket = newBucket;
+        }
+        if (bucket.size.incrementAndGet() > maxPooledPerCapacity) {
+            bucket.size.decrementAndGet();
+            return;
+        }
+        bucket.buffers.offer(buffer);
+    }
+
+    /** Returns the number of idle buffers currently held for the given capacity. */
+    public int getPooledCount(int capacity) {
+        Bucket bucket = buckets.get(capacity);
+        return bucket == null ? 0 : bucket.size.get();
+    }
+}
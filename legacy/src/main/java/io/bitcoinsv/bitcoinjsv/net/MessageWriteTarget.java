@@ -17,15 +17,26 @@
 package io.bitcoinsv.bitcoinjsv.net;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A target to which messages can be written/connection can be closed
  */
 public interface MessageWriteTarget {
     /**
-     * Writes the given bytes to the remote server.
+     * Writes the given bytes to the remote server. Implementations may queue the array itself rather than a copy of it,
+     * so the caller must not modify it afterwards.
      */
     void writeBytes(byte[] message) throws IOException;
+    /**
+     * Writes the remaining bytes of the given buffer to the remote server. As with {@link #writeBytes(byte[])} the
+     * caller must not modify the buffer or its contents afterwards.
+     */
+    default void writeBytes(ByteBuffer message) throws IOException {
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        writeBytes(bytes);
+    }
     /**
      * Closes the connection to the server, triggering the {@link StreamConnection#connectionClosed()}
      * event on the network-handling thread where all callbacks occur.
@@ -123,4 +123,9 @@ public class NioClient implements MessageWriteTarget {
     public synchronized void writeBytes(byte[] message) throws IOException {
         handler.writeTarget.writeBytes(message);
     }
+
+    @Override
+    public synchronized void writeBytes(ByteBuffer message) throws IOException {
+        handler.writeTarget.writeBytes(message);
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.net;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.bitcoinsv.bitcoinjsv.utils.ContextPropagatingThreadFactory;
+
+import java.net.SocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A {@link ClientConnectionManager} which shards its connections over several {@link NioClientManager}s, each of
+ * which runs its own selector on its own network thread. A single selector thread caps how many bytes can be read and
+ * parsed when there are hundreds of peers; with a group the reads, message parsing and socket writes of different
+ * connections happen in parallel, while every individual connection is still only ever serviced by one thread.</p>
+ *
+ * <p>New connections are assigned to loops round-robin. The group can be passed to
+ * {@link io.bitcoinsv.bitcoinjsv.core.PeerGroup} anywhere a {@link NioClientManager} is accepted.</p>
+ */
+public class NioClientManagerGroup extends AbstractIdleService implements ClientConnectionManager {
+    private final NioClientManager[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    /**
+     * Creates a group with one event loop per available processor.
+     */
+    public NioClientManagerGroup() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a group with the given number of event loops, each backed by its own selector thread.
+     */
+    public NioClientManagerGroup(int loopCount) {
+        checkArgument(loopCount > 0, "loopCount must be positive");
+        loops = new NioClientManager[loopCount];
+        for (int i = 0; i < loopCount; i++)
+            loops[i] = new NioClientManager();
+    }
+
+    /** Returns the number of event loops in this group. */
+    public int getLoopCount() {
+        return loops.length;
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        for (NioClientManager loop : loops)
+            loop.startAsync();
+        for (NioClientManager loop : loops)
+            loop.awaitRunning();
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        for (NioClientManager loop : loops)
+            loop.stopAsync();
+        for (NioClientManager loop : loops)
+            loop.awaitTerminated();
+    }
+
+    @Override
+    public ListenableFuture<SocketAddress> openConnection(SocketAddress serverAddress, StreamConnection connection) {
+        if (!isRunning())
+            throw new IllegalStateException();
+        int index = Math.floorMod(nextLoop.getAndIncrement(), loops.length);
+        return loops[index].openConnection(serverAddress, connection);
+    }
+
+    @Override
+    public int getConnectedClientCount() {
+        int count = 0;
+        for (NioClientManager loop : loops)
+            count += loop.getConnectedClientCount();
+        return count;
+    }
+
+    @Override
+    public void closeConnections(int n) {
+        // Close from the busiest loop first so the remaining connections stay evenly spread.
+        while (n-- > 0) {
+            NioClientManager busiest = null;
+            int busiestCount = 0;
+            for (NioClientManager loop : loops) {
+                int count = loop.getConnectedClientCount();
+                if (count > busiestCount) {
+                    busiest = loop;
+                    busiestCount = count;
+                }
+            }
+            if (busiest == null)
+                return;
+            busiest.closeConnections(1);
+        }
+    }
+
+    @Override
+    protected Executor executor() {
+        // The loops are started from this thread, and each of them needs the caller's context for its own thread.
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new ContextPropagatingThreadFactory("NioClientManagerGroup").newThread(command).start();
+            }
+        };
+    }
+}
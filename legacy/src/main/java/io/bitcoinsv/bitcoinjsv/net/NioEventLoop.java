@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.net;
+
+import io.bitcoinsv.bitcoinjsv.utils.DaemonThreadFactory;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A selector running on its own thread which services connections accepted by a {@link NioServer}. Accepted channels
+ * are handed over through {@link #register(SocketChannel)} and from then on are read and written only by this loop's
+ * thread, so that a server with several loops processes its clients in parallel.
+ */
+class NioEventLoop implements Runnable {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+    private final StreamConnectionFactory connectionFactory;
+    private final Selector selector;
+    private final Queue<SocketChannel> newChannels = new LinkedBlockingQueue<SocketChannel>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    NioEventLoop(StreamConnectionFactory connectionFactory) throws IOException {
+        this.connectionFactory = connectionFactory;
+        this.selector = SelectorProvider.provider().openSelector();
+    }
+
+    /** Starts the loop on a new daemon thread with the given name. */
+    void start(String name) {
+        new DaemonThreadFactory(name).newThread(this).start();
+    }
+
+    /** Closes the selector of a loop which was never started. */
+    void closeUnstarted() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.error("Error closing event loop selector", e);
+        }
+    }
+
+    /** Queues an accepted, non-blocking channel to be registered with this loop's selector. */
+    void register(SocketChannel channel) {
+        newChannels.offer(channel);
+        selector.wakeup();
+    }
+
+    /** Asks the loop to close all its connections and exit, and waits for it to do so. */
+    void shutdown() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        terminated.await();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                SocketChannel channel;
+                while ((channel = newChannels.poll()) != null)
+                    NioServer.registerConnection(connectionFactory, selector, channel);
+
+                selector.select();
+
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    ConnectionHandler.handleKey(key);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error trying to read from connection: {}", e);
+        } finally {
+            // Go through and close everything, without letting IOExceptions get in our way
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.error("Error closing channel", e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    log.error("Error closing channel", e);
+                }
+                key.cancel();
+                ConnectionHandler.handleKey(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.error("Error closing event loop selector", e);
+            }
+            terminated.countDown();
+        }
+    }
+}
@@ -27,6 +27,8 @@ import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Creates a simple server listener which listens for incoming client connections and uses a {@link StreamConnection} to
  * process data.
@@ -41,27 +43,45 @@ public class NioServer extends AbstractExecutionThreadService {
     private final ServerSocketChannel sc;
     @VisibleForTesting final Selector selector;
 
+    // Worker loops which accepted connections are spread over. Empty if connections are serviced by the accept thread.
+    private final NioEventLoop[] workerLoops;
+    private int nextWorkerLoop = 0;
+
     // Handle a SelectionKey which was selected
     private void handleKey(Selector selector, SelectionKey key) throws IOException {
         if (key.isValid() && key.isAcceptable()) {
             // Accept a new connection, give it a stream connection as an attachment
             SocketChannel newChannel = sc.accept();
+            if (newChannel == null)
+                return;
             newChannel.configureBlocking(false);
-            SelectionKey newKey = newChannel.register(selector, SelectionKey.OP_READ);
-            try {
-                ConnectionHandler handler = new ConnectionHandler(connectionFactory, newKey);
-                newKey.attach(handler);
-                handler.connection.connectionOpened();
-            } catch (IOException e) {
-                // This can happen if ConnectionHandler's call to get a new handler returned null
-                log.error("Error handling new connection", Throwables.getRootCause(e).getMessage());
-                newKey.channel().close();
+            if (workerLoops.length == 0) {
+                registerConnection(connectionFactory, selector, newChannel);
+            } else {
+                workerLoops[nextWorkerLoop].register(newChannel);
+                nextWorkerLoop = (nextWorkerLoop + 1) % workerLoops.length;
             }
         } else { // Got a closing channel or a channel to a client connection
             ConnectionHandler.handleKey(key);
         }
     }
 
+    // Registers a newly accepted channel with the given selector and gives it a stream connection as an attachment.
+    // Must be called on the thread which runs the selector.
+    static void registerConnection(StreamConnectionFactory connectionFactory, Selector selector,
+                                   SocketChannel newChannel) throws IOException {
+        SelectionKey newKey = newChannel.register(selector, SelectionKey.OP_READ);
+        try {
+            ConnectionHandler handler = new ConnectionHandler(connectionFactory, newKey);
+            newKey.attach(handler);
+            handler.connection.connectionOpened();
+        } catch (IOException e) {
+            // This can happen if ConnectionHandler's call to get a new handler returned null
+            log.error("Error handling new connection", Throwables.getRootCause(e).getMessage());
+            newKey.channel().close();
+        }
+    }
+
     /**
      * Creates a new server which is capable of listening for incoming connections and processing client provided data
      * using {@link StreamConnection}s created by the given {@link StreamConnectionFactory}
@@ -69,8 +89,25 @@ public class NioServer extends AbstractExecutionThreadService {
      * @throws IOException If there is an issue opening the server socket or binding fails for some reason
      */
     public NioServer(final StreamConnectionFactory connectionFactory, InetSocketAddress bindAddress) throws IOException {
+        this(connectionFactory, bindAddress, 0);
+    }
+
+    /**
+     * Creates a new server like {@link #NioServer(StreamConnectionFactory, InetSocketAddress)}, but which spreads
+     * accepted connections round-robin over the given number of worker event loops, each with its own selector thread.
+     * With zero worker loops all connections are serviced by the accepting thread.
+     *
+     * @throws IOException If there is an issue opening the server socket or binding fails for some reason
+     */
+    public NioServer(final StreamConnectionFactory connectionFactory, InetSocketAddress bindAddress,
+                     int workerLoopCount) throws IOException {
+        checkArgument(workerLoopCount >= 0, "workerLoopCount must not be negative");
         this.connectionFactory = connectionFactory;
 
+        // The loops themselves are only created in startUp(), so that a server which is never started holds no
+        // selectors besides its own.
+        workerLoops = new NioEventLoop[workerLoopCount];
+
         sc = ServerSocketChannel.open();
         sc.configureBlocking(false);
         sc.socket().bind(bindAddress);
@@ -78,6 +115,24 @@ public class NioServer extends AbstractExecutionThreadService {
         sc.register(selector, SelectionKey.OP_ACCEPT);
     }
 
+    @Override
+    protected void startUp() throws Exception {
+        try {
+            for (int i = 0; i < workerLoops.length; i++)
+                workerLoops[i] = new NioEventLoop(connectionFactory);
+        } catch (IOException e) {
+            // run() will never be called, so release everything that was opened here.
+            for (NioEventLoop workerLoop : workerLoops)
+                if (workerLoop != null)
+                    workerLoop.closeUnstarted();
+            selector.close();
+            sc.close();
+            throw e;
+        }
+        for (int i = 0; i < workerLoops.length; i++)
+            workerLoops[i].start("NioServer worker " + i);
+    }
+
     @Override
     protected void run() throws Exception {
         try {
@@ -119,6 +174,8 @@ public class NioServer extends AbstractExecutionThreadService {
             } catch (IOException e) {
                 log.error("Error closing server channel", e);
             }
+            for (NioEventLoop workerLoop : workerLoops)
+                workerLoop.shutdown();
         }
     }
 
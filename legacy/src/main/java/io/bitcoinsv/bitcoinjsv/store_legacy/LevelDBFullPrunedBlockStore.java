@@ -35,6 +35,10 @@ import io.bitcoinsv.bitcoinjsv.exception.AddressFormatException;
 import io.bitcoinsv.bitcoinjsv.exception.BlockStoreException;
 import io.bitcoinsv.bitcoinjsv.exception.UTXOProviderException;
 import io.bitcoinsv.bitcoinjsv.exception.VerificationException;
+import io.bitcoinsv.bitcoinjsv.metrics.Counter;
+import io.bitcoinsv.bitcoinjsv.metrics.Metrics;
+import io.bitcoinsv.bitcoinjsv.metrics.SimpleMetricsRegistry;
+import io.bitcoinsv.bitcoinjsv.metrics.Timer;
 import io.bitcoinsv.bitcoinjsv.msg.Genesis_legacy;
 import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
@@ -82,8 +86,12 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
     protected long hit;
     protected long miss;
     Map<String, Stopwatch> methodStartTime;
-    Map<String, Long> methodCalls;
-    Map<String, Long> methodTotalTime;
+    // Per store timers for each instrumented method, which are also reported to the global metrics registry.
+    final SimpleMetricsRegistry methodTimers = new SimpleMetricsRegistry();
+    // Both timers of each method, looked up once rather than by name on every call.
+    private final Map<String, Timer[]> timersByMethod = new HashMap<String, Timer[]>();
+    private static final Counter CACHE_HITS = Metrics.counter("store.leveldb.utxo.cache.hit");
+    private static final Counter CACHE_MISSES = Metrics.counter("store.leveldb.utxo.cache.miss");
     int exitBlock; // Must be multiple of 1000 and causes code to exit at this
                    // block!
     // ONLY used for performance benchmarking.
@@ -260,8 +268,6 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
         this.instrument = instrument;
         this.exitBlock = exitBlock;
         methodStartTime = new HashMap<String, Stopwatch>();
-        methodCalls = new HashMap<String, Long>();
-        methodTotalTime = new HashMap<String, Long>();
 
         this.filename = filename;
         this.leveldbReadCache = leveldbReadCache;
@@ -347,14 +353,14 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
     }
 
     void endMethod(String name) {
-        if (methodCalls.containsKey(name)) {
-            methodCalls.put(name, methodCalls.get(name) + 1);
-            methodTotalTime.put(name,
-                    methodTotalTime.get(name) + methodStartTime.get(name).elapsed(TimeUnit.NANOSECONDS));
-        } else {
-            methodCalls.put(name, 1l);
-            methodTotalTime.put(name, methodStartTime.get(name).elapsed(TimeUnit.NANOSECONDS));
+        long elapsed = methodStartTime.get(name).elapsed(TimeUnit.NANOSECONDS);
+        Timer[] timers = timersByMethod.get(name);
+        if (timers == null) {
+            timers = new Timer[] { methodTimers.timer(name), Metrics.timer("store.leveldb." + name) };
+            timersByMethod.put(name, timers);
         }
+        for (Timer timer : timers)
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
     }
 
     // Debug method to display stats on runtime of each method
@@ -362,9 +368,10 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
     void dumpStats() {
         long wallTimeNanos = totalStopwatch.elapsed(TimeUnit.NANOSECONDS);
         long dbtime = 0;
-        for (String name : methodCalls.keySet()) {
-            long calls = methodCalls.get(name);
-            long time = methodTotalTime.get(name);
+        for (Map.Entry<String, SimpleMetricsRegistry.SimpleTimer> entry : methodTimers.getTimers().entrySet()) {
+            String name = entry.getKey();
+            long calls = entry.getValue().getCount();
+            long time = entry.getValue().getTotalTime(TimeUnit.NANOSECONDS);
             dbtime += time;
             long average = time / calls;
             double proportion = (time + 0.0) / (wallTimeNanos + 0.0);
@@ -717,6 +724,7 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
                 if (utxoUncommittedDeletedCache.contains(ByteBuffer.wrap(key))) {
                     // has been deleted so return null;
                     hit++;
+                    CACHE_HITS.increment();
                     if (instrument)
                         endMethod("getTransactionOutput");
                     return result;
@@ -730,11 +738,13 @@ public class LevelDBFullPrunedBlockStore implements FullPrunedBlockStore {
             }
             if (result != null) {
                 hit++;
+                CACHE_HITS.increment();
                 if (instrument)
                     endMethod("getTransactionOutput");
                 return result;
             }
             miss++;
+            CACHE_MISSES.increment();
             // If we get here have to hit the database.
             byte[] inbytes = batchGet(key);
             if (inbytes == null) {
@@ -28,6 +28,11 @@ import io.bitcoinsv.bitcoinjsv.params.UnitTestParams;
 import org.junit.*;
 import org.spongycastle.crypto.params.*;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.Assert.*;
 
 /**
@@ -291,6 +296,41 @@ public class ChildKeyDerivationTest {
 
     }
 
+    @Test
+    public void batchDerivationMatchesSingleDerivation() {
+        DeterministicKey master = HDKeyDerivation.createMasterPrivateKey("satoshi lives!".getBytes());
+        DeterministicKey watching = HDKeyDerivation.createMasterPubKeyFromBytes(master.getPubKey(), master.getChainCode());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            int count = HDKeyDerivation.MIN_KEYS_PER_TASK * 3 + 5;
+            assertBatchMatches(master, 10, count, executor, 3);
+            assertBatchMatches(watching, 10, count, executor, 3);
+            assertBatchMatches(master, ChildNumber.HARDENED_BIT | 2, 7, executor, 1);
+            assertEquals(0, HDKeyDerivation.deriveChildKeys(master, 0, 0, executor, 4).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertBatchMatches(DeterministicKey parent, int firstChild, int count, Executor executor,
+                                           int parallelism) {
+        List<DeterministicKey> batch = HDKeyDerivation.deriveChildKeys(parent, firstChild, count, executor, parallelism);
+        assertEquals(count, batch.size());
+        int next = firstChild;
+        for (DeterministicKey key : batch) {
+            DeterministicKey expected = HDKeyDerivation.deriveThisOrNextChildKey(parent, next);
+            assertEquals(expected.getPath(), key.getPath());
+            assertEquals(expected.getPubKeyPoint(), key.getPubKeyPoint());
+            assertArrayEquals(expected.getPubKey(), key.getPubKey());
+            assertArrayEquals(expected.getChainCode(), key.getChainCode());
+            assertEquals(expected.hasPrivKey(), key.hasPrivKey());
+            if (expected.hasPrivKey())
+                assertEquals(expected.getPrivKey(), key.getPrivKey());
+            assertEquals(parent.getFingerprint(), key.getParentFingerprint());
+            next = expected.getChildNumber().i() + 1;
+        }
+    }
+
     private static String hexEncodePub(DeterministicKey pubKey) {
         return Utils.HEX.encode(pubKey.getPubKey());
     }
@@ -19,6 +19,7 @@ package io.bitcoinsv.bitcoinjsv.crypto;
 
 import io.bitcoinsv.bitcoinjsv.core.Utils;
 import io.bitcoinsv.bitcoinjsv.utils.BriefLogFormatter;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.ByteString;
 
 import io.bitcoinsv.bitcoinjsv.protos.Protos;
@@ -27,9 +28,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.spongycastle.crypto.params.KeyParameter;
 
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -156,4 +159,18 @@ public class KeyCrypterScryptTest {
             assertEquals(Utils.HEX.encode(plainBytes), Utils.HEX.encode(rebornPlainBytes));
         }
     }
+
+    @Test
+    public void deriveKeyAsyncWithKeyCache() throws Exception {
+        KeyCrypterScrypt keyCrypter = new KeyCrypterScrypt(scryptParameters);
+        keyCrypter.setKeyCacheTtl(1, TimeUnit.MINUTES);
+        KeyParameter key = keyCrypter.deriveKeyAsync(PASSWORD1).get();
+        ListenableFuture<KeyParameter> cached = keyCrypter.deriveKeyAsync(PASSWORD1);
+        assertTrue(cached.isDone());
+        assertArrayEquals(key.getKey(), cached.get().getKey());
+
+        EncryptedData data = keyCrypter.encrypt(TEST_BYTES1, key);
+        keyCrypter.setKeyCacheTtl(0, TimeUnit.MINUTES);
+        assertArrayEquals(TEST_BYTES1, keyCrypter.decrypt(data, keyCrypter.deriveKey(PASSWORD1)));
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.msg.p2p;
+
+import io.bitcoinsv.bitcoinjsv.core.Context;
+import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.VarInt;
+import io.bitcoinsv.bitcoinjsv.msg.Genesis_legacy;
+import io.bitcoinsv.bitcoinjsv.msg.Message;
+import io.bitcoinsv.bitcoinjsv.msg.MessageSerializer;
+import io.bitcoinsv.bitcoinjsv.msg.Serializer;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Block;
+import io.bitcoinsv.bitcoinjsv.msg.protocol.Transaction;
+import io.bitcoinsv.bitcoinjsv.params.Net;
+import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
+import io.bitcoinsv.bitcoinjsv.params.UnitTestParams;
+import io.bitcoinsv.bitcoinjsv.testing.FakeTxBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactBlockMessageTest {
+    private static final NetworkParameters PARAMS = UnitTestParams.get();
+    private static final Net NET = Net.UNITTEST;
+
+    private Transaction tx1, tx2, tx3;
+    private Block block;
+    private List<Transaction> transactions;
+
+    @Before
+    public void setUp() throws Exception {
+        new Context(PARAMS);
+        tx1 = FakeTxBuilder.createFakeTx(NET);
+        tx2 = FakeTxBuilder.createFakeTx(NET);
+        tx3 = FakeTxBuilder.createFakeTx(NET);
+        block = FakeTxBuilder.makeSolvedTestBlock(Genesis_legacy.getFor(PARAMS), tx1, tx2, tx3);
+        transactions = block.getTransactions();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        CompactBlockMessage compactBlock = new CompactBlockMessage(NET, block, 0x0123456789abcdefL);
+        assertEquals(block.getHash(), compactBlock.getBlockHash());
+        assertEquals(transactions.size(), compactBlock.getTransactionCount());
+        assertEquals(transactions.size() - 1, compactBlock.getShortIds().length);
+        assertEquals(compactBlock.getShortId(tx2.getHash()),
+                compactBlock.getShortIds()[transactions.indexOf(tx2) - 1]);
+        assertEquals(0, compactBlock.getShortIds()[0] >>> 48);
+
+        CompactBlockMessage copy = (CompactBlockMessage) roundTrip(compactBlock);
+        assertEquals(compactBlock, copy);
+        assertEquals(compactBlock.getShortId(tx1.getHash()), copy.getShortId(tx1.getHash()));
+
+        GetBlockTxnMessage getBlockTxn = new GetBlockTxnMessage(NET, block.getHash(), new int[] {1, 2, 7, 300});
+        assertEquals(getBlockTxn, roundTrip(getBlockTxn));
+        BlockTxnMessage blockTxn = new BlockTxnMessage(NET, block.getHash(), Arrays.asList(tx1, tx3));
+        assertEquals(blockTxn, roundTrip(blockTxn));
+        SendCompactMessage sendCompact = new SendCompactMessage(NET, true, SendCompactMessage.VERSION);
+        assertEquals(sendCompact, roundTrip(sendCompact));
+    }
+
+    @Test
+    public void reconstructFromCandidates() throws Exception {
+        CompactBlockMessage compactBlock = new CompactBlockMessage(NET, block, 42);
+        List<Transaction> candidates = new ArrayList<Transaction>(transactions.subList(1, transactions.size()));
+        candidates.remove(tx2);
+        candidates.add(FakeTxBuilder.createFakeTx(NET));
+        Collections.reverse(candidates);
+        PartiallyDownloadedBlock partialBlock = new PartiallyDownloadedBlock(compactBlock, candidates);
+        assertFalse(partialBlock.isComplete());
+        assertArrayEquals(new int[] {transactions.indexOf(tx2)}, partialBlock.getMissingIndexes());
+
+        partialBlock.fillMissing(Collections.singletonList(tx2));
+        assertTrue(partialBlock.isComplete());
+        Block rebuilt = partialBlock.build();
+        assertNotNull(rebuilt);
+        assertEquals(block.getHash(), rebuilt.getHash());
+        assertEquals(block.getTransactions(), rebuilt.getTransactions());
+    }
+
+    @Test
+    public void wrongTransactionsFailMerkleCheck() throws Exception {
+        CompactBlockMessage compactBlock = new CompactBlockMessage(NET, block, 42);
+        PartiallyDownloadedBlock partialBlock = new PartiallyDownloadedBlock(compactBlock,
+                Collections.<Transaction>emptyList());
+        assertEquals(transactions.size() - 1, partialBlock.getMissingIndexes().length);
+        List<Transaction> shuffled = new ArrayList<Transaction>(transactions.subList(1, transactions.size()));
+        Collections.reverse(shuffled);
+        partialBlock.fillMissing(shuffled);
+        assertNull(partialBlock.build());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void wrongNumberOfMissingTransactions() throws Exception {
+        CompactBlockMessage compactBlock = new CompactBlockMessage(NET, block, 42);
+        PartiallyDownloadedBlock partialBlock = new PartiallyDownloadedBlock(compactBlock,
+                Collections.singletonList(tx1));
+        partialBlock.fillMissing(Arrays.asList(tx1, tx2, tx3, tx1, tx2, tx3));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void duplicateShortIds() throws Exception {
+        byte[] payload = new CompactBlockMessage(NET, block, 42).bitcoinSerialize();
+        // Header, nonce and a one byte count precede the short IDs. Overwrite the second with the first.
+        int shortIds = Block.HEADER_SIZE + 8 + 1;
+        System.arraycopy(payload, shortIds, payload, shortIds + CompactBlockMessage.SHORT_ID_LENGTH,
+                CompactBlockMessage.SHORT_ID_LENGTH);
+        new PartiallyDownloadedBlock(new CompactBlockMessage(NET, payload), Collections.<Transaction>emptyList());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void prefilledIndexOverflow() throws Exception {
+        byte[] payload = new CompactBlockMessage(NET, block, 42).bitcoinSerialize();
+        // Replace the one byte diff of the prefilled coinbase with the largest diff a varint can hold.
+        int diff = Block.HEADER_SIZE + 8 + 1 + (transactions.size() - 1) * CompactBlockMessage.SHORT_ID_LENGTH + 1;
+        byte[] hugeDiff = new VarInt(Long.MAX_VALUE).encode();
+        byte[] corrupted = new byte[payload.length - 1 + hugeDiff.length];
+        System.arraycopy(payload, 0, corrupted, 0, diff);
+        System.arraycopy(hugeDiff, 0, corrupted, diff, hugeDiff.length);
+        System.arraycopy(payload, diff + 1, corrupted, diff + hugeDiff.length, payload.length - diff - 1);
+        new CompactBlockMessage(NET, corrupted);
+    }
+
+    private static Object roundTrip(Message message) throws Exception {
+        MessageSerializer serializer = Serializer.defaultFor(PARAMS);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serializer.serialize(message, bos);
+        return serializer.deserialize(ByteBuffer.wrap(bos.toByteArray()));
+    }
+}
@@ -21,10 +21,12 @@ import io.bitcoinsv.bitcoinjsv.msg.Serializer;
 import io.bitcoinsv.bitcoinjsv.params.Net;
 import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
 import io.bitcoinsv.bitcoinjsv.core.ProtocolException;
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
 import io.bitcoinsv.bitcoinjsv.core.Utils;
 import io.bitcoinsv.bitcoinjsv.msg.BitcoinSerializer;
 import io.bitcoinsv.bitcoinjsv.msg.Message;
 import io.bitcoinsv.bitcoinjsv.msg.MessageSerializer;
+import io.bitcoinsv.bitcoinjsv.msg.SerializedMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.AddressMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.HeadersMessage;
 import io.bitcoinsv.bitcoinjsv.msg.p2p.PeerAddress;
@@ -103,6 +105,49 @@ public class BitcoinSerializerTest {
         assertEquals(true, Arrays.equals(TRANSACTION_MESSAGE_BYTES, bos.toByteArray()));
     }
 
+    @Test
+    public void testSerializeFrame() throws Exception {
+        MessageSerializer serializer = Serializer.get(Net.MAINNET, true, false);
+        Transaction tx = (Transaction) serializer.deserialize(ByteBuffer.wrap(TRANSACTION_MESSAGE_BYTES));
+
+        SerializedMessage frame = serializer.serializeFrame(tx);
+        assertSame(tx, frame.getMessage());
+        assertEquals(TRANSACTION_MESSAGE_BYTES.length, frame.length());
+
+        // Every buffer is an independent, read-only view over the same frame
+        ByteBuffer first = frame.newBuffer();
+        ByteBuffer second = frame.newBuffer();
+        assertTrue(first.isReadOnly());
+        byte[] bytes = new byte[first.remaining()];
+        first.get(bytes);
+        assertArrayEquals(TRANSACTION_MESSAGE_BYTES, bytes);
+        assertFalse(first.hasRemaining());
+        assertEquals(TRANSACTION_MESSAGE_BYTES.length, second.remaining());
+    }
+
+    @Test
+    public void testDeserializePayloadWithPrecomputedHash() throws Exception {
+        MessageSerializer serializer = Serializer.get(Net.MAINNET, true, false);
+        ByteBuffer in = ByteBuffer.wrap(TRANSACTION_MESSAGE_BYTES);
+        serializer.seekPastMagicBytes(in);
+        BitcoinSerializer.BitcoinPacketHeader header = serializer.deserializeHeader(in);
+        byte[] payload = new byte[header.size];
+        in.get(payload);
+
+        Transaction tx = (Transaction) serializer.deserializePayload(header, payload, Sha256Hash.hashTwice(payload));
+        assertEquals(Sha256Hash.wrapReversed(Sha256Hash.hashTwice(payload)), tx.getHash());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serializer.serialize(tx, bos);
+        assertArrayEquals(TRANSACTION_MESSAGE_BYTES, bos.toByteArray());
+
+        try {
+            serializer.deserializePayload(header, payload, new byte[32]);
+            fail("checksum should not verify");
+        } catch (ProtocolException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testCachedParsing() throws Exception {
         MessageSerializer serializer = Serializer.get(Net.MAINNET, true, false);
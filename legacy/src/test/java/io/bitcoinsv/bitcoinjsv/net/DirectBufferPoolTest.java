@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.net;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class DirectBufferPoolTest {
+    @Test
+    public void reusesReleasedBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(4);
+        ByteBuffer buffer = pool.acquire(4096);
+        assertTrue(buffer.isDirect());
+        assertEquals(4096, buffer.capacity());
+        buffer.put((byte) 1).flip();
+
+        pool.release(buffer);
+        assertEquals(1, pool.getPooledCount(4096));
+        ByteBuffer reused = pool.acquire(4096);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(4096, reused.limit());
+        assertEquals(0, pool.getPooledCount(4096));
+    }
+
+    @Test
+    public void separatesCapacities() {
+        DirectBufferPool pool = new DirectBufferPool(4);
+        pool.release(pool.acquire(4096));
+        ByteBuffer other = pool.acquire(8192);
+        assertEquals(8192, other.capacity());
+        assertEquals(1, pool.getPooledCount(4096));
+    }
+
+    @Test
+    public void boundsIdleBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        for (int i = 0; i < 5; i++)
+            pool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(2, pool.getPooledCount(1024));
+    }
+
+    @Test
+    public void ignoresHeapBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        pool.release(ByteBuffer.allocate(1024));
+        assertEquals(0, pool.getPooledCount(1024));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.bitcoinsv.bitcoinjsv.net;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.bitcoinsv.bitcoinjsv.core.Context;
+import io.bitcoinsv.bitcoinjsv.params.UnitTestParams;
+import org.bitcoin.paymentchannel.Protos;
+import org.bitcoin.paymentchannel.Protos.TwoWayChannelMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NioClientManagerGroupTest {
+    private static final int CONNECTIONS = 6;
+
+    private InetSocketAddress address;
+    private NioServer server;
+    private NioClientManagerGroup group;
+    private final CountDownLatch serverOpened = new CountDownLatch(CONNECTIONS);
+    private final CountDownLatch serverClosed = new CountDownLatch(CONNECTIONS);
+
+    @Before
+    public void setUp() throws Exception {
+        new Context(UnitTestParams.get());
+        ServerSocket socket = new ServerSocket(0);
+        address = new InetSocketAddress("localhost", socket.getLocalPort());
+        socket.close();
+        // The server echoes every message back and spreads its connections over two worker loops.
+        server = new NioServer(new StreamConnectionFactory() {
+            @Override
+            public ProtobufConnection<TwoWayChannelMessage> getNewConnection(InetAddress inetAddress, int port) {
+                return new ProtobufConnection<TwoWayChannelMessage>(new ProtobufConnection.Listener<TwoWayChannelMessage>() {
+                    @Override
+                    public void messageReceived(ProtobufConnection<TwoWayChannelMessage> handler, TwoWayChannelMessage msg) {
+                        handler.write(msg);
+                    }
+
+                    @Override
+                    public void connectionOpen(ProtobufConnection<TwoWayChannelMessage> handler) {
+                        serverOpened.countDown();
+                    }
+
+                    @Override
+                    public void connectionClosed(ProtobufConnection<TwoWayChannelMessage> handler) {
+                        serverClosed.countDown();
+                    }
+                }, TwoWayChannelMessage.getDefaultInstance(), 1000, 0);
+            }
+        }, address, 2);
+        server.startAsync().awaitRunning();
+        group = new NioClientManagerGroup(2);
+        group.startAsync().awaitRunning();
+    }
+
+    @After
+    public void tearDown() {
+        group.stopAsync().awaitTerminated();
+        server.stopAsync().awaitTerminated();
+    }
+
+    private static class Client implements ProtobufConnection.Listener<TwoWayChannelMessage> {
+        final SettableFuture<Void> opened = SettableFuture.create();
+        final SettableFuture<TwoWayChannelMessage> received = SettableFuture.create();
+        final SettableFuture<Void> closed = SettableFuture.create();
+        final ProtobufConnection<TwoWayChannelMessage> connection =
+                new ProtobufConnection<TwoWayChannelMessage>(this, TwoWayChannelMessage.getDefaultInstance(), 1000, 0);
+
+        @Override
+        public void messageReceived(ProtobufConnection<TwoWayChannelMessage> handler, TwoWayChannelMessage msg) {
+            received.set(msg);
+        }
+
+        @Override
+        public void connectionOpen(ProtobufConnection<TwoWayChannelMessage> handler) {
+            opened.set(null);
+        }
+
+        @Override
+        public void connectionClosed(ProtobufConnection<TwoWayChannelMessage> handler) {
+            closed.set(null);
+        }
+    }
+
+    private static TwoWayChannelMessage message(int i) {
+        return TwoWayChannelMessage.newBuilder()
+                .setType(TwoWayChannelMessage.MessageType.CLIENT_VERSION)
+                .setClientVersion(Protos.ClientVersion.newBuilder().setMajor(i))
+                .build();
+    }
+
+    @Test
+    public void deliversAcrossLoops() throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            Client client = new Client();
+            clients.add(client);
+            group.openConnection(address, client.connection).get(5, TimeUnit.SECONDS);
+        }
+        for (Client client : clients)
+            client.opened.get(5, TimeUnit.SECONDS);
+        assertTrue(serverOpened.await(5, TimeUnit.SECONDS));
+        assertEquals(CONNECTIONS, group.getConnectedClientCount());
+
+        for (int i = 0; i < CONNECTIONS; i++)
+            clients.get(i).connection.write(message(i));
+        for (int i = 0; i < CONNECTIONS; i++)
+            assertEquals(message(i), clients.get(i).received.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closesAcrossLoops() throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            Client client = new Client();
+            clients.add(client);
+            group.openConnection(address, client.connection).get(5, TimeUnit.SECONDS);
+        }
+        for (Client client : clients)
+            client.opened.get(5, TimeUnit.SECONDS);
+
+        group.closeConnections(CONNECTIONS);
+        for (Client client : clients)
+            client.closed.get(5, TimeUnit.SECONDS);
+        assertTrue(serverClosed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, group.getConnectedClientCount());
+    }
+}
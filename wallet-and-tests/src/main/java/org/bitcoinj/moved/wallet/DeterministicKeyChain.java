@@ -1172,13 +1172,12 @@ public class DeterministicKeyChain implements EncryptableKeyChain {
 
         List<DeterministicKey> result  = new ArrayList<DeterministicKey>(needed);
         final Stopwatch watch = Stopwatch.createStarted();
-        int nextChild = numChildren;
-        for (int i = 0; i < needed; i++) {
-            DeterministicKey key = HDKeyDerivation.deriveThisOrNextChildKey(parent, nextChild);
+        List<DeterministicKey> derived = HDKeyDerivation.deriveChildKeys(parent, numChildren, needed,
+                Threading.THREAD_POOL, Runtime.getRuntime().availableProcessors());
+        for (DeterministicKey key : derived) {
             key = key.dropPrivateBytes();
             hierarchy.putKey(key);
             result.add(key);
-            nextChild = key.getChildNumber().num() + 1;
         }
         watch.stop();
         log.info("Took {}", watch);
@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.moved.wallet;
+
+import io.bitcoinsv.bitcoinjsv.core.ECKey;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>An insertion ordered collection of keys which can be looked up by the hash160 or the bytes of their public key in
+ * constant time, without allocating. It replaces a pair of {@link java.util.LinkedHashMap}s keyed by
+ * {@link com.google.protobuf.ByteString}, which needed a copy of the query bytes for every lookup and an entry object
+ * and two wrappers for every key.</p>
+ *
+ * <p>Keys are held densely in insertion order. Two open addressing tables, one for hashes and one for public keys,
+ * map a long packed from the first bytes of the lookup key to a position in that order; the tag is compared before
+ * the full bytes. Removing a key rebuilds the tables, as removal is rare compared to lookups.</p>
+ *
+ * <p>Not thread safe. {@link BasicKeyChain} only touches it while holding its lock.</p>
+ */
+final class KeyIndex implements Iterable<ECKey> {
+    private static final int INITIAL_CAPACITY = 16;
+    // Compressed and uncompressed public keys start with a type byte, so the tag skips it.
+    private static final int PUBKEY_TAG_OFFSET = 1;
+
+    // Entries in insertion order. Removed entries are null until the next rebuild.
+    private ECKey[] keys = new ECKey[INITIAL_CAPACITY];
+    private byte[][] hashes = new byte[INITIAL_CAPACITY][];
+    private byte[][] pubKeys = new byte[INITIAL_CAPACITY][];
+    private int count;
+    private int size;
+
+    // Open addressing tables holding the entry position plus one, zero meaning empty, and the tag of that entry.
+    private int[] hashSlots;
+    private long[] hashTags;
+    private int[] pubKeySlots;
+    private long[] pubKeyTags;
+
+    KeyIndex() {
+        allocateTables(INITIAL_CAPACITY * 2);
+    }
+
+    /**
+     * Adds the key, unless a key with the same public key is already present.
+     *
+     * @return true if the key was added.
+     */
+    boolean add(ECKey key) {
+        byte[] pubKey = key.getPubKey();
+        if (find(pubKeySlots, pubKeyTags, pubKeys, pubKey, PUBKEY_TAG_OFFSET) >= 0)
+            return false;
+        if (count == keys.length)
+            rebuild(Math.max(INITIAL_CAPACITY, size * 2));
+        byte[] hash = key.getPubKeyHash();
+        keys[count] = key;
+        hashes[count] = hash;
+        pubKeys[count] = pubKey;
+        insert(hashSlots, hashTags, hash, 0, count);
+        insert(pubKeySlots, pubKeyTags, pubKey, PUBKEY_TAG_OFFSET, count);
+        count++;
+        size++;
+        return true;
+    }
+
+    /** Returns the first key added with the given hash160, or null if there is none. */
+    @Nullable
+    ECKey getByPubKeyHash(byte[] pubKeyHash) {
+        int entry = find(hashSlots, hashTags, hashes, pubKeyHash, 0);
+        return entry < 0 ? null : keys[entry];
+    }
+
+    /** Returns the key with the given public key bytes, or null if there is none. */
+    @Nullable
+    ECKey getByPubKey(byte[] pubKey) {
+        int entry = find(pubKeySlots, pubKeyTags, pubKeys, pubKey, PUBKEY_TAG_OFFSET);
+        return entry < 0 ? null : keys[entry];
+    }
+
+    /**
+     * Removes the key with the same public key as the given one.
+     *
+     * @return true if a key was removed.
+     */
+    boolean remove(ECKey key) {
+        int entry = find(pubKeySlots, pubKeyTags, pubKeys, key.getPubKey(), PUBKEY_TAG_OFFSET);
+        if (entry < 0)
+            return false;
+        keys[entry] = null;
+        hashes[entry] = null;
+        pubKeys[entry] = null;
+        size--;
+        rebuild(keys.length);
+        return true;
+    }
+
+    /** Returns the key that was added first and is still present, or null if empty. */
+    @Nullable
+    ECKey first() {
+        for (int i = 0; i < count; i++)
+            if (keys[i] != null)
+                return keys[i];
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Iterates over the keys in insertion order. The index must not be modified while iterating. */
+    @Override
+    public Iterator<ECKey> iterator() {
+        return new Iterator<ECKey>() {
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < count && keys[from] == null)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public ECKey next() {
+                if (next >= count)
+                    throw new NoSuchElementException();
+                ECKey key = keys[next];
+                next = advance(next + 1);
+                return key;
+            }
+        };
+    }
+
+    // Compacts the entries into arrays of the given capacity and rebuilds both tables.
+    private void rebuild(int capacity) {
+        ECKey[] oldKeys = keys;
+        byte[][] oldHashes = hashes;
+        byte[][] oldPubKeys = pubKeys;
+        int oldCount = count;
+        keys = new ECKey[capacity];
+        hashes = new byte[capacity][];
+        pubKeys = new byte[capacity][];
+        count = 0;
+        for (int i = 0; i < oldCount; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            keys[count] = oldKeys[i];
+            hashes[count] = oldHashes[i];
+            pubKeys[count] = oldPubKeys[i];
+            count++;
+        }
+        allocateTables(capacity * 2);
+        for (int i = 0; i < count; i++) {
+            insert(hashSlots, hashTags, hashes[i], 0, i);
+            insert(pubKeySlots, pubKeyTags, pubKeys[i], PUBKEY_TAG_OFFSET, i);
+        }
+    }
+
+    // The tables are kept at least twice as large as the entry arrays, so they are never more than half full.
+    private void allocateTables(int tableSize) {
+        hashSlots = new int[tableSize];
+        hashTags = new long[tableSize];
+        pubKeySlots = new int[tableSize];
+        pubKeyTags = new long[tableSize];
+    }
+
+    private static void insert(int[] slots, long[] tags, byte[] bytes, int tagOffset, int entry) {
+        long tag = tag(bytes, tagOffset);
+        int mask = slots.length - 1;
+        int slot = spread(tag) & mask;
+        while (slots[slot] != 0)
+            slot = (slot + 1) & mask;
+        slots[slot] = entry + 1;
+        tags[slot] = tag;
+    }
+
+    private static int find(int[] slots, long[] tags, byte[][] entries, byte[] bytes, int tagOffset) {
+        long tag = tag(bytes, tagOffset);
+        int mask = slots.length - 1;
+        int slot = spread(tag) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (tags[slot] == tag && Arrays.equals(entries[entry - 1], bytes))
+                return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Packs up to eight bytes starting at the offset into a long. Hashes and public key coordinates are uniformly
+    // distributed, so these bytes are as good a hash code as any.
+    private static long tag(byte[] bytes, int offset) {
+        long tag = 0;
+        int end = Math.min(bytes.length, offset + 8);
+        for (int i = offset; i < end; i++)
+            tag = (tag << 8) | (bytes[i] & 0xff);
+        return tag;
+    }
+
+    private static int spread(long tag) {
+        return (int) (tag ^ (tag >>> 32));
+    }
+}
@@ -705,13 +705,9 @@ public class Wallet extends BaseTaggableObject
 
     /** Takes a list of keys and a password, then encrypts and imports them in one step using the current keycrypter. */
     public int importKeysAndEncrypt(final List<ECKey> keys, CharSequence password) {
-        keyChainGroupLock.lock();
-        try {
-            checkNotNull(getKeyCrypter(), "Wallet is not encrypted");
-            return importKeysAndEncrypt(keys, getKeyCrypter().deriveKey(password));
-        } finally {
-            keyChainGroupLock.unlock();
-        }
+        // Derive the key without holding the lock, it can take seconds.
+        KeyCrypter crypter = checkNotNull(getKeyCrypter(), "Wallet is not encrypted");
+        return importKeysAndEncrypt(keys, crypter.deriveKey(password));
     }
 
     /** Takes a list of keys and an AES key, then encrypts and imports them in one step using the current keycrypter. */
@@ -1115,14 +1111,8 @@ public class Wallet extends BaseTaggableObject
      * parameters to derive a key from the given password.
      */
     public void encrypt(CharSequence password) {
-        keyChainGroupLock.lock();
-        try {
-            final KeyCrypterScrypt scrypt = new KeyCrypterScrypt();
-            keyChainGroup.encrypt(scrypt, scrypt.deriveKey(password));
-        } finally {
-            keyChainGroupLock.unlock();
-        }
-        saveNow();
+        final KeyCrypterScrypt scrypt = new KeyCrypterScrypt();
+        encrypt(scrypt, scrypt.deriveKey(password));
     }
 
     /**
@@ -1144,19 +1134,14 @@ public class Wallet extends BaseTaggableObject
     }
 
     /**
-     * Decrypt the wallet with the wallets keyCrypter and password.
+     * Decrypt the wallet with the wallets keyCrypter and password. The key is derived before the wallet is locked, so
+     * other threads can keep using the wallet in the meantime.
      * @throws KeyCrypterException Thrown if the wallet decryption fails. If so, the wallet state is unchanged.
      */
     public void decrypt(CharSequence password) {
-        keyChainGroupLock.lock();
-        try {
-            final KeyCrypter crypter = keyChainGroup.getKeyCrypter();
-            checkState(crypter != null, "Not encrypted");
-            keyChainGroup.decrypt(crypter.deriveKey(password));
-        } finally {
-            keyChainGroupLock.unlock();
-        }
-        saveNow();
+        final KeyCrypter crypter = getKeyCrypter();
+        checkState(crypter != null, "Not encrypted");
+        decrypt(crypter.deriveKey(password));
     }
 
     /**
@@ -1183,12 +1168,9 @@ public class Wallet extends BaseTaggableObject
      *  @throws IllegalStateException if the wallet is not encrypted.
      */
     public boolean checkPassword(CharSequence password) {
-        keyChainGroupLock.lock();
-        try {
-            return keyChainGroup.checkPassword(password);
-        } finally {
-            keyChainGroupLock.unlock();
-        }
+        final KeyCrypter crypter = getKeyCrypter();
+        checkState(crypter != null, "Not encrypted");
+        return checkAESKey(crypter.deriveKey(password));
     }
 
     /**
@@ -1322,9 +1304,16 @@ public class Wallet extends BaseTaggableObject
     /**
      * Uses protobuf serialization to save the wallet to the given file. To learn more about this file format, see
      * {@link WalletProtobufSerializer}. Writes out first to a temporary file in the same directory and then renames
-     * once written.
+     * once written. If the file is being saved through a {@link WalletJournal}, see {@link WalletFiles#enableJournal()},
+     * the journal writes the snapshot instead and starts over, as it would no longer match a file replaced under it.
      */
     public void saveToFile(File f) throws IOException {
+        WalletFiles files = vFileManager;
+        WalletJournal journal = files != null ? files.getJournal() : null;
+        if (journal != null && journal.getFile().getAbsoluteFile().equals(f.getAbsoluteFile())) {
+            journal.rewrite(this);
+            return;
+        }
         File directory = f.getAbsoluteFile().getParentFile();
         File temp = File.createTempFile("wallet", null, directory);
         saveToFile(temp, f);
@@ -1497,10 +1486,14 @@ public class Wallet extends BaseTaggableObject
      * <p>Returns a wallet deserialized from the given file. Extensions previously saved with the wallet can be
      * deserialized by calling @{@link WalletExtension#deserializeWalletExtension(Wallet, byte[])}}</p>
      *
+     * <p>If the file has a {@link WalletJournal} next to it, the journal is replayed on top of the file.</p>
+     *
      * @param file the wallet file to read
      * @param walletExtensions extensions possibly added to the wallet.
      */
     public static Wallet loadFromFile(File file, @Nullable WalletExtension... walletExtensions) throws UnreadableWalletException {
+        if (WalletJournal.journalFileFor(file).exists())
+            return WalletJournal.loadFromFile(file, walletExtensions);
         try {
             FileInputStream stream = null;
             try {
@@ -36,6 +36,9 @@ import static com.google.common.base.Preconditions.*;
  * It can be useful to delay writing of a wallet file to disk on slow devices where disk and serialization overhead
  * can come to dominate the chain processing speed, i.e. on Android phones. By coalescing writes and doing serialization
  * and disk IO on a background thread performance can be improved.
+ *
+ * <p>For large wallets, {@link #enableJournal()} switches to a {@link WalletJournal}, which appends only what changed
+ * to a journal next to the wallet file and compacts it into a new wallet file on the autosave thread.</p>
  */
 public class WalletFiles {
     private static final Logger log = LoggerFactory.getLogger(WalletFiles.class);
@@ -47,8 +50,10 @@ public class WalletFiles {
     private final long delay;
     private final TimeUnit delayTimeUnit;
     private final Callable<Void> saver;
+    private final Runnable compactor;
 
     private volatile Listener vListener;
+    @Nullable private volatile WalletJournal vJournal;
 
     /**
      * Implementors can do pre/post treatment of the wallet file. Useful for adjusting permissions and other things.
@@ -100,6 +105,18 @@ public class WalletFiles {
                 return null;
             }
         };
+        this.compactor = new Runnable() {
+            @Override public void run() {
+                WalletJournal journal = vJournal;
+                if (journal == null || !journal.needsCompaction())
+                    return;
+                try {
+                    journal.compact(wallet);
+                } catch (IOException e) {
+                    log.error("Failed to compact wallet journal", e);
+                }
+            }
+        };
     }
 
     /**
@@ -107,6 +124,32 @@ public class WalletFiles {
      */
     public void setListener(@Nonnull Listener listener) {
         this.vListener = checkNotNull(listener);
+        WalletJournal journal = vJournal;
+        if (journal != null)
+            journal.setListener(listener);
+    }
+
+    /**
+     * <p>Saves from now on by appending the changes to a {@link WalletJournal} rather than rewriting the whole wallet
+     * file. The first save still writes the complete file; after that, the journal is compacted into a new wallet
+     * file on the autosave thread whenever it grows larger than the wallet file itself.</p>
+     *
+     * <p>{@link Wallet#loadFromFile(File, WalletExtension...)} replays the journal when the wallet is loaded again.
+     * The listener is told about every temporary file written and about each new wallet file, including those
+     * written by compaction, but not about changes appended to the journal.</p>
+     */
+    public void enableJournal() {
+        if (vJournal == null) {
+            WalletJournal journal = new WalletJournal(file);
+            journal.setListener(vListener);
+            vJournal = journal;
+        }
+    }
+
+    /** Returns the journal saves go to since {@link #enableJournal()}, or null if they rewrite the wallet file. */
+    @Nullable
+    public WalletJournal getJournal() {
+        return vJournal;
     }
 
     /** Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread. */
@@ -122,6 +165,15 @@ public class WalletFiles {
 
     private void saveNowInternal() throws IOException {
         final Stopwatch watch = Stopwatch.createStarted();
+        final WalletJournal journal = vJournal;
+        if (journal != null) {
+            journal.append(wallet);
+            if (journal.needsCompaction() && !executor.isShutdown())
+                executor.execute(compactor);
+            watch.stop();
+            log.info("Save completed in {}", watch);
+            return;
+        }
         File directory = file.getAbsoluteFile().getParentFile();
         File temp = File.createTempFile("wallet", null, directory);
         final Listener listener = vListener;
@@ -149,5 +201,13 @@ public class WalletFiles {
         } catch (InterruptedException x) {
             throw new RuntimeException(x);
         }
+        WalletJournal journal = vJournal;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.error("Failed to close wallet journal", e);
+            }
+        }
     }
 }
@@ -0,0 +1,618 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.moved.wallet;
+
+import io.bitcoinsv.bitcoinjsv.core.Sha256Hash;
+import io.bitcoinsv.bitcoinjsv.core.Utils;
+import io.bitcoinsv.bitcoinjsv.core.Verification;
+import io.bitcoinsv.bitcoinjsv.params.NetworkParameters;
+import io.bitcoinsv.bitcoinjsv.protos.Protos;
+import io.bitcoinsv.bitcoinjsv.utils.Threading;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Persists a wallet as a protobuf snapshot plus an append-only journal of changes, so that what a save writes to
+ * disk tracks what changed since the previous one instead of the size of the wallet. The snapshot is an ordinary wallet
+ * file as written by {@link WalletProtobufSerializer}. The journal lives next to it, with {@link #FILE_SUFFIX}
+ * appended to its name, and holds one record per save: the transactions that were added, changed or removed, the
+ * keys that were issued or updated and, if anything else about the wallet changed, its remaining top level
+ * fields. Once the journal outgrows the snapshot, {@link #compact(Wallet)} folds it into a fresh snapshot.</p>
+ *
+ * <p>Changes are found by comparing a fingerprint of every serialized transaction and key with the one last written,
+ * so each save still serializes the whole wallet and its CPU cost grows with the wallet. Only that serialization is
+ * done under the wallet lock; the comparison runs afterwards under the journal's own lock. The depth of
+ * building transactions is fingerprinted relative to the last seen block height: a new block which only deepens
+ * transactions writes a few bytes rather than every transaction in the wallet.</p>
+ *
+ * <p>{@link Wallet#loadFromFile(File, WalletExtension...)} and {@link #loadFromFile(File, WalletExtension...)} replay
+ * the journal on top of the snapshot. Reading the snapshot through a stream, for example with
+ * {@link Wallet#loadFromFileStream(InputStream, WalletExtension...)}, misses whatever is in the journal. The first save
+ * made through a new instance always writes a full snapshot. Normally you would not use this class directly but call
+ * {@link WalletFiles#enableJournal()}.</p>
+ */
+public class WalletJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WalletJournal.class);
+
+    /** Appended to the name of the snapshot file to get the name of its journal. */
+    public static final String FILE_SUFFIX = ".journal";
+
+    private static final int MAGIC = 0x4a575342;
+    private static final int HEADER_LENGTH = 4 + 32;
+    private static final int RECORD_HEADER_LENGTH = 4 + 4;
+    private static final long MIN_COMPACTION_LENGTH = 64 * 1024;
+
+    private final File file;
+    private final File journalFile;
+    private final ReentrantLock lock = Threading.lock("walletjournal");
+    // Held for the whole of a compaction, before the wallet lock.
+    private final ReentrantLock compactionLock = Threading.lock("walletjournal-compaction");
+
+    // Fingerprints of the wallet as it is on disk. Null until this instance has written its first snapshot.
+    @GuardedBy("lock") @Nullable private Map<ByteString, Long> txFingerprints;
+    @GuardedBy("lock") private long[] keyFingerprints;
+    @GuardedBy("lock") private long restFingerprint;
+
+    @GuardedBy("lock") @Nullable private FileOutputStream out;
+    @GuardedBy("lock") private long journalLength;
+    @GuardedBy("lock") private long snapshotLength;
+    // Bumped whenever a snapshot is installed, so that a compaction can tell the journal was reset under it.
+    @GuardedBy("lock") private long generation;
+
+    @Nullable private volatile WalletFiles.Listener vListener;
+
+    /**
+     * Creates a journal for the given wallet file. Nothing is read or written until the first call to
+     * {@link #append(Wallet)}.
+     */
+    public WalletJournal(File file) {
+        this.file = checkNotNull(file);
+        this.journalFile = journalFileFor(file);
+    }
+
+    /** Returns the file holding the journal of the given wallet file. */
+    public static File journalFileFor(File file) {
+        return new File(file.getPath() + FILE_SUFFIX);
+    }
+
+    /** Returns the wallet file holding the snapshot. */
+    public File getFile() {
+        return file;
+    }
+
+    /** Returns the file the journal records are appended to. */
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Sets the listener told about snapshots, as {@link WalletFiles} tells its listener about saves:
+     * {@link WalletFiles.Listener#onBeforeAutoSave(File)} for each temporary file before it is written, and
+     * {@link WalletFiles.Listener#onAfterAutoSave(File)} with the wallet file once a snapshot has been renamed over it.
+     * Appending to the journal doesn't replace any file, so it isn't reported.
+     */
+    public void setListener(@Nullable WalletFiles.Listener listener) {
+        this.vListener = listener;
+    }
+
+    /**
+     * Writes whatever changed in the wallet since the previous save to the end of the journal, and syncs it. The
+     * first call writes a complete snapshot instead.
+     */
+    public void append(Wallet wallet) throws IOException {
+        boolean installed;
+        Protos.Wallet proto = serializeAndLock(wallet);
+        try {
+            installed = out == null;
+            if (installed)
+                installSnapshot(proto);
+            else
+                appendChanges(proto);
+        } finally {
+            lock.unlock();
+        }
+        if (installed)
+            snapshotInstalled();
+    }
+
+    /**
+     * Serializes the wallet under its lock and returns with the journal lock held, so that saves reach the journal in
+     * the order the wallet was serialized while the wallet itself is only locked for the serialization.
+     */
+    private Protos.Wallet serializeAndLock(Wallet wallet) {
+        wallet.lock.lock();
+        try {
+            lock.lock();
+            boolean serialized = false;
+            try {
+                Protos.Wallet proto = new WalletProtobufSerializer().walletToProto(wallet);
+                serialized = true;
+                return proto;
+            } finally {
+                if (!serialized)
+                    lock.unlock();
+            }
+        } finally {
+            wallet.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true once the journal has grown larger than the snapshot, at which point replaying it costs more than
+     * reading a compacted wallet would.
+     */
+    public boolean needsCompaction() {
+        lock.lock();
+        try {
+            long records = journalLength - HEADER_LENGTH;
+            return out != null && records > Math.max(snapshotLength, MIN_COMPACTION_LENGTH);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Writes a new snapshot of the wallet and starts a new, empty journal for it. The wallet is locked only while
+     * it is serialized. The snapshot is then written and synced without holding any lock, so saves made in the
+     * meantime are appended as usual; only those records are copied into the new journal under the journal lock,
+     * just before the files are swapped. If nothing has been saved through this instance yet, this is the same as
+     * {@link #append(Wallet)}.</p>
+     *
+     * <p>Returns immediately if another compaction is already in progress.</p>
+     */
+    public void compact(Wallet wallet) throws IOException {
+        if (!compactionLock.tryLock())
+            return;
+        try {
+            compactLocked(wallet);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #compact(Wallet)}, but waits for a compaction in progress to finish and then compacts again, so that
+     * the snapshot is known to be up to date when it returns. {@link Wallet#saveToFile(File)} uses this for a wallet
+     * file that is being journaled.
+     */
+    public void rewrite(Wallet wallet) throws IOException {
+        compactionLock.lock();
+        try {
+            compactLocked(wallet);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void compactLocked(Wallet wallet) throws IOException {
+        long mark;
+        long startGeneration;
+        Protos.Wallet proto = serializeAndLock(wallet);
+        try {
+            if (out == null) {
+                installSnapshot(proto);
+                mark = -1;
+            } else {
+                // Bring the journal up to date so that the snapshot matches it exactly at this offset.
+                appendChanges(proto);
+                mark = journalLength;
+            }
+            startGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+        if (mark < 0) {
+            snapshotInstalled();
+            return;
+        }
+
+        PendingSnapshot snapshot = writeSnapshot(proto.toByteArray());
+        try {
+            lock.lock();
+            try {
+                // A failed append forced a full snapshot in the meantime.
+                if (out == null || generation != startGeneration)
+                    return;
+                // Every record after the mark only replaces state wholesale, so it applies equally on top of the new
+                // snapshot.
+                byte[] tail = new byte[(int) (journalLength - mark)];
+                RandomAccessFile raf = new RandomAccessFile(journalFile, "r");
+                try {
+                    raf.seek(mark);
+                    raf.readFully(tail);
+                } finally {
+                    raf.close();
+                }
+                installSnapshot(null, snapshot, tail);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            snapshot.discard();
+        }
+        snapshotInstalled();
+    }
+
+    /** Tells the listener the wallet file was replaced. Called without holding any lock. */
+    private void snapshotInstalled() {
+        WalletFiles.Listener listener = vListener;
+        if (listener != null)
+            listener.onAfterAutoSave(file);
+    }
+
+    /** Creates a temporary file next to the wallet file and gives the listener a chance to adjust it. */
+    private File createTempFile(@Nullable String suffix) throws IOException {
+        File temp = File.createTempFile("wallet", suffix, file.getAbsoluteFile().getParentFile());
+        WalletFiles.Listener listener = vListener;
+        if (listener != null) {
+            boolean prepared = false;
+            try {
+                listener.onBeforeAutoSave(temp);
+                prepared = true;
+            } finally {
+                if (!prepared && !temp.delete())
+                    log.warn("Could not delete {}", temp);
+            }
+        }
+        return temp;
+    }
+
+    /** Closes the journal. A later {@link #append(Wallet)} starts over with a full snapshot. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** A snapshot written and synced to a temporary file next to the wallet file, waiting to be renamed over it. */
+    private static class PendingSnapshot {
+        final File file;
+        final long length;
+        final byte[] hash;
+
+        PendingSnapshot(File file, long length, byte[] hash) {
+            this.file = file;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        void discard() {
+            if (file.exists() && !file.delete())
+                log.warn("Could not delete {}", file);
+        }
+    }
+
+    private PendingSnapshot writeSnapshot(byte[] snapshot) throws IOException {
+        File temp = createTempFile(null);
+        try {
+            writeFully(temp, snapshot);
+        } catch (IOException e) {
+            if (!temp.delete())
+                log.warn("Could not delete {}", temp);
+            throw e;
+        }
+        return new PendingSnapshot(temp, snapshot.length, Sha256Hash.hash(snapshot));
+    }
+
+    /** Replaces the snapshot with the given proto and starts an empty journal, all under the journal lock. */
+    @GuardedBy("lock")
+    private void installSnapshot(Protos.Wallet proto) throws IOException {
+        PendingSnapshot snapshot = writeSnapshot(proto.toByteArray());
+        try {
+            installSnapshot(proto, snapshot, new byte[0]);
+        } finally {
+            snapshot.discard();
+        }
+    }
+
+    /**
+     * Renames the pending snapshot over the wallet file and replaces the journal, which then holds the given tail of
+     * records. If a proto is given, the fingerprints are reset to it; otherwise the snapshot must match what the
+     * fingerprints describe.
+     */
+    @GuardedBy("lock")
+    private void installSnapshot(@Nullable Protos.Wallet proto, PendingSnapshot snapshot, byte[] tail) throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        File tempJournal = createTempFile(FILE_SUFFIX);
+        try {
+            ByteArrayOutputStream journal = new ByteArrayOutputStream(HEADER_LENGTH + tail.length);
+            CodedOutputStream header = CodedOutputStream.newInstance(journal);
+            header.writeFixed32NoTag(MAGIC);
+            header.writeRawBytes(snapshot.hash);
+            header.flush();
+            journal.write(tail);
+            writeFully(tempJournal, journal.toByteArray());
+            // Should we die between the two renames, the old journal no longer matches the snapshot and is ignored.
+            replace(snapshot.file, file);
+            replace(tempJournal, journalFile);
+        } finally {
+            if (tempJournal.exists() && !tempJournal.delete())
+                log.warn("Could not delete {}", tempJournal);
+        }
+        if (proto != null) {
+            Snapshot state = new Snapshot(proto);
+            txFingerprints = new HashMap<ByteString, Long>(state.txs.size() * 2);
+            for (Map.Entry<ByteString, Protos.Transaction> entry : state.txs.entrySet())
+                txFingerprints.put(entry.getKey(), fingerprint(entry.getValue()));
+            keyFingerprints = new long[state.keys.size()];
+            for (int i = 0; i < keyFingerprints.length; i++)
+                keyFingerprints[i] = fingerprint(state.keys.get(i));
+            restFingerprint = fingerprint(state.rest);
+        }
+        snapshotLength = snapshot.length;
+        journalLength = HEADER_LENGTH + tail.length;
+        generation++;
+        out = new FileOutputStream(journalFile, true);
+    }
+
+    @GuardedBy("lock")
+    private void appendChanges(Protos.Wallet proto) throws IOException {
+        Snapshot state = new Snapshot(proto);
+
+        long newRestFingerprint = fingerprint(state.rest);
+        boolean restChanged = newRestFingerprint != restFingerprint;
+
+        long[] newKeyFingerprints = new long[state.keys.size()];
+        List<Integer> changedKeys = new ArrayList<Integer>();
+        for (int i = 0; i < newKeyFingerprints.length; i++) {
+            newKeyFingerprints[i] = fingerprint(state.keys.get(i));
+            if (i >= keyFingerprints.length || newKeyFingerprints[i] != keyFingerprints[i])
+                changedKeys.add(i);
+        }
+
+        Map<ByteString, Long> newTxFingerprints = new HashMap<ByteString, Long>(state.txs.size() * 2);
+        List<Protos.Transaction> changedTxs = new ArrayList<Protos.Transaction>();
+        for (Map.Entry<ByteString, Protos.Transaction> entry : state.txs.entrySet()) {
+            long fingerprint = fingerprint(entry.getValue());
+            newTxFingerprints.put(entry.getKey(), fingerprint);
+            Long old = txFingerprints.get(entry.getKey());
+            if (old == null || old != fingerprint)
+                changedTxs.add(entry.getValue());
+        }
+        List<ByteString> removedTxs = new ArrayList<ByteString>();
+        for (ByteString hash : txFingerprints.keySet())
+            if (!newTxFingerprints.containsKey(hash))
+                removedTxs.add(hash);
+
+        if (!restChanged && changedKeys.isEmpty() && newKeyFingerprints.length == keyFingerprints.length
+                && changedTxs.isEmpty() && removedTxs.isEmpty())
+            return;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(body);
+        output.writeBoolNoTag(restChanged);
+        if (restChanged)
+            output.writeBytesNoTag(state.rest.toByteString());
+        output.writeUInt32NoTag(newKeyFingerprints.length);
+        output.writeUInt32NoTag(changedKeys.size());
+        for (int index : changedKeys) {
+            output.writeUInt32NoTag(index);
+            output.writeBytesNoTag(state.keys.get(index).toByteString());
+        }
+        output.writeUInt32NoTag(removedTxs.size());
+        for (ByteString hash : removedTxs)
+            output.writeBytesNoTag(hash);
+        // Transactions are written with their depth relative to the last seen block, as they are fingerprinted.
+        output.writeUInt32NoTag(changedTxs.size());
+        for (Protos.Transaction tx : changedTxs)
+            output.writeBytesNoTag(tx.toByteString());
+        output.flush();
+        byte[] record = frame(body.toByteArray());
+
+        try {
+            out.write(record);
+            out.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            // A partially written record would hide everything appended after it, so start over next time.
+            out.close();
+            out = null;
+            throw e;
+        }
+        journalLength += record.length;
+        restFingerprint = newRestFingerprint;
+        keyFingerprints = newKeyFingerprints;
+        txFingerprints = newTxFingerprints;
+    }
+
+    private static byte[] frame(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(RECORD_HEADER_LENGTH + body.length);
+        CodedOutputStream header = CodedOutputStream.newInstance(record);
+        header.writeFixed32NoTag(body.length);
+        header.writeFixed32NoTag((int) crc.getValue());
+        header.flush();
+        record.write(body);
+        return record.toByteArray();
+    }
+
+    private static long fingerprint(MessageLite message) {
+        return Hashing.murmur3_128().hashBytes(message.toByteArray()).asLong();
+    }
+
+    private static void writeFully(File file, byte[] bytes) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(bytes);
+            stream.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void replace(File temp, File destFile) throws IOException {
+        if (Utils.isWindows()) {
+            // Work around an issue on Windows whereby you can't rename over existing files.
+            File canonical = destFile.getCanonicalFile();
+            if (canonical.exists() && !canonical.delete())
+                throw new IOException("Failed to delete " + canonical + " for replacement");
+            if (!temp.renameTo(canonical))
+                throw new IOException("Failed to rename " + temp + " to " + canonical);
+        } else if (!temp.renameTo(destFile)) {
+            throw new IOException("Failed to rename " + temp + " to " + destFile);
+        }
+    }
+
+    /**
+     * Returns a wallet deserialized from the given snapshot file and its journal, if there is one. A journal which
+     * was written against a different snapshot is ignored, as is a record cut short by a crash at its end.
+     *
+     * @param file the wallet file to read
+     * @param walletExtensions extensions possibly added to the wallet.
+     */
+    public static Wallet loadFromFile(File file, @Nullable WalletExtension... walletExtensions) throws UnreadableWalletException {
+        Protos.Wallet proto;
+        try {
+            proto = readWalletProto(file);
+        } catch (IOException e) {
+            throw new UnreadableWalletException("Could not read wallet file or journal", e);
+        }
+        NetworkParameters params = Verification.fromID(proto.getNetworkIdentifier());
+        if (params == null)
+            throw new UnreadableWalletException("Unknown network parameters ID " + proto.getNetworkIdentifier());
+        Wallet wallet = new WalletProtobufSerializer().readWallet(params, walletExtensions, proto);
+        if (!wallet.isConsistent()) {
+            log.error("Loaded an inconsistent wallet");
+        }
+        return wallet;
+    }
+
+    /**
+     * Returns the protocol buffer of the wallet in the given snapshot file with its journal replayed on top, in the
+     * same form {@link WalletProtobufSerializer#walletToProto(Wallet)} would have produced it.
+     */
+    public static Protos.Wallet readWalletProto(File file) throws IOException {
+        byte[] snapshot = Files.toByteArray(file);
+        Protos.Wallet proto = WalletProtobufSerializer.parseToProto(new ByteArrayInputStream(snapshot));
+        File journalFile = journalFileFor(file);
+        if (!journalFile.exists())
+            return proto;
+        byte[] journal = Files.toByteArray(journalFile);
+        CodedInputStream input = CodedInputStream.newInstance(journal);
+        if (journal.length < HEADER_LENGTH || input.readFixed32() != MAGIC
+                || !Arrays.equals(input.readRawBytes(32), Sha256Hash.hash(snapshot))) {
+            log.warn("Ignoring {} as it does not belong to the current snapshot", journalFile);
+            return proto;
+        }
+        Snapshot state = new Snapshot(proto);
+        int offset = HEADER_LENGTH;
+        while (journal.length - offset >= RECORD_HEADER_LENGTH) {
+            CodedInputStream header = CodedInputStream.newInstance(journal, offset, RECORD_HEADER_LENGTH);
+            int length = header.readFixed32();
+            int checksum = header.readFixed32();
+            if (length < 0 || length > journal.length - offset - RECORD_HEADER_LENGTH)
+                break;
+            CRC32 crc = new CRC32();
+            crc.update(journal, offset + RECORD_HEADER_LENGTH, length);
+            if ((int) crc.getValue() != checksum)
+                break;
+            state.apply(CodedInputStream.newInstance(journal, offset + RECORD_HEADER_LENGTH, length));
+            offset += RECORD_HEADER_LENGTH + length;
+        }
+        if (offset != journal.length)
+            log.warn("Ignoring {} bytes of incomplete records at the end of {}", journal.length - offset, journalFile);
+        return state.toProto();
+    }
+
+    /**
+     * A wallet proto split into the parts the journal tracks separately. Transactions are keyed by hash and hold
+     * their depth relative to the last seen block height.
+     */
+    private static class Snapshot {
+        Protos.Wallet rest;
+        int height;
+        final List<Protos.Key> keys;
+        final LinkedHashMap<ByteString, Protos.Transaction> txs;
+
+        Snapshot(Protos.Wallet proto) {
+            setRest(proto.toBuilder().clearKey().clearTransaction().build());
+            keys = new ArrayList<Protos.Key>(proto.getKeyList());
+            txs = new LinkedHashMap<ByteString, Protos.Transaction>(proto.getTransactionCount() * 2);
+            for (Protos.Transaction tx : proto.getTransactionList())
+                txs.put(tx.getHash(), shiftDepth(tx, -height));
+        }
+
+        private void setRest(Protos.Wallet rest) {
+            this.rest = rest;
+            this.height = rest.hasLastSeenBlockHeight() ? rest.getLastSeenBlockHeight() : -1;
+        }
+
+        void apply(CodedInputStream input) throws IOException {
+            if (input.readBool())
+                setRest(Protos.Wallet.parseFrom(input.readBytes()));
+            int keyCount = input.readUInt32();
+            while (keys.size() > keyCount)
+                keys.remove(keys.size() - 1);
+            for (int i = input.readUInt32(); i > 0; i--) {
+                int index = input.readUInt32();
+                Protos.Key key = Protos.Key.parseFrom(input.readBytes());
+                if (index < keys.size())
+                    keys.set(index, key);
+                else if (index == keys.size())
+                    keys.add(key);
+                else
+                    throw new IOException("Key index " + index + " out of order in wallet journal");
+            }
+            for (int i = input.readUInt32(); i > 0; i--)
+                txs.remove(input.readBytes());
+            for (int i = input.readUInt32(); i > 0; i--) {
+                Protos.Transaction tx = Protos.Transaction.parseFrom(input.readBytes());
+                txs.put(tx.getHash(), tx);
+            }
+        }
+
+        Protos.Wallet toProto() {
+            Protos.Wallet.Builder builder = rest.toBuilder().addAllKey(keys);
+            for (Protos.Transaction tx : txs.values())
+                builder.addTransaction(shiftDepth(tx, height));
+            return builder.build();
+        }
+
+        private static Protos.Transaction shiftDepth(Protos.Transaction tx, int delta) {
+            if (delta == 0 || !tx.hasConfidence() || !tx.getConfidence().hasDepth())
+                return tx;
+            Protos.TransactionConfidence confidence = tx.getConfidence();
+            return tx.toBuilder().setConfidence(confidence.toBuilder().setDepth(confidence.getDepth() + delta)).build();
+        }
+    }
+}
@@ -681,6 +681,24 @@ public class PeerGroupTest extends TestWithPeerGroup {
         assertFalse(f1.contains(key.getPubKeyHash()));
     }
 
+    @Test
+    public void announceTransactions() throws Exception {
+        peerGroup.start();
+        InboundMessageQueuer p1 = connectPeer(1);
+        InboundMessageQueuer p2 = connectPeer(2);
+        peerGroup.waitForJobQueue();
+        while (outbound(p1) != null);
+        while (outbound(p2) != null);
+
+        Transaction tx = FakeTxBuilder.createFakeTx(TestWithNetworkConnections.NET, COIN, wallet.currentReceiveAddress());
+        assertEquals(2, peerGroup.announceTransactions(tx));
+        for (InboundMessageQueuer p : new InboundMessageQueuer[] { p1, p2 }) {
+            InventoryMessage inv = (InventoryMessage) outbound(p);
+            assertEquals(1, inv.getItems().size());
+            assertEquals(tx.getHash(), inv.getItems().get(0).hash);
+        }
+    }
+
     @Test
     public void waitForNumPeers1() throws Exception {
         ListenableFuture<List<Peer>> future = peerGroup.waitForPeers(3);
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.moved.wallet;
+
+import com.google.common.collect.Lists;
+import io.bitcoinsv.bitcoinjsv.core.ECKey;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyIndexTest {
+    @Test
+    public void lookupsAndInsertionOrder() {
+        KeyIndex index = new KeyIndex();
+        assertTrue(index.isEmpty());
+        assertNull(index.first());
+        List<ECKey> keys = new ArrayList<ECKey>();
+        for (int i = 0; i < 100; i++) {
+            ECKey key = new ECKey();
+            keys.add(key);
+            assertTrue(index.add(key));
+        }
+        assertEquals(100, index.size());
+        assertEquals(keys, Lists.newArrayList(index));
+        assertSame(keys.get(0), index.first());
+        for (ECKey key : keys) {
+            // Lookups go by value, not identity of the query array.
+            assertSame(key, index.getByPubKeyHash(Arrays.copyOf(key.getPubKeyHash(), 20)));
+            assertSame(key, index.getByPubKey(key.getPubKey()));
+        }
+        ECKey other = new ECKey();
+        assertNull(index.getByPubKeyHash(other.getPubKeyHash()));
+        assertNull(index.getByPubKey(other.getPubKey()));
+        assertNull(index.getByPubKey(new byte[0]));
+    }
+
+    @Test
+    public void rejectsDuplicatePubKeys() {
+        KeyIndex index = new KeyIndex();
+        ECKey key = new ECKey();
+        assertTrue(index.add(key));
+        assertFalse(index.add(ECKey.fromPublicOnly(key.getPubKey())));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void remove() {
+        KeyIndex index = new KeyIndex();
+        List<ECKey> keys = new ArrayList<ECKey>();
+        for (int i = 0; i < 40; i++) {
+            ECKey key = new ECKey();
+            keys.add(key);
+            index.add(key);
+        }
+        assertTrue(index.remove(keys.get(0)));
+        assertTrue(index.remove(keys.get(17)));
+        assertFalse(index.remove(keys.get(17)));
+        assertFalse(index.remove(new ECKey()));
+        keys.remove(17);
+        keys.remove(0);
+        assertEquals(38, index.size());
+        assertEquals(keys, Lists.newArrayList(index));
+        assertSame(keys.get(0), index.first());
+        for (ECKey key : keys)
+            assertSame(key, index.getByPubKeyHash(key.getPubKeyHash()));
+        ECKey removed = new ECKey();
+        index.add(removed);
+        assertNotNull(index.getByPubKey(removed.getPubKey()));
+        index.remove(removed);
+        assertNull(index.getByPubKey(removed.getPubKey()));
+    }
+}
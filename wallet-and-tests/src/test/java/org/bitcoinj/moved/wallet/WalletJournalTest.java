@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bitcoinj.moved.wallet;
+
+import io.bitcoinsv.bitcoinjsv.blockchain.AbstractBlockChain;
+import io.bitcoinsv.bitcoinjsv.protos.Protos;
+import org.bitcoinj.moved.testing.TestWithWallet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.bitcoinsv.bitcoinjsv.core.Coin.*;
+import static org.junit.Assert.*;
+
+public class WalletJournalTest extends TestWithWallet {
+    private File file;
+    private WalletJournal journal;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("bitcoinj-unit-test", null);
+        journal = new WalletJournal(file);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        journal.close();
+        file.delete();
+        journal.getJournalFile().delete();
+        super.tearDown();
+    }
+
+    // The wallet keeps its transactions in a set, so compare them regardless of order.
+    private static Protos.Wallet sorted(Protos.Wallet proto) {
+        List<Protos.Transaction> txs = new ArrayList<>(proto.getTransactionList());
+        txs.sort((a, b) -> a.getHash().toStringUtf8().compareTo(b.getHash().toStringUtf8()));
+        return proto.toBuilder().clearTransaction().addAllTransaction(txs).build();
+    }
+
+    private void assertSaved() throws Exception {
+        assertEquals(sorted(new WalletProtobufSerializer().walletToProto(wallet)),
+                sorted(WalletJournal.readWalletProto(file)));
+    }
+
+    @Test
+    public void appendsOnlyChanges() throws Exception {
+        for (int i = 0; i < 20; i++)
+            sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        journal.append(wallet);
+        long snapshotLength = file.length();
+        long journalLength = journal.getJournalFile().length();
+        assertSaved();
+
+        // Nothing changed, nothing written.
+        journal.append(wallet);
+        assertEquals(journalLength, journal.getJournalFile().length());
+
+        // A new block deepens all twenty transactions, but only the new one is written.
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, CENT);
+        journal.append(wallet);
+        long recordLength = journal.getJournalFile().length() - journalLength;
+        assertTrue(recordLength < snapshotLength / 5);
+        assertEquals(snapshotLength, file.length());
+        assertSaved();
+
+        sendMoneyToWallet(null, valueOf(0, 5));
+        wallet.freshReceiveKey();
+        journal.append(wallet);
+        assertSaved();
+
+        Wallet loaded = WalletJournal.loadFromFile(file);
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED), loaded.getBalance(Wallet.BalanceType.ESTIMATED));
+        assertEquals(wallet.getTransactions(true).size(), loaded.getTransactions(true).size());
+        assertEquals(wallet.getIssuedReceiveKeys(), loaded.getIssuedReceiveKeys());
+    }
+
+    @Test
+    public void compactionFoldsJournalIntoSnapshot() throws Exception {
+        journal.append(wallet);
+        for (int i = 0; i < 5; i++) {
+            sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+            journal.append(wallet);
+        }
+        assertTrue(journal.getJournalFile().length() > 36);
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        journal.compact(wallet);
+        assertEquals(36, journal.getJournalFile().length());
+        assertSaved();
+        // The snapshot alone is an ordinary wallet file.
+        assertEquals(wallet.getBalance(), Wallet.loadFromFile(file).getBalance());
+
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, CENT);
+        journal.append(wallet);
+        assertSaved();
+    }
+
+    @Test
+    public void ignoresTornRecordsAndStaleJournals() throws Exception {
+        journal.append(wallet);
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        journal.append(wallet);
+        Protos.Wallet saved = sorted(WalletJournal.readWalletProto(file));
+
+        // Half a record, as left behind by a crash.
+        FileOutputStream out = new FileOutputStream(journal.getJournalFile(), true);
+        out.write(new byte[] { 100, 0, 0, 0, 1, 2, 3, 4, 5 });
+        out.close();
+        assertEquals(saved, sorted(WalletJournal.readWalletProto(file)));
+
+        // A snapshot written behind the journal's back makes the journal meaningless.
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, CENT);
+        wallet.saveToFile(file);
+        assertSaved();
+    }
+
+    @Test
+    public void autosaveWithJournal() throws Exception {
+        WalletFiles files = wallet.autosaveToFile(file, 0, TimeUnit.SECONDS, null);
+        files.enableJournal();
+        wallet.freshReceiveKey();
+        sendMoneyToWallet(null, COIN);
+        assertTrue(journal.getJournalFile().length() > 36);
+        assertSaved();
+        wallet.shutdownAutosaveAndWait();
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED),
+                WalletJournal.loadFromFile(file).getBalance(Wallet.BalanceType.ESTIMATED));
+        // The standard loader replays the journal too.
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED),
+                Wallet.loadFromFile(file).getBalance(Wallet.BalanceType.ESTIMATED));
+    }
+
+    @Test
+    public void listenerSeesSnapshotsOnly() throws Exception {
+        final List<File> before = new ArrayList<>();
+        final List<File> after = new ArrayList<>();
+        journal.setListener(new WalletFiles.Listener() {
+            @Override
+            public void onBeforeAutoSave(File tempFile) {
+                assertTrue(tempFile.exists());
+                before.add(tempFile);
+            }
+
+            @Override
+            public void onAfterAutoSave(File newlySavedFile) {
+                after.add(newlySavedFile);
+            }
+        });
+        // A snapshot reports its temporary snapshot and journal files, then the wallet file.
+        journal.append(wallet);
+        assertEquals(2, before.size());
+        assertEquals(1, after.size());
+        assertEquals(file, after.get(0));
+
+        // Appending a record replaces no file.
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        journal.append(wallet);
+        assertEquals(2, before.size());
+        assertEquals(1, after.size());
+
+        journal.compact(wallet);
+        assertEquals(4, before.size());
+        assertEquals(2, after.size());
+        assertEquals(file, after.get(1));
+    }
+
+    @Test
+    public void saveToFileGoesThroughJournal() throws Exception {
+        WalletFiles files = wallet.autosaveToFile(file, 0, TimeUnit.SECONDS, null);
+        files.enableJournal();
+        wallet.freshReceiveKey();
+        sendMoneyToWallet(null, COIN);
+        assertTrue(journal.getJournalFile().length() > 36);
+        wallet.saveToFile(file);
+        assertEquals(36, journal.getJournalFile().length());
+        // Later saves append to a journal that matches the new snapshot.
+        sendMoneyToWallet(null, CENT);
+        assertTrue(journal.getJournalFile().length() > 36);
+        assertSaved();
+        wallet.shutdownAutosaveAndWait();
+        assertEquals(wallet.getBalance(Wallet.BalanceType.ESTIMATED),
+                Wallet.loadFromFile(file).getBalance(Wallet.BalanceType.ESTIMATED));
+    }
+}